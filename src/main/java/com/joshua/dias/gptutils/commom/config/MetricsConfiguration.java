@@ -0,0 +1,28 @@
+package com.joshua.dias.gptutils.commom.config;
+
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.config.MeterFilter;
+import jakarta.enterprise.inject.Produces;
+import jakarta.inject.Singleton;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+/**
+ * Adds the tags shared by every meter, so dashboards can compare instances of the service.
+ */
+@Singleton
+public class MetricsConfiguration {
+
+    @ConfigProperty(name = "app.metrics.instance", defaultValue = "local")
+    String instance;
+
+    /**
+     * Tags every meter with the instance it was recorded on.
+     *
+     * @return The meter filter
+     */
+    @Produces
+    @Singleton
+    public MeterFilter commonTags() {
+        return MeterFilter.commonTags(Tags.of("instance", instance));
+    }
+}
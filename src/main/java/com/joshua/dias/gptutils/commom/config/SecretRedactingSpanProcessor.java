@@ -0,0 +1,84 @@
+package com.joshua.dias.gptutils.commom.config;
+
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.sdk.trace.ReadWriteSpan;
+import io.opentelemetry.sdk.trace.ReadableSpan;
+import io.opentelemetry.sdk.trace.SpanProcessor;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Masks credentials in the URLs recorded by the REST client spans before they are exported.
+ * The Z-API base URL carries the instance ID and token in its path, so every Z-API span would otherwise
+ * leak them to the trace collector.
+ */
+@ApplicationScoped
+public class SecretRedactingSpanProcessor implements SpanProcessor {
+
+    private static final Logger LOG = Logger.getLogger(SecretRedactingSpanProcessor.class);
+    private static final String MASK = "***";
+    private static final List<AttributeKey<String>> URL_ATTRIBUTES = List.of(
+            AttributeKey.stringKey("url.full"),
+            AttributeKey.stringKey("http.url")
+    );
+
+    private final List<String> secrets;
+
+    /**
+     * Constructor that injects configuration.
+     */
+    @Inject
+    public SecretRedactingSpanProcessor(
+            @ConfigProperty(name = "zapi.instance-id") Optional<String> instanceId,
+            @ConfigProperty(name = "zapi.instance-token") Optional<String> instanceToken
+    ) {
+        this.secrets = Stream.of(instanceId, instanceToken)
+                .flatMap(Optional::stream)
+                .filter(secret -> !secret.isBlank())
+                .toList();
+        LOG.info("SecretRedactingSpanProcessor initialized with " + secrets.size() + " secrets to mask");
+    }
+
+    @Override
+    public void onStart(Context parentContext, ReadWriteSpan span) {
+        // The client instrumentation sets the URL when the span is created, so it is masked before anything reads it
+        for (AttributeKey<String> key : URL_ATTRIBUTES) {
+            String url = span.getAttribute(key);
+            if (url != null) {
+                span.setAttribute(key, redact(url));
+            }
+        }
+    }
+
+    @Override
+    public boolean isStartRequired() {
+        return true;
+    }
+
+    @Override
+    public void onEnd(ReadableSpan span) {
+    }
+
+    @Override
+    public boolean isEndRequired() {
+        return false;
+    }
+
+    /**
+     * Replaces every secret in a URL with a mask.
+     */
+    private String redact(String url) {
+        String redacted = url;
+        for (String secret : secrets) {
+            redacted = redacted.replace(secret, MASK);
+        }
+        return redacted;
+    }
+}
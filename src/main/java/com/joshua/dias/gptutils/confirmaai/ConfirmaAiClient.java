@@ -1,6 +1,7 @@
 package com.joshua.dias.gptutils.confirmaai;
 
 import com.joshua.dias.gptutils.message.model.ReceiveMessageDTO;
+import io.smallrye.mutiny.Uni;
 import jakarta.ws.rs.Consumes;
 import jakarta.ws.rs.POST;
 import jakarta.ws.rs.Path;
@@ -16,4 +17,10 @@ public interface ConfirmaAiClient {
     @Consumes("application/json")
     @Produces("application/json")
     Response triggerWebhook(ReceiveMessageDTO request);
+
+    @POST
+    @Path("/webhook")
+    @Consumes("application/json")
+    @Produces("application/json")
+    Uni<Response> triggerWebhookAsync(ReceiveMessageDTO request);
 }
@@ -0,0 +1,80 @@
+package com.joshua.dias.gptutils.confirmaai;
+
+import com.joshua.dias.gptutils.message.model.ReceiveMessageDTO;
+import com.joshua.dias.gptutils.orchestration.model.CancellationToken;
+import com.joshua.dias.gptutils.orchestration.service.DownstreamGuard;
+import com.joshua.dias.gptutils.orchestration.service.DownstreamRegistry;
+import com.joshua.dias.gptutils.orchestration.service.RetryScheduler;
+import io.smallrye.mutiny.Uni;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.core.Response;
+import org.eclipse.microprofile.rest.client.inject.RestClient;
+import org.jboss.logging.Logger;
+
+import java.net.ConnectException;
+
+/**
+ * Service for forwarding button responses to ConfirmaAI.
+ * Calls go through the "confirmaai" downstream guard, so a failing ConfirmaAI is refused fast
+ * with {@link com.joshua.dias.gptutils.orchestration.service.DownstreamUnavailableException}.
+ * The webhook is not idempotent, so the {@link RetryScheduler} only retries calls that never reached ConfirmaAI
+ * because the connection was refused; a 5xx answer or a timeout is not retried, as the button may already have
+ * been handled.
+ */
+@ApplicationScoped
+public class ConfirmaAiService {
+
+    private static final Logger LOG = Logger.getLogger(ConfirmaAiService.class);
+    private static final String DOWNSTREAM = "confirmaai";
+
+    private final ConfirmaAiClient confirmaAiClient;
+    private final DownstreamGuard guard;
+    private final RetryScheduler retryScheduler;
+
+    /**
+     * Constructor that injects dependencies.
+     */
+    @Inject
+    public ConfirmaAiService(@RestClient ConfirmaAiClient confirmaAiClient, DownstreamRegistry downstreamRegistry,
+                             RetryScheduler retryScheduler) {
+        this.confirmaAiClient = confirmaAiClient;
+        this.guard = downstreamRegistry.get(DOWNSTREAM);
+        this.retryScheduler = retryScheduler;
+        LOG.info("ConfirmaAiService initialized");
+    }
+
+    /**
+     * Triggers the ConfirmaAI webhook without blocking the calling thread.
+     *
+     * @param message The message with the button response
+     * @return A Uni emitting the ConfirmaAI response
+     */
+    public Uni<Response> triggerWebhookAsync(ReceiveMessageDTO message) {
+        return Uni.createFrom().completionStage(() -> retryScheduler.executeAsync(DOWNSTREAM,
+                () -> guard.callAsync(() -> confirmaAiClient.triggerWebhookAsync(message), ConfirmaAiService::isServerError)
+                        .subscribeAsCompletionStage(),
+                response -> false,
+                ConfirmaAiService::wasNeverSent,
+                CancellationToken.none()));
+    }
+
+    /**
+     * Tells whether a response means ConfirmaAI itself is failing.
+     */
+    private static boolean isServerError(Response response) {
+        return response.getStatus() >= 500;
+    }
+
+    /**
+     * Tells whether a call failed before its request could reach ConfirmaAI.
+     */
+    private static boolean wasNeverSent(Throwable failure) {
+        for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConnectException) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,83 @@
+package com.joshua.dias.gptutils.csv.model;
+
+import com.joshua.dias.gptutils.orchestration.model.Lane;
+import com.joshua.dias.gptutils.orchestration.model.ToolExecutionRequest;
+import com.joshua.dias.gptutils.orchestration.model.ToolParameters;
+
+/**
+ * The parameters of the CSV processing tool, bound once from a {@link ToolExecutionRequest}.
+ *
+ * @param requestId The request ID, or null if the request was not accepted through the ToolExecutionService
+ * @param phoneNumber The phone number to send the result to
+ * @param documentUrl The URL of the CSV document
+ * @param contentType The content type of the message, which must be "document"
+ * @param messageId The ID of the message to reply to
+ * @param contentSize The estimated size of the document in bytes, or 0 if unknown
+ * @param lane The lane the request was assigned to
+ */
+public record CsvProcessingParameters(
+        String requestId,
+        String phoneNumber,
+        String documentUrl,
+        String contentType,
+        String messageId,
+        long contentSize,
+        Lane lane
+) {
+
+    /**
+     * Binds the parameters of a request.
+     *
+     * @param request The request
+     * @return The parameters; missing text parameters are bound as empty strings
+     */
+    public static CsvProcessingParameters bind(ToolExecutionRequest request) {
+        return new CsvProcessingParameters(
+                request.get(ToolParameters.REQUEST_ID, null),
+                request.get(ToolParameters.PHONE_NUMBER, ""),
+                request.get(ToolParameters.CONTENT_URL, ""),
+                request.get(ToolParameters.CONTENT_TYPE, ""),
+                request.get(ToolParameters.MESSAGE_ID, ""),
+                request.get(ToolParameters.CONTENT_SIZE, 0L),
+                Lane.fromName(request.get(ToolParameters.LANE, null))
+        );
+    }
+
+    /**
+     * Validates the parameters.
+     *
+     * @return An error message if the parameters are invalid, null otherwise
+     */
+    public String validate() {
+        if (phoneNumber.isBlank()) {
+            return "Phone number is required";
+        }
+        if (documentUrl.isBlank()) {
+            return "Content URL is required";
+        }
+        if (contentType.isBlank()) {
+            return "Content type is required";
+        }
+        if (!"document".equals(contentType)) {
+            return "Content type must be 'document'";
+        }
+        // Basic URL validation
+        if (!documentUrl.startsWith("http://") && !documentUrl.startsWith("https://")) {
+            return "Content URL must be a valid HTTP or HTTPS URL";
+        }
+        return null;
+    }
+
+    /**
+     * Creates the CsvProcessingRequest for these parameters, without a cancellation token.
+     *
+     * @return The CSV processing request
+     */
+    public CsvProcessingRequest toCsvProcessingRequest() {
+        CsvProcessingRequest csvRequest = new CsvProcessingRequest(phoneNumber, documentUrl, messageId);
+        csvRequest.setContentSize(contentSize);
+        csvRequest.setRequestId(requestId);
+        csvRequest.setLane(lane);
+        return csvRequest;
+    }
+}
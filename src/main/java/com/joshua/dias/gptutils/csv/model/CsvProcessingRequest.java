@@ -1,5 +1,8 @@
 package com.joshua.dias.gptutils.csv.model;
 
+import com.joshua.dias.gptutils.orchestration.model.CancellationToken;
+import com.joshua.dias.gptutils.orchestration.model.Lane;
+
 /**
  * Request model for CSV processing.
  */
@@ -7,6 +10,10 @@ public class CsvProcessingRequest {
     private String phoneNumber;
     private String documentUrl;
     private String messageId;
+    private long contentSize;
+    private String requestId;
+    private Lane lane = Lane.HEAVY;
+    private CancellationToken cancellation = CancellationToken.none();
 
     // Default constructor
     public CsvProcessingRequest() {
@@ -43,4 +50,36 @@ public class CsvProcessingRequest {
     public void setMessageId(String messageId) {
         this.messageId = messageId;
     }
-}
\ No newline at end of file
+
+    public long getContentSize() {
+        return contentSize;
+    }
+
+    public void setContentSize(long contentSize) {
+        this.contentSize = contentSize;
+    }
+
+    public String getRequestId() {
+        return requestId;
+    }
+
+    public void setRequestId(String requestId) {
+        this.requestId = requestId;
+    }
+
+    public Lane getLane() {
+        return lane;
+    }
+
+    public void setLane(Lane lane) {
+        this.lane = lane;
+    }
+
+    public CancellationToken getCancellation() {
+        return cancellation;
+    }
+
+    public void setCancellation(CancellationToken cancellation) {
+        this.cancellation = cancellation;
+    }
+}
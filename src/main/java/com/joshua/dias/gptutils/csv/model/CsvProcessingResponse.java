@@ -1,15 +1,19 @@
 package com.joshua.dias.gptutils.csv.model;
 
+import com.joshua.dias.gptutils.orchestration.model.StageTiming;
+
 import java.util.List;
+import java.util.Map;
 
 /**
- * Response model for CSV processing.
+ * Response model for CSV processing, with the time spent in each stage of it.
  */
 public class CsvProcessingResponse {
     private String phoneNumber;
     private String message;
     private boolean success;
     private List<PropertyDTO> filteredData;
+    private Map<String, StageTiming> stages;
 
     // Default constructor
     public CsvProcessingResponse() {
@@ -63,4 +67,12 @@ public class CsvProcessingResponse {
     public void setFilteredData(List<PropertyDTO> filteredData) {
         this.filteredData = filteredData;
     }
-}
\ No newline at end of file
+
+    public Map<String, StageTiming> getStages() {
+        return stages;
+    }
+
+    public void setStages(Map<String, StageTiming> stages) {
+        this.stages = stages;
+    }
+}
@@ -1,8 +1,12 @@
 package com.joshua.dias.gptutils.csv.service;
 
+import com.joshua.dias.gptutils.csv.model.CsvProcessingParameters;
 import com.joshua.dias.gptutils.csv.model.CsvProcessingRequest;
 import com.joshua.dias.gptutils.orchestration.model.ToolExecutionRequest;
 import com.joshua.dias.gptutils.orchestration.model.ToolExecutionResponse;
+import com.joshua.dias.gptutils.orchestration.model.ToolParameters;
+import com.joshua.dias.gptutils.orchestration.service.CancellationRegistry;
+import com.joshua.dias.gptutils.orchestration.service.ExecutorOverloadedException;
 import com.joshua.dias.gptutils.orchestration.service.Tool;
 
 import jakarta.enterprise.context.ApplicationScoped;
@@ -25,13 +29,15 @@ public class CsvProcessingTool implements Tool {
     private static final String TOOL_NAME = "csv-processing";
     
     private final CsvProcessingService csvProcessingService;
+    private final CancellationRegistry cancellationRegistry;
     
     /**
      * Constructor that injects dependencies.
      */
     @Inject
-    public CsvProcessingTool(CsvProcessingService csvProcessingService) {
+    public CsvProcessingTool(CsvProcessingService csvProcessingService, CancellationRegistry cancellationRegistry) {
         this.csvProcessingService = csvProcessingService;
+        this.cancellationRegistry = cancellationRegistry;
         LOG.info("CsvProcessingTool initialized");
     }
     
@@ -47,7 +53,7 @@ public class CsvProcessingTool implements Tool {
 
     @Override
     public ToolExecutionResponse execute(ToolExecutionRequest request) {
-        String requestId = UUID.randomUUID().toString();
+        String requestId = request.get(ToolParameters.REQUEST_ID, UUID.randomUUID().toString());
         LOG.info("Executing CSV processing tool synchronously, requestId: " + requestId);
 
         try {
@@ -68,7 +74,7 @@ public class CsvProcessingTool implements Tool {
     
     @Override
     public CompletableFuture<ToolExecutionResponse> executeAsync(ToolExecutionRequest request) {
-        String requestId = UUID.randomUUID().toString();
+        String requestId = request.get(ToolParameters.REQUEST_ID, UUID.randomUUID().toString());
         LOG.info("Executing CSV processing tool asynchronously, requestId: " + requestId);
         
         CompletableFuture<ToolExecutionResponse> resultFuture = new CompletableFuture<>();
@@ -83,6 +89,9 @@ public class CsvProcessingTool implements Tool {
             // Complete the future with an "accepted" response immediately
             resultFuture.complete(ToolExecutionResponse.accepted(TOOL_NAME, requestId));
             
+        } catch (ExecutorOverloadedException e) {
+            LOG.warn("Refused CSV processing request, executor is full: " + e.getMessage());
+            resultFuture.complete(e.toResponse(TOOL_NAME, requestId));
         } catch (Exception e) {
             LOG.error("Error executing CSV processing tool asynchronously: " + e.getMessage(), e);
             resultFuture.complete(
@@ -98,41 +107,15 @@ public class CsvProcessingTool implements Tool {
             return "Parameters are required";
         }
         
-        String phoneNumber = request.getParameterAs("phoneNumber", null);
-        if (phoneNumber == null || phoneNumber.trim().isEmpty()) {
-            return "Phone number is required";
-        }
-        
-        String contentUrl = request.getParameterAs("contentUrl", null);
-        if (contentUrl == null || contentUrl.trim().isEmpty()) {
-            return "Content URL is required";
-        }
-        
-        String contentType = request.getParameterAs("contentType", null);
-        if (contentType == null || contentType.trim().isEmpty()) {
-            return "Content type is required";
-        }
-        
-        if (!"document".equals(contentType)) {
-            return "Content type must be 'document'";
-        }
-        
-        // Basic URL validation
-        if (!contentUrl.startsWith("http://") && !contentUrl.startsWith("https://")) {
-            return "Content URL must be a valid HTTP or HTTPS URL";
-        }
-        
-        return null; // Valid
+        return CsvProcessingParameters.bind(request).validate();
     }
     
     /**
      * Creates a CsvProcessingRequest from a ToolExecutionRequest.
      */
     private CsvProcessingRequest createCsvProcessingRequest(ToolExecutionRequest request) {
-        String phoneNumber = request.getParameterAs("phoneNumber", "");
-        String documentUrl = request.getParameterAs("contentUrl", "");
-        String messageId = request.getParameterAs("messageId", "");
-        
-        return new CsvProcessingRequest(phoneNumber, documentUrl, messageId);
+        CsvProcessingRequest csvRequest = CsvProcessingParameters.bind(request).toCsvProcessingRequest();
+        csvRequest.setCancellation(cancellationRegistry.get(csvRequest.getRequestId()));
+        return csvRequest;
     }
 }
\ No newline at end of file
@@ -3,27 +3,36 @@ package com.joshua.dias.gptutils.csv.service;
 import com.joshua.dias.gptutils.csv.model.CsvProcessingRequest;
 import com.joshua.dias.gptutils.csv.model.CsvProcessingResponse;
 import com.joshua.dias.gptutils.csv.model.PropertyDTO;
+import com.joshua.dias.gptutils.orchestration.model.CancellationToken;
+import com.joshua.dias.gptutils.orchestration.model.Deadline;
+import com.joshua.dias.gptutils.orchestration.model.DeadlineExceededException;
+import com.joshua.dias.gptutils.orchestration.model.JobCancelledException;
+import com.joshua.dias.gptutils.orchestration.model.JobState;
+import com.joshua.dias.gptutils.orchestration.model.StageLedger;
+import com.joshua.dias.gptutils.orchestration.service.ChatOrderedExecutor;
+import com.joshua.dias.gptutils.orchestration.service.JobStore;
+import com.joshua.dias.gptutils.orchestration.service.RetryScheduler;
+import com.joshua.dias.gptutils.orchestration.service.StageMetrics;
 import com.joshua.dias.gptutils.zapi.service.ZApiService;
-import jakarta.annotation.PostConstruct;
-import jakarta.annotation.PreDestroy;
+import io.opentelemetry.api.trace.SpanKind;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.jboss.logging.Logger;
 
 import java.io.BufferedReader;
+import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
 import java.net.HttpURLConnection;
 import java.net.URI;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.ThreadPoolExecutor;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.CompletionException;
 import java.util.stream.Collectors;
 
 import static java.util.Objects.nonNull;
@@ -31,11 +40,16 @@ import static java.util.Objects.nonNull;
 /**
  * Default implementation of the CsvProcessingService.
  * This service processes CSV documents, renames columns, maps to JSON, and filters data.
+ * Requests that are cancelled or whose deadline passes before they finish are dropped and their job is marked
+ * as cancelled or expired. A failed notification is retried without holding the worker thread.
  */
 @ApplicationScoped
 public class DefaultCsvProcessingService implements CsvProcessingService {
 
     private static final Logger LOG = Logger.getLogger(DefaultCsvProcessingService.class);
+    private static final String BULKHEAD = "csv-processing";
+    private static final String NOTIFICATION = "notification";
+
     // Column mapping from original to new names
     private static final Map<Integer, String> COLUMN_MAPPING = new HashMap<>();
 
@@ -54,100 +68,165 @@ public class DefaultCsvProcessingService implements CsvProcessingService {
     }
 
     private final ZApiService zApiService;
-    private ExecutorService executorService;
+    private final ChatOrderedExecutor chatOrderedExecutor;
+    private final JobStore jobStore;
+    private final StageMetrics stageMetrics;
+    private final RetryScheduler retryScheduler;
+    private final int connectTimeoutMillis;
+    private final int readTimeoutMillis;
 
     /**
-     * Constructor that injects dependencies.
+     * Constructor that injects dependencies and configuration.
      */
     @Inject
-    public DefaultCsvProcessingService(ZApiService zApiService) {
+    public DefaultCsvProcessingService(
+            ZApiService zApiService,
+            ChatOrderedExecutor chatOrderedExecutor,
+            JobStore jobStore,
+            StageMetrics stageMetrics,
+            RetryScheduler retryScheduler,
+            @ConfigProperty(name = "app.deadlines.connect-timeout-ms", defaultValue = "10000") int connectTimeoutMillis,
+            @ConfigProperty(name = "app.deadlines.read-timeout-ms", defaultValue = "60000") int readTimeoutMillis
+    ) {
         this.zApiService = zApiService;
+        this.chatOrderedExecutor = chatOrderedExecutor;
+        this.jobStore = jobStore;
+        this.stageMetrics = stageMetrics;
+        this.retryScheduler = retryScheduler;
+        this.connectTimeoutMillis = connectTimeoutMillis;
+        this.readTimeoutMillis = readTimeoutMillis;
     }
 
-    /**
-     * Initializes the thread pool.
-     */
-    @PostConstruct
-    void init() {
-        LOG.info("Initializing DefaultCsvProcessingService");
-
-        // Create a thread pool with bounded queue
-        this.executorService = new ThreadPoolExecutor(
-                5, // core pool size
-                10, // max pool size
-                60L, TimeUnit.SECONDS,
-                new LinkedBlockingQueue<>(100),
-                Executors.defaultThreadFactory(),
-                new ThreadPoolExecutor.CallerRunsPolicy() // If queue is full, caller thread executes the task
-        );
+    @Override
+    public CsvProcessingResponse process(CsvProcessingRequest request) {
+        return processAndNotify(request).join();
+    }
+
+    @Override
+    public CompletableFuture<CsvProcessingResponse> processAsync(CsvProcessingRequest request) {
+        LOG.info("Processing CSV asynchronously for phone: " + request.getPhoneNumber());
+        // The task hands back the pending notification, so the shard is freed once the first attempt has been made
+        return chatOrderedExecutor.submit(request.getLane(), BULKHEAD, request.getPhoneNumber(), request.getContentSize(), () -> {
+            // The notification may complete on another thread, so the ledger is taken while it is current
+            StageLedger ledger = StageLedger.current();
+            return processAndNotify(request).thenApply(response -> {
+                // Every stage of the request has run by now, including the wait for the chat's worker
+                response.setStages(ledger != null ? ledger.getStages() : new LinkedHashMap<>());
+                return response;
+            });
+        }).thenCompose(notified -> notified);
     }
 
     /**
-     * Shuts down the thread pool.
+     * Downloads, parses and filters the CSV on the calling thread and sends the matches to the chat.
+     *
+     * @return A future completed with the response once the notification was sent or given up; it never fails
      */
-    @PreDestroy
-    void shutdown() {
-        LOG.info("Shutting down DefaultCsvProcessingService");
-        if (executorService != null) {
-            executorService.shutdown();
-            try {
-                if (!executorService.awaitTermination(10, TimeUnit.SECONDS)) {
-                    executorService.shutdownNow();
-                }
-            } catch (InterruptedException e) {
-                executorService.shutdownNow();
-                Thread.currentThread().interrupt();
-            }
-        }
-    }
+    private CompletableFuture<CsvProcessingResponse> processAndNotify(CsvProcessingRequest request) {
+        CancellationToken cancellation = request.getCancellation();
+        List<PropertyDTO> filteredData;
+        try {
+            // Work that was cancelled or waited past its deadline is dropped before anything is done for it
+            cancellation.check("queue");
 
-    @Override
-    public CsvProcessingResponse process(CsvProcessingRequest request) {
-        zApiService.readMessage(request.getPhoneNumber(), request.getMessageId());
+            // The read receipt is fire-and-forget, so it does not hold the chat's worker
+            zApiService.readMessageAsync(request.getPhoneNumber(), request.getMessageId()).subscribe().with(read -> { });
 
-        try {
             LOG.info("Processing CSV for phone: " + request.getPhoneNumber());
 
             // Download the CSV file
-            String csvContent = downloadCsvFile(request.getDocumentUrl());
+            jobStore.transition(request.getRequestId(), JobState.DOWNLOADING);
+            String csvContent = downloadCsvFile(request.getDocumentUrl(), cancellation);
 
             // Process the CSV content
-            List<PropertyDTO> propertyData = convertCsvToPropertyDTOs(csvContent);
+            List<PropertyDTO> propertyData;
+            try (StageMetrics.Stage stage = stageMetrics.start(StageMetrics.CSV_PARSE)) {
+                propertyData = convertCsvToPropertyDTOs(csvContent);
+                stage.attribute("gptutils.csv.rows", propertyData.size()).succeeded();
+            }
 
             // Filter the data
-            List<PropertyDTO> filteredData = filterData(propertyData);
-
-            // Send notification with the filtered data
-            sendNotification(request.getPhoneNumber(), filteredData);
+            try (StageMetrics.Stage stage = stageMetrics.start(StageMetrics.CSV_FILTER)) {
+                filteredData = filterData(propertyData);
+                stage.attribute("gptutils.csv.matches", filteredData.size()).succeeded();
+            }
 
-            return new CsvProcessingResponse(request.getPhoneNumber(), filteredData);
+            cancellation.check("notification");
+            jobStore.transition(request.getRequestId(), JobState.NOTIFYING);
         } catch (Exception e) {
-            LOG.error("Error processing CSV: " + e.getMessage(), e);
-            return new CsvProcessingResponse(request.getPhoneNumber(), "Error processing CSV: " + e.getMessage());
+            return CompletableFuture.completedFuture(handleError(request, e));
         }
+
+        // Send notification with the filtered data
+        return sendNotification(request.getPhoneNumber(), filteredData, cancellation).handle((sent, error) -> {
+            try {
+                if (error != null) {
+                    throw error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                }
+                if (!sent) {
+                    // Retries that stopped because of a cancellation or the deadline drop the job instead of failing it
+                    cancellation.check("notification");
+                    jobStore.fail(request.getRequestId(), "Failed to send notification");
+                } else {
+                    jobStore.transition(request.getRequestId(), JobState.DONE);
+                }
+                return new CsvProcessingResponse(request.getPhoneNumber(), filteredData);
+            } catch (Throwable e) {
+                return handleError(request, e);
+            }
+        });
     }
 
-    @Override
-    public CompletableFuture<CsvProcessingResponse> processAsync(CsvProcessingRequest request) {
-        LOG.info("Processing CSV asynchronously for phone: " + request.getPhoneNumber());
-        return CompletableFuture.supplyAsync(() -> process(request), executorService);
+    /**
+     * Ends the job of a request that could not be processed and builds its failed response.
+     * Requests that were cancelled or ran past their deadline are dropped instead of failed.
+     */
+    private CsvProcessingResponse handleError(CsvProcessingRequest request, Throwable e) {
+        if (e instanceof DeadlineExceededException) {
+            LOG.warn("Dropping CSV processing for phone: " + request.getPhoneNumber() + ", " + e.getMessage());
+            jobStore.expire(request.getRequestId(), e.getMessage());
+            return new CsvProcessingResponse(request.getPhoneNumber(), e.getMessage());
+        }
+        if (e instanceof JobCancelledException) {
+            LOG.info("Dropping CSV processing for phone: " + request.getPhoneNumber() + ", " + e.getMessage());
+            jobStore.cancel(request.getRequestId(), e.getMessage());
+            return new CsvProcessingResponse(request.getPhoneNumber(), e.getMessage());
+        }
+        LOG.error("Error processing CSV: " + e.getMessage(), e);
+        jobStore.fail(request.getRequestId(), "Error processing CSV: " + e.getMessage());
+        return new CsvProcessingResponse(request.getPhoneNumber(), "Error processing CSV: " + e.getMessage());
     }
 
     /**
      * Downloads a CSV file from a URL.
+     * The socket timeouts are derived from the deadline, and a cancellation closes the connection.
      *
      * @param url The URL of the CSV file
+     * @param cancellation The cancellation token of the request
      * @return The content of the CSV file as a string
      * @throws Exception If an error occurs during download
      */
-    private String downloadCsvFile(String url) throws Exception {
+    private String downloadCsvFile(String url, CancellationToken cancellation) throws Exception {
         LOG.info("Downloading CSV file from URL: " + url);
 
+        Deadline deadline = cancellation.getDeadline();
         HttpURLConnection connection = (HttpURLConnection) URI.create(url).toURL().openConnection();
         connection.setRequestMethod("GET");
-
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(connection.getInputStream()))) {
-            return reader.lines().collect(Collectors.joining("\n"));
+        connection.setConnectTimeout(deadline.timeoutMillis(connectTimeoutMillis));
+        connection.setReadTimeout(deadline.timeoutMillis(readTimeoutMillis));
+
+        try (StageMetrics.Stage stage = stageMetrics.start(StageMetrics.DOWNLOAD, SpanKind.CLIENT);
+             CancellationToken.Registration ignored = cancellation.onCancel(connection::disconnect);
+             BufferedReader reader = new BufferedReader(new InputStreamReader(connection.getInputStream()))) {
+            stage.attribute("server.address", connection.getURL().getHost());
+            String content = reader.lines().collect(Collectors.joining("\n"));
+            cancellation.check("download");
+            stage.bytes(content.length()).succeeded();
+            return content;
+        } catch (IOException | UncheckedIOException e) {
+            // A read cut short by a cancellation or the deadline drops the request instead of failing it
+            cancellation.check("download");
+            throw e;
         }
     }
 
@@ -271,17 +350,31 @@ public class DefaultCsvProcessingService implements CsvProcessingService {
     }
 
     /**
-     * Sends a notification with the filtered data.
+     * Sends a notification with the filtered data. Failed sends are retried by the {@link RetryScheduler}
+     * without holding a thread, until the request is cancelled or its deadline passes.
      *
      * @param phoneNumber  The phone number to send the notification to
      * @param filteredData The filtered data to include in the notification
+     * @param cancellation The cancellation token of the request
+     * @return A future completed with true if the notification was sent, false otherwise
      */
-    private void sendNotification(String phoneNumber, List<PropertyDTO> filteredData) {
+    private CompletableFuture<Boolean> sendNotification(String phoneNumber, List<PropertyDTO> filteredData,
+                                                        CancellationToken cancellation) {
         LOG.info("Sending notification to phone: " + phoneNumber);
+        String message = formatNotificationMessage(filteredData);
+        return retryScheduler.execute(NOTIFICATION,
+                () -> zApiService.sendMessage(phoneNumber, message),
+                // The Z-API circuit being open means further attempts would fail fast anyway
+                sent -> !sent && zApiService.isAvailable(),
+                cancellation);
+    }
 
+    /**
+     * Formats the filtered data as a WhatsApp message.
+     */
+    private String formatNotificationMessage(List<PropertyDTO> filteredData) {
         if (filteredData.isEmpty()) {
-            zApiService.sendMessage(phoneNumber, "Nenhum imóvel encontrado com os critérios especificados.");
-            return;
+            return "Nenhum imóvel encontrado com os critérios especificados.";
         }
 
         StringBuilder message = new StringBuilder();
@@ -303,7 +396,6 @@ public class DefaultCsvProcessingService implements CsvProcessingService {
             message.append("    Link de Acesso: ").append(property.getLinkAcesso()).append("\n\n");
             message.append("----------------------------\n\n");
         }
-
-        zApiService.sendMessage(phoneNumber, message.toString());
+        return message.toString();
     }
 }
\ No newline at end of file
@@ -0,0 +1,63 @@
+package com.joshua.dias.gptutils.message.model;
+
+import com.joshua.dias.gptutils.orchestration.model.Lane;
+import com.joshua.dias.gptutils.orchestration.model.ToolExecutionRequest;
+import com.joshua.dias.gptutils.orchestration.model.ToolParameters;
+
+/**
+ * The parameters of the forwarding tool, bound once from a {@link ToolExecutionRequest}.
+ *
+ * @param requestId The request ID, or "unknown" if the request was not accepted through the ToolExecutionService
+ * @param senderPhone The phone number of the sender
+ * @param senderName The name of the sender, or "Unknown"
+ * @param messageContent The content of the message
+ * @param contentType The content type of the message, or an empty string if unknown
+ * @param messageId The ID of the message to forward
+ * @param lane The lane the request was assigned to
+ */
+public record ForwardingParameters(
+        String requestId,
+        String senderPhone,
+        String senderName,
+        String messageContent,
+        String contentType,
+        String messageId,
+        Lane lane
+) {
+
+    /**
+     * Binds the parameters of a request.
+     *
+     * @param request The request
+     * @return The parameters; missing text parameters are bound as empty strings
+     */
+    public static ForwardingParameters bind(ToolExecutionRequest request) {
+        return new ForwardingParameters(
+                request.get(ToolParameters.REQUEST_ID, "unknown"),
+                request.get(ToolParameters.PHONE_NUMBER, ""),
+                request.get(ToolParameters.SENDER_NAME, "Unknown"),
+                request.get(ToolParameters.MESSAGE_CONTENT, ""),
+                request.get(ToolParameters.CONTENT_TYPE, ""),
+                request.get(ToolParameters.MESSAGE_ID, ""),
+                Lane.fromName(request.get(ToolParameters.LANE, null))
+        );
+    }
+
+    /**
+     * Validates the parameters.
+     *
+     * @return An error message if the parameters are invalid, null otherwise
+     */
+    public String validate() {
+        if (senderPhone.isEmpty()) {
+            return "Missing required parameter: phoneNumber";
+        }
+        if (messageContent.isEmpty()) {
+            return "Missing required parameter: messageContent";
+        }
+        if (messageId.isEmpty()) {
+            return "Missing required parameter: messageId";
+        }
+        return null;
+    }
+}
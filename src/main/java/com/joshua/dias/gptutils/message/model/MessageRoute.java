@@ -0,0 +1,60 @@
+package com.joshua.dias.gptutils.message.model;
+
+import com.joshua.dias.gptutils.orchestration.model.ToolExecutionRequest;
+import jakarta.ws.rs.core.Response;
+
+/**
+ * Represents the outcome of routing an incoming message to a tool.
+ * Either carries the tool execution request to run, or the HTTP status and message to reject the webhook with.
+ */
+public class MessageRoute {
+
+    private final ToolExecutionRequest toolRequest;
+    private final Response.Status errorStatus;
+    private final String errorMessage;
+
+    // Constructor with all fields
+    private MessageRoute(ToolExecutionRequest toolRequest, Response.Status errorStatus, String errorMessage) {
+        this.toolRequest = toolRequest;
+        this.errorStatus = errorStatus;
+        this.errorMessage = errorMessage;
+    }
+
+    // Getters
+    public ToolExecutionRequest getToolRequest() {
+        return toolRequest;
+    }
+
+    public Response.Status getErrorStatus() {
+        return errorStatus;
+    }
+
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+
+    public boolean isRouted() {
+        return toolRequest != null;
+    }
+
+    /**
+     * Creates a route to a tool.
+     *
+     * @param toolRequest The tool execution request built from the message
+     * @return A new route object
+     */
+    public static MessageRoute to(ToolExecutionRequest toolRequest) {
+        return new MessageRoute(toolRequest, null, null);
+    }
+
+    /**
+     * Creates a route that rejects the message.
+     *
+     * @param errorStatus The HTTP status to answer with
+     * @param errorMessage The error message
+     * @return A new route object
+     */
+    public static MessageRoute error(Response.Status errorStatus, String errorMessage) {
+        return new MessageRoute(null, errorStatus, errorMessage);
+    }
+}
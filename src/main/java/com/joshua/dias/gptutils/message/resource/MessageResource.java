@@ -1,28 +1,34 @@
 package com.joshua.dias.gptutils.message.resource;
 
-import com.joshua.dias.gptutils.confirmaai.ConfirmaAiClient;
-import com.joshua.dias.gptutils.message.model.ButtonReplyDTO;
-import com.joshua.dias.gptutils.message.model.ButtonsResponseMessageDTO;
+import com.joshua.dias.gptutils.confirmaai.ConfirmaAiService;
+import com.joshua.dias.gptutils.message.model.MessageRoute;
 import com.joshua.dias.gptutils.message.model.ReceiveMessageDTO;
-import com.joshua.dias.gptutils.message.service.PhoneToolMappingService;
+import com.joshua.dias.gptutils.message.service.MessageIngressService;
+import com.joshua.dias.gptutils.orchestration.model.AdmissionDecision;
 import com.joshua.dias.gptutils.orchestration.model.ToolExecutionRequest;
 import com.joshua.dias.gptutils.orchestration.model.ToolExecutionResponse;
-import com.joshua.dias.gptutils.orchestration.service.ToolExecutionService;
+import com.joshua.dias.gptutils.orchestration.service.AdmissionController;
+import com.joshua.dias.gptutils.orchestration.service.StageMetrics;
+import io.opentelemetry.context.Context;
+import jakarta.annotation.PreDestroy;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import jakarta.ws.rs.Consumes;
 import jakarta.ws.rs.POST;
 import jakarta.ws.rs.Path;
 import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.QueryParam;
+import jakarta.ws.rs.container.AsyncResponse;
+import jakarta.ws.rs.container.Suspended;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
-import org.eclipse.microprofile.rest.client.inject.RestClient;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.jboss.logging.Logger;
 
-import java.util.HashMap;
-import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
@@ -37,186 +43,122 @@ public class MessageResource {
     private static final Logger LOG = Logger.getLogger(MessageResource.class);
     private static final int DEFAULT_TIMEOUT_SECONDS = 30;
 
-    private final ToolExecutionService toolExecutionService;
-    private final PhoneToolMappingService phoneToolMappingService;
+    private final MessageIngressService messageIngressService;
+    private final AdmissionController admissionController;
+    private final ExecutorService webhookExecutor;
 
-    private final ConfirmaAiClient confirmaAiClient;
+    private final ConfirmaAiService confirmaAiService;
+    private final StageMetrics stageMetrics;
 
     /**
      * Constructor that injects dependencies.
      */
     @Inject
     public MessageResource(
-            ToolExecutionService toolExecutionService,
-            PhoneToolMappingService phoneToolMappingService,
-            @RestClient ConfirmaAiClient confirmaAiClient
+            MessageIngressService messageIngressService,
+            AdmissionController admissionController,
+            ConfirmaAiService confirmaAiService,
+            StageMetrics stageMetrics,
+            @ConfigProperty(name = "app.webhook.virtual-threads", defaultValue = "false") boolean virtualThreads
     ) {
-        this.toolExecutionService = toolExecutionService;
-        this.phoneToolMappingService = phoneToolMappingService;
-        this.confirmaAiClient = confirmaAiClient;
-        LOG.info("MessageResource initialized");
+        this.messageIngressService = messageIngressService;
+        this.admissionController = admissionController;
+        this.confirmaAiService = confirmaAiService;
+        this.stageMetrics = stageMetrics;
+        this.webhookExecutor = virtualThreads
+                ? Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("webhook-", 0).factory())
+                : null;
+        LOG.info("MessageResource initialized with virtual threads: " + virtualThreads);
     }
 
-    private static String getResponseButtonId(ReceiveMessageDTO message) {
-        Object buttonResponse = null;
-        if (message.getButtonsResponseMessage() != null) buttonResponse = message.getButtonsResponseMessage();
-        else if (message.getButtonReply() != null) buttonResponse = message.getButtonReply();
-        String buttonId = null;
-        if (buttonResponse != null) {
-            if (buttonResponse instanceof ButtonsResponseMessageDTO)
-                buttonId = ((ButtonsResponseMessageDTO) buttonResponse).getButtonId();
-            else buttonId = ((ButtonReplyDTO) buttonResponse).getButtonId();
+    /**
+     * Shuts down the virtual thread executor, if any.
+     */
+    @PreDestroy
+    void shutdown() {
+        if (webhookExecutor != null) {
+            webhookExecutor.shutdown();
         }
-        return buttonId;
     }
 
     /**
      * Receives a message and processes it.
+     * With {@code app.webhook.virtual-threads} enabled, the request is suspended and handled on a
+     * virtual thread, so waiting for the tool does not hold a RESTEasy worker thread.
      *
      * @param message The message to process
-     * @return HTTP response indicating the result of the processing
+     * @param callbackUrl The URL to push the final tool response to, or null for {@code app.callbacks.default-url}
+     * @param asyncResponse The response that is resumed with the result of the processing
      */
     @POST
     @Path("/receive")
     @Consumes(MediaType.APPLICATION_JSON)
     @Produces(MediaType.APPLICATION_JSON)
-    public Response receiveMessage(ReceiveMessageDTO message) {
-        try {
-            LOG.info("Received message with ID: " + message.getMessageId());
-
-            var buttonId = getResponseButtonId(message);
-
-            if (buttonId != null && buttonId.startsWith("confirmaai-")) {
-                LOG.info("Message contains buttons response -> buttonId: " + buttonId);
-                confirmaAiClient.triggerWebhook(message);
-                return Response.ok("Triggered ConfirmaAi webhook").build();
-            }
-
-            // Validate participant phone
-            if (!phoneToolMappingService.isPhoneAllowed(message.getPhone())) {
-                LOG.warn("Message blocked: phone " + message.getPhone() + " is not allowed.");
-                return Response.status(Response.Status.FORBIDDEN)
-                        .entity(createErrorResponse("Message blocked: unauthorized participant phone"))
-                        .build();
-            }
-
-            // Check if audio, video, document, or text is present
-            String contentUrl = null;
-            String contentType;
-            String messageContent = null;
-
-            // First check for audio content
-            if (message.getAudio() != null && message.getAudio().getAudioUrl() != null) {
-                contentUrl = message.getAudio().getAudioUrl();
-                contentType = "audio";
-                LOG.info("Processing audio content with URL: " + contentUrl);
-            }
-            // If no audio, check for video content
-            else if (message.getVideo() != null && message.getVideo().getVideoUrl() != null) {
-                contentUrl = message.getVideo().getVideoUrl();
-                contentType = "video";
-                LOG.info("Processing video content with URL: " + contentUrl);
-            }
-            // If no audio or video, check for document content
-            else if (message.getDocument() != null && message.getDocument().getDocumentUrl() != null) {
-                contentUrl = message.getDocument().getDocumentUrl();
-                contentType = "document";
-                LOG.info("Processing document content with URL: " + contentUrl);
-            }
-            // If no audio, video, or document, check for text content
-            else if (message.getText() != null && message.getText().getMessage() != null) {
-                messageContent = message.getText().getMessage();
-                contentType = "text";
-                LOG.info("Processing text message: " + messageContent);
-            }
-            // If no content is present, return an error
-            else {
-                LOG.warn("Message does not contain audio, video, document, or text content");
-                return Response.status(Response.Status.BAD_REQUEST)
-                        .entity(createErrorResponse("Message does not contain audio, video, document, or text content"))
-                        .build();
-            }
-
-            // Extract required parameters
-            String phoneNumber = message.getPhone();
-
-            // Validate extracted parameters
-            if (phoneNumber == null || phoneNumber.trim().isEmpty()) {
-                LOG.warn("Phone number is missing or empty");
-                return Response.status(Response.Status.BAD_REQUEST)
-                        .entity(createErrorResponse("Phone number is required"))
-                        .build();
-            }
-
-            // For non-text messages, validate content URL
-            if (!"text".equals(contentType) && (contentUrl == null || contentUrl.trim().isEmpty())) {
-                LOG.warn("Content URL is missing or empty for non-text message");
-                return Response.status(Response.Status.BAD_REQUEST)
-                        .entity(createErrorResponse("Content URL is required for non-text messages"))
-                        .build();
-            }
-
-            // For text messages, validate message content
-            if ("text".equals(contentType) && (messageContent == null || messageContent.trim().isEmpty())) {
-                LOG.warn("Message content is missing or empty for text message");
-                return Response.status(Response.Status.BAD_REQUEST)
-                        .entity(createErrorResponse("Message content is required for text messages"))
-                        .build();
-            }
-
-            // Get the tool name for this phone
-            String toolName = phoneToolMappingService.getToolForPhone(phoneNumber);
+    public void receiveMessage(ReceiveMessageDTO message, @QueryParam("callbackUrl") String callbackUrl,
+                               @Suspended AsyncResponse asyncResponse) {
+        var buttonId = messageIngressService.getResponseButtonId(message);
+
+        if (buttonId != null && buttonId.startsWith("confirmaai-")) {
+            LOG.info("Received message with ID: " + message.getMessageId() + " with buttons response -> buttonId: " + buttonId);
+            // The webhook call does not block, so the request is resumed when ConfirmaAi answers
+            MessageResponses.fromConfirmaAiWebhook(confirmaAiService.triggerWebhookAsync(message))
+                    .subscribe().with(response -> asyncResponse.resume(response));
+            return;
+        }
 
-            // Validate that we have a tool to execute
-            if (toolName == null || toolName.trim().isEmpty()) {
-                LOG.error("No tool available for phone: " + phoneNumber +
-                        ". This should not happen with forwarding fallback.");
-                return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
-                        .entity(createErrorResponse("Internal error: No tool available for this phone number"))
-                        .build();
-            }
+        if (webhookExecutor == null) {
+            asyncResponse.resume(handleMessage(message, callbackUrl));
+            return;
+        }
 
-            // Create tool execution request
-            Map<String, Object> parameters = new HashMap<>();
-            parameters.put("phoneNumber", phoneNumber);
-            parameters.put("contentType", contentType);
-            parameters.put("messageId", message.getMessageId());
+        try {
+            // The virtual thread continues the trace of the request
+            webhookExecutor.execute(Context.current().wrap((Runnable) () -> asyncResponse.resume(handleMessage(message, callbackUrl))));
+        } catch (RuntimeException e) {
+            LOG.error("Error handing message to a virtual thread: " + e.getMessage(), e);
+            asyncResponse.resume(MessageResponses.serverError("Server error: " + e.getMessage()));
+        }
+    }
 
-            // Add content URL for non-text messages
-            if (!"text".equals(contentType)) {
-                parameters.put("contentUrl", contentUrl);
-            }
+    /**
+     * Validates a message, routes it to its tool and builds the HTTP response.
+     *
+     * @param message The message to process
+     * @param callbackUrl The URL to push the final tool response to, or null
+     * @return HTTP response indicating the result of the processing
+     */
+    private Response handleMessage(ReceiveMessageDTO message, String callbackUrl) {
+        try {
+            long start = System.nanoTime();
+            LOG.info("Received message with ID: " + message.getMessageId());
 
-            // Add message content for text messages
-            if ("text".equals(contentType)) {
-                parameters.put("messageContent", messageContent);
+            MessageRoute route = messageIngressService.route(message, callbackUrl);
+            if (!route.isRouted()) {
+                return MessageResponses.fromRoute(route);
             }
+            ToolExecutionRequest toolRequest = route.getToolRequest();
 
-            // Add sender information if available
-            if (message.getSenderName() != null) {
-                parameters.put("senderName", message.getSenderName());
+            // Shed low-priority traffic when the executors are saturated
+            AdmissionDecision decision = admissionController.check(toolRequest);
+            if (!decision.isAdmitted()) {
+                return MessageResponses.fromAdmission(decision);
             }
 
-            ToolExecutionRequest toolRequest = new ToolExecutionRequest(
-                    toolName,
-                    parameters,
-                    null);  // No callback URL
-
-            // Execute the transcription tool asynchronously
-            CompletableFuture<ToolExecutionResponse> future = toolExecutionService.executeAsync(toolRequest);
+            // Execute the tool once per message; redeliveries share the first execution
+            CompletableFuture<ToolExecutionResponse> future = messageIngressService.submit(message, toolRequest);
+            // Webhook handling ends once the message is handed to its tool; the tool's stages are timed on their own
+            stageMetrics.record(StageMetrics.WEBHOOK, toolRequest.getToolName(), start, true);
 
             try {
                 // Wait for the result with a timeout
                 ToolExecutionResponse response = future.get(DEFAULT_TIMEOUT_SECONDS, TimeUnit.SECONDS);
 
                 // Return appropriate HTTP response based on the execution status
-                return createResponseFromToolExecution(response);
+                return MessageResponses.fromToolExecution(response);
 
             } catch (InterruptedException | ExecutionException e) {
                 LOG.error("Error in async execution: " + e.getMessage(), e);
-                return Response.serverError()
-                        .entity(createErrorResponse("Error in async execution: " + e.getMessage()))
-                        .build();
+                return MessageResponses.serverError("Error in async execution: " + e.getMessage());
             } catch (TimeoutException e) {
                 LOG.info("Async execution timed out after " + DEFAULT_TIMEOUT_SECONDS + " seconds");
 
@@ -225,41 +167,12 @@ public class MessageResource {
                         LOG.info("Background execution completed with status: " + response.getStatus()));
 
                 // Return an accepted response
-                Map<String, Object> response = new HashMap<>();
-                response.put("status", "accepted");
-                response.put("message", "Request is being processed asynchronously");
-                response.put("toolName", toolName);
-
-                return Response.accepted(response).build();
+                return MessageResponses.stillProcessing(toolRequest.getToolName());
             }
 
         } catch (Exception e) {
             LOG.error("Error processing message: " + e.getMessage(), e);
-            return Response.serverError()
-                    .entity(createErrorResponse("Server error: " + e.getMessage()))
-                    .build();
+            return MessageResponses.serverError("Server error: " + e.getMessage());
         }
     }
-
-    /**
-     * Creates an HTTP response from a tool execution response.
-     */
-    private Response createResponseFromToolExecution(ToolExecutionResponse response) {
-        return switch (response.getStatus()) {
-            case COMPLETED -> Response.ok(response).build();
-            case ACCEPTED -> Response.accepted(response).build();
-            case REJECTED -> Response.status(Response.Status.BAD_REQUEST).entity(response).build();
-            case FAILED -> Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity(response).build();
-        };
-    }
-
-    /**
-     * Creates an error response map.
-     */
-    private Map<String, Object> createErrorResponse(String errorMessage) {
-        Map<String, Object> response = new HashMap<>();
-        response.put("status", "error");
-        response.put("message", errorMessage);
-        return response;
-    }
 }
\ No newline at end of file
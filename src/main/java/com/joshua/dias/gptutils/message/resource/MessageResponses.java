@@ -0,0 +1,121 @@
+package com.joshua.dias.gptutils.message.resource;
+
+import com.joshua.dias.gptutils.message.model.MessageRoute;
+import com.joshua.dias.gptutils.orchestration.model.AdmissionDecision;
+import com.joshua.dias.gptutils.orchestration.model.ToolExecutionResponse;
+import com.joshua.dias.gptutils.orchestration.service.DownstreamUnavailableException;
+import io.smallrye.mutiny.Uni;
+import jakarta.ws.rs.core.Response;
+import org.jboss.logging.Logger;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * HTTP responses shared by the blocking and the reactive message resources.
+ */
+final class MessageResponses {
+
+    private static final Logger LOG = Logger.getLogger(MessageResponses.class);
+
+    private MessageResponses() {
+    }
+
+    /**
+     * Creates the response for a message that could not be routed to a tool.
+     */
+    static Response fromRoute(MessageRoute route) {
+        return Response.status(route.getErrorStatus())
+                .entity(createErrorResponse(route.getErrorMessage()))
+                .build();
+    }
+
+    /**
+     * Creates the response for a request that was shed by the admission controller.
+     */
+    static Response fromAdmission(AdmissionDecision decision) {
+        return Response.status(decision.getHttpStatus())
+                .header("Retry-After", decision.getRetryAfterSeconds())
+                .entity(createErrorResponse(decision.getReason()))
+                .build();
+    }
+
+    /**
+     * Creates an HTTP response from a tool execution response.
+     * Requests refused because of load are answered like shed ones, with 429 or 503 and Retry-After;
+     * 400 is kept for invalid input.
+     */
+    static Response fromToolExecution(ToolExecutionResponse response) {
+        return switch (response.getStatus()) {
+            case COMPLETED -> Response.ok(response).build();
+            case ACCEPTED -> Response.accepted(response).build();
+            case REJECTED -> Response.status(Response.Status.BAD_REQUEST).entity(response).build();
+            case THROTTLED -> Response.status(Response.Status.TOO_MANY_REQUESTS)
+                    .header("Retry-After", response.getRetryAfterSeconds())
+                    .entity(response)
+                    .build();
+            case OVERLOADED -> Response.status(Response.Status.SERVICE_UNAVAILABLE)
+                    .header("Retry-After", response.getRetryAfterSeconds())
+                    .entity(response)
+                    .build();
+            case FAILED -> Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity(response).build();
+        };
+    }
+
+    /**
+     * Creates the response for a tool that is still running when the webhook times out.
+     */
+    static Response stillProcessing(String toolName) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("status", "accepted");
+        response.put("message", "Request is being processed asynchronously");
+        response.put("toolName", toolName);
+
+        return Response.accepted(response).build();
+    }
+
+    /**
+     * Maps the outcome of the ConfirmaAi webhook call to the response of the message that triggered it.
+     */
+    static Uni<Response> fromConfirmaAiWebhook(Uni<Response> webhook) {
+        return webhook
+                .map(ignored -> Response.ok("Triggered ConfirmaAi webhook").build())
+                .onFailure(DownstreamUnavailableException.class).recoverWithItem(e -> {
+                    LOG.warn("Not triggering ConfirmaAi webhook: " + e.getMessage());
+                    return downstreamUnavailable((DownstreamUnavailableException) e);
+                })
+                .onFailure().recoverWithItem(e -> {
+                    LOG.error("Error triggering ConfirmaAi webhook: " + e.getMessage(), e);
+                    return serverError("Server error: " + e.getMessage());
+                });
+    }
+
+    /**
+     * Creates the 503 response for a call that a downstream guard refused.
+     */
+    static Response downstreamUnavailable(DownstreamUnavailableException e) {
+        return Response.status(Response.Status.SERVICE_UNAVAILABLE)
+                .header("Retry-After", Math.max(1, (e.getRetryAfterMillis() + 999) / 1000))
+                .entity(createErrorResponse(e.getMessage()))
+                .build();
+    }
+
+    /**
+     * Creates a 500 response with an error message.
+     */
+    static Response serverError(String errorMessage) {
+        return Response.serverError()
+                .entity(createErrorResponse(errorMessage))
+                .build();
+    }
+
+    /**
+     * Creates an error response map.
+     */
+    static Map<String, Object> createErrorResponse(String errorMessage) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("status", "error");
+        response.put("message", errorMessage);
+        return response;
+    }
+}
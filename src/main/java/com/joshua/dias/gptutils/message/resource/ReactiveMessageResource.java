@@ -0,0 +1,124 @@
+package com.joshua.dias.gptutils.message.resource;
+
+import com.joshua.dias.gptutils.confirmaai.ConfirmaAiService;
+import com.joshua.dias.gptutils.message.model.MessageRoute;
+import com.joshua.dias.gptutils.message.model.ReceiveMessageDTO;
+import com.joshua.dias.gptutils.message.service.MessageIngressService;
+import com.joshua.dias.gptutils.orchestration.model.AdmissionDecision;
+import com.joshua.dias.gptutils.orchestration.model.ToolExecutionRequest;
+import com.joshua.dias.gptutils.orchestration.model.ToolExecutionResponse;
+import com.joshua.dias.gptutils.orchestration.service.AdmissionController;
+import com.joshua.dias.gptutils.orchestration.service.StageMetrics;
+import io.smallrye.mutiny.Uni;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.Consumes;
+import jakarta.ws.rs.POST;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.QueryParam;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import org.jboss.logging.Logger;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Non-blocking variant of {@link MessageResource}.
+ * The response is completed from the tool's future, so no thread waits for the tool or for the ConfirmaAi webhook.
+ * Routing, admission, deduplication and the journal append of durable requests still run on the request thread,
+ * and with {@code app.journal.sync} enabled the append waits there for the journal to be flushed.
+ * Both endpoints share the same routing, admission and deduplication, so they can be compared under load.
+ */
+@Path("/api/reactive/messages")
+@ApplicationScoped
+public class ReactiveMessageResource {
+
+    private static final Logger LOG = Logger.getLogger(ReactiveMessageResource.class);
+    private static final Duration DEFAULT_TIMEOUT = Duration.ofSeconds(30);
+
+    private final MessageIngressService messageIngressService;
+    private final AdmissionController admissionController;
+    private final ConfirmaAiService confirmaAiService;
+    private final StageMetrics stageMetrics;
+
+    /**
+     * Constructor that injects dependencies.
+     */
+    @Inject
+    public ReactiveMessageResource(
+            MessageIngressService messageIngressService,
+            AdmissionController admissionController,
+            ConfirmaAiService confirmaAiService,
+            StageMetrics stageMetrics
+    ) {
+        this.messageIngressService = messageIngressService;
+        this.admissionController = admissionController;
+        this.confirmaAiService = confirmaAiService;
+        this.stageMetrics = stageMetrics;
+    }
+
+    /**
+     * Receives a message and processes it without blocking the request thread.
+     *
+     * @param message The message to process
+     * @param callbackUrl The URL to push the final tool response to, or null for {@code app.callbacks.default-url}
+     * @return A Uni emitting the HTTP response indicating the result of the processing
+     */
+    @POST
+    @Path("/receive")
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    public Uni<Response> receiveMessage(ReceiveMessageDTO message, @QueryParam("callbackUrl") String callbackUrl) {
+        try {
+            long start = System.nanoTime();
+            LOG.info("Received message with ID: " + message.getMessageId());
+
+            var buttonId = messageIngressService.getResponseButtonId(message);
+
+            if (buttonId != null && buttonId.startsWith("confirmaai-")) {
+                LOG.info("Message contains buttons response -> buttonId: " + buttonId);
+                return MessageResponses.fromConfirmaAiWebhook(confirmaAiService.triggerWebhookAsync(message));
+            }
+
+            MessageRoute route = messageIngressService.route(message, callbackUrl);
+            if (!route.isRouted()) {
+                return Uni.createFrom().item(MessageResponses.fromRoute(route));
+            }
+            ToolExecutionRequest toolRequest = route.getToolRequest();
+
+            // Shed low-priority traffic when the executors are saturated
+            AdmissionDecision decision = admissionController.check(toolRequest);
+            if (!decision.isAdmitted()) {
+                return Uni.createFrom().item(MessageResponses.fromAdmission(decision));
+            }
+
+            // Execute the tool once per message; redeliveries share the first execution
+            CompletableFuture<ToolExecutionResponse> future = messageIngressService.submit(message, toolRequest);
+            // Webhook handling ends once the message is handed to its tool; the tool's stages are timed on their own
+            stageMetrics.record(StageMetrics.WEBHOOK, toolRequest.getToolName(), start, true);
+
+            // Subscribe to a copy: cancelling the Uni on timeout must not cancel the shared execution
+            return Uni.createFrom().completionStage(future.copy())
+                    .map(MessageResponses::fromToolExecution)
+                    .ifNoItem().after(DEFAULT_TIMEOUT).recoverWithItem(() -> {
+                        LOG.info("Async execution timed out after " + DEFAULT_TIMEOUT.toSeconds() + " seconds");
+
+                        // Continue execution in the background
+                        future.thenAccept(response ->
+                                LOG.info("Background execution completed with status: " + response.getStatus()));
+
+                        return MessageResponses.stillProcessing(toolRequest.getToolName());
+                    })
+                    .onFailure().recoverWithItem(e -> {
+                        LOG.error("Error in async execution: " + e.getMessage(), e);
+                        return MessageResponses.serverError("Error in async execution: " + e.getMessage());
+                    });
+
+        } catch (Exception e) {
+            LOG.error("Error processing message: " + e.getMessage(), e);
+            return Uni.createFrom().item(MessageResponses.serverError("Server error: " + e.getMessage()));
+        }
+    }
+}
@@ -2,6 +2,8 @@ package com.joshua.dias.gptutils.message.service;
 
 import jakarta.annotation.PostConstruct;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.Config;
 import org.jboss.logging.Logger;
 
 import java.util.Collections;
@@ -17,6 +19,7 @@ import java.util.Set;
 public class DefaultPhoneToolMappingService implements PhoneToolMappingService {
     
     private static final Logger LOG = Logger.getLogger(DefaultPhoneToolMappingService.class);
+    private static final String MAPPINGS_PREFIX = "app.mappings.";
     
     // Initial mappings for phone numbers and tools
     private static final String TRANSCRIPTION_PHONE = "120363419403036758-group";
@@ -31,8 +34,19 @@ public class DefaultPhoneToolMappingService implements PhoneToolMappingService {
     // Map to store phone-to-tool mappings
     private final Map<String, String> phoneToolMap = new HashMap<>();
     
+    private final Config config;
+    
     /**
-     * Initializes the service with default mappings.
+     * Constructor that injects dependencies.
+     */
+    @Inject
+    public DefaultPhoneToolMappingService(Config config) {
+        this.config = config;
+    }
+    
+    /**
+     * Initializes the service with default mappings and the ones under {@code app.mappings},
+     * which may also point a phone at a pipeline.
      */
     @PostConstruct
     void init() {
@@ -42,6 +56,14 @@ public class DefaultPhoneToolMappingService implements PhoneToolMappingService {
         addPhoneToolMapping(TRANSCRIPTION_PHONE, TRANSCRIPTION_TOOL);
         addPhoneToolMapping(CSV_PROCESSING_PHONE, CSV_PROCESSING_TOOL);
         
+        // Add the configured mappings, which override the defaults
+        for (String property : config.getPropertyNames()) {
+            if (property.startsWith(MAPPINGS_PREFIX)) {
+                String phoneNumber = property.substring(MAPPINGS_PREFIX.length()).replace("\"", "");
+                addPhoneToolMapping(phoneNumber, config.getValue(property, String.class));
+            }
+        }
+        
         LOG.info("DefaultPhoneToolMappingService initialized with " + phoneToolMap.size() + " mappings");
     }
     
@@ -0,0 +1,261 @@
+package com.joshua.dias.gptutils.message.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.joshua.dias.gptutils.orchestration.model.ToolExecutionRequest;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Implementation of IngressQueue backed by an append-only file on local disk.
+ * <p>
+ * Each record is stored as a 4-byte length followed by the JSON form of the request.
+ * The committed read position lives in a separate offset file, so entries that were
+ * appended but not yet dispatched survive a restart. Once every record has been
+ * consumed and the log has grown past the compaction threshold, both files are reset.
+ */
+@ApplicationScoped
+public class FileIngressQueue implements IngressQueue {
+
+    private static final Logger LOG = Logger.getLogger(FileIngressQueue.class);
+    private static final String LOG_FILE_NAME = "ingress.log";
+    private static final String OFFSET_FILE_NAME = "ingress.offset";
+    private static final int HEADER_SIZE = Integer.BYTES;
+
+    private final ObjectMapper objectMapper;
+    private final Path directory;
+    private final boolean fsync;
+    private final long compactThreshold;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+
+    private FileChannel logChannel;
+    private FileChannel offsetChannel;
+    private long committedOffset;
+    private long readOffset;
+    private long writeOffset;
+
+    /**
+     * Constructor that injects dependencies and configuration.
+     */
+    @Inject
+    public FileIngressQueue(
+            ObjectMapper objectMapper,
+            @ConfigProperty(name = "app.ingress.queue-dir", defaultValue = "/tmp/gpt-utils/ingress") String directory,
+            @ConfigProperty(name = "app.ingress.fsync", defaultValue = "true") boolean fsync,
+            @ConfigProperty(name = "app.ingress.compact-threshold", defaultValue = "16777216") long compactThreshold
+    ) {
+        this.objectMapper = objectMapper;
+        this.directory = Path.of(directory);
+        this.fsync = fsync;
+        this.compactThreshold = compactThreshold;
+    }
+
+    /**
+     * Opens the log and offset files and recovers the committed position.
+     */
+    @PostConstruct
+    void init() {
+        try {
+            Files.createDirectories(directory);
+            this.logChannel = FileChannel.open(directory.resolve(LOG_FILE_NAME),
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            this.offsetChannel = FileChannel.open(directory.resolve(OFFSET_FILE_NAME),
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+            this.committedOffset = readCommittedOffset();
+            this.writeOffset = findEndOfLastCompleteRecord();
+            this.readOffset = committedOffset;
+
+            // Drop a record that was only partially written before a crash
+            if (writeOffset < logChannel.size()) {
+                LOG.warn("Truncating torn record at the end of the ingress log at offset " + writeOffset);
+                logChannel.truncate(writeOffset);
+            }
+
+            LOG.info("FileIngressQueue initialized in " + directory + " with " +
+                    (writeOffset - committedOffset) + " pending bytes");
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open ingress queue in " + directory, e);
+        }
+    }
+
+    /**
+     * Closes the underlying files.
+     */
+    @PreDestroy
+    void shutdown() {
+        LOG.info("Closing FileIngressQueue");
+        try {
+            if (logChannel != null) {
+                logChannel.close();
+            }
+            if (offsetChannel != null) {
+                offsetChannel.close();
+            }
+        } catch (IOException e) {
+            LOG.warn("Error closing ingress queue: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void append(ToolExecutionRequest request) throws IOException {
+        byte[] payload = objectMapper.writeValueAsBytes(request);
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + payload.length);
+        buffer.putInt(payload.length).put(payload).flip();
+
+        lock.lock();
+        try {
+            while (buffer.hasRemaining()) {
+                writeOffset += logChannel.write(buffer, writeOffset);
+            }
+            if (fsync) {
+                logChannel.force(false);
+            }
+            notEmpty.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Entry poll(long timeout, TimeUnit unit) throws IOException, InterruptedException {
+        long remainingNanos = unit.toNanos(timeout);
+
+        lock.lock();
+        try {
+            while (readOffset >= writeOffset) {
+                if (remainingNanos <= 0) {
+                    return null;
+                }
+                remainingNanos = notEmpty.awaitNanos(remainingNanos);
+            }
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            readFully(header, readOffset);
+            int length = header.flip().getInt();
+
+            ByteBuffer payload = ByteBuffer.allocate(length);
+            readFully(payload, readOffset + HEADER_SIZE);
+
+            long nextOffset = readOffset + HEADER_SIZE + length;
+            readOffset = nextOffset;
+
+            ToolExecutionRequest request = objectMapper.readValue(payload.array(), ToolExecutionRequest.class);
+            return new Entry(request, nextOffset);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void commit(Entry entry) throws IOException {
+        lock.lock();
+        try {
+            if (entry.nextOffset() <= committedOffset) {
+                return;
+            }
+            committedOffset = entry.nextOffset();
+
+            // Everything has been consumed, so the log can be reset instead of growing forever
+            if (committedOffset == writeOffset && writeOffset >= compactThreshold) {
+                LOG.info("Compacting ingress log after " + writeOffset + " bytes");
+                logChannel.truncate(0);
+                committedOffset = 0;
+                readOffset = 0;
+                writeOffset = 0;
+            }
+
+            writeCommittedOffset(committedOffset);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public long pendingBytes() {
+        lock.lock();
+        try {
+            return writeOffset - committedOffset;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Reads the committed offset from the offset file, or 0 if none was stored yet.
+     */
+    private long readCommittedOffset() throws IOException {
+        if (offsetChannel.size() < Long.BYTES) {
+            return 0;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES);
+        offsetChannel.read(buffer, 0);
+        long offset = buffer.flip().getLong();
+        return Math.min(offset, logChannel.size());
+    }
+
+    /**
+     * Persists the committed offset.
+     */
+    private void writeCommittedOffset(long offset) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES);
+        buffer.putLong(offset).flip();
+        while (buffer.hasRemaining()) {
+            offsetChannel.write(buffer, Long.BYTES - buffer.remaining());
+        }
+        if (fsync) {
+            offsetChannel.force(false);
+        }
+    }
+
+    /**
+     * Walks the log from the committed offset and returns the end of the last complete record.
+     */
+    private long findEndOfLastCompleteRecord() throws IOException {
+        long size = logChannel.size();
+        long position = committedOffset;
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+
+        while (position + HEADER_SIZE <= size) {
+            header.clear();
+            readFully(header, position);
+            int length = header.flip().getInt();
+            if (length < 0 || position + HEADER_SIZE + length > size) {
+                break;
+            }
+            position += HEADER_SIZE + length;
+        }
+
+        return position;
+    }
+
+    /**
+     * Fills the buffer from the log starting at the given position.
+     */
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        long current = position;
+        while (buffer.hasRemaining()) {
+            int read = logChannel.read(buffer, current);
+            if (read < 0) {
+                throw new IOException("Unexpected end of ingress log at offset " + current);
+            }
+            current += read;
+        }
+    }
+}
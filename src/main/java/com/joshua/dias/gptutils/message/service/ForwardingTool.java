@@ -1,7 +1,17 @@
 package com.joshua.dias.gptutils.message.service;
 
+import com.joshua.dias.gptutils.message.model.ForwardingParameters;
+import com.joshua.dias.gptutils.orchestration.model.CancellationToken;
+import com.joshua.dias.gptutils.orchestration.model.DeadlineExceededException;
+import com.joshua.dias.gptutils.orchestration.model.JobCancelledException;
+import com.joshua.dias.gptutils.orchestration.model.JobState;
 import com.joshua.dias.gptutils.orchestration.model.ToolExecutionRequest;
 import com.joshua.dias.gptutils.orchestration.model.ToolExecutionResponse;
+import com.joshua.dias.gptutils.orchestration.service.CancellationRegistry;
+import com.joshua.dias.gptutils.orchestration.service.ChatOrderedExecutor;
+import com.joshua.dias.gptutils.orchestration.service.ExecutorOverloadedException;
+import com.joshua.dias.gptutils.orchestration.service.JobStore;
+import com.joshua.dias.gptutils.orchestration.service.RetryScheduler;
 import com.joshua.dias.gptutils.orchestration.service.Tool;
 import com.joshua.dias.gptutils.zapi.service.ZApiService;
 import jakarta.enterprise.context.ApplicationScoped;
@@ -13,6 +23,7 @@ import java.time.format.DateTimeFormatter;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 /**
  * Tool for forwarding messages to a specific phone number.
@@ -24,18 +35,28 @@ public class ForwardingTool implements Tool {
     private static final Logger LOG = Logger.getLogger(ForwardingTool.class);
     private static final String TOOL_NAME = "forwarding";
     private static final String TOOL_DESCRIPTION = "Forwards messages to a specific phone number";
+    private static final String OPERATION = "forwarding";
 
     // The phone number to forward messages to
     private static final String FORWARD_TO_PHONE = "120363419205372574-group";
 
     private final ZApiService zApiService;
+    private final ChatOrderedExecutor chatOrderedExecutor;
+    private final JobStore jobStore;
+    private final CancellationRegistry cancellationRegistry;
+    private final RetryScheduler retryScheduler;
 
     /**
      * Constructor that injects dependencies.
      */
     @Inject
-    public ForwardingTool(ZApiService zApiService) {
+    public ForwardingTool(ZApiService zApiService, ChatOrderedExecutor chatOrderedExecutor, JobStore jobStore,
+                          CancellationRegistry cancellationRegistry, RetryScheduler retryScheduler) {
         this.zApiService = zApiService;
+        this.chatOrderedExecutor = chatOrderedExecutor;
+        this.jobStore = jobStore;
+        this.cancellationRegistry = cancellationRegistry;
+        this.retryScheduler = retryScheduler;
         LOG.info("ForwardingTool initialized");
     }
 
@@ -51,101 +72,130 @@ public class ForwardingTool implements Tool {
 
     @Override
     public ToolExecutionResponse execute(ToolExecutionRequest request) {
-        String requestId = request.getParameterAs("requestId", "unknown");
-        LOG.info("Executing ForwardingTool, requestId: " + requestId);
+        return forward(request).join();
+    }
 
+    @Override
+    public CompletableFuture<ToolExecutionResponse> executeAsync(ToolExecutionRequest request) {
+        ForwardingParameters parameters = ForwardingParameters.bind(request);
         try {
-            // Extract parameters
-            String senderPhone = request.getParameterAs("phoneNumber", "");
-            String messageContent = request.getParameterAs("messageContent", "");
-            String messageType = request.getParameterAs("messageType", "");
-            String senderName = request.getParameterAs("senderName", "Unknown");
-            String messageId = request.getParameterAs("messageId", "");
-            if (senderPhone.isEmpty() || messageContent.isEmpty()) {
-                return ToolExecutionResponse.rejected(
-                        TOOL_NAME,
-                        "Missing required parameters: phoneNumber and messageContent",
-                        requestId
-                );
-            }
+            // Forward in the order the messages arrived from the sender's chat; the task hands back the pending forward,
+            // so a forward that waits for its retry does not hold up the chat's next message
+            return chatOrderedExecutor.submit(parameters.lane(), TOOL_NAME, parameters.senderPhone(), 0, () -> forward(request))
+                    .thenCompose(forwarded -> forwarded);
+        } catch (ExecutorOverloadedException e) {
+            LOG.warn("Refused forwarding request, executor is full: " + e.getMessage());
+            return CompletableFuture.completedFuture(e.toResponse(TOOL_NAME, parameters.requestId()));
+        }
+    }
 
-            // Forward the original message
-            String forwardedMessageId = zApiService.forwardMessage(
-                    FORWARD_TO_PHONE,
-                    messageId,
-                    senderPhone
-            );
+    /**
+     * Forwards the message and then sends the reference message with the sender's details.
+     * Failed Z-API calls are retried by the {@link RetryScheduler} without holding a thread.
+     *
+     * @return A future completed with the tool response; it never fails
+     */
+    private CompletableFuture<ToolExecutionResponse> forward(ToolExecutionRequest request) {
+        ForwardingParameters parameters = ForwardingParameters.bind(request);
+        String requestId = parameters.requestId();
+        LOG.info("Executing ForwardingTool, requestId: " + requestId);
 
-            if (forwardedMessageId == null) {
-                return ToolExecutionResponse.failed(
+        CancellationToken cancellation;
+        try {
+            if (parameters.senderPhone().isEmpty() || parameters.messageContent().isEmpty()) {
+                return CompletableFuture.completedFuture(ToolExecutionResponse.rejected(
                         TOOL_NAME,
-                        "Failed to forward message",
+                        "Missing required parameters: phoneNumber and messageContent",
                         requestId
-                );
-            }
-
-            // Send a reference message with sender information
-            String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"));
-            var referenceMessageSb = new StringBuilder()
-                    .append("Message forwarded from:\n")
-                    .append("- Phone: ").append(senderPhone).append("\n")
-                    .append("- Name: ").append(senderName).append("\n");
-            if (!messageType.isEmpty())
-                referenceMessageSb.append("- Type: ").append(messageType).append("\n");
-            referenceMessageSb.append("- Time: ").append(timestamp);
-
-            boolean referenceSuccess = zApiService.sendMessage(
-                    FORWARD_TO_PHONE,
-                    referenceMessageSb.toString(),
-                    forwardedMessageId
-            );
-
-            if (!referenceSuccess) {
-                LOG.warn("Failed to send reference message");
+                ));
             }
 
-            // Create response
-            Map<String, Object> result = new HashMap<>();
-            result.put("forwarded", true);
-            result.put("forwardedTo", FORWARD_TO_PHONE);
-            result.put("forwardedMessageId", forwardedMessageId);
-            result.put("referenceSent", referenceSuccess);
-
-            return ToolExecutionResponse.completed(TOOL_NAME, result, requestId);
-
+            // A message that was cancelled or waited past its deadline is not forwarded anymore
+            cancellation = cancellationRegistry.get(requestId);
+            cancellation.check("forwarding");
+            jobStore.transition(requestId, JobState.NOTIFYING);
         } catch (Exception e) {
-            LOG.error("Error executing ForwardingTool: " + e.getMessage(), e);
-            return ToolExecutionResponse.failed(
-                    TOOL_NAME,
-                    "Error executing ForwardingTool: " + e.getMessage(),
-                    requestId
-            );
+            return CompletableFuture.completedFuture(handleError(requestId, e));
         }
-    }
 
-    @Override
-    public CompletableFuture<ToolExecutionResponse> executeAsync(ToolExecutionRequest request) {
-        return CompletableFuture.supplyAsync(() -> execute(request));
+        // Forward the original message
+        return retryScheduler.execute(OPERATION,
+                        () -> zApiService.forwardMessage(FORWARD_TO_PHONE, parameters.messageId(), parameters.senderPhone()),
+                        forwardedMessageId -> forwardedMessageId == null && zApiService.isAvailable(),
+                        cancellation)
+                .thenCompose(forwardedMessageId -> {
+                    if (forwardedMessageId == null) {
+                        return CompletableFuture.completedFuture(ToolExecutionResponse.failed(
+                                TOOL_NAME,
+                                "Failed to forward message",
+                                requestId
+                        ));
+                    }
+                    return sendReference(parameters, forwardedMessageId, cancellation);
+                })
+                .exceptionally(error -> handleError(requestId,
+                        error instanceof CompletionException && error.getCause() != null ? error.getCause() : error));
     }
 
-    @Override
-    public String validateParameters(ToolExecutionRequest request) {
-        String senderPhone = request.getParameterAs("phoneNumber", "");
-        String messageContent = request.getParameterAs("messageContent", "");
-        String messageId = request.getParameterAs("messageId", "");
-
-        if (senderPhone.isEmpty()) {
-            return "Missing required parameter: phoneNumber";
-        }
+    /**
+     * Sends a reference message with the sender's details after a forwarded message.
+     */
+    private CompletableFuture<ToolExecutionResponse> sendReference(ForwardingParameters parameters, String forwardedMessageId,
+                                                                   CancellationToken cancellation) {
+        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"));
+        var referenceMessageSb = new StringBuilder()
+                .append("Message forwarded from:\n")
+                .append("- Phone: ").append(parameters.senderPhone()).append("\n")
+                .append("- Name: ").append(parameters.senderName()).append("\n");
+        if (!parameters.contentType().isEmpty())
+            referenceMessageSb.append("- Type: ").append(parameters.contentType()).append("\n");
+        referenceMessageSb.append("- Time: ").append(timestamp);
+
+        return retryScheduler.execute(OPERATION,
+                        () -> zApiService.sendMessage(FORWARD_TO_PHONE, referenceMessageSb.toString(), forwardedMessageId),
+                        sent -> !sent && zApiService.isAvailable(),
+                        cancellation)
+                .thenApply(referenceSuccess -> {
+                    if (!referenceSuccess) {
+                        LOG.warn("Failed to send reference message");
+                    }
+
+                    // Create response
+                    Map<String, Object> result = new HashMap<>();
+                    result.put("forwarded", true);
+                    result.put("forwardedTo", FORWARD_TO_PHONE);
+                    result.put("forwardedMessageId", forwardedMessageId);
+                    result.put("referenceSent", referenceSuccess);
+
+                    return ToolExecutionResponse.completed(TOOL_NAME, result, parameters.requestId());
+                });
+    }
 
-        if (messageContent.isEmpty()) {
-            return "Missing required parameter: messageContent";
+    /**
+     * Builds the failed response of a forward that could not be done. Forwards that were cancelled or ran past
+     * their deadline are dropped and their job is ended accordingly.
+     */
+    private ToolExecutionResponse handleError(String requestId, Throwable e) {
+        if (e instanceof DeadlineExceededException) {
+            LOG.warn("Dropping forward of " + requestId + ": " + e.getMessage());
+            jobStore.expire(requestId, e.getMessage());
+            return ToolExecutionResponse.failed(TOOL_NAME, e.getMessage(), requestId);
         }
-
-        if (messageId.isEmpty()) {
-            return "Missing required parameter: messageId";
+        if (e instanceof JobCancelledException) {
+            LOG.info("Dropping forward of " + requestId + ": " + e.getMessage());
+            jobStore.cancel(requestId, e.getMessage());
+            return ToolExecutionResponse.failed(TOOL_NAME, e.getMessage(), requestId);
         }
+        LOG.error("Error executing ForwardingTool: " + e.getMessage(), e);
+        return ToolExecutionResponse.failed(
+                TOOL_NAME,
+                "Error executing ForwardingTool: " + e.getMessage(),
+                requestId
+        );
+    }
 
-        return null; // Parameters are valid
+    @Override
+    public String validateParameters(ToolExecutionRequest request) {
+        return ForwardingParameters.bind(request).validate();
     }
 }
\ No newline at end of file
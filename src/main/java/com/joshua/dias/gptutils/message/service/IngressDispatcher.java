@@ -0,0 +1,191 @@
+package com.joshua.dias.gptutils.message.service;
+
+import com.joshua.dias.gptutils.orchestration.model.ToolExecutionRequest;
+import com.joshua.dias.gptutils.orchestration.model.ToolExecutionResponse;
+import com.joshua.dias.gptutils.orchestration.model.ToolParameters;
+import com.joshua.dias.gptutils.orchestration.service.ToolExecutionService;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Background dispatcher for the ingress queue.
+ * When the webhook runs in queued mode, this service drains the IngressQueue on its own
+ * thread and feeds each request to the ToolExecutionService.
+ * A request the executors refuse because of load is tried again with backoff before the dispatcher moves on,
+ * so a full executor holds the backlog on disk instead of losing it.
+ */
+@ApplicationScoped
+public class IngressDispatcher {
+
+    private static final Logger LOG = Logger.getLogger(IngressDispatcher.class);
+    private static final String QUEUED_MODE = "queued";
+    private static final long POLL_TIMEOUT_SECONDS = 1;
+    private static final long RETRY_DELAY_SECONDS = 1;
+    private static final long MAX_RETRY_DELAY_SECONDS = 30;
+
+    private final IngressQueue ingressQueue;
+    private final ToolExecutionService toolExecutionService;
+    private final boolean enabled;
+
+    private volatile boolean running;
+    private Thread dispatcherThread;
+
+    /**
+     * Constructor that injects dependencies and configuration.
+     */
+    @Inject
+    public IngressDispatcher(
+            IngressQueue ingressQueue,
+            ToolExecutionService toolExecutionService,
+            @ConfigProperty(name = "app.ingress.mode", defaultValue = "direct") String ingressMode
+    ) {
+        this.ingressQueue = ingressQueue;
+        this.toolExecutionService = toolExecutionService;
+        this.enabled = QUEUED_MODE.equalsIgnoreCase(ingressMode);
+    }
+
+    /**
+     * Starts the dispatcher thread when queued ingress is enabled.
+     */
+    void onStart(@Observes StartupEvent event) {
+        if (!enabled) {
+            return;
+        }
+
+        LOG.info("Starting ingress dispatcher");
+        running = true;
+        dispatcherThread = new Thread(this::dispatchLoop, "ingress-dispatcher");
+        dispatcherThread.setDaemon(true);
+        dispatcherThread.start();
+    }
+
+    /**
+     * Stops the dispatcher thread. Entries that were not dispatched stay on disk.
+     */
+    void onStop(@Observes ShutdownEvent event) {
+        if (dispatcherThread == null) {
+            return;
+        }
+
+        LOG.info("Stopping ingress dispatcher");
+        running = false;
+        dispatcherThread.interrupt();
+        try {
+            dispatcherThread.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Polls the queue and hands each entry to the ToolExecutionService.
+     * An entry is committed once the request has been accepted and journaled, so anything still on disk
+     * after a crash is dispatched again on the next start, either from this queue or from the journal.
+     */
+    private void dispatchLoop() {
+        while (running) {
+            try {
+                IngressQueue.Entry entry = ingressQueue.poll(POLL_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                if (entry == null) {
+                    continue;
+                }
+
+                if (dispatch(entry)) {
+                    ingressQueue.commit(entry);
+                }
+
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Exception e) {
+                LOG.error("Error dispatching queued request: " + e.getMessage(), e);
+            }
+        }
+
+        LOG.info("Ingress dispatcher stopped");
+    }
+
+    /**
+     * Hands an entry to the ToolExecutionService, trying again while the request cannot be journaled or the
+     * executors refuse it because of load. Commits are cumulative, so the dispatcher does not move past an entry
+     * that is not safely accepted. Every attempt uses the same request ID, so the entry is tracked as one job.
+     *
+     * @return true once the request was accepted, false if the dispatcher stopped first
+     */
+    private boolean dispatch(IngressQueue.Entry entry) throws InterruptedException {
+        ToolExecutionRequest request = withRequestId(entry.request());
+        String toolName = request.getToolName();
+        LOG.info("Dispatching queued request for tool '" + toolName + "'");
+        int refusals = 0;
+        while (running) {
+            CompletableFuture<ToolExecutionResponse> future;
+            try {
+                future = toolExecutionService.executeDurably(request);
+            } catch (IOException e) {
+                LOG.error("Could not journal queued request for tool '" + toolName + "', retrying in " +
+                        RETRY_DELAY_SECONDS + "s: " + e.getMessage());
+                TimeUnit.SECONDS.sleep(RETRY_DELAY_SECONDS);
+                continue;
+            }
+
+            // The executors refuse a request while it is submitted, so a refusal is known by the time the call returns
+            ToolExecutionResponse refusal = future.isDone() && !future.isCompletedExceptionally() ? future.join() : null;
+            if (refusal != null && refusal.getStatus().isRetryable()) {
+                refusals++;
+                long delaySeconds = Math.min(MAX_RETRY_DELAY_SECONDS,
+                        Math.max(refusal.getRetryAfterSeconds(), RETRY_DELAY_SECONDS << Math.min(refusals - 1, 5)));
+                LOG.warn("Queued request for tool '" + toolName + "' was refused (" + refusal.getErrorMessage() +
+                        "), retrying in " + delaySeconds + "s");
+                TimeUnit.SECONDS.sleep(delaySeconds);
+                continue;
+            }
+
+            future.thenAccept(response -> logResult(toolName, response))
+                    .exceptionally(e -> {
+                        LOG.error("Queued request for tool '" + toolName + "' failed: " + e.getMessage(), e);
+                        return null;
+                    });
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Gives a queued request the ID it is tracked under, if it does not have one yet.
+     */
+    private static ToolExecutionRequest withRequestId(ToolExecutionRequest request) {
+        if (request.get(ToolParameters.REQUEST_ID, null) != null) {
+            return request;
+        }
+        Map<String, Object> parameters = request.getParameters() != null
+                ? new HashMap<>(request.getParameters())
+                : new HashMap<>();
+        ToolParameters.REQUEST_ID.put(parameters, UUID.randomUUID().toString());
+        return new ToolExecutionRequest(request.getToolName(), parameters, request.getCallbackUrl());
+    }
+
+    /**
+     * Logs the outcome of a dispatched request.
+     */
+    private void logResult(String toolName, ToolExecutionResponse response) {
+        if (response.getStatus() != ToolExecutionResponse.Status.ACCEPTED
+                && response.getStatus() != ToolExecutionResponse.Status.COMPLETED) {
+            LOG.warn("Queued request for tool '" + toolName + "' ended with status " + response.getStatus() +
+                    ": " + response.getErrorMessage());
+        } else {
+            LOG.info("Queued request for tool '" + toolName + "' ended with status " + response.getStatus());
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.joshua.dias.gptutils.message.service;
+
+import com.joshua.dias.gptutils.orchestration.model.ToolExecutionRequest;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Service interface for the durable ingress queue.
+ * Webhooks accepted in queued mode are appended here and later handed to the
+ * orchestration system by a dispatcher, so the HTTP thread never waits for a tool.
+ */
+public interface IngressQueue {
+
+    /**
+     * Appends a tool execution request to the end of the queue.
+     *
+     * @param request The tool execution request to persist
+     * @throws IOException If the request could not be written to disk
+     */
+    void append(ToolExecutionRequest request) throws IOException;
+
+    /**
+     * Retrieves the next uncommitted entry, waiting up to the given time if the queue is empty.
+     *
+     * @param timeout How long to wait before giving up
+     * @param unit The unit of the timeout argument
+     * @return The next entry, or null if none became available in time
+     * @throws IOException If the queue could not be read
+     * @throws InterruptedException If interrupted while waiting
+     */
+    Entry poll(long timeout, TimeUnit unit) throws IOException, InterruptedException;
+
+    /**
+     * Marks an entry (and every entry before it) as consumed.
+     *
+     * @param entry The entry returned by {@link #poll(long, TimeUnit)}
+     * @throws IOException If the committed position could not be persisted
+     */
+    void commit(Entry entry) throws IOException;
+
+    /**
+     * Gets the number of bytes appended but not yet committed.
+     *
+     * @return The pending backlog in bytes
+     */
+    long pendingBytes();
+
+    /**
+     * An entry read from the queue together with the position right after it.
+     */
+    record Entry(ToolExecutionRequest request, long nextOffset) {
+    }
+}
@@ -0,0 +1,153 @@
+package com.joshua.dias.gptutils.message.service;
+
+import com.joshua.dias.gptutils.orchestration.model.ToolExecutionResponse;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Supplier;
+
+/**
+ * Service that makes webhook processing idempotent.
+ * Z-API redelivers webhooks on slow responses and sends edited messages again with the same ID,
+ * so every message is keyed on its instanceId and messageId. The first delivery runs the action;
+ * later deliveries within the TTL receive the same CompletableFuture instead of running it again.
+ */
+@ApplicationScoped
+public class MessageDeduplicationService {
+
+    private static final Logger LOG = Logger.getLogger(MessageDeduplicationService.class);
+
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+    // A key is queued again when a failed execution is retried, so each item remembers the entry it was queued with
+    private final ConcurrentLinkedQueue<Queued> insertionOrder = new ConcurrentLinkedQueue<>();
+    private final long ttlMillis;
+    private final int maxEntries;
+
+    /**
+     * Constructor that injects configuration.
+     */
+    @Inject
+    public MessageDeduplicationService(
+            @ConfigProperty(name = "app.dedup.ttl-seconds", defaultValue = "600") long ttlSeconds,
+            @ConfigProperty(name = "app.dedup.max-entries", defaultValue = "10000") int maxEntries
+    ) {
+        this.ttlMillis = ttlSeconds * 1000;
+        this.maxEntries = maxEntries;
+        LOG.info("MessageDeduplicationService initialized with TTL: " + ttlSeconds + "s, max entries: " + maxEntries);
+    }
+
+    /**
+     * Runs the action once per message. Duplicates of a message that is still in flight, or that
+     * completed within the TTL, get the future of the first delivery.
+     * Executions that failed, were rejected or were refused because of load are forgotten, so that a redelivery
+     * can try again.
+     *
+     * @param instanceId The Z-API instance that received the message
+     * @param messageId The ID of the message
+     * @param action The action that processes the message
+     * @return The future of the first delivery of this message
+     */
+    public CompletableFuture<ToolExecutionResponse> executeOnce(
+            String instanceId,
+            String messageId,
+            Supplier<CompletableFuture<ToolExecutionResponse>> action
+    ) {
+        // Without a message ID there is nothing to deduplicate on
+        if (messageId == null || messageId.trim().isEmpty()) {
+            return action.get();
+        }
+
+        String key = instanceId + ":" + messageId;
+        long now = System.currentTimeMillis();
+        evictExpired(now);
+
+        Entry created = new Entry(new CompletableFuture<>(), now + ttlMillis);
+        Entry winner = entries.compute(key, (k, current) ->
+                current != null && current.expiresAt() > now ? current : created);
+
+        if (winner != created) {
+            LOG.info("Duplicate delivery of message " + messageId + " from instance " + instanceId +
+                    ", reusing the existing execution");
+            return winner.future();
+        }
+
+        insertionOrder.add(new Queued(key, created));
+        evictOverflow();
+
+        try {
+            action.get().whenComplete((response, error) -> {
+                if (error != null || response == null
+                        || response.getStatus() != ToolExecutionResponse.Status.ACCEPTED
+                        && response.getStatus() != ToolExecutionResponse.Status.COMPLETED) {
+                    entries.remove(key, created);
+                }
+                if (error != null) {
+                    created.future().completeExceptionally(error);
+                } else {
+                    created.future().complete(response);
+                }
+            });
+        } catch (RuntimeException e) {
+            entries.remove(key, created);
+            created.future().completeExceptionally(e);
+        }
+
+        return created.future();
+    }
+
+    /**
+     * Gets the number of messages currently remembered.
+     *
+     * @return The number of entries in the cache
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Removes expired entries from the head of the insertion order.
+     * Entries expire in insertion order, so the scan stops at the first live one. Items whose entry was
+     * already replaced or removed are dropped on the way without touching the current entry of their key.
+     */
+    private void evictExpired(long now) {
+        Queued head;
+        while ((head = insertionOrder.peek()) != null) {
+            if (head.entry().expiresAt() > now && entries.get(head.key()) == head.entry()) {
+                break;
+            }
+            entries.remove(head.key(), head.entry());
+            insertionOrder.poll();
+        }
+    }
+
+    /**
+     * Drops the oldest entries while the cache is above its size limit.
+     * Only the entry an item was queued with is removed, never a newer one for the same key.
+     */
+    private void evictOverflow() {
+        while (entries.size() > maxEntries) {
+            Queued oldest = insertionOrder.poll();
+            if (oldest == null) {
+                break;
+            }
+            entries.remove(oldest.key(), oldest.entry());
+        }
+    }
+
+    /**
+     * A remembered execution and the time at which it may be run again.
+     */
+    private record Entry(CompletableFuture<ToolExecutionResponse> future, long expiresAt) {
+    }
+
+    /**
+     * A key in the insertion order, with the entry it was inserted with.
+     */
+    private record Queued(String key, Entry entry) {
+    }
+}
@@ -0,0 +1,252 @@
+package com.joshua.dias.gptutils.message.service;
+
+import com.joshua.dias.gptutils.message.model.ButtonReplyDTO;
+import com.joshua.dias.gptutils.message.model.ButtonsResponseMessageDTO;
+import com.joshua.dias.gptutils.message.model.MessageRoute;
+import com.joshua.dias.gptutils.message.model.ReceiveMessageDTO;
+import com.joshua.dias.gptutils.orchestration.model.ToolExecutionRequest;
+import com.joshua.dias.gptutils.orchestration.model.ToolExecutionResponse;
+import com.joshua.dias.gptutils.orchestration.model.ToolParameters;
+import com.joshua.dias.gptutils.orchestration.service.CallbackDispatcher;
+import com.joshua.dias.gptutils.orchestration.service.ToolExecutionService;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.core.Response;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Service that turns incoming webhook messages into tool executions.
+ * It validates the message, picks the tool for the sender and dispatches the request,
+ * so that the blocking and the reactive webhook endpoints share the same behavior.
+ */
+@ApplicationScoped
+public class MessageIngressService {
+
+    private static final Logger LOG = Logger.getLogger(MessageIngressService.class);
+    private static final String QUEUED_MODE = "queued";
+
+    // Rough encoded sizes used to estimate media bytes before the download
+    private static final long AUDIO_BYTES_PER_SECOND = 16000;
+    private static final long VIDEO_BYTES_PER_SECOND = 250000;
+
+    private final ToolExecutionService toolExecutionService;
+    private final PhoneToolMappingService phoneToolMappingService;
+    private final IngressQueue ingressQueue;
+    private final MessageDeduplicationService deduplicationService;
+    private final CallbackDispatcher callbackDispatcher;
+    private final boolean queuedIngress;
+
+    /**
+     * Constructor that injects dependencies and configuration.
+     */
+    @Inject
+    public MessageIngressService(
+            ToolExecutionService toolExecutionService,
+            PhoneToolMappingService phoneToolMappingService,
+            IngressQueue ingressQueue,
+            MessageDeduplicationService deduplicationService,
+            CallbackDispatcher callbackDispatcher,
+            @ConfigProperty(name = "app.ingress.mode", defaultValue = "direct") String ingressMode
+    ) {
+        this.toolExecutionService = toolExecutionService;
+        this.phoneToolMappingService = phoneToolMappingService;
+        this.ingressQueue = ingressQueue;
+        this.deduplicationService = deduplicationService;
+        this.callbackDispatcher = callbackDispatcher;
+        this.queuedIngress = QUEUED_MODE.equalsIgnoreCase(ingressMode);
+        LOG.info("MessageIngressService initialized with ingress mode: " + (queuedIngress ? QUEUED_MODE : "direct"));
+    }
+
+    /**
+     * Gets the ID of the button the message responds to, if any.
+     *
+     * @param message The incoming message
+     * @return The button ID, or null if the message is not a button response
+     */
+    public String getResponseButtonId(ReceiveMessageDTO message) {
+        Object buttonResponse = null;
+        if (message.getButtonsResponseMessage() != null) buttonResponse = message.getButtonsResponseMessage();
+        else if (message.getButtonReply() != null) buttonResponse = message.getButtonReply();
+        String buttonId = null;
+        if (buttonResponse != null) {
+            if (buttonResponse instanceof ButtonsResponseMessageDTO)
+                buttonId = ((ButtonsResponseMessageDTO) buttonResponse).getButtonId();
+            else buttonId = ((ButtonReplyDTO) buttonResponse).getButtonId();
+        }
+        return buttonId;
+    }
+
+    /**
+     * Validates a message and builds the tool execution request for it.
+     *
+     * @param message The incoming message
+     * @param callbackUrl The URL the final response is pushed to, or null for the default callback URL
+     * @return The route to the tool, or the error to answer the webhook with
+     */
+    public MessageRoute route(ReceiveMessageDTO message, String callbackUrl) {
+        // Validate participant phone
+        if (!phoneToolMappingService.isPhoneAllowed(message.getPhone())) {
+            LOG.warn("Message blocked: phone " + message.getPhone() + " is not allowed.");
+            return MessageRoute.error(Response.Status.FORBIDDEN, "Message blocked: unauthorized participant phone");
+        }
+
+        // Check if audio, video, document, or text is present
+        String contentUrl = null;
+        String contentType;
+        String messageContent = null;
+        long duration = 0;
+        long contentSize = 0;
+
+        // First check for audio content
+        if (message.getAudio() != null && message.getAudio().getAudioUrl() != null) {
+            contentUrl = message.getAudio().getAudioUrl();
+            contentType = "audio";
+            duration = message.getAudio().getDuration();
+            contentSize = duration * AUDIO_BYTES_PER_SECOND;
+            LOG.info("Processing audio content with URL: " + contentUrl);
+        }
+        // If no audio, check for video content
+        else if (message.getVideo() != null && message.getVideo().getVideoUrl() != null) {
+            contentUrl = message.getVideo().getVideoUrl();
+            contentType = "video";
+            duration = message.getVideo().getSeconds();
+            contentSize = duration * VIDEO_BYTES_PER_SECOND;
+            LOG.info("Processing video content with URL: " + contentUrl);
+        }
+        // If no audio or video, check for document content
+        else if (message.getDocument() != null && message.getDocument().getDocumentUrl() != null) {
+            contentUrl = message.getDocument().getDocumentUrl();
+            contentType = "document";
+            contentSize = message.getDocument().getFileSize();
+            LOG.info("Processing document content with URL: " + contentUrl);
+        }
+        // If no audio, video, or document, check for text content
+        else if (message.getText() != null && message.getText().getMessage() != null) {
+            messageContent = message.getText().getMessage();
+            contentType = "text";
+            LOG.info("Processing text message: " + messageContent);
+        }
+        // If no content is present, return an error
+        else {
+            LOG.warn("Message does not contain audio, video, document, or text content");
+            return MessageRoute.error(Response.Status.BAD_REQUEST,
+                    "Message does not contain audio, video, document, or text content");
+        }
+
+        // Extract required parameters
+        String phoneNumber = message.getPhone();
+
+        // Validate extracted parameters
+        if (phoneNumber == null || phoneNumber.trim().isEmpty()) {
+            LOG.warn("Phone number is missing or empty");
+            return MessageRoute.error(Response.Status.BAD_REQUEST, "Phone number is required");
+        }
+
+        // For non-text messages, validate content URL
+        if (!"text".equals(contentType) && (contentUrl == null || contentUrl.trim().isEmpty())) {
+            LOG.warn("Content URL is missing or empty for non-text message");
+            return MessageRoute.error(Response.Status.BAD_REQUEST, "Content URL is required for non-text messages");
+        }
+
+        // For text messages, validate message content
+        if ("text".equals(contentType) && (messageContent == null || messageContent.trim().isEmpty())) {
+            LOG.warn("Message content is missing or empty for text message");
+            return MessageRoute.error(Response.Status.BAD_REQUEST, "Message content is required for text messages");
+        }
+
+        // Validate the callback URL before any work is accepted for it
+        String resolvedCallbackUrl;
+        try {
+            resolvedCallbackUrl = callbackDispatcher.resolve(callbackUrl);
+        } catch (IllegalArgumentException e) {
+            LOG.warn("Rejecting callback URL " + callbackUrl + ": " + e.getMessage());
+            return MessageRoute.error(Response.Status.BAD_REQUEST, e.getMessage());
+        }
+
+        // Get the tool name for this phone
+        String toolName = phoneToolMappingService.getToolForPhone(phoneNumber);
+
+        // Validate that we have a tool to execute
+        if (toolName == null || toolName.trim().isEmpty()) {
+            LOG.error("No tool available for phone: " + phoneNumber +
+                    ". This should not happen with forwarding fallback.");
+            return MessageRoute.error(Response.Status.INTERNAL_SERVER_ERROR,
+                    "Internal error: No tool available for this phone number");
+        }
+
+        // Create tool execution request
+        Map<String, Object> parameters = new HashMap<>();
+        ToolParameters.PHONE_NUMBER.put(parameters, phoneNumber);
+        // The deadline is counted from here, so time spent in the ingress queue uses up the budget
+        ToolParameters.RECEIVED_AT.put(parameters, System.currentTimeMillis());
+        ToolParameters.CONTENT_TYPE.put(parameters, contentType);
+        ToolParameters.MESSAGE_ID.put(parameters, message.getMessageId());
+
+        // Add content URL for non-text messages
+        if (!"text".equals(contentType)) {
+            ToolParameters.CONTENT_URL.put(parameters, contentUrl);
+        }
+
+        // Add message content for text messages
+        if ("text".equals(contentType)) {
+            ToolParameters.MESSAGE_CONTENT.put(parameters, messageContent);
+        }
+
+        // Add media size hints used for admission control and scheduling
+        if (duration > 0) {
+            ToolParameters.DURATION.put(parameters, duration);
+        }
+        if (contentSize > 0) {
+            ToolParameters.CONTENT_SIZE.put(parameters, contentSize);
+        }
+
+        // Add sender information if available
+        if (message.getSenderName() != null) {
+            ToolParameters.SENDER_NAME.put(parameters, message.getSenderName());
+        }
+
+        return MessageRoute.to(new ToolExecutionRequest(
+                toolName,
+                parameters,
+                resolvedCallbackUrl));
+    }
+
+    /**
+     * Executes the tool request of a message once; redeliveries of the same message share the first execution.
+     *
+     * @param message The incoming message
+     * @param toolRequest The tool execution request built by {@link #route(ReceiveMessageDTO, String)}
+     * @return A CompletableFuture that will be completed with the tool execution response
+     */
+    public CompletableFuture<ToolExecutionResponse> submit(ReceiveMessageDTO message, ToolExecutionRequest toolRequest) {
+        return deduplicationService.executeOnce(
+                message.getInstanceId(),
+                message.getMessageId(),
+                () -> dispatch(toolRequest));
+    }
+
+    /**
+     * Dispatches a tool execution request according to the ingress mode.
+     * In queued mode the request is persisted and acknowledged without waiting for the tool.
+     */
+    private CompletableFuture<ToolExecutionResponse> dispatch(ToolExecutionRequest toolRequest) {
+        if (!queuedIngress) {
+            return toolExecutionService.executeAsync(toolRequest);
+        }
+
+        try {
+            ingressQueue.append(toolRequest);
+            return CompletableFuture.completedFuture(
+                    ToolExecutionResponse.accepted(toolRequest.getToolName(), null));
+        } catch (IOException e) {
+            LOG.error("Error appending request to the ingress queue: " + e.getMessage(), e);
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+}
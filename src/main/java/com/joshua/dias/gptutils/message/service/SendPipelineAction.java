@@ -0,0 +1,64 @@
+package com.joshua.dias.gptutils.message.service;
+
+import com.joshua.dias.gptutils.orchestration.model.PipelineContext;
+import com.joshua.dias.gptutils.orchestration.model.PipelineStepDefinition;
+import com.joshua.dias.gptutils.orchestration.model.ToolExecutionRequest;
+import com.joshua.dias.gptutils.orchestration.model.ToolParameters;
+import com.joshua.dias.gptutils.orchestration.service.PipelineAction;
+import com.joshua.dias.gptutils.zapi.service.ZApiService;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.jboss.logging.Logger;
+
+/**
+ * Pipeline action "send": sends the step's input as a WhatsApp message and passes it on unchanged.
+ * <p>
+ * Without a {@code to} option the message replies to the original message in the sender's chat;
+ * with one it is sent to that phone number or group. An optional {@code prefix} is put in front of the text.
+ */
+@ApplicationScoped
+public class SendPipelineAction implements PipelineAction {
+
+    private static final Logger LOG = Logger.getLogger(SendPipelineAction.class);
+    private static final String ACTION_NAME = "send";
+
+    private final ZApiService zApiService;
+
+    /**
+     * Constructor that injects dependencies.
+     */
+    @Inject
+    public SendPipelineAction(ZApiService zApiService) {
+        this.zApiService = zApiService;
+    }
+
+    @Override
+    public String getName() {
+        return ACTION_NAME;
+    }
+
+    @Override
+    public String apply(PipelineContext context, PipelineStepDefinition step, String input) {
+        if (input == null || input.isBlank()) {
+            throw new IllegalArgumentException("Step '" + step.getId() + "' has nothing to send");
+        }
+
+        ToolExecutionRequest request = context.getRequest();
+        String to = step.getOption("to", null);
+        String message = step.getOption("prefix", "") + input;
+
+        boolean sent;
+        if (to == null) {
+            to = request.get(ToolParameters.PHONE_NUMBER, "");
+            sent = zApiService.sendMessage(to, message, request.get(ToolParameters.MESSAGE_ID, null));
+        } else {
+            sent = zApiService.sendMessage(to, message);
+        }
+        if (!sent) {
+            throw new IllegalStateException("Failed to send message to " + to);
+        }
+
+        LOG.info("Sent output of pipeline step '" + step.getId() + "' to " + to + ", requestId: " + context.getRequestId());
+        return input;
+    }
+}
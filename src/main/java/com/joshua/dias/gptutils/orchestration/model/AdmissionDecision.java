@@ -0,0 +1,60 @@
+package com.joshua.dias.gptutils.orchestration.model;
+
+/**
+ * Represents the outcome of an admission check for an incoming tool execution request.
+ */
+public class AdmissionDecision {
+
+    private static final AdmissionDecision ADMITTED = new AdmissionDecision(true, 200, 0, null);
+
+    private final boolean admitted;
+    private final int httpStatus;
+    private final long retryAfterSeconds;
+    private final String reason;
+
+    // Constructor with all fields
+    private AdmissionDecision(boolean admitted, int httpStatus, long retryAfterSeconds, String reason) {
+        this.admitted = admitted;
+        this.httpStatus = httpStatus;
+        this.retryAfterSeconds = retryAfterSeconds;
+        this.reason = reason;
+    }
+
+    // Getters
+    public boolean isAdmitted() {
+        return admitted;
+    }
+
+    public int getHttpStatus() {
+        return httpStatus;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+
+    public String getReason() {
+        return reason;
+    }
+
+    /**
+     * Creates a decision that admits the request.
+     *
+     * @return The shared admitted decision
+     */
+    public static AdmissionDecision admit() {
+        return ADMITTED;
+    }
+
+    /**
+     * Creates a decision that sheds the request.
+     *
+     * @param httpStatus The HTTP status to answer with (429 or 503)
+     * @param retryAfterSeconds The value for the Retry-After header
+     * @param reason A short description of why the request was shed
+     * @return A new decision object
+     */
+    public static AdmissionDecision reject(int httpStatus, long retryAfterSeconds, String reason) {
+        return new AdmissionDecision(false, httpStatus, retryAfterSeconds, reason);
+    }
+}
@@ -0,0 +1,131 @@
+package com.joshua.dias.gptutils.orchestration.model;
+
+/**
+ * Represents a snapshot of the statistics of one named bulkhead of the executor registry.
+ * Times are in milliseconds.
+ */
+public class BulkheadStats {
+
+    private String name;
+    private int concurrency;
+    private int maxWaiting;
+    private int active;
+    private int waiting;
+    private long submitted;
+    private long completed;
+    private long failed;
+    private long rejected;
+    private double averageQueueWaitMillis;
+    private long maxQueueWaitMillis;
+    private double averageRunMillis;
+    private long maxRunMillis;
+
+    // Default constructor
+    public BulkheadStats() {
+    }
+
+    // Getters and setters
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public int getConcurrency() {
+        return concurrency;
+    }
+
+    public void setConcurrency(int concurrency) {
+        this.concurrency = concurrency;
+    }
+
+    public int getMaxWaiting() {
+        return maxWaiting;
+    }
+
+    public void setMaxWaiting(int maxWaiting) {
+        this.maxWaiting = maxWaiting;
+    }
+
+    public int getActive() {
+        return active;
+    }
+
+    public void setActive(int active) {
+        this.active = active;
+    }
+
+    public int getWaiting() {
+        return waiting;
+    }
+
+    public void setWaiting(int waiting) {
+        this.waiting = waiting;
+    }
+
+    public long getSubmitted() {
+        return submitted;
+    }
+
+    public void setSubmitted(long submitted) {
+        this.submitted = submitted;
+    }
+
+    public long getCompleted() {
+        return completed;
+    }
+
+    public void setCompleted(long completed) {
+        this.completed = completed;
+    }
+
+    public long getFailed() {
+        return failed;
+    }
+
+    public void setFailed(long failed) {
+        this.failed = failed;
+    }
+
+    public long getRejected() {
+        return rejected;
+    }
+
+    public void setRejected(long rejected) {
+        this.rejected = rejected;
+    }
+
+    public double getAverageQueueWaitMillis() {
+        return averageQueueWaitMillis;
+    }
+
+    public void setAverageQueueWaitMillis(double averageQueueWaitMillis) {
+        this.averageQueueWaitMillis = averageQueueWaitMillis;
+    }
+
+    public long getMaxQueueWaitMillis() {
+        return maxQueueWaitMillis;
+    }
+
+    public void setMaxQueueWaitMillis(long maxQueueWaitMillis) {
+        this.maxQueueWaitMillis = maxQueueWaitMillis;
+    }
+
+    public double getAverageRunMillis() {
+        return averageRunMillis;
+    }
+
+    public void setAverageRunMillis(double averageRunMillis) {
+        this.averageRunMillis = averageRunMillis;
+    }
+
+    public long getMaxRunMillis() {
+        return maxRunMillis;
+    }
+
+    public void setMaxRunMillis(long maxRunMillis) {
+        this.maxRunMillis = maxRunMillis;
+    }
+}
@@ -0,0 +1,71 @@
+package com.joshua.dias.gptutils.orchestration.model;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Represents a batch of callbacks that could not be delivered after all retries.
+ */
+public class CallbackDeadLetter {
+
+    private String callbackUrl;
+    private List<ToolExecutionResponse> responses;
+    private int attempts;
+    private String lastError;
+    private Instant failedAt;
+
+    // Default constructor
+    public CallbackDeadLetter() {
+    }
+
+    // Constructor with all fields
+    public CallbackDeadLetter(String callbackUrl, List<ToolExecutionResponse> responses, int attempts,
+                              String lastError, Instant failedAt) {
+        this.callbackUrl = callbackUrl;
+        this.responses = responses;
+        this.attempts = attempts;
+        this.lastError = lastError;
+        this.failedAt = failedAt;
+    }
+
+    // Getters and setters
+    public String getCallbackUrl() {
+        return callbackUrl;
+    }
+
+    public void setCallbackUrl(String callbackUrl) {
+        this.callbackUrl = callbackUrl;
+    }
+
+    public List<ToolExecutionResponse> getResponses() {
+        return responses;
+    }
+
+    public void setResponses(List<ToolExecutionResponse> responses) {
+        this.responses = responses;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public void setAttempts(int attempts) {
+        this.attempts = attempts;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    public void setLastError(String lastError) {
+        this.lastError = lastError;
+    }
+
+    public Instant getFailedAt() {
+        return failedAt;
+    }
+
+    public void setFailedAt(Instant failedAt) {
+        this.failedAt = failedAt;
+    }
+}
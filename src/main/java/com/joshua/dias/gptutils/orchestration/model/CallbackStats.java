@@ -0,0 +1,76 @@
+package com.joshua.dias.gptutils.orchestration.model;
+
+/**
+ * Represents a snapshot of the callback dispatcher.
+ */
+public class CallbackStats {
+
+    private int awaiting;
+    private int queued;
+    private long delivered;
+    private long batches;
+    private long retries;
+    private long deadLettered;
+    private int deadLetters;
+
+    // Default constructor
+    public CallbackStats() {
+    }
+
+    // Getters and setters
+    public int getAwaiting() {
+        return awaiting;
+    }
+
+    public void setAwaiting(int awaiting) {
+        this.awaiting = awaiting;
+    }
+
+    public int getQueued() {
+        return queued;
+    }
+
+    public void setQueued(int queued) {
+        this.queued = queued;
+    }
+
+    public long getDelivered() {
+        return delivered;
+    }
+
+    public void setDelivered(long delivered) {
+        this.delivered = delivered;
+    }
+
+    public long getBatches() {
+        return batches;
+    }
+
+    public void setBatches(long batches) {
+        this.batches = batches;
+    }
+
+    public long getRetries() {
+        return retries;
+    }
+
+    public void setRetries(long retries) {
+        this.retries = retries;
+    }
+
+    public long getDeadLettered() {
+        return deadLettered;
+    }
+
+    public void setDeadLettered(long deadLettered) {
+        this.deadLettered = deadLettered;
+    }
+
+    public int getDeadLetters() {
+        return deadLetters;
+    }
+
+    public void setDeadLetters(int deadLetters) {
+        this.deadLetters = deadLetters;
+    }
+}
@@ -0,0 +1,176 @@
+package com.joshua.dias.gptutils.orchestration.model;
+
+import org.jboss.logging.Logger;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Lets the work of one tool execution be cancelled while it is queued or running.
+ * <p>
+ * Stages call {@link #check(String)} before they start, which also enforces the request's {@link Deadline}, and
+ * register hooks with {@link #onCancel(Runnable)} for the blocking work they start (an FFmpeg encode, an HTTP
+ * transfer), so a cancellation aborts that work instead of waiting for it to finish.
+ */
+public final class CancellationToken {
+
+    private static final Logger LOG = Logger.getLogger(CancellationToken.class);
+    private static final CancellationToken NONE = new CancellationToken(null, null, Deadline.none());
+    private static final Registration NO_REGISTRATION = () -> { };
+
+    private final String requestId;
+    private final String chatKey;
+    private final Deadline deadline;
+
+    // Guarded by this
+    private final List<Runnable> hooks = new ArrayList<>();
+    private String reason;
+    private boolean expired;
+
+    public CancellationToken(String requestId, String chatKey, Deadline deadline) {
+        this.requestId = requestId;
+        this.chatKey = chatKey;
+        this.deadline = deadline;
+    }
+
+    /**
+     * Gets a token that is never cancelled and has no deadline.
+     *
+     * @return The token
+     */
+    public static CancellationToken none() {
+        return NONE;
+    }
+
+    // Getters
+    public String getRequestId() {
+        return requestId;
+    }
+
+    public String getChatKey() {
+        return chatKey;
+    }
+
+    public Deadline getDeadline() {
+        return deadline;
+    }
+
+    public synchronized boolean isCancelled() {
+        return reason != null;
+    }
+
+    public synchronized String getReason() {
+        return reason;
+    }
+
+    /**
+     * Checks whether work for the token should stop, because it was cancelled or its deadline passed.
+     *
+     * @return true if the work should stop, false otherwise
+     */
+    public boolean shouldStop() {
+        return isCancelled() || deadline.isExpired();
+    }
+
+    /**
+     * Fails a stage of work that was cancelled or whose deadline passed.
+     *
+     * @param stage The name of the stage, used in the error message
+     * @throws DeadlineExceededException If the deadline has passed
+     * @throws JobCancelledException If the work was cancelled
+     */
+    public void check(String stage) {
+        synchronized (this) {
+            if (expired) {
+                throw new DeadlineExceededException(stage);
+            }
+            if (reason != null) {
+                throw new JobCancelledException(stage, reason);
+            }
+        }
+        deadline.check(stage);
+    }
+
+    /**
+     * Registers a hook that aborts blocking work when the token is cancelled.
+     * The hook runs right away if the token is already cancelled.
+     *
+     * @param hook The hook, which must not block
+     * @return A registration that removes the hook once the work is done
+     */
+    public Registration onCancel(Runnable hook) {
+        if (this == NONE) {
+            return NO_REGISTRATION;
+        }
+        synchronized (this) {
+            if (reason == null) {
+                hooks.add(hook);
+                return () -> {
+                    synchronized (this) {
+                        hooks.remove(hook);
+                    }
+                };
+            }
+        }
+        runHook(hook);
+        return NO_REGISTRATION;
+    }
+
+    /**
+     * Cancels the work and runs the registered hooks. Only the first cancellation has an effect.
+     *
+     * @param reason Why the work was cancelled
+     * @return true if the token was cancelled by this call, false if it already was
+     */
+    public boolean cancel(String reason) {
+        return cancel(reason, false);
+    }
+
+    /**
+     * Cancels the work because its deadline passed.
+     *
+     * @return true if the token was cancelled by this call, false if it already was
+     */
+    public boolean expire() {
+        return cancel("Deadline exceeded", true);
+    }
+
+    private boolean cancel(String reason, boolean expired) {
+        if (this == NONE) {
+            return false;
+        }
+        List<Runnable> toRun;
+        synchronized (this) {
+            if (this.reason != null) {
+                return false;
+            }
+            this.reason = reason;
+            this.expired = expired;
+            toRun = new ArrayList<>(hooks);
+            hooks.clear();
+        }
+        for (Runnable hook : toRun) {
+            runHook(hook);
+        }
+        return true;
+    }
+
+    /**
+     * Runs a hook; a failing hook does not affect the others.
+     */
+    private void runHook(Runnable hook) {
+        try {
+            hook.run();
+        } catch (RuntimeException e) {
+            LOG.warn("Error in cancellation hook of " + requestId + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * A registered cancellation hook, removed when closed.
+     */
+    public interface Registration extends AutoCloseable {
+        @Override
+        void close();
+    }
+}
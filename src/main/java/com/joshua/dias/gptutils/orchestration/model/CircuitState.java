@@ -0,0 +1,10 @@
+package com.joshua.dias.gptutils.orchestration.model;
+
+/**
+ * Enum representing the state of a downstream's circuit breaker.
+ */
+public enum CircuitState {
+    CLOSED,     // Calls go through; failures are counted
+    OPEN,       // Calls fail fast until the open duration has passed
+    HALF_OPEN   // A few trial calls decide whether to close or reopen the circuit
+}
@@ -0,0 +1,98 @@
+package com.joshua.dias.gptutils.orchestration.model;
+
+
+/**
+ * The point in time by which a tool execution must be finished.
+ * <p>
+ * The deadline travels with the request in the {@link ToolParameters#DEADLINE} parameter and every
+ * stage checks it before starting and turns the remaining budget into its socket or process timeouts, so work
+ * for a user who has given up is dropped instead of finished.
+ */
+public final class Deadline {
+
+    private static final Deadline NONE = new Deadline(Long.MAX_VALUE);
+
+    private final long expiresAtMillis;
+
+    private Deadline(long expiresAtMillis) {
+        this.expiresAtMillis = expiresAtMillis;
+    }
+
+    /**
+     * Creates a deadline at an absolute time.
+     *
+     * @param epochMillis The deadline in epoch milliseconds
+     * @return The deadline
+     */
+    public static Deadline at(long epochMillis) {
+        return new Deadline(epochMillis);
+    }
+
+    /**
+     * Creates a deadline that never expires.
+     *
+     * @return The deadline
+     */
+    public static Deadline none() {
+        return NONE;
+    }
+
+    /**
+     * Reads the deadline of a request.
+     *
+     * @param request The tool execution request
+     * @return The deadline, or a deadline that never expires if the request has none
+     */
+    public static Deadline fromRequest(ToolExecutionRequest request) {
+        long epochMillis = request.get(ToolParameters.DEADLINE, 0L);
+        return epochMillis > 0 ? at(epochMillis) : none();
+    }
+
+    public long getExpiresAtMillis() {
+        return expiresAtMillis;
+    }
+
+    /**
+     * Checks whether the deadline has passed.
+     *
+     * @return true if the deadline has passed, false otherwise
+     */
+    public boolean isExpired() {
+        return System.currentTimeMillis() >= expiresAtMillis;
+    }
+
+    /**
+     * Gets the time left until the deadline.
+     *
+     * @return The remaining time in milliseconds, 0 once expired
+     */
+    public long remainingMillis() {
+        if (this == NONE) {
+            return Long.MAX_VALUE;
+        }
+        return Math.max(0, expiresAtMillis - System.currentTimeMillis());
+    }
+
+    /**
+     * Converts the remaining time into a timeout for a socket or process, capped by the stage's own limit.
+     * Never returns 0, since 0 means "no timeout" for most APIs.
+     *
+     * @param capMillis The longest timeout the stage allows
+     * @return The timeout in milliseconds, between 1 and {@code capMillis}
+     */
+    public int timeoutMillis(int capMillis) {
+        return (int) Math.max(1, Math.min(remainingMillis(), capMillis));
+    }
+
+    /**
+     * Fails a stage that is about to start after the deadline.
+     *
+     * @param stage The name of the stage, used in the error message
+     * @throws DeadlineExceededException If the deadline has passed
+     */
+    public void check(String stage) {
+        if (isExpired()) {
+            throw new DeadlineExceededException(stage);
+        }
+    }
+}
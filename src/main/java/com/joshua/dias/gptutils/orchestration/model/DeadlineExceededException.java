@@ -0,0 +1,12 @@
+package com.joshua.dias.gptutils.orchestration.model;
+
+/**
+ * Thrown when a stage of a tool execution would start, or is still running, after the request's deadline.
+ * The work is dropped and the job is marked as expired.
+ */
+public class DeadlineExceededException extends JobCancelledException {
+
+    public DeadlineExceededException(String stage) {
+        super("Deadline exceeded before or during " + stage, stage, null);
+    }
+}
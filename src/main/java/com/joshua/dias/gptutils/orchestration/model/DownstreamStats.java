@@ -0,0 +1,121 @@
+package com.joshua.dias.gptutils.orchestration.model;
+
+/**
+ * Represents a snapshot of the circuit breaker and bulkhead of one downstream service.
+ */
+public class DownstreamStats {
+
+    private String name;
+    private CircuitState state;
+    private int concurrency;
+    private int active;
+    private long calls;
+    private long failures;
+    private long slowCalls;
+    private long rejectedOpen;
+    private long rejectedFull;
+    private double failureRate;
+    private long stateChangedAtMillis;
+    private boolean readinessCritical;
+
+    // Default constructor
+    public DownstreamStats() {
+    }
+
+    // Getters and setters
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public CircuitState getState() {
+        return state;
+    }
+
+    public void setState(CircuitState state) {
+        this.state = state;
+    }
+
+    public int getConcurrency() {
+        return concurrency;
+    }
+
+    public void setConcurrency(int concurrency) {
+        this.concurrency = concurrency;
+    }
+
+    public int getActive() {
+        return active;
+    }
+
+    public void setActive(int active) {
+        this.active = active;
+    }
+
+    public long getCalls() {
+        return calls;
+    }
+
+    public void setCalls(long calls) {
+        this.calls = calls;
+    }
+
+    public long getFailures() {
+        return failures;
+    }
+
+    public void setFailures(long failures) {
+        this.failures = failures;
+    }
+
+    public long getSlowCalls() {
+        return slowCalls;
+    }
+
+    public void setSlowCalls(long slowCalls) {
+        this.slowCalls = slowCalls;
+    }
+
+    public long getRejectedOpen() {
+        return rejectedOpen;
+    }
+
+    public void setRejectedOpen(long rejectedOpen) {
+        this.rejectedOpen = rejectedOpen;
+    }
+
+    public long getRejectedFull() {
+        return rejectedFull;
+    }
+
+    public void setRejectedFull(long rejectedFull) {
+        this.rejectedFull = rejectedFull;
+    }
+
+    public double getFailureRate() {
+        return failureRate;
+    }
+
+    public void setFailureRate(double failureRate) {
+        this.failureRate = failureRate;
+    }
+
+    public long getStateChangedAtMillis() {
+        return stateChangedAtMillis;
+    }
+
+    public void setStateChangedAtMillis(long stateChangedAtMillis) {
+        this.stateChangedAtMillis = stateChangedAtMillis;
+    }
+
+    public boolean isReadinessCritical() {
+        return readinessCritical;
+    }
+
+    public void setReadinessCritical(boolean readinessCritical) {
+        this.readinessCritical = readinessCritical;
+    }
+}
@@ -0,0 +1,118 @@
+package com.joshua.dias.gptutils.orchestration.model;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Represents a tracked tool execution and the history of its states.
+ * State changes are made through {@link #transition(JobState, String)}, which is safe to call from any thread.
+ * The job also holds the {@link StageLedger} of the execution, which the stages fill in as they finish.
+ */
+public class Job {
+
+    private final String requestId;
+    private final String toolName;
+    private final String phoneNumber;
+    private final String messageId;
+    private final Instant createdAt;
+    private final List<JobTransition> transitions = new ArrayList<>();
+    private final StageLedger ledger = new StageLedger();
+    private JobState state;
+    private Instant updatedAt;
+    private String errorMessage;
+
+    // Constructor with all fields; the job starts QUEUED
+    public Job(String requestId, String toolName, String phoneNumber, String messageId) {
+        this.requestId = requestId;
+        this.toolName = toolName;
+        this.phoneNumber = phoneNumber;
+        this.messageId = messageId;
+        this.createdAt = Instant.now();
+        this.state = JobState.QUEUED;
+        this.updatedAt = createdAt;
+        this.transitions.add(new JobTransition(JobState.QUEUED, createdAt, 0));
+    }
+
+    // Getters
+    public String getRequestId() {
+        return requestId;
+    }
+
+    public String getToolName() {
+        return toolName;
+    }
+
+    public String getPhoneNumber() {
+        return phoneNumber;
+    }
+
+    public String getMessageId() {
+        return messageId;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public synchronized JobState getState() {
+        return state;
+    }
+
+    public synchronized Instant getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public synchronized String getErrorMessage() {
+        return errorMessage;
+    }
+
+    public synchronized List<JobTransition> getTransitions() {
+        return List.copyOf(transitions);
+    }
+
+    public Map<String, StageTiming> getStages() {
+        return ledger.getStages();
+    }
+
+    /**
+     * Gets the ledger the stages of the execution are recorded in.
+     *
+     * @return The ledger
+     */
+    public StageLedger ledger() {
+        return ledger;
+    }
+
+    /**
+     * Gets the time from creation to the last transition.
+     *
+     * @return The elapsed time in milliseconds
+     */
+    public synchronized long getTotalMillis() {
+        return Duration.between(createdAt, updatedAt).toMillis();
+    }
+
+    /**
+     * Moves the job to a new state. Transitions out of a final state are ignored.
+     *
+     * @param newState The new state
+     * @param error The error message, only used for FAILED, EXPIRED and CANCELLED
+     * @return true if the state changed, false if the job had already finished
+     */
+    public synchronized boolean transition(JobState newState, String error) {
+        if (state.isTerminal()) {
+            return false;
+        }
+        Instant now = Instant.now();
+        transitions.add(new JobTransition(newState, now, Duration.between(updatedAt, now).toMillis()));
+        this.state = newState;
+        this.updatedAt = now;
+        if (newState == JobState.FAILED || newState == JobState.EXPIRED || newState == JobState.CANCELLED) {
+            this.errorMessage = error;
+        }
+        return true;
+    }
+}
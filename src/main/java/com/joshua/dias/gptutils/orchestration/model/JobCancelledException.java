@@ -0,0 +1,23 @@
+package com.joshua.dias.gptutils.orchestration.model;
+
+/**
+ * Thrown when a stage of a tool execution would start, or is still running, after the execution was cancelled.
+ * The work is dropped and the job is marked as cancelled.
+ */
+public class JobCancelledException extends RuntimeException {
+
+    private final String stage;
+
+    public JobCancelledException(String stage, String reason) {
+        this("Cancelled before or during " + stage + ": " + reason, stage, null);
+    }
+
+    protected JobCancelledException(String message, String stage, Throwable cause) {
+        super(message, cause);
+        this.stage = stage;
+    }
+
+    public String getStage() {
+        return stage;
+    }
+}
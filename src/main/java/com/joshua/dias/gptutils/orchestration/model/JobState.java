@@ -0,0 +1,25 @@
+package com.joshua.dias.gptutils.orchestration.model;
+
+/**
+ * Enum representing the stage a tracked tool execution is in.
+ */
+public enum JobState {
+    QUEUED,        // Accepted and waiting for a worker
+    DOWNLOADING,   // Downloading the media or document
+    COMPRESSING,   // Compressing the audio before transcription
+    TRANSCRIBING,  // Waiting for the transcription model
+    NOTIFYING,     // Sending the result back to the chat
+    DONE,          // Finished successfully
+    FAILED,        // Finished with an error
+    EXPIRED,       // Dropped because its deadline passed
+    CANCELLED;     // Dropped because it was cancelled
+
+    /**
+     * Checks whether the state is final.
+     *
+     * @return true for DONE, FAILED, EXPIRED and CANCELLED, false otherwise
+     */
+    public boolean isTerminal() {
+        return this == DONE || this == FAILED || this == EXPIRED || this == CANCELLED;
+    }
+}
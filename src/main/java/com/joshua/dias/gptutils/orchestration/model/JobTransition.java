@@ -0,0 +1,50 @@
+package com.joshua.dias.gptutils.orchestration.model;
+
+import java.time.Instant;
+
+/**
+ * Represents one state change of a tracked job.
+ * The elapsed time is measured from the previous transition, so it tells how long the previous state lasted.
+ */
+public class JobTransition {
+
+    private JobState state;
+    private Instant at;
+    private long elapsedMillis;
+
+    // Default constructor
+    public JobTransition() {
+    }
+
+    // Constructor with all fields
+    public JobTransition(JobState state, Instant at, long elapsedMillis) {
+        this.state = state;
+        this.at = at;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    // Getters and setters
+    public JobState getState() {
+        return state;
+    }
+
+    public void setState(JobState state) {
+        this.state = state;
+    }
+
+    public Instant getAt() {
+        return at;
+    }
+
+    public void setAt(Instant at) {
+        this.at = at;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public void setElapsedMillis(long elapsedMillis) {
+        this.elapsedMillis = elapsedMillis;
+    }
+}
@@ -0,0 +1,20 @@
+package com.joshua.dias.gptutils.orchestration.model;
+
+/**
+ * Enum representing the scheduling lane of a tool execution.
+ * Each lane has its own shard queues and threads, so cheap work never waits behind heavy work.
+ */
+public enum Lane {
+    FAST,   // Text and small media: a few HTTP calls, latency sensitive
+    HEAVY;  // Long audio/video and large documents: downloads, FFmpeg and Whisper
+
+    /**
+     * Parses a lane name, falling back to HEAVY for unknown or missing values.
+     *
+     * @param name The lane name, case-insensitive
+     * @return The lane
+     */
+    public static Lane fromName(String name) {
+        return FAST.name().equalsIgnoreCase(name) ? FAST : HEAVY;
+    }
+}
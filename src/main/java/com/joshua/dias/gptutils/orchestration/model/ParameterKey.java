@@ -0,0 +1,99 @@
+package com.joshua.dias.gptutils.orchestration.model;
+
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * A typed key of a {@link ToolExecutionRequest} parameter.
+ * <p>
+ * Parameters travel as a {@code Map<String, Object>} because that is what the journal and the ingress queue
+ * store, and numbers come back from JSON as Integer or Long. A key knows its name and how to convert the stored
+ * value, so reading and writing a parameter is type checked by the compiler instead of cast at every call site.
+ * The known keys are declared once in {@link ToolParameters}.
+ *
+ * @param <T> The type of the parameter value
+ */
+public final class ParameterKey<T> {
+
+    private final String name;
+    private final Function<Object, T> converter;
+
+    private ParameterKey(String name, Function<Object, T> converter) {
+        this.name = name;
+        this.converter = converter;
+    }
+
+    /**
+     * Creates a key for a text parameter. Non-text values are converted with {@code toString()}.
+     *
+     * @param name The parameter name
+     * @return The key
+     */
+    public static ParameterKey<String> text(String name) {
+        return new ParameterKey<>(name, value -> value instanceof String text ? text : value.toString());
+    }
+
+    /**
+     * Creates a key for a numeric parameter. Numbers of any type and numeric text are accepted.
+     *
+     * @param name The parameter name
+     * @return The key
+     */
+    public static ParameterKey<Long> number(String name) {
+        return new ParameterKey<>(name, value -> {
+            if (value instanceof Number number) {
+                return number.longValue();
+            }
+            try {
+                return Long.parseLong(value.toString().trim());
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        });
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Reads the parameter from a parameter map.
+     *
+     * @param parameters The parameters, may be null
+     * @param defaultValue The value to return if the parameter is missing or cannot be converted
+     * @return The parameter value, or the default value
+     */
+    public T get(Map<String, Object> parameters, T defaultValue) {
+        Object value = parameters != null ? parameters.get(name) : null;
+        if (value == null) {
+            return defaultValue;
+        }
+        T converted = converter.apply(value);
+        return converted != null ? converted : defaultValue;
+    }
+
+    /**
+     * Writes the parameter to a parameter map.
+     *
+     * @param parameters The parameters
+     * @param value The value
+     */
+    public void put(Map<String, Object> parameters, T value) {
+        parameters.put(name, value);
+    }
+
+    /**
+     * Checks whether the parameter is present in a parameter map.
+     *
+     * @param parameters The parameters, may be null
+     * @return true if the parameter is present, false otherwise
+     */
+    public boolean isPresent(Map<String, Object> parameters) {
+        return parameters != null && parameters.get(name) != null;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
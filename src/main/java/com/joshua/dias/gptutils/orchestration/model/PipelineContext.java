@@ -0,0 +1,82 @@
+package com.joshua.dias.gptutils.orchestration.model;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Holds the state of one pipeline run: the request that started it and the outputs of the steps that finished.
+ * Steps run concurrently, so outputs are kept in a concurrent map.
+ */
+public class PipelineContext {
+
+    private final String requestId;
+    private final ToolExecutionRequest request;
+    private final CancellationToken cancellation;
+    private final Map<String, String> outputs = new ConcurrentHashMap<>();
+
+    public PipelineContext(String requestId, ToolExecutionRequest request, CancellationToken cancellation) {
+        this.requestId = requestId;
+        this.request = request;
+        this.cancellation = cancellation;
+    }
+
+    // Getters
+    public String getRequestId() {
+        return requestId;
+    }
+
+    public ToolExecutionRequest getRequest() {
+        return request;
+    }
+
+    public CancellationToken getCancellation() {
+        return cancellation;
+    }
+
+    /**
+     * Records the output of a finished step.
+     *
+     * @param stepId The step ID
+     * @param output The output, or null if the step produced none
+     */
+    public void putOutput(String stepId, String output) {
+        if (output != null) {
+            outputs.put(stepId, output);
+        }
+    }
+
+    /**
+     * Gets the output of a finished step.
+     *
+     * @param stepId The step ID
+     * @return The output, or null if the step has not finished or produced none
+     */
+    public String getOutput(String stepId) {
+        return outputs.get(stepId);
+    }
+
+    /**
+     * Builds the input of a step: the outputs of the steps it comes after, separated by blank lines,
+     * or the message content of the request for a step without dependencies.
+     *
+     * @param step The step
+     * @return The input of the step
+     */
+    public String inputFor(PipelineStepDefinition step) {
+        if (step.getAfter() == null || step.getAfter().isEmpty()) {
+            return request.get(ToolParameters.MESSAGE_CONTENT, "");
+        }
+        StringBuilder input = new StringBuilder();
+        for (String dependency : step.getAfter()) {
+            String output = outputs.get(dependency);
+            if (output == null || output.isEmpty()) {
+                continue;
+            }
+            if (!input.isEmpty()) {
+                input.append("\n\n");
+            }
+            input.append(output);
+        }
+        return input.toString();
+    }
+}
@@ -0,0 +1,40 @@
+package com.joshua.dias.gptutils.orchestration.model;
+
+import java.util.List;
+
+/**
+ * Represents a pipeline declared under {@code app.pipelines}.
+ * The steps form a directed acyclic graph and are kept in an order where every step comes after its dependencies.
+ */
+public class PipelineDefinition {
+
+    private String name;
+    private List<PipelineStepDefinition> steps;
+
+    // Default constructor
+    public PipelineDefinition() {
+    }
+
+    // Constructor with all fields
+    public PipelineDefinition(String name, List<PipelineStepDefinition> steps) {
+        this.name = name;
+        this.steps = steps;
+    }
+
+    // Getters and setters
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public List<PipelineStepDefinition> getSteps() {
+        return steps;
+    }
+
+    public void setSteps(List<PipelineStepDefinition> steps) {
+        this.steps = steps;
+    }
+}
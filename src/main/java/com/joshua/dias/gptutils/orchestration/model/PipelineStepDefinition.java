@@ -0,0 +1,75 @@
+package com.joshua.dias.gptutils.orchestration.model;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Represents one step of a declared pipeline.
+ * A step runs an action once all the steps it comes after have produced their output.
+ */
+public class PipelineStepDefinition {
+
+    private String id;
+    private String action;
+    private List<String> after;
+    private Map<String, String> options;
+
+    // Default constructor
+    public PipelineStepDefinition() {
+    }
+
+    // Constructor with all fields
+    public PipelineStepDefinition(String id, String action, List<String> after, Map<String, String> options) {
+        this.id = id;
+        this.action = action;
+        this.after = after;
+        this.options = options;
+    }
+
+    // Getters and setters
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getAction() {
+        return action;
+    }
+
+    public void setAction(String action) {
+        this.action = action;
+    }
+
+    public List<String> getAfter() {
+        return after;
+    }
+
+    public void setAfter(List<String> after) {
+        this.after = after;
+    }
+
+    public Map<String, String> getOptions() {
+        return options;
+    }
+
+    public void setOptions(Map<String, String> options) {
+        this.options = options;
+    }
+
+    /**
+     * Gets an option of the step.
+     *
+     * @param name The option name
+     * @param defaultValue The default value to return if the option is not set
+     * @return The option value, or the default value if not set
+     */
+    public String getOption(String name, String defaultValue) {
+        if (options == null || !options.containsKey(name)) {
+            return defaultValue;
+        }
+        return options.get(name);
+    }
+}
@@ -0,0 +1,97 @@
+package com.joshua.dias.gptutils.orchestration.model;
+
+/**
+ * Represents a snapshot of the statistics of one shard of the chat-ordered executor.
+ */
+public class ShardStats {
+
+    private String lane;
+    private int shard;
+    private int queued;
+    private int chats;
+    private boolean active;
+    private long submitted;
+    private long completed;
+    private long rejected;
+
+    // Default constructor
+    public ShardStats() {
+    }
+
+    // Constructor with all fields
+    public ShardStats(String lane, int shard, int queued, int chats, boolean active, long submitted, long completed, long rejected) {
+        this.lane = lane;
+        this.shard = shard;
+        this.queued = queued;
+        this.chats = chats;
+        this.active = active;
+        this.submitted = submitted;
+        this.completed = completed;
+        this.rejected = rejected;
+    }
+
+    // Getters and setters
+    public String getLane() {
+        return lane;
+    }
+
+    public void setLane(String lane) {
+        this.lane = lane;
+    }
+
+    public int getShard() {
+        return shard;
+    }
+
+    public void setShard(int shard) {
+        this.shard = shard;
+    }
+
+    public int getQueued() {
+        return queued;
+    }
+
+    public void setQueued(int queued) {
+        this.queued = queued;
+    }
+
+    public int getChats() {
+        return chats;
+    }
+
+    public void setChats(int chats) {
+        this.chats = chats;
+    }
+
+    public boolean isActive() {
+        return active;
+    }
+
+    public void setActive(boolean active) {
+        this.active = active;
+    }
+
+    public long getSubmitted() {
+        return submitted;
+    }
+
+    public void setSubmitted(long submitted) {
+        this.submitted = submitted;
+    }
+
+    public long getCompleted() {
+        return completed;
+    }
+
+    public void setCompleted(long completed) {
+        this.completed = completed;
+    }
+
+    public long getRejected() {
+        return rejected;
+    }
+
+    public void setRejected(long rejected) {
+        this.rejected = rejected;
+    }
+}
@@ -0,0 +1,77 @@
+package com.joshua.dias.gptutils.orchestration.model;
+
+/**
+ * Represents the latency percentiles of one stage of one tool, over the most recent jobs of the tool.
+ * Times are in milliseconds; the {@code total} stage is the whole job, from acceptance to its final state.
+ */
+public class StageLatencyStats {
+
+    private String tool;
+    private String stage;
+    private int samples;
+    private long p50Millis;
+    private long p90Millis;
+    private long p99Millis;
+    private long maxMillis;
+
+    // Default constructor
+    public StageLatencyStats() {
+    }
+
+    // Getters and setters
+    public String getTool() {
+        return tool;
+    }
+
+    public void setTool(String tool) {
+        this.tool = tool;
+    }
+
+    public String getStage() {
+        return stage;
+    }
+
+    public void setStage(String stage) {
+        this.stage = stage;
+    }
+
+    public int getSamples() {
+        return samples;
+    }
+
+    public void setSamples(int samples) {
+        this.samples = samples;
+    }
+
+    public long getP50Millis() {
+        return p50Millis;
+    }
+
+    public void setP50Millis(long p50Millis) {
+        this.p50Millis = p50Millis;
+    }
+
+    public long getP90Millis() {
+        return p90Millis;
+    }
+
+    public void setP90Millis(long p90Millis) {
+        this.p90Millis = p90Millis;
+    }
+
+    public long getP99Millis() {
+        return p99Millis;
+    }
+
+    public void setP99Millis(long p99Millis) {
+        this.p99Millis = p99Millis;
+    }
+
+    public long getMaxMillis() {
+        return maxMillis;
+    }
+
+    public void setMaxMillis(long maxMillis) {
+        this.maxMillis = maxMillis;
+    }
+}
@@ -0,0 +1,94 @@
+package com.joshua.dias.gptutils.orchestration.model;
+
+import io.opentelemetry.context.Context;
+import io.opentelemetry.context.ContextKey;
+import io.opentelemetry.context.ImplicitContextKeyed;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The time one request spent in each of its stages, in the order the stages first finished.
+ * <p>
+ * The ledger of a request is made current when its tool is started. It is kept in the OpenTelemetry
+ * {@link Context}, so it follows the request across the same executor hops as its trace, and every stage recorded
+ * while it is current is added to it. Safe to use from any thread.
+ */
+public final class StageLedger implements ImplicitContextKeyed {
+
+    private static final ContextKey<StageLedger> KEY = ContextKey.named("gptutils-stage-ledger");
+
+    private final Map<String, StageTiming> stages = new LinkedHashMap<>();
+
+    /**
+     * Gets the ledger of the request being processed on the current thread.
+     *
+     * @return The ledger, or null outside of a tool execution
+     */
+    public static StageLedger current() {
+        return Context.current().get(KEY);
+    }
+
+    /**
+     * Gets a copy of the stages of the current ledger.
+     *
+     * @return The stages by name, empty outside of a tool execution
+     */
+    public static Map<String, StageTiming> currentStages() {
+        StageLedger ledger = current();
+        return ledger != null ? ledger.getStages() : new LinkedHashMap<>();
+    }
+
+    /**
+     * Adds the time of a run of a stage.
+     *
+     * @param stage The stage
+     * @param millis The time the run took
+     */
+    public synchronized void record(String stage, long millis) {
+        StageTiming timing = timing(stage);
+        timing.setMillis(timing.getMillis() + millis);
+        timing.setCount(timing.getCount() + 1);
+    }
+
+    /**
+     * Sets the number of bytes a stage produced or transferred.
+     *
+     * @param stage The stage
+     * @param bytes The number of bytes
+     */
+    public synchronized void recordBytes(String stage, long bytes) {
+        timing(stage).setBytes(bytes);
+    }
+
+    /**
+     * Sets the output to input size ratio of a stage.
+     *
+     * @param stage The stage
+     * @param ratio The ratio
+     */
+    public synchronized void recordRatio(String stage, double ratio) {
+        timing(stage).setRatio(ratio);
+    }
+
+    /**
+     * Gets a copy of the stages recorded so far.
+     *
+     * @return The stages by name
+     */
+    public synchronized Map<String, StageTiming> getStages() {
+        Map<String, StageTiming> copy = new LinkedHashMap<>();
+        stages.forEach((stage, timing) -> copy.put(stage,
+                new StageTiming(timing.getMillis(), timing.getCount(), timing.getBytes(), timing.getRatio())));
+        return copy;
+    }
+
+    @Override
+    public Context storeInContext(Context context) {
+        return context.with(KEY, this);
+    }
+
+    private StageTiming timing(String stage) {
+        return stages.computeIfAbsent(stage, ignored -> new StageTiming());
+    }
+}
@@ -0,0 +1,61 @@
+package com.joshua.dias.gptutils.orchestration.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * Represents the time a request spent in one stage, with what the stage measured along the way.
+ * A stage that ran more than once (e.g. compression retried at a lower bitrate) adds up its time.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class StageTiming {
+
+    private long millis;
+    private int count;
+    private Long bytes;
+    private Double ratio;
+
+    // Default constructor
+    public StageTiming() {
+    }
+
+    // Constructor with all fields
+    public StageTiming(long millis, int count, Long bytes, Double ratio) {
+        this.millis = millis;
+        this.count = count;
+        this.bytes = bytes;
+        this.ratio = ratio;
+    }
+
+    // Getters and setters
+    public long getMillis() {
+        return millis;
+    }
+
+    public void setMillis(long millis) {
+        this.millis = millis;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public void setCount(int count) {
+        this.count = count;
+    }
+
+    public Long getBytes() {
+        return bytes;
+    }
+
+    public void setBytes(Long bytes) {
+        this.bytes = bytes;
+    }
+
+    public Double getRatio() {
+        return ratio;
+    }
+
+    public void setRatio(Double ratio) {
+        this.ratio = ratio;
+    }
+}
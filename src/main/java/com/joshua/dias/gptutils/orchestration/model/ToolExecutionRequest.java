@@ -48,8 +48,21 @@ public class ToolExecutionRequest {
         this.callbackUrl = callbackUrl;
     }
     
+    /**
+     * Gets a parameter value through its typed key.
+     *
+     * @param <T> The type of the parameter value
+     * @param key The parameter key, usually one of {@link ToolParameters}
+     * @param defaultValue The default value to return if the parameter is not found or has the wrong type
+     * @return The parameter value, or the default value if not found
+     */
+    public <T> T get(ParameterKey<T> key, T defaultValue) {
+        return key.get(parameters, defaultValue);
+    }
+
     /**
      * Gets a parameter value as a specific type.
+     * Prefer {@link #get(ParameterKey, Object)} for the parameters declared in {@link ToolParameters}.
      * 
      * @param <T> The type to cast the parameter to
      * @param name The parameter name
@@ -69,4 +82,27 @@ public class ToolExecutionRequest {
             return defaultValue;
         }
     }
+    
+    /**
+     * Gets a numeric parameter value as a long.
+     * Numbers may arrive as Integer or Long depending on how the request was deserialized.
+     * 
+     * @param name The parameter name
+     * @param defaultValue The default value to return if the parameter is not found or not numeric
+     * @return The parameter value, or the default value if not found
+     */
+    public long getLongParameter(String name, long defaultValue) {
+        Object value = parameters != null ? parameters.get(name) : null;
+        if (value instanceof Number number) {
+            return number.longValue();
+        }
+        if (value instanceof String text) {
+            try {
+                return Long.parseLong(text.trim());
+            } catch (NumberFormatException e) {
+                return defaultValue;
+            }
+        }
+        return defaultValue;
+    }
 }
\ No newline at end of file
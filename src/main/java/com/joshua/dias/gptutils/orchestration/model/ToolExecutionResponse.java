@@ -1,11 +1,16 @@
 package com.joshua.dias.gptutils.orchestration.model;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 /**
  * Represents a response from a tool execution.
  * This is a generic model that can be used for any tool execution response.
+ * Final responses carry the time the execution spent in each stage; accepted responses have no stages yet.
+ * Requests refused because of load carry the number of seconds after which they may be sent again.
  */
 public class ToolExecutionResponse {
     
@@ -16,7 +21,19 @@ public class ToolExecutionResponse {
         ACCEPTED,    // Request was accepted and is being processed asynchronously
         COMPLETED,   // Request was processed successfully
         FAILED,      // Request processing failed
-        REJECTED     // Request was rejected (e.g., invalid parameters)
+        REJECTED,    // Request was rejected (e.g., invalid parameters)
+        THROTTLED,   // Request was refused because its chat has too many pending requests
+        OVERLOADED;  // Request was refused because the executors are full
+
+        /**
+         * Checks whether a request with this status was refused only because of load,
+         * so sending it again later may succeed.
+         *
+         * @return true for THROTTLED and OVERLOADED
+         */
+        public boolean isRetryable() {
+            return this == THROTTLED || this == OVERLOADED;
+        }
     }
     
     private String toolName;
@@ -24,6 +41,9 @@ public class ToolExecutionResponse {
     private Map<String, Object> result;
     private String errorMessage;
     private String requestId;
+    private Map<String, StageTiming> stages = new LinkedHashMap<>();
+    @JsonInclude(JsonInclude.Include.NON_DEFAULT)
+    private long retryAfterSeconds;
     
     // Default constructor
     public ToolExecutionResponse() {
@@ -105,6 +125,22 @@ public class ToolExecutionResponse {
         this.requestId = requestId;
     }
     
+    public Map<String, StageTiming> getStages() {
+        return stages;
+    }
+    
+    public void setStages(Map<String, StageTiming> stages) {
+        this.stages = stages != null ? stages : new LinkedHashMap<>();
+    }
+    
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+    
+    public void setRetryAfterSeconds(long retryAfterSeconds) {
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+    
     /**
      * Adds a result value to the response.
      * 
@@ -166,4 +202,34 @@ public class ToolExecutionResponse {
     public static ToolExecutionResponse rejected(String toolName, String errorMessage, String requestId) {
         return new ToolExecutionResponse(toolName, errorMessage, Status.REJECTED, requestId);
     }
-}
\ No newline at end of file
+    
+    /**
+     * Creates a response for a request refused because its chat has too many pending requests.
+     * 
+     * @param toolName The name of the tool
+     * @param errorMessage The error message
+     * @param retryAfterSeconds The number of seconds after which the request may be sent again
+     * @param requestId The ID of the request
+     * @return A new response object
+     */
+    public static ToolExecutionResponse throttled(String toolName, String errorMessage, long retryAfterSeconds, String requestId) {
+        ToolExecutionResponse response = new ToolExecutionResponse(toolName, errorMessage, Status.THROTTLED, requestId);
+        response.setRetryAfterSeconds(retryAfterSeconds);
+        return response;
+    }
+    
+    /**
+     * Creates a response for a request refused because the executors are full.
+     * 
+     * @param toolName The name of the tool
+     * @param errorMessage The error message
+     * @param retryAfterSeconds The number of seconds after which the request may be sent again
+     * @param requestId The ID of the request
+     * @return A new response object
+     */
+    public static ToolExecutionResponse overloaded(String toolName, String errorMessage, long retryAfterSeconds, String requestId) {
+        ToolExecutionResponse response = new ToolExecutionResponse(toolName, errorMessage, Status.OVERLOADED, requestId);
+        response.setRetryAfterSeconds(retryAfterSeconds);
+        return response;
+    }
+}
@@ -0,0 +1,27 @@
+package com.joshua.dias.gptutils.orchestration.model;
+
+/**
+ * The parameters that tool execution requests carry, declared once so that a misspelt or mistyped key
+ * is a compile error rather than a parameter that is silently missing at runtime.
+ */
+public final class ToolParameters {
+
+    // Set by the webhook from the incoming message
+    public static final ParameterKey<String> PHONE_NUMBER = ParameterKey.text("phoneNumber");
+    public static final ParameterKey<String> CONTENT_TYPE = ParameterKey.text("contentType");
+    public static final ParameterKey<String> MESSAGE_ID = ParameterKey.text("messageId");
+    public static final ParameterKey<String> CONTENT_URL = ParameterKey.text("contentUrl");
+    public static final ParameterKey<String> MESSAGE_CONTENT = ParameterKey.text("messageContent");
+    public static final ParameterKey<String> SENDER_NAME = ParameterKey.text("senderName");
+    public static final ParameterKey<Long> DURATION = ParameterKey.number("duration");          // Seconds of audio or video
+    public static final ParameterKey<Long> CONTENT_SIZE = ParameterKey.number("contentSize");   // Estimated media bytes
+    public static final ParameterKey<Long> RECEIVED_AT = ParameterKey.number("receivedAt");     // Epoch millis
+
+    // Set by the ToolExecutionService when the request is accepted
+    public static final ParameterKey<String> REQUEST_ID = ParameterKey.text("requestId");
+    public static final ParameterKey<String> LANE = ParameterKey.text("lane");
+    public static final ParameterKey<Long> DEADLINE = ParameterKey.number("deadline");          // Epoch millis
+
+    private ToolParameters() {
+    }
+}
@@ -0,0 +1,72 @@
+package com.joshua.dias.gptutils.orchestration.resource;
+
+import com.joshua.dias.gptutils.orchestration.model.CallbackDeadLetter;
+import com.joshua.dias.gptutils.orchestration.model.CallbackStats;
+import com.joshua.dias.gptutils.orchestration.service.CallbackDispatcher;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.POST;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.MediaType;
+import org.jboss.logging.Logger;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * REST resource for inspecting callback delivery and redelivering dead-lettered callbacks.
+ */
+@Path("/api/callbacks")
+@ApplicationScoped
+public class CallbackResource {
+
+    private static final Logger LOG = Logger.getLogger(CallbackResource.class);
+
+    private final CallbackDispatcher callbackDispatcher;
+
+    /**
+     * Constructor that injects dependencies.
+     */
+    @Inject
+    public CallbackResource(CallbackDispatcher callbackDispatcher) {
+        this.callbackDispatcher = callbackDispatcher;
+        LOG.info("CallbackResource initialized");
+    }
+
+    /**
+     * Gets the delivery counters of the callback dispatcher.
+     *
+     * @return The statistics
+     */
+    @GET
+    @Produces(MediaType.APPLICATION_JSON)
+    public CallbackStats getStats() {
+        return callbackDispatcher.getStats();
+    }
+
+    /**
+     * Lists the callback batches that could not be delivered, oldest first.
+     *
+     * @return The dead letters
+     */
+    @GET
+    @Path("/dead-letters")
+    @Produces(MediaType.APPLICATION_JSON)
+    public List<CallbackDeadLetter> getDeadLetters() {
+        return callbackDispatcher.getDeadLetters();
+    }
+
+    /**
+     * Sends every dead-lettered batch again with a fresh retry budget.
+     *
+     * @return The number of batches handed back for delivery
+     */
+    @POST
+    @Path("/dead-letters/redeliver")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Map<String, Object> redeliverDeadLetters() {
+        return Map.of("redelivered", callbackDispatcher.redeliverDeadLetters());
+    }
+}
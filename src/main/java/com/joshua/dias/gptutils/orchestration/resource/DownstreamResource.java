@@ -0,0 +1,45 @@
+package com.joshua.dias.gptutils.orchestration.resource;
+
+import com.joshua.dias.gptutils.orchestration.model.DownstreamStats;
+import com.joshua.dias.gptutils.orchestration.service.DownstreamRegistry;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.MediaType;
+import org.jboss.logging.Logger;
+
+import java.util.List;
+
+/**
+ * REST resource for inspecting the circuit breakers and bulkheads of the downstream services.
+ */
+@Path("/api/downstreams")
+@ApplicationScoped
+public class DownstreamResource {
+
+    private static final Logger LOG = Logger.getLogger(DownstreamResource.class);
+
+    private final DownstreamRegistry downstreamRegistry;
+
+    /**
+     * Constructor that injects dependencies.
+     */
+    @Inject
+    public DownstreamResource(DownstreamRegistry downstreamRegistry) {
+        this.downstreamRegistry = downstreamRegistry;
+        LOG.info("DownstreamResource initialized");
+    }
+
+    /**
+     * Gets the circuit state, active calls, failure rate and rejection counters of every downstream.
+     *
+     * @return The statistics of every downstream that has been called
+     */
+    @GET
+    @Produces(MediaType.APPLICATION_JSON)
+    public List<DownstreamStats> getDownstreams() {
+        return downstreamRegistry.getStats();
+    }
+}
@@ -0,0 +1,114 @@
+package com.joshua.dias.gptutils.orchestration.resource;
+
+import com.joshua.dias.gptutils.orchestration.model.BulkheadStats;
+import com.joshua.dias.gptutils.orchestration.model.ShardStats;
+import com.joshua.dias.gptutils.orchestration.service.ChatOrderedExecutor;
+import com.joshua.dias.gptutils.orchestration.service.ExecutorRegistry;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.PUT;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.PathParam;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.QueryParam;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import org.jboss.logging.Logger;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * REST resource for inspecting and tuning the executors that run tool work.
+ */
+@Path("/api/executors")
+@ApplicationScoped
+public class ExecutorResource {
+
+    private static final Logger LOG = Logger.getLogger(ExecutorResource.class);
+
+    private final ChatOrderedExecutor chatOrderedExecutor;
+    private final ExecutorRegistry executorRegistry;
+
+    /**
+     * Constructor that injects dependencies.
+     */
+    @Inject
+    public ExecutorResource(ChatOrderedExecutor chatOrderedExecutor, ExecutorRegistry executorRegistry) {
+        this.chatOrderedExecutor = chatOrderedExecutor;
+        this.executorRegistry = executorRegistry;
+        LOG.info("ExecutorResource initialized");
+    }
+
+    /**
+     * Gets the statistics of every shard of the chat-ordered executor.
+     *
+     * @return The shard statistics
+     */
+    @GET
+    @Path("/shards")
+    @Produces(MediaType.APPLICATION_JSON)
+    public List<ShardStats> getShardStats() {
+        return chatOrderedExecutor.getShardStats();
+    }
+
+    /**
+     * Gets the statistics of every bulkhead.
+     *
+     * @return The bulkhead statistics
+     */
+    @GET
+    @Path("/bulkheads")
+    @Produces(MediaType.APPLICATION_JSON)
+    public List<BulkheadStats> getBulkheadStats() {
+        return executorRegistry.getStats();
+    }
+
+    /**
+     * Resizes a bulkhead without redeploying. Omitted limits keep their current value.
+     *
+     * @param name The bulkhead name
+     * @param concurrency The new number of threads
+     * @param maxWaiting The new maximum number of waiting tasks
+     * @return HTTP response with the statistics of the resized bulkhead
+     */
+    @PUT
+    @Path("/bulkheads/{name}")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response resizeBulkhead(
+            @PathParam("name") String name,
+            @QueryParam("concurrency") Integer concurrency,
+            @QueryParam("maxWaiting") Integer maxWaiting
+    ) {
+        if (!executorRegistry.contains(name)) {
+            return Response.status(Response.Status.NOT_FOUND)
+                    .entity(createErrorResponse("Unknown bulkhead: " + name))
+                    .build();
+        }
+
+        BulkheadStats current = executorRegistry.get(name).snapshot();
+        try {
+            BulkheadStats stats = executorRegistry.resize(
+                    name,
+                    concurrency != null ? concurrency : current.getConcurrency(),
+                    maxWaiting != null ? maxWaiting : current.getMaxWaiting());
+            return Response.ok(stats).build();
+        } catch (IllegalArgumentException e) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity(createErrorResponse(e.getMessage()))
+                    .build();
+        }
+    }
+
+    /**
+     * Creates an error response map.
+     */
+    private Map<String, Object> createErrorResponse(String errorMessage) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("status", "error");
+        response.put("message", errorMessage);
+        return response;
+    }
+}
@@ -0,0 +1,145 @@
+package com.joshua.dias.gptutils.orchestration.resource;
+
+import com.joshua.dias.gptutils.orchestration.model.Job;
+import com.joshua.dias.gptutils.orchestration.model.JobState;
+import com.joshua.dias.gptutils.orchestration.service.CancellationRegistry;
+import com.joshua.dias.gptutils.orchestration.service.JobStore;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.DELETE;
+import jakarta.ws.rs.DefaultValue;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.PathParam;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.QueryParam;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import org.jboss.logging.Logger;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * REST resource for following and cancelling accepted tool executions.
+ */
+@Path("/api/jobs")
+@ApplicationScoped
+public class JobResource {
+
+    private static final Logger LOG = Logger.getLogger(JobResource.class);
+    private static final int MAX_LIMIT = 1000;
+
+    private final JobStore jobStore;
+    private final CancellationRegistry cancellationRegistry;
+
+    /**
+     * Constructor that injects dependencies.
+     */
+    @Inject
+    public JobResource(JobStore jobStore, CancellationRegistry cancellationRegistry) {
+        this.jobStore = jobStore;
+        this.cancellationRegistry = cancellationRegistry;
+        LOG.info("JobResource initialized");
+    }
+
+    /**
+     * Gets a job by the request ID returned when the tool execution was accepted.
+     *
+     * @param requestId The request ID
+     * @return HTTP response with the job and its state history
+     */
+    @GET
+    @Path("/{requestId}")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getJob(@PathParam("requestId") String requestId) {
+        Job job = jobStore.get(requestId);
+        if (job == null) {
+            return Response.status(Response.Status.NOT_FOUND)
+                    .entity(createErrorResponse("Unknown or expired job: " + requestId))
+                    .build();
+        }
+        return Response.ok(job).build();
+    }
+
+    /**
+     * Lists the most recent jobs, newest first.
+     *
+     * @param state Only return jobs in this state (optional)
+     * @param limit The maximum number of jobs to return
+     * @return HTTP response with the jobs
+     */
+    @GET
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response listJobs(
+            @QueryParam("state") String state,
+            @QueryParam("limit") @DefaultValue("50") int limit
+    ) {
+        JobState stateFilter = null;
+        if (state != null && !state.isBlank()) {
+            try {
+                stateFilter = JobState.valueOf(state.trim().toUpperCase());
+            } catch (IllegalArgumentException e) {
+                return Response.status(Response.Status.BAD_REQUEST)
+                        .entity(createErrorResponse("Unknown job state: " + state))
+                        .build();
+            }
+        }
+        return Response.ok(jobStore.list(stateFilter, Math.max(1, Math.min(limit, MAX_LIMIT)))).build();
+    }
+
+    /**
+     * Cancels a job. Queued work is dropped when its turn comes; a running FFmpeg encode or download is aborted.
+     *
+     * @param requestId The request ID
+     * @return HTTP response with the cancelled job, 404 if the job is unknown or 409 if it already finished
+     */
+    @DELETE
+    @Path("/{requestId}")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response cancelJob(@PathParam("requestId") String requestId) {
+        Job job = jobStore.get(requestId);
+        if (job == null) {
+            return Response.status(Response.Status.NOT_FOUND)
+                    .entity(createErrorResponse("Unknown or expired job: " + requestId))
+                    .build();
+        }
+        if (!cancellationRegistry.cancel(requestId, "Cancelled by request")) {
+            return Response.status(Response.Status.CONFLICT)
+                    .entity(createErrorResponse("Job already finished: " + requestId))
+                    .build();
+        }
+        return Response.ok(jobStore.get(requestId)).build();
+    }
+
+    /**
+     * Cancels every unfinished job of a chat.
+     *
+     * @param chat The phone number of the chat
+     * @return HTTP response with the number of cancelled jobs
+     */
+    @DELETE
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response cancelChatJobs(@QueryParam("chat") String chat) {
+        if (chat == null || chat.isBlank()) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity(createErrorResponse("The chat query parameter is required"))
+                    .build();
+        }
+        int cancelled = cancellationRegistry.cancelChat(chat.trim(), "Cancelled by request");
+        Map<String, Object> response = new HashMap<>();
+        response.put("chat", chat.trim());
+        response.put("cancelled", cancelled);
+        return Response.ok(response).build();
+    }
+
+    /**
+     * Creates an error response map.
+     */
+    private Map<String, Object> createErrorResponse(String errorMessage) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("status", "error");
+        response.put("message", errorMessage);
+        return response;
+    }
+}
@@ -0,0 +1,45 @@
+package com.joshua.dias.gptutils.orchestration.resource;
+
+import com.joshua.dias.gptutils.orchestration.model.PipelineDefinition;
+import com.joshua.dias.gptutils.orchestration.service.PipelineRegistry;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.MediaType;
+import org.jboss.logging.Logger;
+
+import java.util.List;
+
+/**
+ * REST resource for inspecting the pipelines declared in configuration.
+ */
+@Path("/api/pipelines")
+@ApplicationScoped
+public class PipelineResource {
+
+    private static final Logger LOG = Logger.getLogger(PipelineResource.class);
+
+    private final PipelineRegistry pipelineRegistry;
+
+    /**
+     * Constructor that injects dependencies.
+     */
+    @Inject
+    public PipelineResource(PipelineRegistry pipelineRegistry) {
+        this.pipelineRegistry = pipelineRegistry;
+        LOG.info("PipelineResource initialized");
+    }
+
+    /**
+     * Gets the registered pipelines with their steps in execution order.
+     *
+     * @return The pipeline definitions
+     */
+    @GET
+    @Produces(MediaType.APPLICATION_JSON)
+    public List<PipelineDefinition> getPipelines() {
+        return pipelineRegistry.getPipelines();
+    }
+}
@@ -0,0 +1,47 @@
+package com.joshua.dias.gptutils.orchestration.resource;
+
+import com.joshua.dias.gptutils.orchestration.model.StageLatencyStats;
+import com.joshua.dias.gptutils.orchestration.service.StageStatistics;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.QueryParam;
+import jakarta.ws.rs.core.MediaType;
+import org.jboss.logging.Logger;
+
+import java.util.List;
+
+/**
+ * REST resource for the latency percentiles of the stages of recent tool executions.
+ */
+@Path("/api/stages")
+@ApplicationScoped
+public class StageResource {
+
+    private static final Logger LOG = Logger.getLogger(StageResource.class);
+
+    private final StageStatistics stageStatistics;
+
+    /**
+     * Constructor that injects dependencies.
+     */
+    @Inject
+    public StageResource(StageStatistics stageStatistics) {
+        this.stageStatistics = stageStatistics;
+        LOG.info("StageResource initialized");
+    }
+
+    /**
+     * Gets the p50, p90 and p99 latency of every stage over the most recent successful jobs.
+     *
+     * @param tool Only return the stages of this tool (optional)
+     * @return The stage statistics, ordered by tool and stage
+     */
+    @GET
+    @Produces(MediaType.APPLICATION_JSON)
+    public List<StageLatencyStats> getStageStats(@QueryParam("tool") String tool) {
+        return stageStatistics.getStats(tool == null || tool.isBlank() ? null : tool.trim());
+    }
+}
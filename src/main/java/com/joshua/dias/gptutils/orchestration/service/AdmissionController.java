@@ -0,0 +1,116 @@
+package com.joshua.dias.gptutils.orchestration.service;
+
+import com.joshua.dias.gptutils.orchestration.model.AdmissionDecision;
+import com.joshua.dias.gptutils.orchestration.model.Lane;
+import com.joshua.dias.gptutils.orchestration.model.ToolExecutionRequest;
+import com.joshua.dias.gptutils.orchestration.model.ToolParameters;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.Config;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+/**
+ * Decides whether an incoming tool execution request may enter the system.
+ * <p>
+ * The decision looks at the queue depth, the in-flight media bytes and the estimated wait time
+ * of the request's lane in the ChatOrderedExecutor, so queued transcriptions never cause text to be shed. Tools configured with {@code shed: true} (the forwarding fallback by default)
+ * are answered with 503 when a hard limit is reached and with 429 when the wait would be too long;
+ * every other tool is always admitted.
+ * <p>
+ * Limits are read per tool from {@code app.admission.tools.<tool>.*} and fall back to
+ * {@code app.admission.*}.
+ */
+@ApplicationScoped
+public class AdmissionController {
+
+    private static final Logger LOG = Logger.getLogger(AdmissionController.class);
+    private static final String PREFIX = "app.admission.";
+    private static final String TOOL_PREFIX = PREFIX + "tools.";
+
+    private final ChatOrderedExecutor chatOrderedExecutor;
+    private final LaneSelector laneSelector;
+    private final StageMetrics stageMetrics;
+    private final Config config;
+    private final boolean enabled;
+
+    /**
+     * Constructor that injects dependencies and configuration.
+     */
+    @Inject
+    public AdmissionController(
+            ChatOrderedExecutor chatOrderedExecutor,
+            LaneSelector laneSelector,
+            StageMetrics stageMetrics,
+            Config config,
+            @ConfigProperty(name = "app.admission.enabled", defaultValue = "true") boolean enabled
+    ) {
+        this.chatOrderedExecutor = chatOrderedExecutor;
+        this.laneSelector = laneSelector;
+        this.stageMetrics = stageMetrics;
+        this.config = config;
+        this.enabled = enabled;
+        LOG.info("AdmissionController initialized, enabled: " + enabled);
+    }
+
+    /**
+     * Checks whether a request may be executed now.
+     *
+     * @param request The tool execution request
+     * @return The admission decision
+     */
+    public AdmissionDecision check(ToolExecutionRequest request) {
+        String toolName = request.getToolName();
+        if (!enabled || !isSheddable(toolName)) {
+            return AdmissionDecision.admit();
+        }
+
+        Lane lane = laneSelector.select(request);
+        int queuedTasks = chatOrderedExecutor.getQueuedTasks(lane);
+        long inFlightBytes = chatOrderedExecutor.getInFlightWeight(lane);
+        long estimatedWaitMillis = chatOrderedExecutor.getEstimatedWaitMillis(lane);
+        long retryAfterSeconds = Math.max(1, (estimatedWaitMillis + 999) / 1000);
+
+        int maxQueueDepth = getLimit(toolName, "max-queue-depth", Integer.class, 500);
+        if (queuedTasks >= maxQueueDepth) {
+            LOG.warn("Shedding '" + toolName + "' request: queue depth " + queuedTasks + " >= " + maxQueueDepth);
+            stageMetrics.rejection("admission-queue-depth", toolName);
+            return AdmissionDecision.reject(503, retryAfterSeconds, "Server is overloaded (queue depth)");
+        }
+
+        long maxInFlightBytes = getLimit(toolName, "max-in-flight-bytes", Long.class, 536870912L);
+        long requestBytes = request.get(ToolParameters.CONTENT_SIZE, 0L);
+        if (inFlightBytes + requestBytes > maxInFlightBytes) {
+            LOG.warn("Shedding '" + toolName + "' request: in-flight bytes " + inFlightBytes + " + " +
+                    requestBytes + " > " + maxInFlightBytes);
+            stageMetrics.rejection("admission-in-flight-bytes", toolName);
+            return AdmissionDecision.reject(503, retryAfterSeconds, "Server is overloaded (in-flight media)");
+        }
+
+        long maxWaitMillis = getLimit(toolName, "max-wait-ms", Long.class, 30000L);
+        if (estimatedWaitMillis > maxWaitMillis) {
+            LOG.warn("Deferring '" + toolName + "' request: estimated wait " + estimatedWaitMillis + "ms > " +
+                    maxWaitMillis + "ms");
+            stageMetrics.rejection("admission-wait", toolName);
+            return AdmissionDecision.reject(429, retryAfterSeconds, "Too many requests, retry later");
+        }
+
+        return AdmissionDecision.admit();
+    }
+
+    /**
+     * Checks whether requests for a tool may be shed under load.
+     */
+    private boolean isSheddable(String toolName) {
+        return config.getOptionalValue(TOOL_PREFIX + toolName + ".shed", Boolean.class).orElse(false);
+    }
+
+    /**
+     * Reads a limit for a tool, falling back to the global value and then to the default.
+     */
+    private <T> T getLimit(String toolName, String key, Class<T> type, T defaultValue) {
+        return config.getOptionalValue(TOOL_PREFIX + toolName + "." + key, type)
+                .or(() -> config.getOptionalValue(PREFIX + key, type))
+                .orElse(defaultValue);
+    }
+}
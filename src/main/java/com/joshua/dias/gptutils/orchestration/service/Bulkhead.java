@@ -0,0 +1,314 @@
+package com.joshua.dias.gptutils.orchestration.service;
+
+import com.joshua.dias.gptutils.orchestration.model.BulkheadStats;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A named, resizable thread pool that isolates one kind of work from the others.
+ * <p>
+ * The bulkhead bounds both the number of tasks running at once ({@code concurrency}) and the number of
+ * tasks admitted but not yet started ({@code maxWaiting}). Tasks are reserved with {@link #reserve()} when
+ * they are submitted and reported with {@link #started(long)} and {@link #finished(long, boolean)}, which
+ * feed the queue-wait and run-time timers.
+ * <p>
+ * On platform threads the concurrency is the size of a fixed pool. On virtual threads every task gets a thread of
+ * its own and the concurrency is a number of permits instead, so it can be set far higher than a pool would allow:
+ * a task blocked on I/O holds a permit but no carrier thread.
+ */
+public final class Bulkhead {
+
+    private final String name;
+    private final ExecutorService executor;
+    // Only set in thread-per-task mode, where it takes the place of the pool size
+    private final Permits permits;
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final AtomicInteger running = new AtomicInteger();
+    private volatile int concurrency;
+    private volatile int maxWaiting;
+
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder started = new LongAdder();
+    private final LongAdder totalQueueWaitNanos = new LongAdder();
+    private final LongAdder totalRunNanos = new LongAdder();
+    private final LongAccumulator maxQueueWaitNanos = new LongAccumulator(Math::max, 0);
+    private final LongAccumulator maxRunNanos = new LongAccumulator(Math::max, 0);
+
+    Bulkhead(String name, int concurrency, int maxWaiting, ThreadFactory threadFactory, boolean threadPerTask) {
+        this.name = name;
+        this.concurrency = concurrency;
+        this.maxWaiting = maxWaiting;
+        if (threadPerTask) {
+            this.executor = Executors.newThreadPerTaskExecutor(threadFactory);
+            this.permits = new Permits(concurrency);
+        } else {
+            // The queue is unbounded on purpose: admission is bounded by reserve(), so it never holds more than maxWaiting tasks
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(
+                    concurrency,
+                    concurrency,
+                    60L, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(),
+                    threadFactory
+            );
+            pool.allowCoreThreadTimeOut(true);
+            this.executor = pool;
+            this.permits = null;
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getConcurrency() {
+        return concurrency;
+    }
+
+    public int getActive() {
+        return running.get();
+    }
+
+    public int getWaiting() {
+        return waiting.get();
+    }
+
+    public long getCompleted() {
+        return completed.sum();
+    }
+
+    public long getFailed() {
+        return failed.sum();
+    }
+
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    /**
+     * Admits a task into the bulkhead.
+     *
+     * @throws RejectedExecutionException If the bulkhead already has {@code maxWaiting} tasks waiting or is draining
+     */
+    void reserve() {
+        if (executor.isShutdown()) {
+            rejected.increment();
+            throw new RejectedExecutionException("Bulkhead '" + name + "' is draining");
+        }
+        if (waiting.incrementAndGet() > maxWaiting) {
+            waiting.decrementAndGet();
+            rejected.increment();
+            throw new RejectedExecutionException("Bulkhead '" + name + "' is full (" + maxWaiting + " tasks waiting)");
+        }
+        submitted.increment();
+    }
+
+    /**
+     * Gives back a reservation for a task that was rejected further down the line.
+     */
+    void cancelReservation() {
+        waiting.decrementAndGet();
+        submitted.decrement();
+        rejected.increment();
+    }
+
+    /**
+     * Records that a reserved task started running.
+     *
+     * @param enqueuedNanos The {@link System#nanoTime()} at which the task was reserved
+     * @return The {@link System#nanoTime()} at which the task started
+     */
+    long started(long enqueuedNanos) {
+        long now = System.nanoTime();
+        long waitNanos = now - enqueuedNanos;
+        waiting.decrementAndGet();
+        started.increment();
+        totalQueueWaitNanos.add(waitNanos);
+        maxQueueWaitNanos.accumulate(waitNanos);
+        return now;
+    }
+
+    /**
+     * Records that a task finished running.
+     *
+     * @param startNanos The value returned by {@link #started(long)}
+     * @param success Whether the task completed without throwing
+     */
+    void finished(long startNanos, boolean success) {
+        long runNanos = System.nanoTime() - startNanos;
+        totalRunNanos.add(runNanos);
+        maxRunNanos.accumulate(runNanos);
+        if (success) {
+            completed.increment();
+        } else {
+            failed.increment();
+        }
+    }
+
+    /**
+     * Runs a command on one of the bulkhead's threads.
+     */
+    void execute(Runnable command) {
+        executor.execute(() -> {
+            if (permits != null) {
+                try {
+                    permits.acquire();
+                } catch (InterruptedException e) {
+                    // Only a stopping bulkhead interrupts a task that has not started
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+            running.incrementAndGet();
+            try {
+                command.run();
+            } finally {
+                running.decrementAndGet();
+                if (permits != null) {
+                    permits.release();
+                }
+            }
+        });
+    }
+
+    /**
+     * Adapts the bulkhead to an Executor that reserves, times and counts every command it runs.
+     *
+     * @return The executor
+     */
+    Executor asExecutor() {
+        return command -> {
+            reserve();
+            long enqueuedNanos = System.nanoTime();
+            try {
+                execute(() -> {
+                    long start = started(enqueuedNanos);
+                    boolean success = false;
+                    try {
+                        command.run();
+                        success = true;
+                    } finally {
+                        finished(start, success);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                cancelReservation();
+                throw e;
+            }
+        };
+    }
+
+    /**
+     * Changes the limits of the bulkhead. Running tasks are not affected; extra threads retire once idle.
+     *
+     * @param concurrency The new number of threads, or of permits in thread-per-task mode
+     * @param maxWaiting The new maximum number of waiting tasks
+     */
+    synchronized void resize(int concurrency, int maxWaiting) {
+        if (permits != null) {
+            permits.resize(this.concurrency, concurrency);
+        } else {
+            ThreadPoolExecutor pool = (ThreadPoolExecutor) executor;
+            // The core size may never exceed the maximum size, so the order of the two calls depends on the direction
+            if (concurrency > pool.getMaximumPoolSize()) {
+                pool.setMaximumPoolSize(concurrency);
+                pool.setCorePoolSize(concurrency);
+            } else {
+                pool.setCorePoolSize(concurrency);
+                pool.setMaximumPoolSize(concurrency);
+            }
+        }
+        this.concurrency = concurrency;
+        this.maxWaiting = maxWaiting;
+    }
+
+    /**
+     * Stops accepting tasks and waits for the running and queued ones to finish.
+     *
+     * @param timeoutMillis How long to wait
+     * @return true if the bulkhead drained in time, false if tasks are still running
+     */
+    boolean drain(long timeoutMillis) {
+        executor.shutdown();
+        return awaitTermination(timeoutMillis);
+    }
+
+    /**
+     * Drops the queued tasks, interrupts the running ones and waits briefly for them to stop.
+     *
+     * @param timeoutMillis How long to wait
+     * @return true if the bulkhead stopped in time, false otherwise
+     */
+    boolean stopNow(long timeoutMillis) {
+        executor.shutdownNow();
+        return awaitTermination(timeoutMillis);
+    }
+
+    private boolean awaitTermination(long timeoutMillis) {
+        try {
+            return executor.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Creates a statistics snapshot of this bulkhead.
+     */
+    public BulkheadStats snapshot() {
+        long startedCount = started.sum();
+        long finishedCount = completed.sum() + failed.sum();
+
+        BulkheadStats stats = new BulkheadStats();
+        stats.setName(name);
+        stats.setConcurrency(concurrency);
+        stats.setMaxWaiting(maxWaiting);
+        stats.setActive(running.get());
+        stats.setWaiting(waiting.get());
+        stats.setSubmitted(submitted.sum());
+        stats.setCompleted(completed.sum());
+        stats.setFailed(failed.sum());
+        stats.setRejected(rejected.sum());
+        stats.setAverageQueueWaitMillis(startedCount == 0 ? 0 : totalQueueWaitNanos.sum() / 1_000_000.0 / startedCount);
+        stats.setMaxQueueWaitMillis(TimeUnit.NANOSECONDS.toMillis(maxQueueWaitNanos.get()));
+        stats.setAverageRunMillis(finishedCount == 0 ? 0 : totalRunNanos.sum() / 1_000_000.0 / finishedCount);
+        stats.setMaxRunMillis(TimeUnit.NANOSECONDS.toMillis(maxRunNanos.get()));
+        return stats;
+    }
+
+    /**
+     * The permits of a thread-per-task bulkhead, which can be added and taken away while tasks hold them.
+     */
+    private static final class Permits extends Semaphore {
+
+        private Permits(int permits) {
+            super(permits, true);
+        }
+
+        /**
+         * Changes the number of permits. Permits taken away from running tasks are not handed out again
+         * once those tasks finish.
+         */
+        private void resize(int from, int to) {
+            if (to > from) {
+                release(to - from);
+            } else if (to < from) {
+                reducePermits(from - to);
+            }
+        }
+    }
+}
@@ -0,0 +1,416 @@
+package com.joshua.dias.gptutils.orchestration.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.joshua.dias.gptutils.orchestration.model.CallbackDeadLetter;
+import com.joshua.dias.gptutils.orchestration.model.CallbackStats;
+import com.joshua.dias.gptutils.orchestration.model.Job;
+import com.joshua.dias.gptutils.orchestration.model.JobState;
+import com.joshua.dias.gptutils.orchestration.model.ToolExecutionResponse;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Delivers the final response of a tool execution to the request's callback URL.
+ * <p>
+ * A request with a callback URL is registered when it is accepted. Tools that answer synchronously are delivered
+ * as soon as their response is known; tools that answer ACCEPTED are delivered when their job reaches a final
+ * state. Responses to the same URL are collected for {@code app.callbacks.linger-ms} or until
+ * {@code app.callbacks.max-batch-size} of them are waiting, and POSTed together as a JSON array over a shared,
+ * keep-alive HTTP client. Connection errors, 408, 429 and 5xx answers are retried with exponential backoff and
+ * jitter; a batch that still fails, or that the receiver refuses with another 4xx, goes to a bounded dead-letter
+ * buffer where it can be inspected and redelivered.
+ */
+@ApplicationScoped
+public class CallbackDispatcher {
+
+    private static final Logger LOG = Logger.getLogger(CallbackDispatcher.class);
+
+    private final ObjectMapper objectMapper;
+    private final StageMetrics stageMetrics;
+    private final String defaultUrl;
+    private final List<String> allowedHosts;
+    private final int maxBatchSize;
+    private final long lingerMillis;
+    private final int maxAttempts;
+    private final long initialBackoffMillis;
+    private final long maxBackoffMillis;
+    private final Duration requestTimeout;
+    private final int deadLetterCapacity;
+
+    private final HttpClient httpClient;
+    private final ScheduledThreadPoolExecutor scheduler;
+    private final Map<String, Registration> registrations = new ConcurrentHashMap<>();
+    private final Map<String, List<ToolExecutionResponse>> openBatches = new HashMap<>();
+    private final Deque<CallbackDeadLetter> deadLetters = new ArrayDeque<>();
+
+    private final LongAdder delivered = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder deadLettered = new LongAdder();
+
+    /**
+     * Constructor that injects dependencies and configuration.
+     */
+    @Inject
+    public CallbackDispatcher(
+            JobStore jobStore,
+            ObjectMapper objectMapper,
+            StageMetrics stageMetrics,
+            @ConfigProperty(name = "app.callbacks.default-url") Optional<String> defaultUrl,
+            @ConfigProperty(name = "app.callbacks.allowed-hosts") Optional<List<String>> allowedHosts,
+            @ConfigProperty(name = "app.callbacks.max-batch-size", defaultValue = "20") int maxBatchSize,
+            @ConfigProperty(name = "app.callbacks.linger-ms", defaultValue = "200") long lingerMillis,
+            @ConfigProperty(name = "app.callbacks.max-attempts", defaultValue = "6") int maxAttempts,
+            @ConfigProperty(name = "app.callbacks.initial-backoff-ms", defaultValue = "500") long initialBackoffMillis,
+            @ConfigProperty(name = "app.callbacks.max-backoff-ms", defaultValue = "60000") long maxBackoffMillis,
+            @ConfigProperty(name = "app.callbacks.timeout-ms", defaultValue = "10000") long timeoutMillis,
+            @ConfigProperty(name = "app.callbacks.dead-letter-capacity", defaultValue = "1000") int deadLetterCapacity
+    ) {
+        this.objectMapper = objectMapper;
+        this.stageMetrics = stageMetrics;
+        this.defaultUrl = defaultUrl.filter(url -> !url.isBlank()).orElse(null);
+        this.allowedHosts = allowedHosts.orElse(List.of());
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.lingerMillis = lingerMillis;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.initialBackoffMillis = Math.max(1, initialBackoffMillis);
+        this.maxBackoffMillis = Math.max(this.initialBackoffMillis, maxBackoffMillis);
+        this.requestTimeout = Duration.ofMillis(timeoutMillis);
+        this.deadLetterCapacity = Math.max(1, deadLetterCapacity);
+        this.scheduler = new ScheduledThreadPoolExecutor(1, Thread.ofPlatform().name("callback-dispatcher").daemon().factory());
+        this.scheduler.setRemoveOnCancelPolicy(true);
+        // One client for every callback, so connections to the same host are kept alive and reused
+        this.httpClient = HttpClient.newBuilder()
+                .connectTimeout(requestTimeout)
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .build();
+        jobStore.addFinishListener(this::onJobFinished);
+        LOG.info("CallbackDispatcher initialized with max batch size: " + this.maxBatchSize + ", linger: " +
+                lingerMillis + "ms, max attempts: " + this.maxAttempts + ", allowed hosts: " + this.allowedHosts);
+    }
+
+    /**
+     * Resolves the callback URL of a request.
+     *
+     * @param requestedUrl The URL asked for by the caller, or null
+     * @return The URL to deliver to, the default URL if none was asked for, or null if there is no callback
+     * @throws IllegalArgumentException If the URL is not an HTTP(S) URL on an allowed host
+     */
+    public String resolve(String requestedUrl) {
+        if (requestedUrl == null || requestedUrl.isBlank()) {
+            return defaultUrl;
+        }
+        if (requestedUrl.equals(defaultUrl)) {
+            return requestedUrl;
+        }
+
+        URI uri;
+        try {
+            uri = URI.create(requestedUrl);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Callback URL is not a valid URL");
+        }
+        if (!"http".equals(uri.getScheme()) && !"https".equals(uri.getScheme())) {
+            throw new IllegalArgumentException("Callback URL must be a valid HTTP or HTTPS URL");
+        }
+        // Only known receivers, so the webhook cannot be used to make requests to arbitrary hosts
+        if (uri.getHost() == null || !allowedHosts.contains(uri.getHost())) {
+            throw new IllegalArgumentException("Callback host is not allowed: " + uri.getHost());
+        }
+        return requestedUrl;
+    }
+
+    /**
+     * Registers an accepted request whose final response must be delivered. Requests without a callback URL
+     * are ignored.
+     *
+     * @param requestId The request ID
+     * @param toolName The name of the tool
+     * @param callbackUrl The callback URL, or null
+     */
+    public void register(String requestId, String toolName, String callbackUrl) {
+        if (callbackUrl == null || callbackUrl.isBlank()) {
+            return;
+        }
+        registrations.put(requestId, new Registration(toolName, callbackUrl));
+    }
+
+    /**
+     * Reports the response of a tool. Final responses are delivered right away; ACCEPTED responses are
+     * delivered when their job finishes. A request refused because of load is answered to its sender, who may
+     * send it again, so nothing is delivered for it.
+     *
+     * @param requestId The request ID
+     * @param response The response of the tool, or null if the tool failed
+     * @param error The failure of the tool, or null
+     */
+    public void onToolResult(String requestId, ToolExecutionResponse response, Throwable error) {
+        if (response != null && response.getStatus() == ToolExecutionResponse.Status.ACCEPTED) {
+            return;
+        }
+        Registration registration = registrations.remove(requestId);
+        if (registration == null || response != null && response.getStatus().isRetryable()) {
+            return;
+        }
+        enqueue(registration.callbackUrl(), response != null
+                ? response
+                : ToolExecutionResponse.failed(registration.toolName(), "Error executing tool: " + error.getMessage(), requestId));
+    }
+
+    /**
+     * Gets the batches that could not be delivered, oldest first.
+     *
+     * @return The dead letters
+     */
+    public List<CallbackDeadLetter> getDeadLetters() {
+        synchronized (deadLetters) {
+            return new ArrayList<>(deadLetters);
+        }
+    }
+
+    /**
+     * Sends every dead letter again with a fresh retry budget.
+     *
+     * @return The number of batches handed back for delivery
+     */
+    public int redeliverDeadLetters() {
+        List<CallbackDeadLetter> letters;
+        synchronized (deadLetters) {
+            letters = new ArrayList<>(deadLetters);
+            deadLetters.clear();
+        }
+        for (CallbackDeadLetter letter : letters) {
+            send(new Delivery(letter.getCallbackUrl(), letter.getResponses(), 1));
+        }
+        LOG.info("Redelivering " + letters.size() + " dead-lettered callback batches");
+        return letters.size();
+    }
+
+    /**
+     * Creates a statistics snapshot of the dispatcher.
+     */
+    public CallbackStats getStats() {
+        CallbackStats stats = new CallbackStats();
+        stats.setAwaiting(registrations.size());
+        synchronized (openBatches) {
+            stats.setQueued(openBatches.values().stream().mapToInt(List::size).sum());
+        }
+        stats.setDelivered(delivered.sum());
+        stats.setBatches(batches.sum());
+        stats.setRetries(retries.sum());
+        stats.setDeadLettered(deadLettered.sum());
+        synchronized (deadLetters) {
+            stats.setDeadLetters(deadLetters.size());
+        }
+        return stats;
+    }
+
+    /**
+     * Sends the open batches and stops the scheduler. Retries that are still waiting are dropped.
+     */
+    @PreDestroy
+    void shutdown() {
+        List<String> urls;
+        synchronized (openBatches) {
+            urls = new ArrayList<>(openBatches.keySet());
+        }
+        urls.forEach(this::flush);
+        scheduler.shutdownNow();
+        if (!registrations.isEmpty()) {
+            LOG.warn("Stopping with " + registrations.size() + " callbacks still waiting for their job to finish");
+        }
+    }
+
+    /**
+     * Delivers the outcome of a job that finished after its tool answered ACCEPTED.
+     */
+    private void onJobFinished(Job job) {
+        Registration registration = registrations.remove(job.getRequestId());
+        if (registration == null) {
+            return;
+        }
+
+        ToolExecutionResponse response = job.getState() == JobState.DONE
+                ? ToolExecutionResponse.completed(job.getToolName(), new HashMap<>(), job.getRequestId())
+                : ToolExecutionResponse.failed(job.getToolName(), job.getErrorMessage(), job.getRequestId());
+        response.addResult("state", job.getState().name());
+        response.addResult("totalMillis", job.getTotalMillis());
+        response.setStages(job.getStages());
+        enqueue(registration.callbackUrl(), response);
+    }
+
+    /**
+     * Adds a response to the open batch of its URL, sending the batch when it is full.
+     */
+    private void enqueue(String callbackUrl, ToolExecutionResponse response) {
+        boolean full;
+        synchronized (openBatches) {
+            List<ToolExecutionResponse> batch = openBatches.get(callbackUrl);
+            if (batch == null) {
+                batch = new ArrayList<>();
+                openBatches.put(callbackUrl, batch);
+                schedule(() -> flush(callbackUrl), lingerMillis);
+            }
+            batch.add(response);
+            full = batch.size() >= maxBatchSize;
+        }
+        if (full) {
+            flush(callbackUrl);
+        }
+    }
+
+    /**
+     * Sends the open batch of a URL, if it was not sent already.
+     */
+    private void flush(String callbackUrl) {
+        List<ToolExecutionResponse> batch;
+        synchronized (openBatches) {
+            batch = openBatches.remove(callbackUrl);
+        }
+        if (batch != null) {
+            send(new Delivery(callbackUrl, List.copyOf(batch), 1));
+        }
+    }
+
+    /**
+     * POSTs a batch without blocking and handles the answer when it arrives.
+     */
+    private void send(Delivery delivery) {
+        byte[] body;
+        try {
+            body = objectMapper.writeValueAsBytes(delivery.responses());
+        } catch (JsonProcessingException e) {
+            deadLetter(delivery, "Could not serialize callback: " + e.getMessage());
+            return;
+        }
+
+        HttpRequest request;
+        try {
+            request = HttpRequest.newBuilder(URI.create(delivery.callbackUrl()))
+                    .timeout(requestTimeout)
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(body))
+                    .build();
+        } catch (IllegalArgumentException e) {
+            deadLetter(delivery, "Invalid callback URL: " + e.getMessage());
+            return;
+        }
+
+        batches.increment();
+        httpClient.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                .whenComplete((response, error) -> onSent(delivery, response, error));
+    }
+
+    /**
+     * Counts a delivered batch, or schedules its retry or dead-letters it.
+     */
+    private void onSent(Delivery delivery, HttpResponse<Void> response, Throwable error) {
+        if (error == null && response.statusCode() / 100 == 2) {
+            delivered.add(delivery.responses().size());
+            LOG.debug("Delivered " + delivery.responses().size() + " callbacks to " + delivery.callbackUrl());
+            return;
+        }
+
+        String reason = error != null ? "Error: " + error.getMessage() : "HTTP " + response.statusCode();
+        boolean retryable = error != null || isRetryable(response.statusCode());
+        if (!retryable || delivery.attempt() >= maxAttempts) {
+            deadLetter(delivery, reason);
+            return;
+        }
+
+        long delayMillis = backoffMillis(delivery.attempt());
+        LOG.warn("Callback to " + delivery.callbackUrl() + " failed (" + reason + "), attempt " + delivery.attempt() +
+                " of " + maxAttempts + ", retrying in " + delayMillis + "ms");
+        retries.increment();
+        // A batch can hold the responses of several tools
+        stageMetrics.retry("callback", CurrentTool.NONE);
+        schedule(() -> send(delivery.next()), delayMillis);
+    }
+
+    /**
+     * Checks whether an HTTP status is worth retrying: timeouts, throttling and server errors.
+     */
+    private boolean isRetryable(int status) {
+        return status == 408 || status == 429 || status >= 500;
+    }
+
+    /**
+     * Computes the delay before the next attempt: exponential, capped, with the upper half jittered
+     * so that receivers recovering from an outage are not hit by every retry at once.
+     */
+    private long backoffMillis(int attempt) {
+        long ceiling = initialBackoffMillis << Math.min(attempt - 1, 20);
+        ceiling = Math.min(ceiling, maxBackoffMillis);
+        long half = ceiling / 2;
+        return half + ThreadLocalRandom.current().nextLong(ceiling - half + 1);
+    }
+
+    /**
+     * Keeps a batch that could not be delivered, dropping the oldest dead letter when the buffer is full.
+     */
+    private void deadLetter(Delivery delivery, String reason) {
+        LOG.error("Giving up on " + delivery.responses().size() + " callbacks to " + delivery.callbackUrl() +
+                " after " + delivery.attempt() + " attempts: " + reason);
+        deadLettered.add(delivery.responses().size());
+        synchronized (deadLetters) {
+            if (deadLetters.size() >= deadLetterCapacity) {
+                CallbackDeadLetter dropped = deadLetters.removeFirst();
+                LOG.warn("Dead-letter buffer is full, dropping " + dropped.getResponses().size() +
+                        " callbacks to " + dropped.getCallbackUrl());
+            }
+            deadLetters.addLast(new CallbackDeadLetter(delivery.callbackUrl(), delivery.responses(),
+                    delivery.attempt(), reason, Instant.now()));
+        }
+    }
+
+    /**
+     * Schedules a task, ignoring rejections once the dispatcher is shutting down.
+     */
+    private void schedule(Runnable task, long delayMillis) {
+        try {
+            scheduler.schedule(task, delayMillis, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            LOG.debug("Not scheduling callback work, dispatcher is shutting down");
+        }
+    }
+
+    /**
+     * Where and for which tool the response of a registered request goes.
+     */
+    private record Registration(String toolName, String callbackUrl) {
+    }
+
+    /**
+     * One attempt at delivering a batch.
+     */
+    private record Delivery(String callbackUrl, List<ToolExecutionResponse> responses, int attempt) {
+
+        Delivery next() {
+            return new Delivery(callbackUrl, responses, attempt + 1);
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.joshua.dias.gptutils.orchestration.service;
+
+import com.joshua.dias.gptutils.orchestration.model.CancellationToken;
+import com.joshua.dias.gptutils.orchestration.model.Deadline;
+import com.joshua.dias.gptutils.orchestration.model.Job;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.jboss.logging.Logger;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Registry of the cancellation tokens of the tool executions that have not finished yet.
+ * <p>
+ * A token is registered when a request is accepted and released when its job reaches a final state. Executions
+ * can be cancelled one by one, per chat or all at once on shutdown; a timer also cancels each token when its
+ * deadline passes, which aborts the FFmpeg encodes and HTTP transfers that are still running for it.
+ */
+@ApplicationScoped
+public class CancellationRegistry {
+
+    private static final Logger LOG = Logger.getLogger(CancellationRegistry.class);
+
+    private final JobStore jobStore;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final ScheduledThreadPoolExecutor deadlineTimer;
+
+    /**
+     * Constructor that injects dependencies.
+     */
+    @Inject
+    public CancellationRegistry(JobStore jobStore) {
+        this.jobStore = jobStore;
+        this.deadlineTimer = new ScheduledThreadPoolExecutor(1, Thread.ofPlatform().name("deadline-timer").daemon().factory());
+        this.deadlineTimer.setRemoveOnCancelPolicy(true);
+        jobStore.addFinishListener(this::release);
+        LOG.info("CancellationRegistry initialized");
+    }
+
+    /**
+     * Creates the token of an accepted request, replacing the token of an earlier run of the same request.
+     *
+     * @param requestId The request ID
+     * @param chatKey The chat the request came from
+     * @param deadline The deadline of the request
+     * @return The token
+     */
+    public CancellationToken register(String requestId, String chatKey, Deadline deadline) {
+        CancellationToken token = new CancellationToken(requestId, chatKey, deadline);
+        ScheduledFuture<?> timer = deadline == Deadline.none()
+                ? null
+                : deadlineTimer.schedule(token::expire, deadline.remainingMillis(), TimeUnit.MILLISECONDS);
+        Entry previous = entries.put(requestId, new Entry(token, timer));
+        if (previous != null) {
+            previous.stopTimer();
+        }
+        return token;
+    }
+
+    /**
+     * Gets the token of a request.
+     *
+     * @param requestId The request ID
+     * @return The token, or a token that is never cancelled if the request is unknown or finished
+     */
+    public CancellationToken get(String requestId) {
+        Entry entry = requestId != null ? entries.get(requestId) : null;
+        return entry != null ? entry.token() : CancellationToken.none();
+    }
+
+    /**
+     * Cancels a request and marks its job as cancelled. Queued work is dropped when its turn comes;
+     * running work is aborted.
+     *
+     * @param requestId The request ID
+     * @param reason Why the request is cancelled
+     * @return true if the request was cancelled, false if it is unknown or already finished
+     */
+    public boolean cancel(String requestId, String reason) {
+        Entry entry = requestId != null ? entries.get(requestId) : null;
+        if (entry == null || !entry.token().cancel(reason)) {
+            return false;
+        }
+        LOG.info("Cancelled request " + requestId + ": " + reason);
+        jobStore.cancel(requestId, reason);
+        return true;
+    }
+
+    /**
+     * Cancels every unfinished request of a chat.
+     *
+     * @param chatKey The chat
+     * @param reason Why the requests are cancelled
+     * @return The number of requests cancelled
+     */
+    public int cancelChat(String chatKey, String reason) {
+        int cancelled = 0;
+        for (Entry entry : entries.values()) {
+            if (chatKey.equals(entry.token().getChatKey()) && cancel(entry.token().getRequestId(), reason)) {
+                cancelled++;
+            }
+        }
+        return cancelled;
+    }
+
+    /**
+     * Aborts the work of every unfinished request without marking the jobs, so the journal replays them.
+     * Used on shutdown once queued work had its chance to drain.
+     *
+     * @param reason Why the work is aborted
+     * @return The number of requests whose work was aborted
+     */
+    public int cancelAll(String reason) {
+        int cancelled = 0;
+        for (Entry entry : entries.values()) {
+            if (entry.token().cancel(reason)) {
+                cancelled++;
+            }
+        }
+        if (cancelled > 0) {
+            LOG.warn("Aborted the work of " + cancelled + " unfinished requests: " + reason);
+        }
+        return cancelled;
+    }
+
+    /**
+     * Gets the number of unfinished requests that can be cancelled.
+     *
+     * @return The number of registered tokens
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Stops the deadline timer.
+     */
+    @PreDestroy
+    void shutdown() {
+        deadlineTimer.shutdownNow();
+    }
+
+    /**
+     * Forgets the token of a finished job.
+     */
+    private void release(Job job) {
+        Entry entry = entries.remove(job.getRequestId());
+        if (entry != null) {
+            entry.stopTimer();
+        }
+    }
+
+    /**
+     * A registered token and the timer that expires it.
+     */
+    private record Entry(CancellationToken token, ScheduledFuture<?> timer) {
+        void stopTimer() {
+            if (timer != null) {
+                timer.cancel(false);
+            }
+        }
+    }
+}
@@ -0,0 +1,603 @@
+package com.joshua.dias.gptutils.orchestration.service;
+
+import com.joshua.dias.gptutils.orchestration.model.Lane;
+import com.joshua.dias.gptutils.orchestration.model.ShardStats;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.context.Scope;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.Config;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Executor that runs tool work in FIFO order per chat and in parallel across chats.
+ * <p>
+ * Each chat key (the phone number) is hashed onto a shard with its own bounded queue.
+ * A shard runs at most one task at a time, so messages from the same chat are processed and
+ * answered in the order they arrived, while a busy chat can occupy at most one thread.
+ * <p>
+ * Inside a shard every chat has its own FIFO queue, and the queues are served by deficit round robin:
+ * on each turn a chat earns a quantum of {@code app.fairness.quantum-bytes} times its weight and may run
+ * tasks while their cost (the media size, at least 1) fits its deficit. A chat that sends a flood of media
+ * therefore gets its weighted share of the shard and no more, and it can queue at most
+ * {@code app.fairness.max-queued-per-chat} tasks, so it cannot fill the shard for the chats it shares it with.
+ * <p>
+ * Every task names the bulkhead of the {@link ExecutorRegistry} it runs on, so each tool has its own
+ * capacity, timers and rejection counters; with {@code app.async.virtual-threads} enabled the
+ * bulkheads use virtual threads.
+ * <p>
+ * Tasks are further split into {@link Lane lanes}. Each lane has its own set of shards, and the fast lane
+ * runs on the reserved {@value #FAST_LANE_BULKHEAD} bulkhead instead of the tool's, so a text message
+ * never waits behind a long transcription, neither in a shard queue nor for a thread.
+ * Ordering is FIFO per chat within a lane.
+ * <p>
+ * The queue depth and in-flight weight of each lane are published as gauges, and the time every task waited
+ * before it started is recorded as the {@value StageMetrics#QUEUE_WAIT} stage of its tool.
+ * <p>
+ * The trace context of the submitting thread is captured with the task, and the task runs in a span named
+ * after its tool that is a child of it, so the stages of a tool appear in the trace of the webhook that
+ * triggered them.
+ * <p>
+ * Tasks submitted with {@link #submitAsync} may finish without a thread, e.g. while the steps of a pipeline run on
+ * their bulkhead: the thread goes back to the bulkhead as soon as the task returns its future, but the shard stays
+ * taken until the future completes, so the chat's next message still waits its turn. Work that must not hold up
+ * the chat, such as a notification waiting for its retry on the {@link RetryScheduler}, is returned as the result
+ * of a {@link #submit} task instead, which frees the shard as soon as the task returns.
+ */
+@ApplicationScoped
+public class ChatOrderedExecutor {
+
+    private static final Logger LOG = Logger.getLogger(ChatOrderedExecutor.class);
+    private static final String WEIGHT_PREFIX = "app.fairness.weights.";
+
+    /**
+     * The bulkhead that runs every fast-lane task, whatever the tool.
+     */
+    public static final String FAST_LANE_BULKHEAD = "fast-lane";
+
+    private final ExecutorRegistry executorRegistry;
+    private final StageMetrics stageMetrics;
+    private final MeterRegistry meterRegistry;
+    private final Tracer tracer;
+    private final Config config;
+    private final int shardCount;
+    private final int fastShardCount;
+    private final int shardQueueSize;
+    private final int maxQueuedPerChat;
+    private final long quantumBytes;
+    private final double defaultWeight;
+    private final long drainTimeoutMillis;
+    private final Map<Lane, LaneShards> lanes = new EnumMap<>(Lane.class);
+    private volatile boolean draining;
+
+    /**
+     * Constructor that injects dependencies and configuration.
+     */
+    @Inject
+    public ChatOrderedExecutor(
+            ExecutorRegistry executorRegistry,
+            StageMetrics stageMetrics,
+            MeterRegistry meterRegistry,
+            Tracer tracer,
+            Config config,
+            @ConfigProperty(name = "app.async.shards", defaultValue = "64") int shardCount,
+            @ConfigProperty(name = "app.lanes.fast-shards", defaultValue = "32") int fastShardCount,
+            @ConfigProperty(name = "app.async.shard-queue-size", defaultValue = "50") int shardQueueSize,
+            @ConfigProperty(name = "app.fairness.max-queued-per-chat", defaultValue = "20") int maxQueuedPerChat,
+            @ConfigProperty(name = "app.fairness.quantum-bytes", defaultValue = "1048576") long quantumBytes,
+            @ConfigProperty(name = "app.fairness.default-weight", defaultValue = "1") double defaultWeight,
+            @ConfigProperty(name = "app.executors.drain-timeout-seconds", defaultValue = "30") long drainTimeoutSeconds
+    ) {
+        this.executorRegistry = executorRegistry;
+        this.stageMetrics = stageMetrics;
+        this.meterRegistry = meterRegistry;
+        this.tracer = tracer;
+        this.config = config;
+        this.shardCount = shardCount;
+        this.fastShardCount = fastShardCount;
+        this.shardQueueSize = shardQueueSize;
+        this.maxQueuedPerChat = maxQueuedPerChat;
+        this.quantumBytes = quantumBytes;
+        this.defaultWeight = defaultWeight;
+        this.drainTimeoutMillis = TimeUnit.SECONDS.toMillis(drainTimeoutSeconds);
+    }
+
+    /**
+     * Initializes the shards.
+     */
+    @PostConstruct
+    void init() {
+        LOG.info("Initializing ChatOrderedExecutor with heavy shards: " + shardCount + ", fast shards: " +
+                fastShardCount + ", shard queue size: " + shardQueueSize + ", max queued per chat: " +
+                maxQueuedPerChat + ", quantum: " + quantumBytes + " bytes");
+
+        lanes.put(Lane.FAST, new LaneShards(Lane.FAST, fastShardCount));
+        lanes.put(Lane.HEAVY, new LaneShards(Lane.HEAVY, shardCount));
+
+        for (Lane lane : lanes.keySet()) {
+            Gauge.builder("gptutils.lane.queued", this, executor -> executor.getQueuedTasks(lane))
+                    .description("Tasks waiting in the shards of the lane")
+                    .tag("lane", lane.name())
+                    .register(meterRegistry);
+            Gauge.builder("gptutils.lane.in-flight-bytes", this, executor -> executor.getInFlightWeight(lane))
+                    .description("Media bytes of the lane's tasks that are queued or running")
+                    .tag("lane", lane.name())
+                    .register(meterRegistry);
+        }
+    }
+
+    /**
+     * Stops accepting tasks, lets the queued ones finish and then drains the bulkheads.
+     * The bulkheads get what is left of the same drain timeout, so shutdown does not wait for it twice.
+     */
+    @PreDestroy
+    void shutdown() {
+        LOG.info("Shutting down ChatOrderedExecutor");
+        draining = true;
+
+        long deadline = System.currentTimeMillis() + drainTimeoutMillis;
+        while (hasPendingTasks() && System.currentTimeMillis() < deadline) {
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        if (hasPendingTasks()) {
+            LOG.warn("ChatOrderedExecutor still had " + getQueuedTasks() + " queued tasks after the drain timeout");
+        }
+
+        executorRegistry.drain(deadline);
+    }
+
+    /**
+     * Submits a task for a chat. Tasks for the same chat and lane run one after another in submission order.
+     *
+     * @param <T> The type of the task result
+     * @param lane The lane of the task
+     * @param bulkhead The name of the bulkhead to run heavy-lane tasks on, usually the tool name
+     * @param chatKey The key of the chat, usually the phone number
+     * @param task The task to run
+     * @return A CompletableFuture that will be completed with the task result
+     * @throws ExecutorOverloadedException If the bulkhead, the chat's queue or its shard is full
+     */
+    public <T> CompletableFuture<T> submit(Lane lane, String bulkhead, String chatKey, Supplier<T> task) {
+        return submit(lane, bulkhead, chatKey, 0, task);
+    }
+
+    /**
+     * Submits a weighted task for a chat. The weight (usually the media size in bytes) is the cost of the
+     * task for fair queuing and counts towards the in-flight weight of the lane from submission until the task finishes.
+     *
+     * @param <T> The type of the task result
+     * @param lane The lane of the task
+     * @param bulkhead The name of the bulkhead to run heavy-lane tasks on, usually the tool name
+     * @param chatKey The key of the chat, usually the phone number
+     * @param weight The weight of the task
+     * @param task The task to run
+     * @return A CompletableFuture that will be completed with the task result
+     * @throws ExecutorOverloadedException If the bulkhead, the chat's queue or its shard is full
+     */
+    public <T> CompletableFuture<T> submit(Lane lane, String bulkhead, String chatKey, long weight, Supplier<T> task) {
+        return submitAsync(lane, bulkhead, chatKey, weight, () -> CompletableFuture.completedFuture(task.get()));
+    }
+
+    /**
+     * Submits a weighted task that finishes asynchronously. The task runs on the bulkhead until it returns its
+     * future; the chat's later tasks wait until that future completes, without holding a thread in the meantime.
+     *
+     * @param <T> The type of the task result
+     * @param lane The lane of the task
+     * @param bulkhead The name of the bulkhead to run heavy-lane tasks on, usually the tool name
+     * @param chatKey The key of the chat, usually the phone number
+     * @param weight The weight of the task
+     * @param task The task to run
+     * @return A CompletableFuture that will be completed with the result of the task's future
+     * @throws ExecutorOverloadedException If the bulkhead, the chat's queue or its shard is full
+     */
+    public <T> CompletableFuture<T> submitAsync(Lane lane, String bulkhead, String chatKey, long weight,
+                                                Supplier<CompletableFuture<T>> task) {
+        if (draining) {
+            throw new ExecutorOverloadedException("ChatOrderedExecutor is shutting down", false, drainTimeoutMillis);
+        }
+
+        LaneShards laneShards = lanes.get(lane);
+        Bulkhead target = executorRegistry.get(lane == Lane.FAST ? FAST_LANE_BULKHEAD : bulkhead);
+        Shard shard = laneShards.shardFor(chatKey);
+        AtomicLong inFlightWeight = laneShards.inFlightWeight;
+        CompletableFuture<T> future = new CompletableFuture<>();
+
+        try {
+            target.reserve();
+        } catch (RejectedExecutionException e) {
+            stageMetrics.rejection("bulkhead-full", bulkhead);
+            throw new ExecutorOverloadedException(e.getMessage(), false, getEstimatedWaitMillis(lane));
+        }
+        long enqueuedNanos = System.nanoTime();
+        Context parent = Context.current();
+        inFlightWeight.addAndGet(weight);
+        try {
+            shard.enqueue(chatKey != null ? chatKey : "", new ShardTask(target, Math.max(1, weight), () -> {
+                long start = target.started(enqueuedNanos);
+                Span span = tracer.spanBuilder(bulkhead)
+                        .setParent(parent)
+                        .setAttribute(StageMetrics.TOOL_ATTRIBUTE, bulkhead)
+                        .setAttribute("gptutils.lane", lane.name())
+                        .setAttribute("gptutils.queue_wait_ms", TimeUnit.NANOSECONDS.toMillis(start - enqueuedNanos))
+                        .startSpan();
+                CompletableFuture<T> result;
+                try (Scope ignored = parent.with(span).makeCurrent()) {
+                    stageMetrics.record(StageMetrics.QUEUE_WAIT, bulkhead, enqueuedNanos, true);
+                    result = CurrentTool.callAs(bulkhead, task);
+                } catch (Throwable e) {
+                    result = CompletableFuture.failedFuture(e);
+                }
+                return result.whenComplete((value, error) -> {
+                    if (error != null) {
+                        span.setStatus(StatusCode.ERROR);
+                        span.recordException(error);
+                        future.completeExceptionally(error);
+                    } else {
+                        future.complete(value);
+                    }
+                    span.end();
+                    inFlightWeight.addAndGet(-weight);
+                    target.finished(start, error == null);
+                    laneShards.recordTaskDuration(System.nanoTime() - start);
+                });
+            }));
+        } catch (RejectedExecutionException e) {
+            inFlightWeight.addAndGet(-weight);
+            target.cancelReservation();
+            stageMetrics.rejection("chat-queue-full", bulkhead);
+            throw e instanceof ExecutorOverloadedException
+                    ? e
+                    : new ExecutorOverloadedException(e.getMessage(), false, getEstimatedWaitMillis(lane));
+        }
+
+        return future;
+    }
+
+    /**
+     * Gets a snapshot of the statistics of every shard.
+     *
+     * @return The statistics, ordered by lane and shard index
+     */
+    public List<ShardStats> getShardStats() {
+        List<ShardStats> stats = new ArrayList<>(fastShardCount + shardCount);
+        for (LaneShards laneShards : lanes.values()) {
+            for (Shard shard : laneShards.shards) {
+                stats.add(shard.snapshot());
+            }
+        }
+        return stats;
+    }
+
+    /**
+     * Gets the number of tasks waiting in all shards of all lanes.
+     *
+     * @return The total queue depth
+     */
+    public int getQueuedTasks() {
+        int queued = 0;
+        for (Lane lane : lanes.keySet()) {
+            queued += getQueuedTasks(lane);
+        }
+        return queued;
+    }
+
+    /**
+     * Gets the number of tasks waiting in the shards of one lane.
+     *
+     * @param lane The lane
+     * @return The queue depth of the lane
+     */
+    public int getQueuedTasks(Lane lane) {
+        int queued = 0;
+        for (Shard shard : lanes.get(lane).shards) {
+            queued += shard.size();
+        }
+        return queued;
+    }
+
+    /**
+     * Gets the total weight of tasks of one lane that are queued or running.
+     *
+     * @param lane The lane
+     * @return The in-flight weight of the lane
+     */
+    public long getInFlightWeight(Lane lane) {
+        return lanes.get(lane).inFlightWeight.get();
+    }
+
+    /**
+     * Estimates how long a task newly submitted to a lane would wait before it starts,
+     * based on the queue depth and average task duration of the lane and the capacity of its bulkheads.
+     *
+     * @param lane The lane
+     * @return The estimated wait time in milliseconds
+     */
+    public long getEstimatedWaitMillis(Lane lane) {
+        LaneShards laneShards = lanes.get(lane);
+        long averageMillis = TimeUnit.NANOSECONDS.toMillis(laneShards.averageTaskNanos.get());
+        int fastConcurrency = executorRegistry.get(FAST_LANE_BULKHEAD).getConcurrency();
+        int laneConcurrency = lane == Lane.FAST
+                ? fastConcurrency
+                : Math.max(1, executorRegistry.getTotalConcurrency() - fastConcurrency);
+        int concurrency = Math.min(laneShards.shards.length, laneConcurrency);
+        return (long) Math.ceil((double) getQueuedTasks(lane) / concurrency) * averageMillis;
+    }
+
+    /**
+     * Checks whether any shard still has queued or running work.
+     */
+    private boolean hasPendingTasks() {
+        for (LaneShards laneShards : lanes.values()) {
+            for (Shard shard : laneShards.shards) {
+                if (shard.size() > 0 || shard.scheduled.get()) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Computes the deficit round robin quantum of a chat from its configured weight.
+     */
+    private long quantumFor(String chatKey) {
+        double weight = config.getOptionalValue(WEIGHT_PREFIX + chatKey, Double.class).orElse(defaultWeight);
+        return Math.max(1, (long) (weight * quantumBytes));
+    }
+
+    /**
+     * The shards of one lane together with its load figures.
+     */
+    private final class LaneShards {
+
+        private final Shard[] shards;
+        private final AtomicLong inFlightWeight = new AtomicLong();
+        private final AtomicLong averageTaskNanos = new AtomicLong();
+
+        private LaneShards(Lane lane, int count) {
+            this.shards = new Shard[count];
+            for (int i = 0; i < count; i++) {
+                shards[i] = new Shard(lane, i);
+            }
+        }
+
+        /**
+         * Finds the shard responsible for a chat key.
+         */
+        private Shard shardFor(String chatKey) {
+            int hash = chatKey != null ? chatKey.hashCode() : 0;
+            return shards[Math.floorMod(hash, shards.length)];
+        }
+
+        /**
+         * Folds a task duration into the exponentially weighted average.
+         */
+        private void recordTaskDuration(long durationNanos) {
+            averageTaskNanos.updateAndGet(current ->
+                    current == 0 ? durationNanos : current + (durationNanos - current) / 8);
+        }
+    }
+
+    /**
+     * A queued task together with the bulkhead it must run on and its cost for fair queuing.
+     * The task returns a future that completes when it is finished.
+     */
+    private record ShardTask(Bulkhead bulkhead, long cost, Supplier<CompletableFuture<?>> task) {
+    }
+
+    /**
+     * The queue of one chat inside a shard, with its deficit round robin state.
+     */
+    private static final class ChatQueue {
+
+        private final String chatKey;
+        private final long quantum;
+        private final ArrayDeque<ShardTask> tasks = new ArrayDeque<>();
+        private long deficit;
+        private boolean inTurn;
+
+        private ChatQueue(String chatKey, long quantum) {
+            this.chatKey = chatKey;
+            this.quantum = quantum;
+        }
+    }
+
+    /**
+     * A set of per-chat queues that is drained by at most one thread at a time.
+     */
+    private final class Shard implements Runnable {
+
+        private final Lane lane;
+        private final int index;
+        private final Map<String, ChatQueue> chats = new HashMap<>();
+        private final ArrayDeque<ChatQueue> activeChats = new ArrayDeque<>();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private final AtomicLong submitted = new AtomicLong();
+        private final AtomicLong completed = new AtomicLong();
+        private final AtomicLong rejected = new AtomicLong();
+        private int queued;         // Guarded by this
+        private ShardTask next;     // Selected to run next but not started yet; guarded by this
+
+        private Shard(Lane lane, int index) {
+            this.lane = lane;
+            this.index = index;
+        }
+
+        /**
+         * Adds a task to the queue of its chat and makes sure a thread will pick it up.
+         */
+        private void enqueue(String chatKey, ShardTask task) {
+            boolean shardFull;
+            boolean added = false;
+            synchronized (this) {
+                shardFull = queued >= shardQueueSize;
+                ChatQueue chat = chats.get(chatKey);
+                if (!shardFull && (chat == null || chat.tasks.size() < maxQueuedPerChat)) {
+                    if (chat == null) {
+                        chat = new ChatQueue(chatKey, quantumFor(chatKey));
+                        chats.put(chatKey, chat);
+                        activeChats.addLast(chat);
+                    }
+                    chat.tasks.addLast(task);
+                    queued++;
+                    added = true;
+                }
+            }
+            if (!added) {
+                // The wait estimate reads every shard, so it is taken after this shard's lock is released
+                rejected.incrementAndGet();
+                throw shardFull
+                        ? new ExecutorOverloadedException("Queue of " + lane + " shard " + index + " is full (" +
+                                shardQueueSize + " tasks)", false, getEstimatedWaitMillis(lane))
+                        : new ExecutorOverloadedException("Chat already has " + maxQueuedPerChat + " pending tasks",
+                                true, getEstimatedWaitMillis(lane));
+            }
+            submitted.incrementAndGet();
+            schedule();
+        }
+
+        /**
+         * Gets the number of tasks waiting in the shard, including the one selected to run next.
+         */
+        private synchronized int size() {
+            return queued + (next != null ? 1 : 0);
+        }
+
+        /**
+         * Takes the next task by deficit round robin. A chat keeps its turn while its deficit covers the cost
+         * of its next task; a chat whose queue runs empty leaves the rotation and forfeits its deficit.
+         * Must be called while holding the shard's lock.
+         */
+        private ShardTask pollNext() {
+            while (!activeChats.isEmpty()) {
+                ChatQueue chat = activeChats.peekFirst();
+                if (!chat.inTurn) {
+                    chat.deficit += chat.quantum;
+                    chat.inTurn = true;
+                }
+                ShardTask head = chat.tasks.peekFirst();
+                if (head.cost() <= chat.deficit) {
+                    chat.tasks.pollFirst();
+                    chat.deficit -= head.cost();
+                    queued--;
+                    if (chat.tasks.isEmpty()) {
+                        activeChats.pollFirst();
+                        chats.remove(chat.chatKey);
+                    }
+                    return head;
+                }
+                chat.inTurn = false;
+                activeChats.addLast(activeChats.pollFirst());
+            }
+            return null;
+        }
+
+        /**
+         * Hands the shard to the bulkhead of its next task unless it is already scheduled or running.
+         */
+        private void schedule() {
+            while (scheduled.compareAndSet(false, true)) {
+                ShardTask task;
+                synchronized (this) {
+                    if (next == null) {
+                        next = pollNext();
+                    }
+                    task = next;
+                }
+                if (task == null) {
+                    // The task was taken by the previous run; back off unless another one arrived meanwhile
+                    scheduled.set(false);
+                    if (size() == 0) {
+                        return;
+                    }
+                    continue;
+                }
+                try {
+                    task.bulkhead().execute(this);
+                } catch (RejectedExecutionException e) {
+                    scheduled.set(false);
+                    throw e;
+                }
+                return;
+            }
+        }
+
+        /**
+         * Runs the selected task, then yields the thread so that other shards get a turn.
+         * A task that is still finishing asynchronously keeps the shard until it completes.
+         */
+        @Override
+        public void run() {
+            ShardTask task;
+            synchronized (this) {
+                task = next;
+                next = null;
+            }
+            CompletableFuture<?> pending = null;
+            if (task != null) {
+                try {
+                    pending = task.task().get();
+                } catch (Throwable e) {
+                    LOG.error("Error running task on " + lane + " shard " + index + ": " + e.getMessage(), e);
+                }
+            }
+            if (pending != null && !pending.isDone()) {
+                pending.whenComplete((result, error) -> release(true));
+            } else {
+                release(task != null);
+            }
+        }
+
+        /**
+         * Frees the shard once its task is finished and hands it to the bulkhead of the next task, if any.
+         */
+        private void release(boolean ran) {
+            if (ran) {
+                completed.incrementAndGet();
+            }
+            scheduled.set(false);
+            if (size() > 0) {
+                try {
+                    schedule();
+                } catch (RejectedExecutionException e) {
+                    LOG.error("Could not reschedule " + lane + " shard " + index + ": " + e.getMessage());
+                }
+            }
+        }
+
+        /**
+         * Creates a statistics snapshot of this shard.
+         */
+        private synchronized ShardStats snapshot() {
+            return new ShardStats(lane.name(), index, size(), activeChats.size(), scheduled.get(),
+                    submitted.get(), completed.get(), rejected.get());
+        }
+    }
+}
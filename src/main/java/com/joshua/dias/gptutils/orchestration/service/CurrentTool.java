@@ -0,0 +1,67 @@
+package com.joshua.dias.gptutils.orchestration.service;
+
+import java.util.function.Supplier;
+
+/**
+ * Holds the name of the tool whose work runs on the current thread.
+ * <p>
+ * The executors set it around every task they run for a tool, so code shared by several tools (the Z-API client,
+ * the LLM calls, the transcription service) can tag its metrics with the tool without having it passed down.
+ */
+public final class CurrentTool {
+
+    /**
+     * The tool reported for work that does not run on behalf of a tool.
+     */
+    public static final String NONE = "none";
+
+    private static final ThreadLocal<String> CURRENT = new ThreadLocal<>();
+
+    private CurrentTool() {
+    }
+
+    /**
+     * Gets the tool of the current thread.
+     *
+     * @return The tool name, or {@link #NONE}
+     */
+    public static String get() {
+        String tool = CURRENT.get();
+        return tool != null ? tool : NONE;
+    }
+
+    /**
+     * Runs a task on behalf of a tool, restoring the previous tool afterwards.
+     *
+     * @param <T> The type of the task result
+     * @param tool The tool name
+     * @param task The task
+     * @return The task result
+     */
+    public static <T> T callAs(String tool, Supplier<T> task) {
+        String previous = CURRENT.get();
+        CURRENT.set(tool);
+        try {
+            return task.get();
+        } finally {
+            if (previous != null) {
+                CURRENT.set(previous);
+            } else {
+                CURRENT.remove();
+            }
+        }
+    }
+
+    /**
+     * Runs a task on behalf of a tool, restoring the previous tool afterwards.
+     *
+     * @param tool The tool name
+     * @param task The task
+     */
+    public static void runAs(String tool, Runnable task) {
+        callAs(tool, () -> {
+            task.run();
+            return null;
+        });
+    }
+}
@@ -1,12 +1,23 @@
 package com.joshua.dias.gptutils.orchestration.service;
 
+import com.joshua.dias.gptutils.orchestration.model.Deadline;
+import com.joshua.dias.gptutils.orchestration.model.Job;
+import com.joshua.dias.gptutils.orchestration.model.JobState;
+import com.joshua.dias.gptutils.orchestration.model.Lane;
 import com.joshua.dias.gptutils.orchestration.model.ToolExecutionRequest;
 import com.joshua.dias.gptutils.orchestration.model.ToolExecutionResponse;
+import com.joshua.dias.gptutils.orchestration.model.ToolParameters;
 
+import io.opentelemetry.context.Scope;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.Config;
 import org.jboss.logging.Logger;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 
@@ -14,27 +25,67 @@ import java.util.concurrent.CompletableFuture;
  * Default implementation of the ToolExecutionService.
  * This class uses the ToolRegistry to look up tools by name and delegates execution
  * to the appropriate tool implementation.
+ * The tool gets a copy of the request with its request ID, lane (see {@link LaneSelector}) and deadline
+ * (see {@link Deadline}) filled in; the copy is journaled and registered for cancellation and callbacks first.
  */
 @ApplicationScoped
 public class DefaultToolExecutionService implements ToolExecutionService {
     
     private static final Logger LOG = Logger.getLogger(DefaultToolExecutionService.class);
+    private static final long DEFAULT_BUDGET_MILLIS = 600000;
     
     private final ToolRegistry toolRegistry;
+    private final LaneSelector laneSelector;
+    private final JobStore jobStore;
+    private final JobJournal jobJournal;
+    private final CancellationRegistry cancellationRegistry;
+    private final CallbackDispatcher callbackDispatcher;
+    private final Config config;
 
     /**
      * Constructor that injects dependencies.
      */
     @Inject
-    public DefaultToolExecutionService(ToolRegistry toolRegistry) {
+    public DefaultToolExecutionService(ToolRegistry toolRegistry, LaneSelector laneSelector,
+                                       JobStore jobStore, JobJournal jobJournal,
+                                       CancellationRegistry cancellationRegistry,
+                                       CallbackDispatcher callbackDispatcher, Config config) {
         this.toolRegistry = toolRegistry;
+        this.laneSelector = laneSelector;
+        this.jobStore = jobStore;
+        this.jobJournal = jobJournal;
+        this.cancellationRegistry = cancellationRegistry;
+        this.callbackDispatcher = callbackDispatcher;
+        this.config = config;
         LOG.info("DefaultToolExecutionService initialized");
     }
     
     @Override
     public CompletableFuture<ToolExecutionResponse> executeAsync(ToolExecutionRequest request) {
+        try {
+            return executeAsync(request, false);
+        } catch (IOException e) {
+            // Only thrown when the journal is required
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public CompletableFuture<ToolExecutionResponse> executeDurably(ToolExecutionRequest request) throws IOException {
+        return executeAsync(request, true);
+    }
+
+    /**
+     * Validates, journals, tracks and starts a request.
+     *
+     * @param journalRequired Whether a request that cannot be journaled is refused instead of run anyway
+     */
+    private CompletableFuture<ToolExecutionResponse> executeAsync(ToolExecutionRequest request, boolean journalRequired)
+            throws IOException {
         String toolName = request.getToolName();
-        String requestId = generateRequestId();
+        // Replayed requests keep the request ID they were first accepted under
+        String replayedRequestId = request.get(ToolParameters.REQUEST_ID, null);
+        String requestId = replayedRequestId != null ? replayedRequestId : generateRequestId();
         LOG.info("Executing tool '" + toolName + "' asynchronously, requestId: " + requestId);
         
         // Check if the tool is supported
@@ -54,16 +105,92 @@ public class DefaultToolExecutionService implements ToolExecutionService {
                     ToolExecutionResponse.rejected(toolName, validationError, requestId));
         }
         
-        try {
+        // Share the request ID, lane and deadline with the tool and start tracking the job under the request ID
+        Lane lane = laneSelector.select(request);
+        Map<String, Object> parameters = request.getParameters() != null
+                ? new HashMap<>(request.getParameters())
+                : new HashMap<>();
+        ToolParameters.REQUEST_ID.put(parameters, requestId);
+        ToolParameters.LANE.put(parameters, lane.name());
+        if (!ToolParameters.DEADLINE.isPresent(parameters)) {
+            long receivedAt = request.get(ToolParameters.RECEIVED_AT, System.currentTimeMillis());
+            ToolParameters.DEADLINE.put(parameters, receivedAt + getBudgetMillis(toolName));
+        }
+        ToolExecutionRequest scheduled = new ToolExecutionRequest(toolName, parameters, request.getCallbackUrl());
+        LOG.debug("Request " + requestId + " for tool '" + toolName + "' assigned to the " + lane + " lane");
+
+        // Journal the request before it is tracked, so it is replayed if the process stops before the job finishes
+        boolean expired = Deadline.fromRequest(scheduled).isExpired();
+        if (!expired) {
+            try {
+                jobJournal.recordAccepted(requestId, scheduled);
+            } catch (IOException e) {
+                if (journalRequired) {
+                    LOG.error("Error journaling request " + requestId + ", not accepting it: " + e.getMessage(), e);
+                    throw e;
+                }
+                LOG.error("Error journaling request " + requestId + ", it will not survive a restart: " + e.getMessage(), e);
+            }
+        }
+
+        Job job = jobStore.create(requestId, toolName,
+                scheduled.get(ToolParameters.PHONE_NUMBER, null),
+                scheduled.get(ToolParameters.MESSAGE_ID, null));
+        callbackDispatcher.register(requestId, toolName, scheduled.getCallbackUrl());
+
+        // A request that is already past its deadline (e.g. a late replay) is dropped without running the tool
+        if (expired) {
+            LOG.warn("Dropping request " + requestId + " for tool '" + toolName + "', its deadline has passed");
+            jobStore.expire(requestId, "Deadline exceeded before execution");
+            return CompletableFuture.completedFuture(
+                    ToolExecutionResponse.failed(toolName, "Deadline exceeded before execution", requestId));
+        }
+        cancellationRegistry.register(requestId, scheduled.get(ToolParameters.PHONE_NUMBER, null), Deadline.fromRequest(scheduled));
+
+        // The stages of the tool are recorded in the job's ledger, whichever thread they run on
+        try (Scope ignored = job.ledger().makeCurrent()) {
             // Execute the tool asynchronously
-            return tool.executeAsync(request);
+            return tool.executeAsync(scheduled)
+                    .whenComplete((response, error) -> {
+                        if (response != null && response.getStatus() != ToolExecutionResponse.Status.ACCEPTED) {
+                            response.setStages(job.getStages());
+                        }
+                        callbackDispatcher.onToolResult(requestId, response, error);
+                        trackResult(requestId, response, error);
+                    });
         } catch (Exception e) {
             LOG.error("Error executing tool '" + toolName + "' asynchronously: " + e.getMessage(), e);
+            jobStore.fail(requestId, e.getMessage());
             return CompletableFuture.completedFuture(
                     ToolExecutionResponse.failed(toolName, "Error executing tool: " + e.getMessage(), requestId));
         }
     }
+
+    /**
+     * Records the outcome of a tool execution in the job store.
+     * Accepted executions are left as they are; the tool reports their progress itself.
+     */
+    private void trackResult(String requestId, ToolExecutionResponse response, Throwable error) {
+        if (error != null) {
+            jobStore.fail(requestId, error.getMessage());
+            return;
+        }
+        switch (response.getStatus()) {
+            case COMPLETED -> jobStore.transition(requestId, JobState.DONE);
+            case FAILED, REJECTED, THROTTLED, OVERLOADED -> jobStore.fail(requestId, response.getErrorMessage());
+            case ACCEPTED -> { }
+        }
+    }
     
+    /**
+     * Reads the time budget of a tool, falling back to the default budget.
+     */
+    private long getBudgetMillis(String toolName) {
+        return config.getOptionalValue("app.deadlines.tools." + toolName, Long.class)
+                .or(() -> config.getOptionalValue("app.deadlines.default-ms", Long.class))
+                .orElse(DEFAULT_BUDGET_MILLIS);
+    }
+
     @Override
     public boolean isToolSupported(String toolName) {
         return toolRegistry.hasTool(toolName);
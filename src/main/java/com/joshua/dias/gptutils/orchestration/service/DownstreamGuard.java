@@ -0,0 +1,313 @@
+package com.joshua.dias.gptutils.orchestration.service;
+
+import com.joshua.dias.gptutils.orchestration.model.CircuitState;
+import com.joshua.dias.gptutils.orchestration.model.DownstreamStats;
+import com.joshua.dias.gptutils.orchestration.model.JobCancelledException;
+import io.smallrye.mutiny.Uni;
+import org.jboss.logging.Logger;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Circuit breaker and concurrency bulkhead in front of one downstream service.
+ * <p>
+ * At most {@code concurrency} calls run at once; a caller waits up to {@code maxWaitMillis} for a slot and is
+ * then refused. The outcomes of the last {@code windowSize} calls are kept, and once at least
+ * {@code minimumCalls} are recorded and the share of failures (errors, failure responses and calls slower than
+ * {@code slowCallMillis}) reaches {@code failureRateThreshold} percent the circuit opens: calls are refused
+ * immediately with {@link DownstreamUnavailableException} for {@code openMillis}, after which
+ * {@code halfOpenCalls} trial calls decide whether to close the circuit or open it again.
+ */
+public final class DownstreamGuard {
+
+    private static final Logger LOG = Logger.getLogger(DownstreamGuard.class);
+
+    /**
+     * The limits of a guard.
+     */
+    record Settings(int concurrency, long maxWaitMillis, int windowSize, int minimumCalls, int failureRateThreshold,
+                    long slowCallMillis, long openMillis, int halfOpenCalls, boolean readinessCritical) {
+    }
+
+    private final String name;
+    private final Settings settings;
+    private final Semaphore permits;
+
+    // Circuit state, guarded by this
+    private CircuitState state = CircuitState.CLOSED;
+    private long stateChangedAtMillis = System.currentTimeMillis();
+    private final boolean[] window;
+    private int windowNext;
+    private int windowCount;
+    private int windowFailures;
+    private int trialsInFlight;
+    private int trialSuccesses;
+
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder slowCalls = new LongAdder();
+    private final LongAdder rejectedOpen = new LongAdder();
+    private final LongAdder rejectedFull = new LongAdder();
+
+    DownstreamGuard(String name, Settings settings) {
+        this.name = name;
+        this.settings = settings;
+        this.permits = new Semaphore(settings.concurrency(), true);
+        this.window = new boolean[Math.max(1, settings.windowSize())];
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Runs a call that fails by throwing.
+     *
+     * @param <T> The type of the call result
+     * @param action The call
+     * @return The call result
+     * @throws DownstreamUnavailableException If the circuit is open or no slot became free in time
+     * @throws Exception If the call itself fails
+     */
+    public <T> T call(Callable<T> action) throws Exception {
+        return call(action, result -> false);
+    }
+
+    /**
+     * Runs a call that may also fail by returning a failure result, such as a 5xx response.
+     *
+     * @param <T> The type of the call result
+     * @param action The call
+     * @param isFailure Tells whether a result counts as a failure of the downstream
+     * @return The call result, including failure results
+     * @throws DownstreamUnavailableException If the circuit is open or no slot became free in time
+     * @throws JobCancelledException If the call was cut short by a cancellation; it is not counted as a failure
+     * @throws Exception If the call itself fails
+     */
+    public <T> T call(Callable<T> action, Predicate<T> isFailure) throws Exception {
+        boolean trial = acquire(settings.maxWaitMillis());
+        long start = System.nanoTime();
+        boolean success = false;
+        boolean cancelled = false;
+        try {
+            T result = action.call();
+            success = !isFailure.test(result);
+            return result;
+        } catch (JobCancelledException e) {
+            cancelled = true;
+            throw e;
+        } finally {
+            if (cancelled) {
+                // A call cut short by a cancellation says nothing about the downstream, so it is not counted
+                permits.release();
+                abandonTrial(trial);
+            } else {
+                release(trial, start, success);
+            }
+        }
+    }
+
+    /**
+     * Runs a non-blocking call. The slot is taken on subscription without waiting and given back when the
+     * Uni terminates or is cancelled; a refused call fails the Uni with {@link DownstreamUnavailableException}.
+     *
+     * @param <T> The type of the call result
+     * @param action Creates the call
+     * @param isFailure Tells whether a result counts as a failure of the downstream
+     * @return A Uni emitting the call result
+     */
+    public <T> Uni<T> callAsync(Supplier<Uni<T>> action, Predicate<T> isFailure) {
+        return Uni.createFrom().deferred(() -> {
+            boolean trial = acquire(0);
+            long start = System.nanoTime();
+            AtomicBoolean released = new AtomicBoolean();
+            return action.get()
+                    .onItemOrFailure().invoke((item, failure) -> {
+                        if (released.compareAndSet(false, true)) {
+                            release(trial, start, failure == null && !isFailure.test(item));
+                        }
+                    })
+                    .onCancellation().invoke(() -> {
+                        if (released.compareAndSet(false, true)) {
+                            permits.release();
+                            abandonTrial(trial);
+                        }
+                    });
+        });
+    }
+
+    /**
+     * Checks whether calls are currently let through, i.e. the circuit is not open.
+     *
+     * @return true if a call would be attempted, false if it would fail fast
+     */
+    public synchronized boolean isCallPermitted() {
+        return state != CircuitState.OPEN || System.currentTimeMillis() - stateChangedAtMillis >= settings.openMillis();
+    }
+
+    public synchronized CircuitState getState() {
+        return state;
+    }
+
+    public boolean isReadinessCritical() {
+        return settings.readinessCritical();
+    }
+
+    /**
+     * Creates a snapshot of the guard.
+     */
+    public synchronized DownstreamStats snapshot() {
+        DownstreamStats stats = new DownstreamStats();
+        stats.setName(name);
+        stats.setState(state);
+        stats.setConcurrency(settings.concurrency());
+        stats.setActive(settings.concurrency() - permits.availablePermits());
+        stats.setCalls(calls.sum());
+        stats.setFailures(failures.sum());
+        stats.setSlowCalls(slowCalls.sum());
+        stats.setRejectedOpen(rejectedOpen.sum());
+        stats.setRejectedFull(rejectedFull.sum());
+        stats.setFailureRate(windowCount == 0 ? 0 : 100.0 * windowFailures / windowCount);
+        stats.setStateChangedAtMillis(stateChangedAtMillis);
+        stats.setReadinessCritical(settings.readinessCritical());
+        return stats;
+    }
+
+    /**
+     * Lets a call through the circuit and the bulkhead.
+     *
+     * @return true if the call is a half-open trial
+     */
+    private boolean acquire(long maxWaitMillis) {
+        boolean trial = enterCircuit();
+
+        boolean acquired;
+        try {
+            acquired = maxWaitMillis > 0
+                    ? permits.tryAcquire(maxWaitMillis, TimeUnit.MILLISECONDS)
+                    : permits.tryAcquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        if (!acquired) {
+            abandonTrial(trial);
+            rejectedFull.increment();
+            throw new DownstreamUnavailableException(name, "all " + settings.concurrency() + " slots busy", maxWaitMillis);
+        }
+        calls.increment();
+        return trial;
+    }
+
+    /**
+     * Checks the circuit for a new call, moving from open to half-open once the open duration has passed.
+     */
+    private synchronized boolean enterCircuit() {
+        long now = System.currentTimeMillis();
+        if (state == CircuitState.OPEN) {
+            long remaining = settings.openMillis() - (now - stateChangedAtMillis);
+            if (remaining > 0) {
+                rejectedOpen.increment();
+                throw new DownstreamUnavailableException(name, "circuit open", remaining);
+            }
+            transition(CircuitState.HALF_OPEN, now);
+        }
+        if (state == CircuitState.HALF_OPEN) {
+            if (trialsInFlight >= settings.halfOpenCalls()) {
+                rejectedOpen.increment();
+                throw new DownstreamUnavailableException(name, "circuit half-open, trial calls in progress", settings.openMillis());
+            }
+            trialsInFlight++;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Gives back a half-open trial slot for a call that was never made.
+     */
+    private synchronized void abandonTrial(boolean trial) {
+        if (trial && state == CircuitState.HALF_OPEN) {
+            trialsInFlight = Math.max(0, trialsInFlight - 1);
+        }
+    }
+
+    /**
+     * Frees the bulkhead slot of a finished call and records its outcome.
+     */
+    private void release(boolean trial, long startNanos, boolean success) {
+        permits.release();
+        boolean slow = System.nanoTime() - startNanos > TimeUnit.MILLISECONDS.toNanos(settings.slowCallMillis());
+        if (slow) {
+            slowCalls.increment();
+        }
+        if (!success) {
+            failures.increment();
+        }
+        record(trial, success && !slow);
+    }
+
+    /**
+     * Updates the circuit with the outcome of a call.
+     */
+    private synchronized void record(boolean trial, boolean healthy) {
+        long now = System.currentTimeMillis();
+        if (trial) {
+            if (state != CircuitState.HALF_OPEN) {
+                return;
+            }
+            trialsInFlight = Math.max(0, trialsInFlight - 1);
+            if (!healthy) {
+                transition(CircuitState.OPEN, now);
+            } else if (++trialSuccesses >= settings.halfOpenCalls()) {
+                transition(CircuitState.CLOSED, now);
+            }
+            return;
+        }
+        if (state != CircuitState.CLOSED) {
+            // Outcome of a call that started before the circuit opened
+            return;
+        }
+
+        if (windowCount == window.length) {
+            if (window[windowNext]) {
+                windowFailures--;
+            }
+        } else {
+            windowCount++;
+        }
+        window[windowNext] = !healthy;
+        if (!healthy) {
+            windowFailures++;
+        }
+        windowNext = (windowNext + 1) % window.length;
+
+        if (windowCount >= settings.minimumCalls() &&
+                windowFailures * 100 >= settings.failureRateThreshold() * windowCount) {
+            transition(CircuitState.OPEN, now);
+        }
+    }
+
+    /**
+     * Moves the circuit to a new state and resets the counters of the old one.
+     */
+    private void transition(CircuitState newState, long now) {
+        LOG.warn("Circuit of downstream '" + name + "' changed from " + state + " to " + newState +
+                (newState == CircuitState.OPEN ? " (failure rate " + windowFailures + "/" + windowCount + ")" : ""));
+        state = newState;
+        stateChangedAtMillis = now;
+        trialsInFlight = 0;
+        trialSuccesses = 0;
+        if (newState == CircuitState.CLOSED) {
+            windowNext = 0;
+            windowCount = 0;
+            windowFailures = 0;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.joshua.dias.gptutils.orchestration.service;
+
+import com.joshua.dias.gptutils.orchestration.model.CircuitState;
+import com.joshua.dias.gptutils.orchestration.model.DownstreamStats;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.health.HealthCheck;
+import org.eclipse.microprofile.health.HealthCheckResponse;
+import org.eclipse.microprofile.health.HealthCheckResponseBuilder;
+import org.eclipse.microprofile.health.Readiness;
+
+/**
+ * Readiness check reporting the circuit of every downstream.
+ * The application is reported not ready while the circuit of a downstream marked with
+ * {@code app.downstreams.<name>.readiness: true} is open; other downstreams only add their state to the data.
+ */
+@Readiness
+@ApplicationScoped
+public class DownstreamReadinessCheck implements HealthCheck {
+
+    private final DownstreamRegistry downstreamRegistry;
+
+    /**
+     * Constructor that injects dependencies.
+     */
+    @Inject
+    public DownstreamReadinessCheck(DownstreamRegistry downstreamRegistry) {
+        this.downstreamRegistry = downstreamRegistry;
+    }
+
+    @Override
+    public HealthCheckResponse call() {
+        HealthCheckResponseBuilder builder = HealthCheckResponse.named("downstreams").up();
+        for (DownstreamStats stats : downstreamRegistry.getStats()) {
+            builder.withData(stats.getName(), stats.getState().name());
+            if (stats.isReadinessCritical() && stats.getState() == CircuitState.OPEN) {
+                builder.down();
+            }
+        }
+        return builder.build();
+    }
+}
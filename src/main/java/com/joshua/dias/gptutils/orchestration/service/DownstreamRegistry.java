@@ -0,0 +1,132 @@
+package com.joshua.dias.gptutils.orchestration.service;
+
+import com.joshua.dias.gptutils.orchestration.model.CircuitState;
+import com.joshua.dias.gptutils.orchestration.model.DownstreamStats;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.Config;
+import org.jboss.logging.Logger;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registry of the guards in front of the downstream services (OpenAI, Z-API, ConfirmaAI).
+ * <p>
+ * Every downstream gets its own {@link DownstreamGuard}, created on first use from
+ * {@code app.downstreams.<name>.*} with {@code app.downstreams.*} as fallback, so one failing
+ * dependency cannot hold the threads that the others need. The active calls, circuit state, calls, failures and
+ * rejections of every guard are published as metrics tagged with the downstream name.
+ */
+@ApplicationScoped
+public class DownstreamRegistry {
+
+    private static final Logger LOG = Logger.getLogger(DownstreamRegistry.class);
+    private static final String PREFIX = "app.downstreams.";
+
+    private final Config config;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, DownstreamGuard> guards = new ConcurrentHashMap<>();
+
+    /**
+     * Constructor that injects dependencies.
+     */
+    @Inject
+    public DownstreamRegistry(Config config, MeterRegistry meterRegistry) {
+        this.config = config;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Gets the guard of a downstream, creating it from configuration if needed.
+     *
+     * @param name The downstream name
+     * @return The guard
+     */
+    public DownstreamGuard get(String name) {
+        return guards.computeIfAbsent(name, this::create);
+    }
+
+    /**
+     * Gets a snapshot of every guard.
+     *
+     * @return The statistics, ordered by name
+     */
+    public List<DownstreamStats> getStats() {
+        List<DownstreamStats> stats = new ArrayList<>(guards.size());
+        for (DownstreamGuard guard : guards.values()) {
+            stats.add(guard.snapshot());
+        }
+        stats.sort(Comparator.comparing(DownstreamStats::getName));
+        return stats;
+    }
+
+    /**
+     * Creates a guard from configuration.
+     */
+    private DownstreamGuard create(String name) {
+        DownstreamGuard.Settings settings = new DownstreamGuard.Settings(
+                getSetting(name, "concurrency", Integer.class, 16),
+                getSetting(name, "max-wait-ms", Long.class, 0L),
+                getSetting(name, "window-size", Integer.class, 20),
+                getSetting(name, "minimum-calls", Integer.class, 10),
+                getSetting(name, "failure-rate-threshold", Integer.class, 50),
+                getSetting(name, "slow-call-ms", Long.class, 30000L),
+                getSetting(name, "open-ms", Long.class, 15000L),
+                getSetting(name, "half-open-calls", Integer.class, 2),
+                getSetting(name, "readiness", Boolean.class, false)
+        );
+        LOG.info("Creating guard for downstream '" + name + "' with " + settings);
+        DownstreamGuard guard = new DownstreamGuard(name, settings);
+        bindMetrics(guard);
+        return guard;
+    }
+
+    /**
+     * Publishes the gauges and counters of a guard.
+     */
+    private void bindMetrics(DownstreamGuard guard) {
+        String name = guard.getName();
+        Gauge.builder("gptutils.downstream.active", guard, g -> g.snapshot().getActive())
+                .description("Calls to the downstream that are running")
+                .tag("downstream", name)
+                .register(meterRegistry);
+        Gauge.builder("gptutils.downstream.circuit-open", guard, g -> g.getState() == CircuitState.CLOSED ? 0 : 1)
+                .description("1 while the circuit of the downstream is open or half-open")
+                .tag("downstream", name)
+                .register(meterRegistry);
+        FunctionCounter.builder("gptutils.downstream.calls", guard, g -> g.snapshot().getCalls())
+                .description("Calls made to the downstream")
+                .tag("downstream", name)
+                .register(meterRegistry);
+        FunctionCounter.builder("gptutils.downstream.failures", guard, g -> g.snapshot().getFailures())
+                .description("Calls to the downstream that failed or were slow")
+                .tag("downstream", name)
+                .register(meterRegistry);
+        FunctionCounter.builder("gptutils.downstream.rejected", guard, g -> g.snapshot().getRejectedOpen())
+                .description("Calls refused by the downstream guard")
+                .tag("downstream", name)
+                .tag("reason", "circuit-open")
+                .register(meterRegistry);
+        FunctionCounter.builder("gptutils.downstream.rejected", guard, g -> g.snapshot().getRejectedFull())
+                .description("Calls refused by the downstream guard")
+                .tag("downstream", name)
+                .tag("reason", "bulkhead-full")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Reads a setting for a downstream, falling back to the global value and then to the default.
+     */
+    private <T> T getSetting(String name, String key, Class<T> type, T defaultValue) {
+        return config.getOptionalValue(PREFIX + name + "." + key, type)
+                .or(() -> config.getOptionalValue(PREFIX + key, type))
+                .orElse(defaultValue);
+    }
+}
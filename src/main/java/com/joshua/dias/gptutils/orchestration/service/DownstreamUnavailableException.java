@@ -0,0 +1,30 @@
+package com.joshua.dias.gptutils.orchestration.service;
+
+/**
+ * Thrown when a call to a downstream service is refused without being attempted,
+ * because its circuit is open or its bulkhead has no free slot.
+ */
+public class DownstreamUnavailableException extends RuntimeException {
+
+    private final String downstream;
+    private final long retryAfterMillis;
+
+    public DownstreamUnavailableException(String downstream, String reason, long retryAfterMillis) {
+        super("Downstream '" + downstream + "' unavailable: " + reason);
+        this.downstream = downstream;
+        this.retryAfterMillis = retryAfterMillis;
+    }
+
+    public String getDownstream() {
+        return downstream;
+    }
+
+    /**
+     * Gets how long the caller should wait before trying again.
+     *
+     * @return The suggested delay in milliseconds
+     */
+    public long getRetryAfterMillis() {
+        return retryAfterMillis;
+    }
+}
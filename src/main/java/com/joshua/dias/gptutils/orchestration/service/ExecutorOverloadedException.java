@@ -0,0 +1,53 @@
+package com.joshua.dias.gptutils.orchestration.service;
+
+import com.joshua.dias.gptutils.orchestration.model.ToolExecutionResponse;
+
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Thrown when the ChatOrderedExecutor refuses a task because a queue or bulkhead is full.
+ * A chat that already has too many pending tasks is throttled; any other refusal means the server is overloaded.
+ */
+public class ExecutorOverloadedException extends RejectedExecutionException {
+
+    private final boolean chatLimit;
+    private final long retryAfterMillis;
+
+    public ExecutorOverloadedException(String message, boolean chatLimit, long retryAfterMillis) {
+        super(message);
+        this.chatLimit = chatLimit;
+        this.retryAfterMillis = retryAfterMillis;
+    }
+
+    /**
+     * Checks whether the task was refused because its chat is over its own limit, rather than the server being full.
+     *
+     * @return true if only the chat is throttled
+     */
+    public boolean isChatLimit() {
+        return chatLimit;
+    }
+
+    /**
+     * Gets how long the caller should wait before trying again.
+     *
+     * @return The suggested delay in milliseconds
+     */
+    public long getRetryAfterMillis() {
+        return retryAfterMillis;
+    }
+
+    /**
+     * Creates the response of a tool whose task was refused.
+     *
+     * @param toolName The name of the tool
+     * @param requestId The ID of the request
+     * @return A THROTTLED or OVERLOADED response with the suggested delay
+     */
+    public ToolExecutionResponse toResponse(String toolName, String requestId) {
+        long retryAfterSeconds = Math.max(1, (retryAfterMillis + 999) / 1000);
+        return chatLimit
+                ? ToolExecutionResponse.throttled(toolName, "Too many pending requests for this chat", retryAfterSeconds, requestId)
+                : ToolExecutionResponse.overloaded(toolName, "Server is overloaded, retry later", retryAfterSeconds, requestId);
+    }
+}
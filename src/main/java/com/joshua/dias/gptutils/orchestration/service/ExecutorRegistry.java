@@ -0,0 +1,242 @@
+package com.joshua.dias.gptutils.orchestration.service;
+
+import com.joshua.dias.gptutils.orchestration.model.BulkheadStats;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.Config;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Registry of the named bulkheads that run tool work.
+ * <p>
+ * Every tool gets its own bulkhead, created on first use from {@code app.executors.bulkheads.<name>.*}
+ * with {@code app.executors.*} as fallback, so a slow tool cannot starve the others. With
+ * {@code app.async.virtual-threads} every task runs on a virtual thread of its own and the concurrency comes from
+ * {@code virtual-concurrency} instead, which can be far higher: the scarce resources behind the work, FFmpeg
+ * encodes and downstream calls, keep limits of their own.
+ * Bulkheads can be resized at runtime and are drained gracefully on shutdown. Work still running when the drain
+ * times out is cancelled through the {@link CancellationRegistry}, which aborts FFmpeg encodes and HTTP transfers
+ * that an interrupt alone would not stop.
+ * <p>
+ * Every bulkhead publishes its threads, active and waiting tasks as gauges and its completed, failed and rejected
+ * tasks as counters, tagged with the bulkhead name.
+ */
+@ApplicationScoped
+public class ExecutorRegistry {
+
+    private static final Logger LOG = Logger.getLogger(ExecutorRegistry.class);
+    private static final String PREFIX = "app.executors.";
+    private static final String BULKHEAD_PREFIX = PREFIX + "bulkheads.";
+    private static final long STOP_TIMEOUT_MILLIS = 5000;
+
+    private final Config config;
+    private final CancellationRegistry cancellationRegistry;
+    private final MeterRegistry meterRegistry;
+    private final boolean virtualThreads;
+    private final long drainTimeoutMillis;
+    private final Map<String, Bulkhead> bulkheads = new ConcurrentHashMap<>();
+    private final AtomicBoolean drained = new AtomicBoolean();
+
+    /**
+     * Constructor that injects dependencies and configuration.
+     */
+    @Inject
+    public ExecutorRegistry(
+            Config config,
+            CancellationRegistry cancellationRegistry,
+            MeterRegistry meterRegistry,
+            @ConfigProperty(name = "app.async.virtual-threads", defaultValue = "false") boolean virtualThreads,
+            @ConfigProperty(name = "app.executors.drain-timeout-seconds", defaultValue = "30") long drainTimeoutSeconds
+    ) {
+        this.config = config;
+        this.cancellationRegistry = cancellationRegistry;
+        this.meterRegistry = meterRegistry;
+        this.virtualThreads = virtualThreads;
+        this.drainTimeoutMillis = TimeUnit.SECONDS.toMillis(drainTimeoutSeconds);
+        LOG.info("ExecutorRegistry initialized with " + (virtualThreads ? "virtual" : "platform") +
+                " threads, drain timeout: " + drainTimeoutSeconds + "s");
+    }
+
+    /**
+     * Gets the bulkhead with the given name, creating it from configuration if needed.
+     *
+     * @param name The bulkhead name, usually the tool name
+     * @return The bulkhead
+     */
+    public Bulkhead get(String name) {
+        return bulkheads.computeIfAbsent(name, this::create);
+    }
+
+    /**
+     * Checks whether a bulkhead has been created.
+     *
+     * @param name The bulkhead name
+     * @return true if the bulkhead exists, false otherwise
+     */
+    public boolean contains(String name) {
+        return bulkheads.containsKey(name);
+    }
+
+    /**
+     * Changes the limits of a bulkhead at runtime.
+     *
+     * @param name The bulkhead name
+     * @param concurrency The new number of threads
+     * @param maxWaiting The new maximum number of waiting tasks
+     * @return The statistics of the resized bulkhead
+     * @throws IllegalArgumentException If a limit is not positive
+     */
+    public BulkheadStats resize(String name, int concurrency, int maxWaiting) {
+        if (concurrency <= 0 || maxWaiting <= 0) {
+            throw new IllegalArgumentException("concurrency and maxWaiting must be positive");
+        }
+        Bulkhead bulkhead = get(name);
+        bulkhead.resize(concurrency, maxWaiting);
+        LOG.info("Resized bulkhead '" + name + "' to concurrency: " + concurrency + ", max waiting: " + maxWaiting);
+        return bulkhead.snapshot();
+    }
+
+    /**
+     * Gets a snapshot of the statistics of every bulkhead.
+     *
+     * @return The statistics, ordered by name
+     */
+    public List<BulkheadStats> getStats() {
+        List<BulkheadStats> stats = new ArrayList<>(bulkheads.size());
+        for (Bulkhead bulkhead : bulkheads.values()) {
+            stats.add(bulkhead.snapshot());
+        }
+        stats.sort(Comparator.comparing(BulkheadStats::getName));
+        return stats;
+    }
+
+    /**
+     * Gets the total number of threads of all bulkheads.
+     *
+     * @return The total concurrency, at least 1
+     */
+    public int getTotalConcurrency() {
+        int total = 0;
+        for (Bulkhead bulkhead : bulkheads.values()) {
+            total += bulkhead.getConcurrency();
+        }
+        return Math.max(1, total);
+    }
+
+    /**
+     * Stops every bulkhead from accepting work and waits up to the drain timeout for the queued work to finish.
+     * Calling it more than once has no effect.
+     */
+    @PreDestroy
+    public void drain() {
+        drain(System.currentTimeMillis() + drainTimeoutMillis);
+    }
+
+    /**
+     * Stops every bulkhead from accepting work and waits until the deadline for the queued work to finish.
+     * Callers that have already spent part of the drain timeout pass what is left of it.
+     * Calling it more than once has no effect.
+     *
+     * @param deadline The time in epoch milliseconds after which the remaining work is cancelled
+     */
+    public void drain(long deadline) {
+        if (!drained.compareAndSet(false, true)) {
+            return;
+        }
+
+        List<Bulkhead> undrained = new ArrayList<>();
+        for (Bulkhead bulkhead : bulkheads.values()) {
+            long remaining = Math.max(0, deadline - System.currentTimeMillis());
+            if (!bulkhead.drain(remaining)) {
+                undrained.add(bulkhead);
+            }
+        }
+
+        if (!undrained.isEmpty()) {
+            // Abort the blocking work first, then interrupt whatever is left
+            cancellationRegistry.cancelAll("Shutting down");
+            for (Bulkhead bulkhead : undrained) {
+                if (!bulkhead.stopNow(STOP_TIMEOUT_MILLIS)) {
+                    LOG.warn("Bulkhead '" + bulkhead.getName() + "' did not stop after its tasks were cancelled");
+                } else {
+                    LOG.warn("Bulkhead '" + bulkhead.getName() + "' did not drain in time; remaining tasks were cancelled");
+                }
+            }
+        }
+        LOG.info("ExecutorRegistry drained " + bulkheads.size() + " bulkheads");
+    }
+
+    /**
+     * Creates a bulkhead from configuration.
+     */
+    private Bulkhead create(String name) {
+        // Virtual threads cost nothing while they wait on I/O, so they get their own, much higher limit
+        int concurrency = virtualThreads
+                ? getLimit(name, "virtual-concurrency", 256)
+                : getLimit(name, "concurrency", 4);
+        int maxWaiting = getLimit(name, "max-waiting", 500);
+        LOG.info("Creating bulkhead '" + name + "' with " + (virtualThreads ? "virtual" : "platform") +
+                " threads, concurrency: " + concurrency + ", max waiting: " + maxWaiting);
+
+        ThreadFactory threadFactory = virtualThreads
+                ? Thread.ofVirtual().name(name + "-", 0).factory()
+                : Thread.ofPlatform().name(name + "-", 0).factory();
+        Bulkhead bulkhead = new Bulkhead(name, concurrency, maxWaiting, threadFactory, virtualThreads);
+        bindMetrics(bulkhead);
+        return bulkhead;
+    }
+
+    /**
+     * Publishes the gauges and counters of a bulkhead.
+     */
+    private void bindMetrics(Bulkhead bulkhead) {
+        String name = bulkhead.getName();
+        Gauge.builder("gptutils.bulkhead.threads", bulkhead, Bulkhead::getConcurrency)
+                .description("Maximum number of threads of the bulkhead")
+                .tag("bulkhead", name)
+                .register(meterRegistry);
+        Gauge.builder("gptutils.bulkhead.active", bulkhead, Bulkhead::getActive)
+                .description("Threads of the bulkhead that are running a task")
+                .tag("bulkhead", name)
+                .register(meterRegistry);
+        Gauge.builder("gptutils.bulkhead.waiting", bulkhead, Bulkhead::getWaiting)
+                .description("Tasks admitted to the bulkhead that have not started yet")
+                .tag("bulkhead", name)
+                .register(meterRegistry);
+        FunctionCounter.builder("gptutils.bulkhead.completed", bulkhead, Bulkhead::getCompleted)
+                .description("Tasks of the bulkhead that completed")
+                .tag("bulkhead", name)
+                .register(meterRegistry);
+        FunctionCounter.builder("gptutils.bulkhead.failed", bulkhead, Bulkhead::getFailed)
+                .description("Tasks of the bulkhead that threw")
+                .tag("bulkhead", name)
+                .register(meterRegistry);
+        FunctionCounter.builder("gptutils.bulkhead.rejected", bulkhead, Bulkhead::getRejected)
+                .description("Tasks the bulkhead turned away")
+                .tag("bulkhead", name)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Reads a limit for a bulkhead, falling back to the global value and then to the default.
+     */
+    private int getLimit(String name, String key, int defaultValue) {
+        return config.getOptionalValue(BULKHEAD_PREFIX + name + "." + key, Integer.class)
+                .or(() -> config.getOptionalValue(PREFIX + key, Integer.class))
+                .orElse(defaultValue);
+    }
+}
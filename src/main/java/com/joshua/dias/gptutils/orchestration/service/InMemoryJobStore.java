@@ -0,0 +1,162 @@
+package com.joshua.dias.gptutils.orchestration.service;
+
+import com.joshua.dias.gptutils.orchestration.model.Job;
+import com.joshua.dias.gptutils.orchestration.model.JobState;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Bounded in-memory implementation of JobStore.
+ * Jobs are evicted once they are older than {@code app.jobs.ttl-seconds} or when more than
+ * {@code app.jobs.max-entries} jobs are tracked, oldest first. Unfinished jobs are expired when they are evicted.
+ */
+@ApplicationScoped
+public class InMemoryJobStore implements JobStore {
+
+    private static final Logger LOG = Logger.getLogger(InMemoryJobStore.class);
+
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+    // Request IDs in creation order, used for eviction and for listing newest first
+    private final ConcurrentLinkedDeque<String> creationOrder = new ConcurrentLinkedDeque<>();
+    private final List<Consumer<Job>> finishListeners = new CopyOnWriteArrayList<>();
+    private final Duration ttl;
+    private final int maxEntries;
+
+    /**
+     * Constructor that injects configuration.
+     */
+    @Inject
+    public InMemoryJobStore(
+            @ConfigProperty(name = "app.jobs.ttl-seconds", defaultValue = "3600") long ttlSeconds,
+            @ConfigProperty(name = "app.jobs.max-entries", defaultValue = "10000") int maxEntries
+    ) {
+        this.ttl = Duration.ofSeconds(ttlSeconds);
+        this.maxEntries = maxEntries;
+        LOG.info("InMemoryJobStore initialized with TTL: " + ttlSeconds + "s, max entries: " + maxEntries);
+    }
+
+    @Override
+    public Job create(String requestId, String toolName, String phoneNumber, String messageId) {
+        Job job = new Job(requestId, toolName, phoneNumber, messageId);
+        Job existing = jobs.putIfAbsent(requestId, job);
+        if (existing == null) {
+            creationOrder.addLast(requestId);
+            evict();
+            return job;
+        }
+        // A finished job that is submitted again (e.g. a replay that was retried) starts over
+        if (existing.getState().isTerminal() && jobs.replace(requestId, existing, job)) {
+            return job;
+        }
+        return jobs.get(requestId);
+    }
+
+    @Override
+    public void transition(String requestId, JobState state) {
+        Job job = requestId != null ? jobs.get(requestId) : null;
+        if (job != null && job.transition(state, null)) {
+            LOG.debug("Job " + requestId + " is now " + state);
+            if (state.isTerminal()) {
+                notifyFinished(job);
+            }
+        }
+    }
+
+    @Override
+    public void fail(String requestId, String errorMessage) {
+        finish(requestId, JobState.FAILED, errorMessage);
+    }
+
+    @Override
+    public void expire(String requestId, String reason) {
+        finish(requestId, JobState.EXPIRED, reason);
+    }
+
+    @Override
+    public void cancel(String requestId, String reason) {
+        finish(requestId, JobState.CANCELLED, reason);
+    }
+
+    @Override
+    public Job get(String requestId) {
+        return requestId != null ? jobs.get(requestId) : null;
+    }
+
+    @Override
+    public List<Job> list(JobState state, int limit) {
+        List<Job> result = new ArrayList<>(Math.min(limit, jobs.size()));
+        Iterator<String> newestFirst = creationOrder.descendingIterator();
+        while (newestFirst.hasNext() && result.size() < limit) {
+            Job job = jobs.get(newestFirst.next());
+            if (job != null && (state == null || job.getState() == state)) {
+                result.add(job);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public void addFinishListener(Consumer<Job> listener) {
+        finishListeners.add(listener);
+    }
+
+    /**
+     * Moves a job to a final state with a message.
+     */
+    private void finish(String requestId, JobState state, String message) {
+        Job job = requestId != null ? jobs.get(requestId) : null;
+        if (job != null && job.transition(state, message)) {
+            LOG.debug("Job " + requestId + " is now " + state + ": " + message);
+            notifyFinished(job);
+        }
+    }
+
+    /**
+     * Calls the finish listeners; a failing listener does not affect the others.
+     */
+    private void notifyFinished(Job job) {
+        for (Consumer<Job> listener : finishListeners) {
+            try {
+                listener.accept(job);
+            } catch (RuntimeException e) {
+                LOG.error("Error in job finish listener for " + job.getRequestId() + ": " + e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Removes the oldest jobs while the store is over capacity or they have expired. A job that is evicted before
+     * it finished is expired first, so its listeners still release what they hold for it.
+     */
+    private void evict() {
+        Instant expiry = Instant.now().minus(ttl);
+        String oldest;
+        while ((oldest = creationOrder.peekFirst()) != null) {
+            Job job = jobs.get(oldest);
+            boolean expired = job == null || job.getCreatedAt().isBefore(expiry);
+            if (!expired && jobs.size() <= maxEntries) {
+                break;
+            }
+            if (creationOrder.remove(oldest)) {
+                Job evicted = jobs.remove(oldest);
+                if (evicted != null && evicted.transition(JobState.EXPIRED, "Evicted from the job store")) {
+                    LOG.warn("Evicted unfinished job " + oldest);
+                    notifyFinished(evicted);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.joshua.dias.gptutils.orchestration.service;
+
+import com.joshua.dias.gptutils.orchestration.model.ToolExecutionRequest;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Interface for a durable journal of accepted tool executions.
+ * A request is journaled when it is accepted and marked complete when its job finishes,
+ * so requests that were still in flight when the process stopped can be replayed on the next start.
+ */
+public interface JobJournal {
+
+    /**
+     * Records that a request was accepted. Recording the same request ID again replaces the earlier record.
+     *
+     * @param requestId The request ID of the tool execution
+     * @param request The request, including the "requestId" parameter
+     * @throws IOException If the record could not be written
+     */
+    void recordAccepted(String requestId, ToolExecutionRequest request) throws IOException;
+
+    /**
+     * Records that a request finished and no longer needs to be replayed.
+     * Unknown request IDs are ignored.
+     *
+     * @param requestId The request ID of the tool execution
+     * @throws IOException If the record could not be written
+     */
+    void recordCompleted(String requestId) throws IOException;
+
+    /**
+     * Hands over the requests that were unfinished when the journal was opened.
+     * Returns them only once; later calls return an empty list.
+     *
+     * @return The unfinished requests, in the order they were accepted
+     */
+    List<ToolExecutionRequest> takeUnfinished();
+
+    /**
+     * Gets the number of requests that are journaled and not yet complete.
+     *
+     * @return The number of live requests
+     */
+    int liveCount();
+}
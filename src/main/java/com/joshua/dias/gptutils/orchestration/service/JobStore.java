@@ -0,0 +1,81 @@
+package com.joshua.dias.gptutils.orchestration.service;
+
+import com.joshua.dias.gptutils.orchestration.model.Job;
+import com.joshua.dias.gptutils.orchestration.model.JobState;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Interface for tracking the progress of tool executions by request ID.
+ * Calls with an unknown or null request ID are ignored, so tools can report progress unconditionally.
+ */
+public interface JobStore {
+
+    /**
+     * Starts tracking a job in the QUEUED state.
+     *
+     * @param requestId The request ID of the tool execution
+     * @param toolName The name of the tool
+     * @param phoneNumber The phone number of the chat
+     * @param messageId The ID of the message that triggered the execution
+     * @return The new job
+     */
+    Job create(String requestId, String toolName, String phoneNumber, String messageId);
+
+    /**
+     * Moves a job to a new state.
+     *
+     * @param requestId The request ID of the job
+     * @param state The new state
+     */
+    void transition(String requestId, JobState state);
+
+    /**
+     * Marks a job as failed.
+     *
+     * @param requestId The request ID of the job
+     * @param errorMessage The reason of the failure
+     */
+    void fail(String requestId, String errorMessage);
+
+    /**
+     * Marks a job as expired because its deadline passed before it could finish.
+     *
+     * @param requestId The request ID of the job
+     * @param reason Where the deadline was found to be exceeded
+     */
+    void expire(String requestId, String reason);
+
+    /**
+     * Marks a job as cancelled.
+     *
+     * @param requestId The request ID of the job
+     * @param reason Why the job was cancelled
+     */
+    void cancel(String requestId, String reason);
+
+    /**
+     * Gets a job by request ID.
+     *
+     * @param requestId The request ID of the job
+     * @return The job, or null if it is unknown or was evicted
+     */
+    Job get(String requestId);
+
+    /**
+     * Lists the most recent jobs, newest first.
+     *
+     * @param state Only return jobs in this state, or null for all states
+     * @param limit The maximum number of jobs to return
+     * @return The jobs
+     */
+    List<Job> list(JobState state, int limit);
+
+    /**
+     * Registers a listener that is called once when a job reaches a final state.
+     *
+     * @param listener The listener, called on the thread that finished the job
+     */
+    void addFinishListener(Consumer<Job> listener);
+}
@@ -0,0 +1,121 @@
+package com.joshua.dias.gptutils.orchestration.service;
+
+import com.joshua.dias.gptutils.orchestration.model.ToolExecutionRequest;
+import com.joshua.dias.gptutils.orchestration.model.ToolExecutionResponse;
+import com.joshua.dias.gptutils.orchestration.model.ToolParameters;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Replays the requests that were still in flight when the application last stopped.
+ * Requests are resubmitted under their original request ID at {@code app.journal.replay-rate} per second,
+ * so a restart under load does not flood the executors. Requests the executors reject are retried a few
+ * times before they are given up.
+ */
+@ApplicationScoped
+public class JournalReplayer {
+
+    private static final Logger LOG = Logger.getLogger(JournalReplayer.class);
+    private static final int MAX_ATTEMPTS = 5;
+
+    private final JobJournal jobJournal;
+    private final ToolExecutionService toolExecutionService;
+    private final double replayRate;
+
+    private volatile boolean running;
+    private Thread replayThread;
+
+    /**
+     * Constructor that injects dependencies and configuration.
+     */
+    @Inject
+    public JournalReplayer(
+            JobJournal jobJournal,
+            ToolExecutionService toolExecutionService,
+            @ConfigProperty(name = "app.journal.replay-rate", defaultValue = "2") double replayRate
+    ) {
+        this.jobJournal = jobJournal;
+        this.toolExecutionService = toolExecutionService;
+        this.replayRate = replayRate;
+    }
+
+    /**
+     * Starts replaying the unfinished requests, if any.
+     */
+    void onStart(@Observes StartupEvent event) {
+        List<ToolExecutionRequest> unfinished = jobJournal.takeUnfinished();
+        if (unfinished.isEmpty()) {
+            return;
+        }
+
+        LOG.info("Replaying " + unfinished.size() + " unfinished requests at " + replayRate + " per second");
+        running = true;
+        replayThread = new Thread(() -> replayLoop(unfinished), "journal-replay");
+        replayThread.setDaemon(true);
+        replayThread.start();
+    }
+
+    /**
+     * Stops replaying. Requests that were not resubmitted stay in the journal.
+     */
+    void onStop(@Observes ShutdownEvent event) {
+        if (replayThread == null) {
+            return;
+        }
+        running = false;
+        replayThread.interrupt();
+    }
+
+    /**
+     * Resubmits the requests one by one, pacing them to the configured rate.
+     */
+    private void replayLoop(List<ToolExecutionRequest> unfinished) {
+        long pauseMillis = (long) (TimeUnit.SECONDS.toMillis(1) / Math.max(0.01, replayRate));
+        Deque<Replay> pending = new ArrayDeque<>();
+        for (ToolExecutionRequest request : unfinished) {
+            pending.add(new Replay(request, 1));
+        }
+
+        while (running && !pending.isEmpty()) {
+            Replay replay = pending.poll();
+            String requestId = replay.request().get(ToolParameters.REQUEST_ID, null);
+            try {
+                ToolExecutionResponse response = toolExecutionService.executeAsync(replay.request()).join();
+                if (response.getStatus().isRetryable() && replay.attempt() < MAX_ATTEMPTS) {
+                    LOG.info("Replay of " + requestId + " was refused, will retry: " + response.getErrorMessage());
+                    pending.add(new Replay(replay.request(), replay.attempt() + 1));
+                } else if (response.getStatus().isRetryable()) {
+                    LOG.warn("Giving up replay of " + requestId + " after " + MAX_ATTEMPTS + " attempts");
+                    jobJournal.recordCompleted(requestId);
+                } else {
+                    LOG.info("Replayed " + requestId + " with status " + response.getStatus());
+                }
+                Thread.sleep(pauseMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (IOException | RuntimeException e) {
+                LOG.error("Error replaying " + requestId + ": " + e.getMessage(), e);
+            }
+        }
+
+        LOG.info("Journal replay finished, " + pending.size() + " requests left for the next start");
+    }
+
+    /**
+     * A request to replay and the number of the attempt.
+     */
+    private record Replay(ToolExecutionRequest request, int attempt) {
+    }
+}
@@ -0,0 +1,67 @@
+package com.joshua.dias.gptutils.orchestration.service;
+
+import com.joshua.dias.gptutils.orchestration.model.Lane;
+import com.joshua.dias.gptutils.orchestration.model.ToolExecutionRequest;
+import com.joshua.dias.gptutils.orchestration.model.ToolParameters;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import java.util.List;
+
+/**
+ * Chooses the lane of a tool execution from its content type and media size.
+ * <p>
+ * Tools listed in {@code app.lanes.fast-tools} are always cheap (forwarding only calls Z-API), text is cheap,
+ * and documents are cheap while they stay below the configured size. Everything else is heavy, including short
+ * audio and video: however short, they are still downloaded, encoded and sent to OpenAI, which may hold a task for
+ * as long as it waits for a downstream slot.
+ */
+@ApplicationScoped
+public class LaneSelector {
+
+    private static final Logger LOG = Logger.getLogger(LaneSelector.class);
+
+    private final List<String> fastTools;
+    private final long fastMaxBytes;
+
+    /**
+     * Constructor that injects configuration.
+     */
+    @Inject
+    public LaneSelector(
+            @ConfigProperty(name = "app.lanes.fast-tools", defaultValue = "forwarding") List<String> fastTools,
+            @ConfigProperty(name = "app.lanes.fast-max-bytes", defaultValue = "262144") long fastMaxBytes
+    ) {
+        this.fastTools = fastTools;
+        this.fastMaxBytes = fastMaxBytes;
+        LOG.info("LaneSelector initialized with fast tools: " + fastTools + ", fast max bytes: " + fastMaxBytes);
+    }
+
+    /**
+     * Selects the lane for a request. A "lane" parameter that is already set (e.g. on a replay) is kept.
+     *
+     * @param request The tool execution request
+     * @return The lane
+     */
+    public Lane select(ToolExecutionRequest request) {
+        String presetLane = request.get(ToolParameters.LANE, null);
+        if (presetLane != null) {
+            return Lane.fromName(presetLane);
+        }
+
+        if (fastTools.contains(request.getToolName())) {
+            return Lane.FAST;
+        }
+
+        String contentType = request.get(ToolParameters.CONTENT_TYPE, "");
+        long contentSize = request.get(ToolParameters.CONTENT_SIZE, 0L);
+
+        return switch (contentType) {
+            case "text" -> Lane.FAST;
+            case "document" -> contentSize > 0 && contentSize <= fastMaxBytes ? Lane.FAST : Lane.HEAVY;
+            default -> Lane.HEAVY;
+        };
+    }
+}
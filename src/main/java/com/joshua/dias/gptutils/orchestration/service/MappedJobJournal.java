@@ -0,0 +1,533 @@
+package com.joshua.dias.gptutils.orchestration.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.joshua.dias.gptutils.orchestration.model.Job;
+import com.joshua.dias.gptutils.orchestration.model.JobState;
+import com.joshua.dias.gptutils.orchestration.model.ToolExecutionRequest;
+import io.quarkus.runtime.ShutdownEvent;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Implementation of JobJournal backed by memory-mapped segment files on local disk.
+ * <p>
+ * Records are appended to the active segment as a 4-byte length, a 4-byte CRC32 and a body holding the record
+ * type, the request ID and, for accepted requests, the JSON form of the request. The length is written last, so
+ * a record torn by a crash reads as the end of the segment. A flusher thread forces the active segment every
+ * {@code app.journal.flush-interval-ms}; with {@code app.journal.sync} enabled, writers wait for that batched
+ * fsync instead of forcing on every record.
+ * <p>
+ * When the active segment is full a new one is started. Segments are deleted oldest first once they have no live
+ * requests, so the completion markers of a newer segment outlive the older records they finish. When there are more
+ * than {@code app.journal.max-segments} the live requests of the oldest segment are copied forward so it can be
+ * deleted too. On start, all segments are read, the unfinished requests are rewritten into a fresh
+ * segment and the old files are removed.
+ */
+@ApplicationScoped
+public class MappedJobJournal implements JobJournal {
+
+    private static final Logger LOG = Logger.getLogger(MappedJobJournal.class);
+    private static final String SEGMENT_PREFIX = "journal-";
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final int HEADER_SIZE = 2 * Integer.BYTES;
+    private static final byte TYPE_ACCEPTED = 1;
+    private static final byte TYPE_COMPLETED = 2;
+
+    private final ObjectMapper objectMapper;
+    private final JobStore jobStore;
+    private final boolean enabled;
+    private final Path directory;
+    private final int segmentSize;
+    private final int maxSegments;
+    private final long flushIntervalMillis;
+    private final boolean sync;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition flushed = lock.newCondition();
+    private final Deque<Segment> segments = new ArrayDeque<>();
+    private final Map<String, LiveRecord> live = new HashMap<>();
+    private List<ToolExecutionRequest> unfinished = new ArrayList<>();
+    private Segment active;
+    private long nextSegmentId;
+    private long appendSeq;
+    private long flushedSeq;
+
+    private volatile boolean running;
+    private volatile boolean shuttingDown;
+    private Thread flusherThread;
+
+    /**
+     * Constructor that injects dependencies and configuration.
+     */
+    @Inject
+    public MappedJobJournal(
+            ObjectMapper objectMapper,
+            JobStore jobStore,
+            @ConfigProperty(name = "app.journal.enabled", defaultValue = "true") boolean enabled,
+            @ConfigProperty(name = "app.journal.dir", defaultValue = "/tmp/gpt-utils/journal") String directory,
+            @ConfigProperty(name = "app.journal.segment-size", defaultValue = "8388608") int segmentSize,
+            @ConfigProperty(name = "app.journal.max-segments", defaultValue = "4") int maxSegments,
+            @ConfigProperty(name = "app.journal.flush-interval-ms", defaultValue = "20") long flushIntervalMillis,
+            @ConfigProperty(name = "app.journal.sync", defaultValue = "true") boolean sync
+    ) {
+        this.objectMapper = objectMapper;
+        this.jobStore = jobStore;
+        this.enabled = enabled;
+        this.directory = Path.of(directory);
+        this.segmentSize = segmentSize;
+        this.maxSegments = Math.max(2, maxSegments);
+        this.flushIntervalMillis = Math.max(1, flushIntervalMillis);
+        this.sync = sync;
+    }
+
+    /**
+     * Recovers the unfinished requests, compacts them into a fresh segment and starts the flusher.
+     */
+    @PostConstruct
+    void init() {
+        if (!enabled) {
+            LOG.info("MappedJobJournal is disabled");
+            return;
+        }
+
+        try {
+            Files.createDirectories(directory);
+            List<Path> oldSegments = listSegments();
+            Map<String, byte[]> recovered = new LinkedHashMap<>();
+            for (Path path : oldSegments) {
+                readSegment(path, recovered);
+                nextSegmentId = Math.max(nextSegmentId, segmentId(path) + 1);
+            }
+
+            lock.lock();
+            try {
+                active = openSegment();
+                for (Map.Entry<String, byte[]> entry : recovered.entrySet()) {
+                    ToolExecutionRequest request;
+                    try {
+                        request = objectMapper.readValue(entry.getValue(), ToolExecutionRequest.class);
+                    } catch (IOException e) {
+                        LOG.error("Dropping unreadable journaled request " + entry.getKey() + ": " + e.getMessage());
+                        continue;
+                    }
+                    writeRecord(TYPE_ACCEPTED, entry.getKey(), entry.getValue());
+                    unfinished.add(request);
+                }
+                active.buffer.force();
+            } finally {
+                lock.unlock();
+            }
+
+            for (Path path : oldSegments) {
+                Files.deleteIfExists(path);
+            }
+
+            LOG.info("MappedJobJournal initialized in " + directory + " with " + unfinished.size() +
+                    " unfinished requests from " + oldSegments.size() + " segments");
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open job journal in " + directory, e);
+        }
+
+        jobStore.addFinishListener(this::onJobFinished);
+
+        running = true;
+        flusherThread = new Thread(this::flushLoop, "journal-flusher");
+        flusherThread.setDaemon(true);
+        flusherThread.start();
+    }
+
+    /**
+     * Remembers that the application is stopping, so jobs failed by the shutdown stay replayable.
+     */
+    void onStop(@Observes ShutdownEvent event) {
+        shuttingDown = true;
+    }
+
+    /**
+     * Stops the flusher and forces the active segment to disk.
+     */
+    @PreDestroy
+    void shutdown() {
+        if (!enabled) {
+            return;
+        }
+
+        LOG.info("Closing MappedJobJournal with " + liveCount() + " live requests");
+        running = false;
+        if (flusherThread != null) {
+            flusherThread.interrupt();
+            try {
+                flusherThread.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        lock.lock();
+        try {
+            for (Segment segment : segments) {
+                segment.buffer.force();
+                segment.channel.close();
+            }
+            segments.clear();
+            active = null;
+            flushed.signalAll();
+        } catch (IOException e) {
+            LOG.warn("Error closing job journal: " + e.getMessage());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void recordAccepted(String requestId, ToolExecutionRequest request) throws IOException {
+        if (!enabled) {
+            return;
+        }
+        append(TYPE_ACCEPTED, requestId, objectMapper.writeValueAsBytes(request));
+    }
+
+    @Override
+    public void recordCompleted(String requestId) throws IOException {
+        if (!enabled || requestId == null) {
+            return;
+        }
+        append(TYPE_COMPLETED, requestId, null);
+    }
+
+    @Override
+    public List<ToolExecutionRequest> takeUnfinished() {
+        lock.lock();
+        try {
+            List<ToolExecutionRequest> result = unfinished;
+            unfinished = new ArrayList<>();
+            return result;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int liveCount() {
+        lock.lock();
+        try {
+            return live.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Writes the completion marker of a finished job.
+     */
+    private void onJobFinished(Job job) {
+        // A job failed or cancelled by the shutdown itself must be replayed on the next start
+        if (shuttingDown && (job.getState() == JobState.FAILED || job.getState() == JobState.CANCELLED)) {
+            return;
+        }
+        try {
+            recordCompleted(job.getRequestId());
+        } catch (IOException e) {
+            LOG.error("Error journaling completion of " + job.getRequestId() + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Appends a record and, in sync mode, waits until the flusher has forced it to disk.
+     */
+    private void append(byte type, String requestId, byte[] payload) throws IOException {
+        lock.lock();
+        try {
+            if (active == null) {
+                LOG.warn("Job journal is closed; dropping record for " + requestId);
+                return;
+            }
+            if (type == TYPE_COMPLETED && !live.containsKey(requestId)) {
+                return;
+            }
+
+            writeRecord(type, requestId, payload);
+            if (segments.size() > maxSegments) {
+                compactOldest();
+            }
+
+            long seq = ++appendSeq;
+            while (sync && running && flushedSeq < seq) {
+                flushed.await(flushIntervalMillis * 4, TimeUnit.MILLISECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for the journal to be flushed", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Writes one record into the active segment and updates the live set. Must hold the lock.
+     */
+    private void writeRecord(byte type, String requestId, byte[] payload) throws IOException {
+        byte[] id = requestId.getBytes(StandardCharsets.UTF_8);
+        int payloadLength = payload != null ? payload.length : 0;
+        ByteBuffer body = ByteBuffer.allocate(1 + Short.BYTES + id.length + payloadLength);
+        body.put(type).putShort((short) id.length).put(id);
+        if (payload != null) {
+            body.put(payload);
+        }
+        byte[] bytes = body.array();
+
+        int recordSize = HEADER_SIZE + bytes.length;
+        if (recordSize > segmentSize) {
+            throw new IOException("Journal record of " + recordSize + " bytes does not fit in a segment");
+        }
+        if (active.position + recordSize > segmentSize) {
+            roll();
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+        int position = active.position;
+        active.buffer.put(position + HEADER_SIZE, bytes);
+        active.buffer.putInt(position + Integer.BYTES, (int) crc.getValue());
+        // The length goes last: a record without it is treated as the end of the segment
+        active.buffer.putInt(position, bytes.length);
+        active.position += recordSize;
+
+        if (type == TYPE_ACCEPTED) {
+            LiveRecord previous = live.put(requestId, new LiveRecord(payload, active));
+            active.liveCount++;
+            if (previous != null) {
+                release(previous.segment);
+            }
+        } else {
+            LiveRecord previous = live.remove(requestId);
+            if (previous != null) {
+                release(previous.segment);
+            }
+        }
+    }
+
+    /**
+     * Forces the active segment and starts a new one. Must hold the lock.
+     */
+    private void roll() throws IOException {
+        Segment previous = active;
+        previous.buffer.force();
+        active = openSegment();
+        dropFinishedSegments();
+    }
+
+    /**
+     * Copies the live requests of the oldest segment into the active one so the oldest can be deleted.
+     * Must hold the lock.
+     */
+    private void compactOldest() throws IOException {
+        Segment oldest = segments.peekFirst();
+        if (oldest == null || oldest == active) {
+            return;
+        }
+
+        List<Map.Entry<String, LiveRecord>> toCopy = new ArrayList<>();
+        for (Map.Entry<String, LiveRecord> entry : live.entrySet()) {
+            if (entry.getValue().segment == oldest) {
+                toCopy.add(entry);
+            }
+        }
+        LOG.info("Compacting journal segment " + oldest.id + " with " + toCopy.size() + " live requests");
+        for (Map.Entry<String, LiveRecord> entry : toCopy) {
+            writeRecord(TYPE_ACCEPTED, entry.getKey(), entry.getValue().payload);
+        }
+    }
+
+    /**
+     * Drops one live request from a segment and deletes the segments that are no longer needed. Must hold the lock.
+     */
+    private void release(Segment segment) throws IOException {
+        segment.liveCount--;
+        dropFinishedSegments();
+    }
+
+    /**
+     * Deletes the oldest segments while they have no live requests. A segment is only deleted once every older one
+     * is gone, as its completion markers may finish requests accepted in an older segment. Must hold the lock.
+     */
+    private void dropFinishedSegments() throws IOException {
+        Segment oldest;
+        while ((oldest = segments.peekFirst()) != null && oldest != active && oldest.liveCount <= 0) {
+            segments.pollFirst();
+            oldest.channel.close();
+            Files.deleteIfExists(oldest.path);
+        }
+    }
+
+    /**
+     * Creates and maps a new segment file. Must hold the lock.
+     */
+    private Segment openSegment() throws IOException {
+        long id = nextSegmentId++;
+        Path path = directory.resolve(String.format("%s%016d%s", SEGMENT_PREFIX, id, SEGMENT_SUFFIX));
+        FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        Segment segment = new Segment(id, path, channel, buffer);
+        segments.addLast(segment);
+        return segment;
+    }
+
+    /**
+     * Forces the active segment at a fixed interval and wakes up the writers waiting for it.
+     */
+    private void flushLoop() {
+        while (running) {
+            try {
+                Thread.sleep(flushIntervalMillis);
+
+                Segment segment;
+                long target;
+                lock.lock();
+                try {
+                    if (appendSeq == flushedSeq || active == null) {
+                        continue;
+                    }
+                    segment = active;
+                    target = appendSeq;
+                } finally {
+                    lock.unlock();
+                }
+
+                segment.buffer.force();
+
+                lock.lock();
+                try {
+                    flushedSeq = Math.max(flushedSeq, target);
+                    flushed.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (RuntimeException e) {
+                LOG.error("Error flushing job journal: " + e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Reads the records of a segment into the map of unfinished requests, stopping at the first torn record.
+     */
+    private void readSegment(Path path, Map<String, byte[]> recovered) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            int limit = buffer.limit();
+            int position = 0;
+
+            while (position + HEADER_SIZE <= limit) {
+                int length = buffer.getInt(position);
+                if (length <= 0 || position + HEADER_SIZE + length > limit) {
+                    break;
+                }
+                byte[] bytes = new byte[length];
+                buffer.get(position + HEADER_SIZE, bytes);
+
+                CRC32 crc = new CRC32();
+                crc.update(bytes);
+                if ((int) crc.getValue() != buffer.getInt(position + Integer.BYTES)) {
+                    LOG.warn("Ignoring torn record in journal segment " + path + " at offset " + position);
+                    break;
+                }
+
+                ByteBuffer body = ByteBuffer.wrap(bytes);
+                byte type = body.get();
+                byte[] id = new byte[body.getShort()];
+                body.get(id);
+                String requestId = new String(id, StandardCharsets.UTF_8);
+                if (type == TYPE_ACCEPTED) {
+                    byte[] payload = new byte[body.remaining()];
+                    body.get(payload);
+                    recovered.put(requestId, payload);
+                } else {
+                    recovered.remove(requestId);
+                }
+
+                position += HEADER_SIZE + length;
+            }
+        }
+    }
+
+    /**
+     * Lists the segment files, oldest first.
+     */
+    private List<Path> listSegments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files
+                    .filter(path -> {
+                        String name = path.getFileName().toString();
+                        return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+                    })
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    /**
+     * Extracts the numeric ID from a segment file name.
+     */
+    private long segmentId(Path path) {
+        String name = path.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    /**
+     * The JSON of a live request and the segment holding its latest accepted record.
+     */
+    private record LiveRecord(byte[] payload, Segment segment) {
+    }
+
+    /**
+     * A mapped segment file. Fields other than the final ones are guarded by the journal lock.
+     */
+    private static final class Segment {
+
+        private final long id;
+        private final Path path;
+        private final FileChannel channel;
+        private final MappedByteBuffer buffer;
+        private int position;
+        private int liveCount;
+
+        private Segment(long id, Path path, FileChannel channel, MappedByteBuffer buffer) {
+            this.id = id;
+            this.path = path;
+            this.channel = channel;
+            this.buffer = buffer;
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.joshua.dias.gptutils.orchestration.service;
+
+import com.joshua.dias.gptutils.orchestration.model.PipelineContext;
+import com.joshua.dias.gptutils.orchestration.model.PipelineStepDefinition;
+
+/**
+ * Interface for the actions that pipeline steps run.
+ * Implementations are discovered as CDI beans and referenced by name from {@code app.pipelines.<pipeline>.<step>.action}.
+ */
+public interface PipelineAction {
+
+    /**
+     * Gets the name of the action.
+     *
+     * @return The name used in pipeline configuration
+     */
+    String getName();
+
+    /**
+     * Validates the options of a step that uses this action when the pipeline is loaded.
+     *
+     * @param step The step definition
+     * @return null if the options are valid, an error message otherwise
+     */
+    default String validate(PipelineStepDefinition step) {
+        return null;
+    }
+
+    /**
+     * Runs the action for one step of a pipeline run.
+     *
+     * @param context The pipeline run, with the request and the outputs of finished steps
+     * @param step The step definition
+     * @param input The input of the step (see {@link PipelineContext#inputFor(PipelineStepDefinition)})
+     * @return The output handed to the steps that come after this one
+     * @throws Exception If the action fails; steps that depend on this one are then skipped
+     */
+    String apply(PipelineContext context, PipelineStepDefinition step, String input) throws Exception;
+}
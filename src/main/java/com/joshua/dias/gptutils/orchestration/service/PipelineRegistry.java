@@ -0,0 +1,220 @@
+package com.joshua.dias.gptutils.orchestration.service;
+
+import com.joshua.dias.gptutils.orchestration.model.PipelineDefinition;
+import com.joshua.dias.gptutils.orchestration.model.PipelineStepDefinition;
+import io.opentelemetry.api.trace.Tracer;
+import io.quarkus.runtime.StartupEvent;
+import jakarta.annotation.Priority;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.inject.Instance;
+import jakarta.inject.Inject;
+import jakarta.interceptor.Interceptor;
+import org.eclipse.microprofile.config.Config;
+import org.jboss.logging.Logger;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Loads the pipelines declared under {@code app.pipelines} and registers each of them as a tool.
+ * <p>
+ * A pipeline lists its steps in {@code app.pipelines.<pipeline>.steps}; every step names an action in
+ * {@code app.pipelines.<pipeline>.<step>.action}, the steps it needs in {@code .after}, and any other key
+ * under the step is passed to the action as an option. Pipelines with unknown actions, unknown dependencies
+ * or cycles are logged and skipped.
+ */
+@ApplicationScoped
+public class PipelineRegistry {
+
+    private static final Logger LOG = Logger.getLogger(PipelineRegistry.class);
+    private static final String PREFIX = "app.pipelines.";
+    private static final String STEPS_SUFFIX = ".steps";
+
+    private final Config config;
+    private final ToolRegistry toolRegistry;
+    private final ExecutorRegistry executorRegistry;
+    private final ChatOrderedExecutor chatOrderedExecutor;
+    private final JobStore jobStore;
+    private final CancellationRegistry cancellationRegistry;
+    private final Tracer tracer;
+    private final Map<String, PipelineAction> actions = new HashMap<>();
+    private final Map<String, PipelineDefinition> pipelines = new LinkedHashMap<>();
+
+    /**
+     * Constructor that injects dependencies.
+     */
+    @Inject
+    public PipelineRegistry(
+            Config config,
+            ToolRegistry toolRegistry,
+            ExecutorRegistry executorRegistry,
+            ChatOrderedExecutor chatOrderedExecutor,
+            JobStore jobStore,
+            CancellationRegistry cancellationRegistry,
+            Tracer tracer,
+            Instance<PipelineAction> actionInstances
+    ) {
+        this.config = config;
+        this.toolRegistry = toolRegistry;
+        this.executorRegistry = executorRegistry;
+        this.chatOrderedExecutor = chatOrderedExecutor;
+        this.jobStore = jobStore;
+        this.cancellationRegistry = cancellationRegistry;
+        this.tracer = tracer;
+        for (PipelineAction action : actionInstances) {
+            actions.put(action.getName(), action);
+        }
+        LOG.info("PipelineRegistry initialized with actions: " + actions.keySet());
+    }
+
+    /**
+     * Loads and registers the pipelines before the journal replays requests that may target them.
+     */
+    void onStart(@Observes @Priority(Interceptor.Priority.APPLICATION) StartupEvent event) {
+        for (String name : findPipelineNames()) {
+            try {
+                PipelineDefinition definition = load(name);
+                Map<String, PipelineAction> stepActions = new HashMap<>();
+                for (PipelineStepDefinition step : definition.getSteps()) {
+                    stepActions.put(step.getId(), actions.get(step.getAction()));
+                }
+                toolRegistry.registerTool(new PipelineTool(definition, stepActions,
+                        executorRegistry.get(name).asExecutor(), chatOrderedExecutor, jobStore, cancellationRegistry,
+                        tracer));
+                pipelines.put(name, definition);
+                LOG.info("Registered pipeline '" + name + "' with " + definition.getSteps().size() + " steps");
+            } catch (IllegalArgumentException e) {
+                LOG.error("Skipping pipeline '" + name + "': " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Gets the pipelines that were registered.
+     *
+     * @return The pipeline definitions, in registration order
+     */
+    public List<PipelineDefinition> getPipelines() {
+        return List.copyOf(pipelines.values());
+    }
+
+    /**
+     * Finds the names of the declared pipelines.
+     */
+    private Set<String> findPipelineNames() {
+        Set<String> names = new TreeSet<>();
+        for (String property : config.getPropertyNames()) {
+            if (property.startsWith(PREFIX) && property.endsWith(STEPS_SUFFIX)) {
+                String name = property.substring(PREFIX.length(), property.length() - STEPS_SUFFIX.length());
+                if (!name.isEmpty() && !name.contains(".")) {
+                    names.add(name);
+                }
+            }
+        }
+        return names;
+    }
+
+    /**
+     * Reads a pipeline from configuration and orders its steps.
+     *
+     * @throws IllegalArgumentException If the pipeline is invalid
+     */
+    private PipelineDefinition load(String name) {
+        String pipelinePrefix = PREFIX + name + ".";
+        List<String> stepIds = config.getOptionalValues(pipelinePrefix + "steps", String.class).orElse(List.of());
+        if (stepIds.isEmpty()) {
+            throw new IllegalArgumentException("no steps declared");
+        }
+        if (toolRegistry.hasTool(name)) {
+            throw new IllegalArgumentException("a tool with this name already exists");
+        }
+
+        Map<String, PipelineStepDefinition> steps = new LinkedHashMap<>();
+        for (String stepId : stepIds) {
+            steps.put(stepId, loadStep(pipelinePrefix, stepId));
+        }
+        return new PipelineDefinition(name, orderSteps(steps));
+    }
+
+    /**
+     * Reads one step and checks its action and options.
+     */
+    private PipelineStepDefinition loadStep(String pipelinePrefix, String stepId) {
+        String stepPrefix = pipelinePrefix + stepId + ".";
+        String actionName = config.getOptionalValue(stepPrefix + "action", String.class)
+                .orElseThrow(() -> new IllegalArgumentException("step '" + stepId + "' has no action"));
+        PipelineAction action = actions.get(actionName);
+        if (action == null) {
+            throw new IllegalArgumentException("step '" + stepId + "' uses unknown action '" + actionName + "'");
+        }
+
+        List<String> after = config.getOptionalValues(stepPrefix + "after", String.class).orElse(List.of());
+        Map<String, String> options = new HashMap<>();
+        for (String property : config.getPropertyNames()) {
+            if (property.startsWith(stepPrefix)) {
+                String key = property.substring(stepPrefix.length());
+                if (!key.equals("action") && !key.equals("after")) {
+                    options.put(key, config.getValue(property, String.class));
+                }
+            }
+        }
+
+        PipelineStepDefinition step = new PipelineStepDefinition(stepId, actionName, after, Collections.unmodifiableMap(options));
+        String error = action.validate(step);
+        if (error != null) {
+            throw new IllegalArgumentException("step '" + stepId + "': " + error);
+        }
+        return step;
+    }
+
+    /**
+     * Orders the steps so that every step comes after its dependencies (Kahn's algorithm).
+     *
+     * @throws IllegalArgumentException If a dependency is unknown or the steps form a cycle
+     */
+    private List<PipelineStepDefinition> orderSteps(Map<String, PipelineStepDefinition> steps) {
+        Map<String, Integer> pending = new HashMap<>();
+        Map<String, List<String>> dependents = new HashMap<>();
+        for (PipelineStepDefinition step : steps.values()) {
+            for (String dependency : step.getAfter()) {
+                if (!steps.containsKey(dependency)) {
+                    throw new IllegalArgumentException("step '" + step.getId() + "' comes after unknown step '" + dependency + "'");
+                }
+                dependents.computeIfAbsent(dependency, key -> new ArrayList<>()).add(step.getId());
+            }
+            pending.put(step.getId(), step.getAfter().size());
+        }
+
+        Deque<String> ready = new ArrayDeque<>();
+        for (String stepId : steps.keySet()) {
+            if (pending.get(stepId) == 0) {
+                ready.add(stepId);
+            }
+        }
+
+        List<PipelineStepDefinition> ordered = new ArrayList<>(steps.size());
+        while (!ready.isEmpty()) {
+            String stepId = ready.poll();
+            ordered.add(steps.get(stepId));
+            for (String dependent : dependents.getOrDefault(stepId, List.of())) {
+                if (pending.merge(dependent, -1, Integer::sum) == 0) {
+                    ready.add(dependent);
+                }
+            }
+        }
+
+        if (ordered.size() != steps.size()) {
+            throw new IllegalArgumentException("steps form a cycle");
+        }
+        return ordered;
+    }
+}
@@ -0,0 +1,196 @@
+package com.joshua.dias.gptutils.orchestration.service;
+
+import com.joshua.dias.gptutils.orchestration.model.DeadlineExceededException;
+import com.joshua.dias.gptutils.orchestration.model.JobCancelledException;
+import com.joshua.dias.gptutils.orchestration.model.JobState;
+import com.joshua.dias.gptutils.orchestration.model.Lane;
+import com.joshua.dias.gptutils.orchestration.model.PipelineContext;
+import com.joshua.dias.gptutils.orchestration.model.PipelineDefinition;
+import com.joshua.dias.gptutils.orchestration.model.PipelineStepDefinition;
+import com.joshua.dias.gptutils.orchestration.model.ToolExecutionRequest;
+import com.joshua.dias.gptutils.orchestration.model.ToolExecutionResponse;
+import com.joshua.dias.gptutils.orchestration.model.ToolParameters;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.context.Scope;
+import org.jboss.logging.Logger;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Tool that runs a declared pipeline.
+ * <p>
+ * Runs are submitted to the {@link ChatOrderedExecutor} under the pipeline's name, so runs of the same chat start in
+ * the order they arrived, in their lane, and a chat's next task waits until its current run has settled.
+ * Every step is chained to the steps it comes after, so it starts as soon as their outputs are ready
+ * instead of waiting for the rest of the pipeline, and steps without a dependency between them run concurrently
+ * on the pipeline's bulkhead. When a step fails, the steps that depend on it are skipped while independent
+ * branches carry on; the run fails once every branch has settled. Steps that would start after the request's
+ * deadline or after a cancellation fail with {@link JobCancelledException}, and a run that ends that way is
+ * marked as expired or cancelled.
+ * <p>
+ * Every step runs in its own span, a child of the trace context the run was started from, whichever thread
+ * completed the step's dependencies.
+ */
+final class PipelineTool implements Tool {
+
+    private static final Logger LOG = Logger.getLogger(PipelineTool.class);
+
+    private final PipelineDefinition definition;
+    private final Map<String, PipelineAction> actions;
+    private final Executor executor;
+    private final ChatOrderedExecutor chatOrderedExecutor;
+    private final JobStore jobStore;
+    private final CancellationRegistry cancellationRegistry;
+    private final Tracer tracer;
+
+    PipelineTool(PipelineDefinition definition, Map<String, PipelineAction> actions, Executor executor,
+                 ChatOrderedExecutor chatOrderedExecutor, JobStore jobStore, CancellationRegistry cancellationRegistry,
+                 Tracer tracer) {
+        this.definition = definition;
+        this.actions = actions;
+        this.executor = executor;
+        this.chatOrderedExecutor = chatOrderedExecutor;
+        this.jobStore = jobStore;
+        this.cancellationRegistry = cancellationRegistry;
+        this.tracer = tracer;
+    }
+
+    @Override
+    public String getName() {
+        return definition.getName();
+    }
+
+    @Override
+    public String getDescription() {
+        return "Pipeline of " + definition.getSteps().size() + " steps declared in configuration";
+    }
+
+    @Override
+    public ToolExecutionResponse execute(ToolExecutionRequest request) {
+        return executeAsync(request).join();
+    }
+
+    @Override
+    public CompletableFuture<ToolExecutionResponse> executeAsync(ToolExecutionRequest request) {
+        String requestId = request.get(ToolParameters.REQUEST_ID, UUID.randomUUID().toString());
+        String phoneNumber = request.get(ToolParameters.PHONE_NUMBER, "");
+        Lane lane = Lane.fromName(request.get(ToolParameters.LANE, null));
+        long weight = request.get(ToolParameters.CONTENT_SIZE, 0L);
+        try {
+            chatOrderedExecutor.submitAsync(lane, getName(), phoneNumber, weight, () -> run(requestId, request))
+                    .whenComplete((ignored, error) -> finish(requestId, error));
+        } catch (ExecutorOverloadedException e) {
+            LOG.warn("Refused pipeline '" + getName() + "', executor is full: " + e.getMessage());
+            return CompletableFuture.completedFuture(e.toResponse(getName(), requestId));
+        }
+
+        return CompletableFuture.completedFuture(ToolExecutionResponse.accepted(getName(), requestId));
+    }
+
+    /**
+     * Chains the steps of a run to their dependencies.
+     *
+     * @return A future completed once every step has settled
+     */
+    private CompletableFuture<Void> run(String requestId, ToolExecutionRequest request) {
+        LOG.info("Starting pipeline '" + getName() + "', requestId: " + requestId);
+
+        PipelineContext context = new PipelineContext(requestId, request, cancellationRegistry.get(requestId));
+        Map<String, CompletableFuture<String>> results = new HashMap<>();
+        Context parent = Context.current();
+
+        // Steps are in dependency order, so the futures of a step's dependencies always exist already
+        for (PipelineStepDefinition step : definition.getSteps()) {
+            CompletableFuture<?>[] dependencies = step.getAfter().stream()
+                    .map(results::get)
+                    .toArray(CompletableFuture[]::new);
+            results.put(step.getId(), CompletableFuture.allOf(dependencies)
+                    .thenCompose(ignored -> schedule(context, step, parent)));
+        }
+
+        return CompletableFuture.allOf(results.values().toArray(CompletableFuture[]::new));
+    }
+
+    @Override
+    public String validateParameters(ToolExecutionRequest request) {
+        String phoneNumber = request.get(ToolParameters.PHONE_NUMBER, null);
+        if (phoneNumber == null || phoneNumber.trim().isEmpty()) {
+            return "Missing required parameter: phoneNumber";
+        }
+        return null; // Valid
+    }
+
+    /**
+     * Runs a step on the bulkhead. A full bulkhead fails the step instead of the thread that completed its dependencies.
+     */
+    private CompletableFuture<String> schedule(PipelineContext context, PipelineStepDefinition step, Context parent) {
+        CompletableFuture<String> future = new CompletableFuture<>();
+        try {
+            executor.execute(() -> CurrentTool.runAs(getName(), () -> {
+                Span span = tracer.spanBuilder(getName() + "/" + step.getId())
+                        .setParent(parent)
+                        .setAttribute(StageMetrics.TOOL_ATTRIBUTE, getName())
+                        .setAttribute("gptutils.pipeline.action", step.getAction())
+                        .startSpan();
+                try (Scope ignored = parent.with(span).makeCurrent()) {
+                    future.complete(runStep(context, step));
+                } catch (Throwable e) {
+                    span.setStatus(StatusCode.ERROR);
+                    span.recordException(e);
+                    future.completeExceptionally(e);
+                } finally {
+                    span.end();
+                }
+            }));
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    /**
+     * Runs the action of a step and records its output.
+     */
+    private String runStep(PipelineContext context, PipelineStepDefinition step) throws Exception {
+        context.getCancellation().check("pipeline step '" + step.getId() + "'");
+        long start = System.currentTimeMillis();
+        String output = actions.get(step.getId()).apply(context, step, context.inputFor(step));
+        context.putOutput(step.getId(), output);
+        LOG.info("Pipeline '" + getName() + "' finished step '" + step.getId() + "' in " +
+                (System.currentTimeMillis() - start) + "ms, requestId: " + context.getRequestId());
+        return output;
+    }
+
+    /**
+     * Records the outcome of the run in the job store.
+     */
+    private void finish(String requestId, Throwable error) {
+        if (error == null) {
+            LOG.info("Pipeline '" + getName() + "' completed, requestId: " + requestId);
+            jobStore.transition(requestId, JobState.DONE);
+            return;
+        }
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        if (cause instanceof DeadlineExceededException) {
+            LOG.warn("Pipeline '" + getName() + "' dropped, requestId: " + requestId + ": " + cause.getMessage());
+            jobStore.expire(requestId, cause.getMessage());
+            return;
+        }
+        if (cause instanceof JobCancelledException) {
+            LOG.info("Pipeline '" + getName() + "' cancelled, requestId: " + requestId + ": " + cause.getMessage());
+            jobStore.cancel(requestId, cause.getMessage());
+            return;
+        }
+        LOG.error("Pipeline '" + getName() + "' failed, requestId: " + requestId + ": " + cause.getMessage(), cause);
+        jobStore.fail(requestId, cause.getMessage());
+    }
+}
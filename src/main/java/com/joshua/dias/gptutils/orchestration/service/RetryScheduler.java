@@ -0,0 +1,329 @@
+package com.joshua.dias.gptutils.orchestration.service;
+
+import com.joshua.dias.gptutils.orchestration.model.CancellationToken;
+import io.opentelemetry.context.Context;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.Config;
+import org.jboss.logging.Logger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Retries failed calls without holding a thread while they wait.
+ * <p>
+ * A retry waiting for its backoff is only an entry in the queue of a single timer thread. When it is due, a blocking
+ * attempt is handed to the {@value #BULKHEAD} bulkhead and a non-blocking one is started from the timer thread, in
+ * both cases with the trace context, stage ledger and tool of the caller. Delays grow exponentially from
+ * {@code initial-backoff-ms} up to {@code max-backoff-ms}, with the upper half jittered; the limits of an operation
+ * are read from {@code app.retries.operations.<operation>.*} with {@code app.retries.*} as fallback.
+ * <p>
+ * A pending retry is abandoned as soon as its request is cancelled or its deadline passes, and on shutdown; its
+ * future then completes with the outcome of the last attempt. Calls refused by an open circuit are not retried, and
+ * callers of calls that must not run twice can narrow down which failures are retried.
+ */
+@ApplicationScoped
+public class RetryScheduler {
+
+    private static final Logger LOG = Logger.getLogger(RetryScheduler.class);
+    private static final String PREFIX = "app.retries.";
+    private static final String OPERATION_PREFIX = PREFIX + "operations.";
+
+    /**
+     * The bulkhead that runs the retried attempts of blocking calls.
+     */
+    public static final String BULKHEAD = "retries";
+
+    private final Config config;
+    private final ExecutorRegistry executorRegistry;
+    private final StageMetrics stageMetrics;
+    private final ScheduledThreadPoolExecutor timer;
+    private final Map<String, Policy> policies = new ConcurrentHashMap<>();
+    private final Set<Retry<?>> pending = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Constructor that injects dependencies and configuration.
+     */
+    @Inject
+    public RetryScheduler(Config config, ExecutorRegistry executorRegistry, StageMetrics stageMetrics) {
+        this.config = config;
+        this.executorRegistry = executorRegistry;
+        this.stageMetrics = stageMetrics;
+        this.timer = new ScheduledThreadPoolExecutor(1, Thread.ofPlatform().name("retry-scheduler").daemon().factory());
+        this.timer.setRemoveOnCancelPolicy(true);
+        LOG.info("RetryScheduler initialized with default policy: " + policy("default"));
+    }
+
+    /**
+     * Runs a blocking call on the calling thread and retries it on the {@value #BULKHEAD} bulkhead while it fails.
+     *
+     * @param <T> The type of the call result
+     * @param operation The operation, used for its retry limits and the retry counter, e.g. "notification"
+     * @param attempt The call; a thrown exception counts as a failed attempt
+     * @param shouldRetry Tells whether a result calls for another attempt
+     * @param cancellation The cancellation token of the request, which abandons pending retries
+     * @return A future completed with the result of the last attempt, or failed with its exception
+     */
+    public <T> CompletableFuture<T> execute(String operation, Callable<T> attempt, Predicate<T> shouldRetry,
+                                            CancellationToken cancellation) {
+        Executor executor = executorRegistry.get(BULKHEAD).asExecutor();
+        return start(operation, () -> {
+            try {
+                return CompletableFuture.completedFuture(attempt.call());
+            } catch (Exception e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        }, shouldRetry, RetryScheduler::isRetryable, cancellation, executor);
+    }
+
+    /**
+     * Starts a non-blocking call and starts it again from the timer thread while it fails.
+     *
+     * @param <T> The type of the call result
+     * @param operation The operation, used for its retry limits and the retry counter, e.g. "confirmaai"
+     * @param attempt Starts the call; a failed stage counts as a failed attempt
+     * @param shouldRetry Tells whether a result calls for another attempt
+     * @param cancellation The cancellation token of the request, which abandons pending retries
+     * @return A future completed with the result of the last attempt, or failed with its exception
+     */
+    public <T> CompletableFuture<T> executeAsync(String operation, Supplier<? extends CompletionStage<T>> attempt,
+                                                 Predicate<T> shouldRetry, CancellationToken cancellation) {
+        return executeAsync(operation, attempt, shouldRetry, RetryScheduler::isRetryable, cancellation);
+    }
+
+    /**
+     * Starts a non-blocking call and starts it again from the timer thread while it fails in a retryable way.
+     *
+     * @param <T> The type of the call result
+     * @param operation The operation, used for its retry limits and the retry counter, e.g. "confirmaai"
+     * @param attempt Starts the call; a failed stage counts as a failed attempt
+     * @param shouldRetry Tells whether a result calls for another attempt
+     * @param shouldRetryFailure Tells whether a failure calls for another attempt
+     * @param cancellation The cancellation token of the request, which abandons pending retries
+     * @return A future completed with the result of the last attempt, or failed with its exception
+     */
+    public <T> CompletableFuture<T> executeAsync(String operation, Supplier<? extends CompletionStage<T>> attempt,
+                                                 Predicate<T> shouldRetry, Predicate<Throwable> shouldRetryFailure,
+                                                 CancellationToken cancellation) {
+        return start(operation, attempt, shouldRetry, shouldRetryFailure, cancellation, Runnable::run);
+    }
+
+    /**
+     * Gets the number of retries waiting for their backoff.
+     *
+     * @return The number of pending retries
+     */
+    public int getPending() {
+        return pending.size();
+    }
+
+    /**
+     * Stops the timer and completes every pending retry with the outcome of its last attempt.
+     */
+    @PreDestroy
+    void shutdown() {
+        timer.shutdownNow();
+        List<Retry<?>> abandoned = new ArrayList<>(pending);
+        for (Retry<?> retry : abandoned) {
+            retry.abandon();
+        }
+        LOG.info("RetryScheduler stopped, " + abandoned.size() + " pending retries abandoned");
+    }
+
+    private <T> CompletableFuture<T> start(String operation, Supplier<? extends CompletionStage<T>> attempt,
+                                           Predicate<T> shouldRetry, Predicate<Throwable> shouldRetryFailure,
+                                           CancellationToken cancellation, Executor executor) {
+        Retry<T> retry = new Retry<>(operation, policy(operation), attempt, shouldRetry, shouldRetryFailure,
+                cancellation, executor, CurrentTool.get(), Context.current());
+        retry.attempt();
+        return retry.future;
+    }
+
+    /**
+     * Tells whether a failure is worth another attempt: anything but a call refused by an open circuit.
+     */
+    private static boolean isRetryable(Throwable failure) {
+        return !(failure instanceof DownstreamUnavailableException);
+    }
+
+    /**
+     * Reads the retry limits of an operation, falling back to the global values and then to the defaults.
+     */
+    private Policy policy(String operation) {
+        return policies.computeIfAbsent(operation, name -> new Policy(
+                Math.max(1, getLimit(name, "max-attempts", 3L).intValue()),
+                getLimit(name, "initial-backoff-ms", 1000L),
+                getLimit(name, "max-backoff-ms", 30000L)
+        ));
+    }
+
+    private Long getLimit(String operation, String key, long defaultValue) {
+        return config.getOptionalValue(OPERATION_PREFIX + operation + "." + key, Long.class)
+                .or(() -> config.getOptionalValue(PREFIX + key, Long.class))
+                .orElse(defaultValue);
+    }
+
+    /**
+     * The retry limits of an operation.
+     */
+    private record Policy(int maxAttempts, long initialBackoffMillis, long maxBackoffMillis) {
+
+        /**
+         * Computes the delay before the next attempt: exponential, capped, with the upper half jittered
+         * so that a downstream recovering from an outage is not hit by every retry at once.
+         */
+        long backoffMillis(int attempt) {
+            long ceiling = initialBackoffMillis << Math.min(attempt - 1, 20);
+            ceiling = Math.min(ceiling, maxBackoffMillis);
+            long half = ceiling / 2;
+            return half + ThreadLocalRandom.current().nextLong(ceiling - half + 1);
+        }
+    }
+
+    /**
+     * One call and its attempts so far. Only one attempt runs at a time, so the fields need no locking.
+     */
+    private final class Retry<T> {
+
+        private final String operation;
+        private final Policy policy;
+        private final Supplier<? extends CompletionStage<T>> call;
+        private final Predicate<T> shouldRetry;
+        private final Predicate<Throwable> shouldRetryFailure;
+        private final CancellationToken cancellation;
+        private final Executor executor;
+        private final String tool;
+        private final Context context;
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+        private final AtomicBoolean waiting = new AtomicBoolean();
+        private volatile int attempts;
+        private volatile T lastResult;
+        private volatile Throwable lastError;
+        private volatile CancellationToken.Registration registration;
+
+        private Retry(String operation, Policy policy, Supplier<? extends CompletionStage<T>> call,
+                      Predicate<T> shouldRetry, Predicate<Throwable> shouldRetryFailure,
+                      CancellationToken cancellation, Executor executor, String tool, Context context) {
+            this.operation = operation;
+            this.policy = policy;
+            this.call = call;
+            this.shouldRetry = shouldRetry;
+            this.shouldRetryFailure = shouldRetryFailure;
+            this.cancellation = cancellation;
+            this.executor = executor;
+            this.tool = tool;
+            this.context = context;
+        }
+
+        /**
+         * Starts an attempt and handles its outcome when it completes.
+         */
+        private void attempt() {
+            attempts++;
+            CompletionStage<T> stage;
+            try {
+                stage = call.get();
+            } catch (RuntimeException e) {
+                stage = CompletableFuture.failedFuture(e);
+            }
+            stage.whenComplete(this::onAttempt);
+        }
+
+        private void onAttempt(T result, Throwable error) {
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            lastResult = result;
+            lastError = cause;
+
+            boolean failed = cause != null ? shouldRetryFailure.test(cause) : shouldRetry.test(result);
+            if (!failed || attempts >= policy.maxAttempts() || cancellation.shouldStop()) {
+                if (failed) {
+                    LOG.warn("Giving up on " + operation + " after " + attempts + " attempts" +
+                            (cause != null ? ": " + cause.getMessage() : ""));
+                }
+                complete();
+                return;
+            }
+
+            long delayMillis = policy.backoffMillis(attempts);
+            LOG.warn(operation + " attempt " + attempts + " of " + policy.maxAttempts() + " failed" +
+                    (cause != null ? " (" + cause.getMessage() + ")" : "") + ", retrying in " + delayMillis + "ms");
+            stageMetrics.retry(operation, tool);
+            schedule(delayMillis);
+        }
+
+        /**
+         * Parks the retry on the timer until it is due or its request is cancelled, whichever comes first.
+         */
+        private void schedule(long delayMillis) {
+            waiting.set(true);
+            pending.add(this);
+            registration = cancellation.onCancel(this::abandon);
+            try {
+                timer.schedule(this::due, delayMillis, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                LOG.debug("Not scheduling " + operation + " retry, the scheduler is shutting down");
+                abandon();
+            }
+        }
+
+        /**
+         * Hands the next attempt to its executor once the backoff has passed.
+         */
+        private void due() {
+            if (!waiting.compareAndSet(true, false)) {
+                return;
+            }
+            release();
+            try {
+                executor.execute(context.wrap(() -> CurrentTool.runAs(tool, this::attempt)));
+            } catch (RejectedExecutionException e) {
+                LOG.warn("Could not run " + operation + " retry: " + e.getMessage());
+                complete();
+            }
+        }
+
+        /**
+         * Gives up on a pending retry, completing it with the outcome of the last attempt.
+         */
+        private void abandon() {
+            if (!waiting.compareAndSet(true, false)) {
+                return;
+            }
+            release();
+            complete();
+        }
+
+        private void release() {
+            pending.remove(this);
+            CancellationToken.Registration current = registration;
+            if (current != null) {
+                current.close();
+            }
+        }
+
+        private void complete() {
+            if (lastError != null) {
+                future.completeExceptionally(lastError);
+            } else {
+                future.complete(lastResult);
+            }
+        }
+    }
+}
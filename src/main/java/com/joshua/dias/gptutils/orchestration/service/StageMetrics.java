@@ -0,0 +1,261 @@
+package com.joshua.dias.gptutils.orchestration.service;
+
+import com.joshua.dias.gptutils.orchestration.model.StageLedger;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.context.Scope;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.jboss.logging.Logger;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records the latency of every stage of a tool execution, and the retries and rejections along the way.
+ * <p>
+ * Stage latencies go to the {@code gptutils.stage} timer, published as a histogram so that percentiles can be
+ * aggregated across instances, tagged with the stage, the tool and the outcome. The tool defaults to
+ * {@link CurrentTool}; the instance tag is added to every meter by the {@code MetricsConfiguration}.
+ * <p>
+ * A stage is either {@link #start(String) started} as a {@link Stage}, which also traces it as a span that is
+ * current until the stage is closed, so the outbound calls made during the stage become its children; or it is
+ * measured by the caller, which takes {@link System#nanoTime()} before the stage and {@link #record records} it
+ * with whether the stage succeeded.
+ * <p>
+ * Every stage is also added to the {@link StageLedger} of the request, when one is current.
+ */
+@ApplicationScoped
+public class StageMetrics {
+
+    private static final Logger LOG = Logger.getLogger(StageMetrics.class);
+
+    public static final String WEBHOOK = "webhook";
+    public static final String QUEUE_WAIT = "queue-wait";
+    public static final String DOWNLOAD = "download";
+    public static final String COMPRESSION = "compression";
+    public static final String SPLIT = "split";
+    public static final String WHISPER = "whisper";
+    public static final String LLM = "llm";
+    public static final String ZAPI_SEND = "zapi-send";
+    public static final String CSV_PARSE = "csv-parse";
+    public static final String CSV_FILTER = "csv-filter";
+
+    private static final Duration MIN_EXPECTED = Duration.ofMillis(1);
+    private static final Duration MAX_EXPECTED = Duration.ofMinutes(15);
+
+    /**
+     * The span attribute holding the tool of a stage.
+     */
+    public static final String TOOL_ATTRIBUTE = "gptutils.tool";
+
+    private final MeterRegistry registry;
+    private final Tracer tracer;
+
+    /**
+     * Constructor that injects dependencies.
+     */
+    @Inject
+    public StageMetrics(MeterRegistry registry, Tracer tracer) {
+        this.registry = registry;
+        this.tracer = tracer;
+        LOG.info("StageMetrics initialized");
+    }
+
+    /**
+     * Starts a stage of the tool running on the current thread.
+     *
+     * @param stage The stage, one of the constants of this class
+     * @return The stage, to be closed on the same thread once it is over
+     */
+    public Stage start(String stage) {
+        return start(stage, SpanKind.INTERNAL);
+    }
+
+    /**
+     * Starts a stage of the tool running on the current thread.
+     *
+     * @param stage The stage, one of the constants of this class
+     * @param kind The kind of its span: {@link SpanKind#CLIENT} for a call to a service that is not traced itself
+     * @return The stage, to be closed on the same thread once it is over
+     */
+    public Stage start(String stage, SpanKind kind) {
+        String tool = CurrentTool.get();
+        Span span = tracer.spanBuilder(stage)
+                .setSpanKind(kind)
+                .setAttribute(TOOL_ATTRIBUTE, tool)
+                .startSpan();
+        return new Stage(stage, tool, span);
+    }
+
+    /**
+     * Records a stage of a tool.
+     *
+     * @param stage The stage, one of the constants of this class
+     * @param tool The tool name
+     * @param startNanos The {@link System#nanoTime()} at which the stage started
+     * @param success Whether the stage succeeded
+     */
+    public void record(String stage, String tool, long startNanos, boolean success) {
+        long elapsedNanos = System.nanoTime() - startNanos;
+        timer(stage, tool, success).record(elapsedNanos, TimeUnit.NANOSECONDS);
+        StageLedger ledger = StageLedger.current();
+        if (ledger != null) {
+            ledger.record(stage, TimeUnit.NANOSECONDS.toMillis(elapsedNanos));
+        }
+    }
+
+    /**
+     * Counts a retry of the tool running on the current thread.
+     *
+     * @param operation What was retried, e.g. "notification" or "callback"
+     */
+    public void retry(String operation) {
+        retry(operation, CurrentTool.get());
+    }
+
+    /**
+     * Counts a retry.
+     *
+     * @param operation What was retried, e.g. "notification" or "callback"
+     * @param tool The tool name
+     */
+    public void retry(String operation, String tool) {
+        Counter.builder("gptutils.retries")
+                .description("Retried operations")
+                .tag("operation", operation)
+                .tag("tool", tool)
+                .register(registry)
+                .increment();
+    }
+
+    /**
+     * Counts a request or task that was turned away.
+     *
+     * @param reason Why it was rejected, e.g. "admission-shed" or "chat-queue-full"
+     * @param tool The tool name
+     */
+    public void rejection(String reason, String tool) {
+        Counter.builder("gptutils.rejections")
+                .description("Requests and tasks that were turned away")
+                .tag("reason", reason)
+                .tag("tool", tool)
+                .register(registry)
+                .increment();
+    }
+
+    /**
+     * A running stage. Its outcome is a failure unless {@link #succeeded()} is called before it is closed.
+     */
+    public final class Stage implements AutoCloseable {
+
+        private final String name;
+        private final String tool;
+        private final Span span;
+        private final Scope scope;
+        private final long startNanos;
+        private boolean success;
+
+        private Stage(String name, String tool, Span span) {
+            this.name = name;
+            this.tool = tool;
+            this.span = span;
+            this.scope = span.makeCurrent();
+            this.startNanos = System.nanoTime();
+        }
+
+        /**
+         * Adds an attribute to the span of the stage.
+         *
+         * @param key The attribute key
+         * @param value The attribute value
+         * @return This stage
+         */
+        public Stage attribute(String key, String value) {
+            span.setAttribute(key, value);
+            return this;
+        }
+
+        /**
+         * Adds an attribute to the span of the stage.
+         *
+         * @param key The attribute key
+         * @param value The attribute value
+         * @return This stage
+         */
+        public Stage attribute(String key, long value) {
+            span.setAttribute(key, value);
+            return this;
+        }
+
+        /**
+         * Records the number of bytes the stage produced or transferred, on its span and in the ledger.
+         *
+         * @param bytes The number of bytes
+         * @return This stage
+         */
+        public Stage bytes(long bytes) {
+            span.setAttribute("gptutils.bytes", bytes);
+            StageLedger ledger = StageLedger.current();
+            if (ledger != null) {
+                ledger.recordBytes(name, bytes);
+            }
+            return this;
+        }
+
+        /**
+         * Records the output to input size ratio of the stage, on its span and in the ledger.
+         *
+         * @param ratio The ratio
+         * @return This stage
+         */
+        public Stage ratio(double ratio) {
+            span.setAttribute("gptutils.ratio", ratio);
+            StageLedger ledger = StageLedger.current();
+            if (ledger != null) {
+                ledger.recordRatio(name, ratio);
+            }
+            return this;
+        }
+
+        /**
+         * Marks the stage as successful.
+         */
+        public void succeeded() {
+            success = true;
+        }
+
+        /**
+         * Ends the span of the stage and records its latency.
+         */
+        @Override
+        public void close() {
+            scope.close();
+            if (!success) {
+                span.setStatus(StatusCode.ERROR);
+            }
+            span.end();
+            record(name, tool, startNanos, success);
+        }
+    }
+
+    /**
+     * Gets the timer of a stage. The registry returns the existing timer once it has been created.
+     */
+    private Timer timer(String stage, String tool, boolean success) {
+        return Timer.builder("gptutils.stage")
+                .description("Latency of each stage of a tool execution")
+                .tag("stage", stage)
+                .tag("tool", tool)
+                .tag("outcome", success ? "success" : "failure")
+                .publishPercentileHistogram()
+                .minimumExpectedValue(MIN_EXPECTED)
+                .maximumExpectedValue(MAX_EXPECTED)
+                .register(registry);
+    }
+}
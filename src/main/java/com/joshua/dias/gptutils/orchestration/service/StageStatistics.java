@@ -0,0 +1,129 @@
+package com.joshua.dias.gptutils.orchestration.service;
+
+import com.joshua.dias.gptutils.orchestration.model.Job;
+import com.joshua.dias.gptutils.orchestration.model.JobState;
+import com.joshua.dias.gptutils.orchestration.model.StageLatencyStats;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Rolling latency percentiles of every stage of every tool.
+ * <p>
+ * When a job finishes successfully, the time of each stage in its ledger and its total time are added to a window
+ * of the most recent samples of that tool and stage ({@code app.stage-statistics.window-size}). Percentiles are
+ * computed from the window when they are read, so recording a job costs one array write per stage.
+ */
+@ApplicationScoped
+public class StageStatistics {
+
+    private static final Logger LOG = Logger.getLogger(StageStatistics.class);
+    private static final String TOTAL = "total";
+
+    private final int windowSize;
+    private final Map<String, Map<String, Window>> windows = new ConcurrentHashMap<>();
+
+    /**
+     * Constructor that injects dependencies and configuration.
+     */
+    @Inject
+    public StageStatistics(
+            JobStore jobStore,
+            @ConfigProperty(name = "app.stage-statistics.window-size", defaultValue = "1000") int windowSize
+    ) {
+        this.windowSize = Math.max(1, windowSize);
+        jobStore.addFinishListener(this::onJobFinished);
+        LOG.info("StageStatistics initialized with window size: " + this.windowSize);
+    }
+
+    /**
+     * Gets the latency percentiles of the stages of one tool, or of every tool.
+     *
+     * @param tool The tool name, or null for every tool
+     * @return The statistics, ordered by tool and stage
+     */
+    public List<StageLatencyStats> getStats(String tool) {
+        List<StageLatencyStats> stats = new ArrayList<>();
+        windows.forEach((toolName, stages) -> {
+            if (tool == null || tool.equals(toolName)) {
+                stages.forEach((stage, window) -> stats.add(window.snapshot(toolName, stage)));
+            }
+        });
+        stats.sort(Comparator.comparing(StageLatencyStats::getTool).thenComparing(StageLatencyStats::getStage));
+        return stats;
+    }
+
+    /**
+     * Adds the stages of a finished job to the windows of its tool. Failed, cancelled and expired jobs are left out,
+     * as they stopped part way and would pull the percentiles down.
+     */
+    private void onJobFinished(Job job) {
+        if (job.getState() != JobState.DONE || job.getToolName() == null) {
+            return;
+        }
+        Map<String, Window> stages = windows.computeIfAbsent(job.getToolName(), ignored -> new ConcurrentHashMap<>());
+        job.getStages().forEach((stage, timing) -> window(stages, stage).add(timing.getMillis()));
+        window(stages, TOTAL).add(job.getTotalMillis());
+    }
+
+    private Window window(Map<String, Window> stages, String stage) {
+        return stages.computeIfAbsent(stage, ignored -> new Window(windowSize));
+    }
+
+    /**
+     * A ring buffer of the most recent samples of one stage.
+     */
+    private static final class Window {
+
+        private final long[] samples;
+        private int next;
+        private int size;
+
+        Window(int capacity) {
+            this.samples = new long[capacity];
+        }
+
+        synchronized void add(long millis) {
+            samples[next] = millis;
+            next = (next + 1) % samples.length;
+            size = Math.min(size + 1, samples.length);
+        }
+
+        StageLatencyStats snapshot(String tool, String stage) {
+            long[] sorted;
+            synchronized (this) {
+                sorted = Arrays.copyOf(samples, size);
+            }
+            Arrays.sort(sorted);
+
+            StageLatencyStats stats = new StageLatencyStats();
+            stats.setTool(tool);
+            stats.setStage(stage);
+            stats.setSamples(sorted.length);
+            stats.setP50Millis(percentile(sorted, 50));
+            stats.setP90Millis(percentile(sorted, 90));
+            stats.setP99Millis(percentile(sorted, 99));
+            stats.setMaxMillis(sorted.length == 0 ? 0 : sorted[sorted.length - 1]);
+            return stats;
+        }
+
+        /**
+         * Nearest-rank percentile of sorted samples.
+         */
+        private static long percentile(long[] sorted, int percent) {
+            if (sorted.length == 0) {
+                return 0;
+            }
+            int rank = (int) Math.ceil(percent / 100.0 * sorted.length);
+            return sorted[Math.max(0, rank - 1)];
+        }
+    }
+}
@@ -3,6 +3,7 @@ package com.joshua.dias.gptutils.orchestration.service;
 import com.joshua.dias.gptutils.orchestration.model.ToolExecutionRequest;
 import com.joshua.dias.gptutils.orchestration.model.ToolExecutionResponse;
 
+import java.io.IOException;
 import java.util.concurrent.CompletableFuture;
 
 /**
@@ -19,6 +20,19 @@ public interface ToolExecutionService {
      * @return A CompletableFuture that will be completed with the tool execution response
      */
     CompletableFuture<ToolExecutionResponse> executeAsync(ToolExecutionRequest request);
+
+    /**
+     * Executes a tool asynchronously, refusing the request if it cannot be journaled.
+     * Returns once the request has been accepted: by then it is in the journal, when journaling is enabled,
+     * so a request handed over by a durable queue can be dropped from that queue. The only exception is a
+     * request the executors refuse because of load: the returned future is then already completed with a
+     * THROTTLED or OVERLOADED response, and the request must be kept and sent again later.
+     *
+     * @param request The tool execution request
+     * @return A CompletableFuture that will be completed with the tool execution response
+     * @throws IOException If the request could not be journaled; it was not started
+     */
+    CompletableFuture<ToolExecutionResponse> executeDurably(ToolExecutionRequest request) throws IOException;
     
     /**
      * Checks if a tool is supported.
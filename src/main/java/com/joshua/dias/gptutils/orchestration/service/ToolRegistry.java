@@ -7,9 +7,9 @@ import jakarta.inject.Inject;
 import org.jboss.logging.Logger;
 
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Registry for managing available tools.
@@ -20,7 +20,8 @@ public class ToolRegistry {
     
     private static final Logger LOG = Logger.getLogger(ToolRegistry.class);
     
-    private final Map<String, Tool> tools = new HashMap<>();
+    // Pipelines are registered after discovery, so lookups may race with registration
+    private final Map<String, Tool> tools = new ConcurrentHashMap<>();
     
     @Inject
     private Instance<Tool> toolInstances;
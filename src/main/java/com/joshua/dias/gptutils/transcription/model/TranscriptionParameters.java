@@ -0,0 +1,74 @@
+package com.joshua.dias.gptutils.transcription.model;
+
+import com.joshua.dias.gptutils.orchestration.model.Lane;
+import com.joshua.dias.gptutils.orchestration.model.ToolExecutionRequest;
+import com.joshua.dias.gptutils.orchestration.model.ToolParameters;
+
+/**
+ * The parameters of the transcription tool, bound once from a {@link ToolExecutionRequest}.
+ *
+ * @param requestId The request ID, or null if the request was not accepted through the ToolExecutionService
+ * @param phoneNumber The phone number to send the transcription to
+ * @param audioUrl The URL of the audio to transcribe
+ * @param messageId The ID of the message to reply to
+ * @param contentSize The estimated size of the audio in bytes, or 0 if unknown
+ * @param lane The lane the request was assigned to
+ */
+public record TranscriptionParameters(
+        String requestId,
+        String phoneNumber,
+        String audioUrl,
+        String messageId,
+        long contentSize,
+        Lane lane
+) {
+
+    /**
+     * Binds the parameters of a request.
+     *
+     * @param request The request
+     * @return The parameters; missing text parameters are bound as empty strings
+     */
+    public static TranscriptionParameters bind(ToolExecutionRequest request) {
+        return new TranscriptionParameters(
+                request.get(ToolParameters.REQUEST_ID, null),
+                request.get(ToolParameters.PHONE_NUMBER, ""),
+                request.get(ToolParameters.CONTENT_URL, ""),
+                request.get(ToolParameters.MESSAGE_ID, ""),
+                request.get(ToolParameters.CONTENT_SIZE, 0L),
+                Lane.fromName(request.get(ToolParameters.LANE, null))
+        );
+    }
+
+    /**
+     * Validates the parameters.
+     *
+     * @return An error message if the parameters are invalid, null otherwise
+     */
+    public String validate() {
+        if (phoneNumber.isBlank()) {
+            return "Phone number is required";
+        }
+        if (audioUrl.isBlank()) {
+            return "Audio URL is required";
+        }
+        // Basic URL validation
+        if (!audioUrl.startsWith("http://") && !audioUrl.startsWith("https://")) {
+            return "Audio URL must be a valid HTTP or HTTPS URL";
+        }
+        return null;
+    }
+
+    /**
+     * Creates the TranscriptionRequest for these parameters, without a cancellation token.
+     *
+     * @return The transcription request
+     */
+    public TranscriptionRequest toTranscriptionRequest() {
+        TranscriptionRequest transcriptionRequest = new TranscriptionRequest(phoneNumber, audioUrl, messageId);
+        transcriptionRequest.setContentSize(contentSize);
+        transcriptionRequest.setRequestId(requestId);
+        transcriptionRequest.setLane(lane);
+        return transcriptionRequest;
+    }
+}
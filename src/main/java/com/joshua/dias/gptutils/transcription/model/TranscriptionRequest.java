@@ -1,5 +1,8 @@
 package com.joshua.dias.gptutils.transcription.model;
 
+import com.joshua.dias.gptutils.orchestration.model.CancellationToken;
+import com.joshua.dias.gptutils.orchestration.model.Lane;
+
 /**
  * Represents a request for audio transcription.
  * Contains the user's phone number, the audio URL to be transcribed, and the original message ID for referencing.
@@ -8,6 +11,10 @@ public class TranscriptionRequest {
     private String phoneNumber;
     private String audioUrl;
     private String messageId;
+    private long contentSize;
+    private String requestId;
+    private Lane lane = Lane.HEAVY;
+    private CancellationToken cancellation = CancellationToken.none();
 
     // Default constructor
     public TranscriptionRequest() {
@@ -50,4 +57,36 @@ public class TranscriptionRequest {
     public void setMessageId(String messageId) {
         this.messageId = messageId;
     }
-}
\ No newline at end of file
+
+    public long getContentSize() {
+        return contentSize;
+    }
+
+    public void setContentSize(long contentSize) {
+        this.contentSize = contentSize;
+    }
+
+    public String getRequestId() {
+        return requestId;
+    }
+
+    public void setRequestId(String requestId) {
+        this.requestId = requestId;
+    }
+
+    public Lane getLane() {
+        return lane;
+    }
+
+    public void setLane(Lane lane) {
+        this.lane = lane;
+    }
+
+    public CancellationToken getCancellation() {
+        return cancellation;
+    }
+
+    public void setCancellation(CancellationToken cancellation) {
+        this.cancellation = cancellation;
+    }
+}
@@ -1,8 +1,13 @@
 package com.joshua.dias.gptutils.transcription.model;
 
+import com.joshua.dias.gptutils.orchestration.model.StageTiming;
+
+import java.util.Map;
+
 /**
  * Represents a response from the audio transcription service.
  * Contains the transcribed text, metadata about the transcription, and the original message ID for referencing.
+ * The stages hold the time spent downloading, compressing and transcribing the audio.
  */
 public class TranscriptionResponse {
     private String phoneNumber;
@@ -10,6 +15,7 @@ public class TranscriptionResponse {
     private boolean success;
     private String errorMessage;
     private String messageId;
+    private Map<String, StageTiming> stages;
 
     // Default constructor
     public TranscriptionResponse() {
@@ -89,4 +95,12 @@ public class TranscriptionResponse {
     public void setMessageId(String messageId) {
         this.messageId = messageId;
     }
-}
\ No newline at end of file
+    
+    public Map<String, StageTiming> getStages() {
+        return stages;
+    }
+
+    public void setStages(Map<String, StageTiming> stages) {
+        this.stages = stages;
+    }
+}
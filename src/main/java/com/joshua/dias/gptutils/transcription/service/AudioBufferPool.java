@@ -0,0 +1,68 @@
+package com.joshua.dias.gptutils.transcription.service;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * Pool of the buffers that small audio files are downloaded into.
+ * <p>
+ * Most voice notes are far below Whisper's size limit, so they are read into memory and uploaded from there
+ * instead of going through a temporary file. The buffers are reused, so that path neither touches the disk nor
+ * allocates a new buffer per message. When every pooled buffer is in use a new one is allocated; it is kept on
+ * release only if the pool has room for it.
+ */
+@ApplicationScoped
+public class AudioBufferPool {
+
+    private static final Logger LOG = Logger.getLogger(AudioBufferPool.class);
+
+    private final int bufferSize;
+    private final ArrayBlockingQueue<byte[]> free;
+
+    /**
+     * Constructor that injects configuration.
+     */
+    @Inject
+    public AudioBufferPool(
+            @ConfigProperty(name = "app.transcription.in-memory.max-bytes", defaultValue = "1048576") int bufferSize,
+            @ConfigProperty(name = "app.transcription.in-memory.pool-size", defaultValue = "16") int poolSize
+    ) {
+        this.bufferSize = Math.max(0, bufferSize);
+        this.free = new ArrayBlockingQueue<>(Math.max(1, poolSize));
+        LOG.info("AudioBufferPool initialized with buffer size: " + this.bufferSize + " bytes, pool size: " + poolSize);
+    }
+
+    /**
+     * Gets the size of the buffers, which is the largest audio that is downloaded into memory.
+     *
+     * @return The buffer size in bytes, 0 if the in-memory path is disabled
+     */
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    /**
+     * Takes a buffer from the pool, allocating one if none is free.
+     *
+     * @return A buffer of {@link #getBufferSize()} bytes
+     */
+    public byte[] acquire() {
+        byte[] buffer = free.poll();
+        return buffer != null ? buffer : new byte[bufferSize];
+    }
+
+    /**
+     * Gives a buffer back to the pool once nothing reads it anymore.
+     *
+     * @param buffer The buffer, or null
+     */
+    public void release(byte[] buffer) {
+        if (buffer != null && buffer.length == bufferSize) {
+            free.offer(buffer);
+        }
+    }
+}
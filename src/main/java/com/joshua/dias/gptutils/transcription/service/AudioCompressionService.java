@@ -1,7 +1,12 @@
 package com.joshua.dias.gptutils.transcription.service;
 
+import com.joshua.dias.gptutils.orchestration.model.CancellationToken;
+import com.joshua.dias.gptutils.orchestration.model.JobCancelledException;
+
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
 
 /**
  * Service interface for audio compression.
@@ -21,7 +26,58 @@ public interface AudioCompressionService {
      * @return The compressed audio file, or the original file if compression was not needed
      * @throws IOException If an error occurs during compression
      */
-    File compressIfNeeded(File inputFile) throws IOException;
+    default File compressIfNeeded(File inputFile) throws IOException {
+        return compressIfNeeded(inputFile, CancellationToken.none());
+    }
+
+    /**
+     * Compresses an audio file if it exceeds the maximum allowed size, aborting the encoder when the request is
+     * cancelled or its deadline passes.
+     *
+     * @param inputFile The audio file to compress
+     * @param cancellation The cancellation token of the request
+     * @return The compressed audio file, or the original file if compression was not needed
+     * @throws IOException If an error occurs during compression
+     * @throws JobCancelledException If the request is cancelled or expires
+     */
+    File compressIfNeeded(File inputFile, CancellationToken cancellation) throws IOException;
+
+    /**
+     * Compresses audio as it is read from a stream, without writing it to disk. The stream is consumed while the
+     * encoder runs, so the compression overlaps with the download feeding it.
+     *
+     * @param source The audio to compress, e.g. the body of its download
+     * @param cancellation The cancellation token of the request
+     * @return The compressed audio, in MP3 format
+     * @throws IOException If the source cannot be read, the encode fails or its output exceeds {@link #MAX_CONTENT_SIZE}
+     * @throws JobCancelledException If the request is cancelled or expires
+     */
+    byte[] compressStream(InputStream source, CancellationToken cancellation) throws IOException;
+
+    /**
+     * Gets the duration of an audio file once an encoder slot is free, giving up when the request is cancelled.
+     *
+     * @param inputFile The audio file
+     * @param cancellation The cancellation token of the request
+     * @return The duration in milliseconds, or -1 if it cannot be read
+     * @throws IOException If the wait for an encoder slot is interrupted
+     * @throws JobCancelledException If the request is cancelled or expires
+     */
+    long getDurationMillis(File inputFile, CancellationToken cancellation) throws IOException;
+
+    /**
+     * Compresses an audio file into consecutive chunks of at most {@code chunkMillis} each, cutting at the silence
+     * closest before every boundary so that no word is split across two chunks. Each chunk is small enough to be
+     * transcribed on its own.
+     *
+     * @param inputFile The audio file to split
+     * @param chunkMillis The longest duration of a chunk
+     * @param cancellation The cancellation token of the request
+     * @return The chunks in MP3 format, in playback order; the caller deletes them
+     * @throws IOException If the duration cannot be read or an encode fails
+     * @throws JobCancelledException If the request is cancelled or expires
+     */
+    List<File> compressInChunks(File inputFile, long chunkMillis, CancellationToken cancellation) throws IOException;
     
     /**
      * Checks if the file needs compression based on its size.
@@ -0,0 +1,82 @@
+package com.joshua.dias.gptutils.transcription.service;
+
+import com.joshua.dias.gptutils.orchestration.model.PipelineContext;
+import com.joshua.dias.gptutils.orchestration.model.PipelineStepDefinition;
+import com.joshua.dias.gptutils.orchestration.service.DownstreamGuard;
+import com.joshua.dias.gptutils.orchestration.service.DownstreamRegistry;
+import com.joshua.dias.gptutils.orchestration.service.PipelineAction;
+import com.joshua.dias.gptutils.orchestration.service.StageMetrics;
+import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.openai.OpenAiChatModel;
+import io.opentelemetry.api.trace.SpanKind;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import java.time.Duration;
+
+/**
+ * Pipeline action "llm": sends the step's {@code prompt} option followed by its input to the chat model
+ * and outputs the answer.
+ */
+@ApplicationScoped
+public class ChatModelPipelineAction implements PipelineAction {
+
+    private static final Logger LOG = Logger.getLogger(ChatModelPipelineAction.class);
+    private static final String ACTION_NAME = "llm";
+    private static final String DOWNSTREAM = "openai";
+
+    private final ChatModel model;
+    private final DownstreamGuard openAiGuard;
+    private final StageMetrics stageMetrics;
+
+    /**
+     * Constructor that initializes the chat model.
+     */
+    @Inject
+    public ChatModelPipelineAction(
+            DownstreamRegistry downstreamRegistry,
+            StageMetrics stageMetrics,
+            @ConfigProperty(name = "openai.api-key") String apiKey,
+            @ConfigProperty(name = "openai.chat-model") String chatModel,
+            @ConfigProperty(name = "openai.timeout", defaultValue = "30") Integer timeout
+    ) {
+        this.model = OpenAiChatModel.builder()
+                .apiKey(apiKey)
+                .modelName(chatModel)
+                .timeout(Duration.ofSeconds(timeout))
+                .build();
+        this.openAiGuard = downstreamRegistry.get(DOWNSTREAM);
+        this.stageMetrics = stageMetrics;
+    }
+
+    @Override
+    public String getName() {
+        return ACTION_NAME;
+    }
+
+    @Override
+    public String validate(PipelineStepDefinition step) {
+        String prompt = step.getOption("prompt", null);
+        if (prompt == null || prompt.isBlank()) {
+            return "missing option: prompt";
+        }
+        return null;
+    }
+
+    @Override
+    public String apply(PipelineContext context, PipelineStepDefinition step, String input) throws Exception {
+        if (input == null || input.isBlank()) {
+            throw new IllegalArgumentException("Step '" + step.getId() + "' has no input to process");
+        }
+        LOG.info("Running chat model for pipeline step '" + step.getId() + "', requestId: " + context.getRequestId());
+        return openAiGuard.call(() -> {
+            try (StageMetrics.Stage stage = stageMetrics.start(StageMetrics.LLM, SpanKind.CLIENT)) {
+                String answer = model.chat(step.getOption("prompt", "") + "\n\n" + input);
+                stage.succeeded();
+                return answer;
+            }
+        });
+    }
+}
@@ -1,20 +1,58 @@
 package com.joshua.dias.gptutils.transcription.service;
 
+import com.joshua.dias.gptutils.orchestration.model.CancellationToken;
+import com.joshua.dias.gptutils.orchestration.model.JobCancelledException;
+import com.joshua.dias.gptutils.orchestration.service.CurrentTool;
+import com.joshua.dias.gptutils.orchestration.service.StageMetrics;
+import io.opentelemetry.context.Context;
+import jakarta.annotation.PreDestroy;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.jboss.logging.Logger;
 import ws.schild.jave.Encoder;
 import ws.schild.jave.EncoderException;
 import ws.schild.jave.MultimediaObject;
 import ws.schild.jave.encode.AudioAttributes;
 import ws.schild.jave.encode.EncodingAttributes;
+import ws.schild.jave.process.ffmpeg.DefaultFFMPEGLocator;
 
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 /**
  * Implementation of AudioCompressionService that uses FFmpeg (via Jave2) to compress audio files.
  * This service compresses audio files that exceed the maximum size allowed by OpenAI.
+ * A running encode is aborted when the request is cancelled or its deadline passes, so FFmpeg does not keep a CPU
+ * busy for a request nobody is waiting for.
+ * <p>
+ * Streams are compressed by piping them through the FFmpeg binary bundled with Jave2: a feeder thread writes the
+ * source to its stdin while the MP3 it encodes is read from its stdout, so nothing touches the disk. Only one pass
+ * is possible over a stream, so it is encoded at {@code app.transcription.streaming.bitrate} straight away.
+ * <p>
+ * Long recordings are split instead of squeezed: one FFmpeg pass finds the silences, the cut before every chunk
+ * boundary is moved to the middle of the closest silence within {@code app.transcription.long-audio.silence-search-seconds},
+ * and the chunks are encoded in parallel at {@code app.transcription.long-audio.bitrate}.
  */
 @ApplicationScoped
 public class FFmpegAudioCompressionService implements AudioCompressionService {
@@ -26,9 +64,61 @@ public class FFmpegAudioCompressionService implements AudioCompressionService {
     private static final int MEDIUM_QUALITY_BITRATE = 96000; // 96kbps
     private static final int LOW_QUALITY_BITRATE = 64000; // 64kbps
     private static final int VERY_LOW_QUALITY_BITRATE = 32000; // 32kbps
+
+    // How often a request waiting for an encoder slot checks whether it was cancelled
+    private static final long PERMIT_POLL_MILLIS = 500;
+    private static final int BUFFER_SIZE = 65536;
+    // Lines such as "[silencedetect @ 0x...] silence_end: 15.678 | silence_duration: 3.333"
+    private static final Pattern SILENCE_PATTERN = Pattern.compile("silence_(start|end): (-?[0-9.]+)");
+
+    // FFmpeg is CPU bound, so only a limited number of encodes may run at once
+    private final Semaphore encoderPermits;
+    private final StageMetrics stageMetrics;
+    private final int streamingBitrate;
+    private final int chunkBitrate;
+    private final String silenceThresholdDb;
+    private final String silenceMinSeconds;
+    private final long silenceSearchMillis;
+    // Feeds the sources of streamed encodes to FFmpeg and runs the encodes of chunks; bounded by the encoder permits
+    private final ExecutorService workers = Executors.newCachedThreadPool(
+            Thread.ofPlatform().name("ffmpeg-worker-", 0).daemon().factory());
+    private volatile String ffmpegExecutable;
+
+    /**
+     * Constructor that injects dependencies and configuration.
+     */
+    @Inject
+    public FFmpegAudioCompressionService(
+            StageMetrics stageMetrics,
+            @ConfigProperty(name = "app.limits.ffmpeg-concurrency", defaultValue = "0") int ffmpegConcurrency,
+            @ConfigProperty(name = "app.transcription.streaming.bitrate", defaultValue = "32000") int streamingBitrate,
+            @ConfigProperty(name = "app.transcription.long-audio.bitrate", defaultValue = "64000") int chunkBitrate,
+            @ConfigProperty(name = "app.transcription.long-audio.silence-threshold-db", defaultValue = "-35") int silenceThresholdDb,
+            @ConfigProperty(name = "app.transcription.long-audio.silence-min-seconds", defaultValue = "0.5") double silenceMinSeconds,
+            @ConfigProperty(name = "app.transcription.long-audio.silence-search-seconds", defaultValue = "30") long silenceSearchSeconds
+    ) {
+        int permits = ffmpegConcurrency > 0 ? ffmpegConcurrency : Runtime.getRuntime().availableProcessors();
+        this.encoderPermits = new Semaphore(permits, true);
+        this.stageMetrics = stageMetrics;
+        this.streamingBitrate = streamingBitrate;
+        this.chunkBitrate = chunkBitrate;
+        this.silenceThresholdDb = silenceThresholdDb + "dB";
+        this.silenceMinSeconds = String.format(Locale.ROOT, "%.3f", silenceMinSeconds);
+        this.silenceSearchMillis = TimeUnit.SECONDS.toMillis(silenceSearchSeconds);
+        LOG.info("FFmpegAudioCompressionService initialized with " + permits + " concurrent encodes, streaming bitrate: " +
+                streamingBitrate);
+    }
+
+    /**
+     * Stops the feeder threads of the streamed encodes and the chunk encodes that are still running.
+     */
+    @PreDestroy
+    void shutdown() {
+        workers.shutdownNow();
+    }
     
     @Override
-    public File compressIfNeeded(File inputFile) throws IOException {
+    public File compressIfNeeded(File inputFile, CancellationToken cancellation) throws IOException {
         if (!needsCompression(inputFile)) {
             LOG.info("File size is within limits, no compression needed: " + inputFile.length() + " bytes");
             return inputFile;
@@ -37,36 +127,42 @@ public class FFmpegAudioCompressionService implements AudioCompressionService {
         LOG.info("File exceeds size limit (" + inputFile.length() + " bytes), compressing...");
         
         // Try compression with different quality levels until file size is acceptable
-        File compressedFile = tryCompression(inputFile, HIGH_QUALITY_BITRATE);
+        File compressedFile = tryCompression(inputFile, HIGH_QUALITY_BITRATE, cancellation);
         
-        if (needsCompression(compressedFile)) {
-            LOG.info("High quality compression not sufficient, trying medium quality...");
-            File mediumQualityFile = tryCompression(inputFile, MEDIUM_QUALITY_BITRATE);
-            // Delete the previous compressed file
-            if (compressedFile != inputFile && compressedFile.exists()) {
-                compressedFile.delete();
+        try {
+            if (needsCompression(compressedFile)) {
+                LOG.info("High quality compression not sufficient, trying medium quality...");
+                File mediumQualityFile = tryCompression(inputFile, MEDIUM_QUALITY_BITRATE, cancellation);
+                // Delete the previous compressed file
+                if (compressedFile != inputFile && compressedFile.exists()) {
+                    compressedFile.delete();
+                }
+                compressedFile = mediumQualityFile;
             }
-            compressedFile = mediumQualityFile;
-        }
         
-        if (needsCompression(compressedFile)) {
-            LOG.info("Medium quality compression not sufficient, trying low quality...");
-            File lowQualityFile = tryCompression(inputFile, LOW_QUALITY_BITRATE);
-            // Delete the previous compressed file
-            if (compressedFile != inputFile && compressedFile.exists()) {
-                compressedFile.delete();
+            if (needsCompression(compressedFile)) {
+                LOG.info("Medium quality compression not sufficient, trying low quality...");
+                File lowQualityFile = tryCompression(inputFile, LOW_QUALITY_BITRATE, cancellation);
+                // Delete the previous compressed file
+                if (compressedFile != inputFile && compressedFile.exists()) {
+                    compressedFile.delete();
+                }
+                compressedFile = lowQualityFile;
             }
-            compressedFile = lowQualityFile;
-        }
         
-        if (needsCompression(compressedFile)) {
-            LOG.info("Low quality compression not sufficient, trying very low quality...");
-            File veryLowQualityFile = tryCompression(inputFile, VERY_LOW_QUALITY_BITRATE);
-            // Delete the previous compressed file
-            if (compressedFile != inputFile && compressedFile.exists()) {
-                compressedFile.delete();
+            if (needsCompression(compressedFile)) {
+                LOG.info("Low quality compression not sufficient, trying very low quality...");
+                File veryLowQualityFile = tryCompression(inputFile, VERY_LOW_QUALITY_BITRATE, cancellation);
+                // Delete the previous compressed file
+                if (compressedFile != inputFile && compressedFile.exists()) {
+                    compressedFile.delete();
+                }
+                compressedFile = veryLowQualityFile;
             }
-            compressedFile = veryLowQualityFile;
+        } catch (JobCancelledException e) {
+            // The result of the previous level will not be used
+            compressedFile.delete();
+            throw e;
         }
         
         if (needsCompression(compressedFile)) {
@@ -82,14 +178,18 @@ public class FFmpegAudioCompressionService implements AudioCompressionService {
      *
      * @param inputFile The audio file to compress
      * @param bitrate The target bitrate for compression
+     * @param cancellation The cancellation token of the request
      * @return The compressed file, or the original file if compression failed
+     * @throws JobCancelledException If the request is cancelled or expires before or during the encode
      */
-    private File tryCompression(File inputFile, int bitrate) throws IOException {
+    private File tryCompression(File inputFile, int bitrate, CancellationToken cancellation) throws IOException {
+        cancellation.check("compression");
+        File outputFile = null;
         try {
             // Create a temporary file for the compressed output
             String extension = getFileExtension(inputFile.getName());
             String outputFileName = "compressed-" + UUID.randomUUID() + "." + extension;
-            File outputFile = new File(System.getProperty("java.io.tmpdir"), outputFileName);
+            outputFile = new File(System.getProperty("java.io.tmpdir"), outputFileName);
             
             // Set up the audio attributes for compression
             AudioAttributes audioAttributes = new AudioAttributes();
@@ -102,17 +202,375 @@ public class FFmpegAudioCompressionService implements AudioCompressionService {
             encodingAttributes.setAudioAttributes(audioAttributes);
             encodingAttributes.setOutputFormat(extension);
             
-            // Perform the compression
-            Encoder encoder = new Encoder();
-            encoder.encode(new MultimediaObject(inputFile), outputFile, encodingAttributes);
-            
+            // Perform the compression once an encoder slot is free, giving up when the request is cancelled
+            while (!encoderPermits.tryAcquire(PERMIT_POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                cancellation.check("compression");
+            }
+            // Every encode is a stage of its own, without the wait for the slot
+            try (StageMetrics.Stage stage = stageMetrics.start(StageMetrics.COMPRESSION)) {
+                stage.attribute("gptutils.compression.bitrate", bitrate);
+                Encoder encoder = new Encoder();
+                // A cancellation, including the deadline passing, kills the FFmpeg process
+                try (CancellationToken.Registration ignored = cancellation.onCancel(encoder::abortEncoding)) {
+                    encoder.encode(new MultimediaObject(inputFile), outputFile, encodingAttributes);
+                }
+                if (!cancellation.isCancelled()) {
+                    stage.bytes(outputFile.length())
+                            .ratio((double) outputFile.length() / Math.max(1, inputFile.length()))
+                            .succeeded();
+                }
+            } finally {
+                encoderPermits.release();
+            }
+
+            // An aborted encode may return normally with a truncated file
+            if (cancellation.isCancelled()) {
+                outputFile.delete();
+                cancellation.check("compression");
+            }
             return outputFile;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for an FFmpeg slot", e);
         } catch (EncoderException e) {
+            if (cancellation.isCancelled()) {
+                outputFile.delete();
+                cancellation.check("compression");
+            }
             LOG.error("Error compressing audio file: " + e.getMessage(), e);
             throw new IOException("Failed to compress audio file: " + e.getMessage(), e);
         }
     }
     
+    @Override
+    public byte[] compressStream(InputStream source, CancellationToken cancellation) throws IOException {
+        acquireEncoder(cancellation);
+        Process ffmpeg = null;
+        try (StageMetrics.Stage stage = stageMetrics.start(StageMetrics.COMPRESSION)) {
+            stage.attribute("gptutils.compression.bitrate", streamingBitrate)
+                    .attribute("gptutils.compression.mode", "stream");
+            ffmpeg = new ProcessBuilder(ffmpegExecutable(), "-hide_banner", "-loglevel", "error",
+                    "-i", "pipe:0",
+                    "-vn", "-ac", "1", "-ar", "22050", "-b:a", String.valueOf(streamingBitrate),
+                    "-f", "mp3", "pipe:1")
+                    .redirectError(ProcessBuilder.Redirect.DISCARD)
+                    .start();
+
+            Process process = ffmpeg;
+            AtomicLong sourceBytes = new AtomicLong();
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            // A cancellation, including the deadline passing, kills the FFmpeg process, which ends both pipes
+            try (CancellationToken.Registration ignored = cancellation.onCancel(process::destroyForcibly)) {
+                CompletableFuture<Void> feeding = CompletableFuture.runAsync(
+                        Context.current().wrap((Runnable) () -> feed(source, process, sourceBytes)), workers);
+
+                try (InputStream stdout = process.getInputStream()) {
+                    byte[] buffer = new byte[BUFFER_SIZE];
+                    int read;
+                    while ((read = stdout.read(buffer)) != -1) {
+                        output.write(buffer, 0, read);
+                        if (output.size() > MAX_CONTENT_SIZE) {
+                            process.destroyForcibly();
+                            throw new IOException("Compressed audio exceeds " + MAX_CONTENT_SIZE + " bytes");
+                        }
+                    }
+                }
+                int exitCode = process.waitFor();
+                cancellation.check("compression");
+
+                // A source cut short still ends in a clean encode of what arrived, so the feeder is checked first
+                try {
+                    feeding.join();
+                } catch (CompletionException e) {
+                    Throwable cause = e.getCause() instanceof UncheckedIOException unchecked ? unchecked.getCause() : e.getCause();
+                    throw new IOException("Failed to read audio: " + cause.getMessage(), cause);
+                }
+                if (exitCode != 0) {
+                    throw new IOException("FFmpeg exited with code " + exitCode);
+                }
+            }
+
+            stage.bytes(output.size())
+                    .ratio((double) output.size() / Math.max(1, sourceBytes.get()))
+                    .succeeded();
+            LOG.info("Streamed compression complete. Original size: " + sourceBytes.get() + " bytes, Compressed size: " +
+                    output.size() + " bytes");
+            return output.toByteArray();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for FFmpeg", e);
+        } catch (IOException e) {
+            cancellation.check("compression");
+            throw e;
+        } finally {
+            if (ffmpeg != null && ffmpeg.isAlive()) {
+                ffmpeg.destroyForcibly();
+            }
+            encoderPermits.release();
+        }
+    }
+
+    @Override
+    public long getDurationMillis(File inputFile, CancellationToken cancellation) throws IOException {
+        // The probe runs FFmpeg too, so it takes an encoder slot like the encodes
+        acquireEncoder(cancellation);
+        try {
+            return new MultimediaObject(inputFile).getInfo().getDuration();
+        } catch (EncoderException e) {
+            LOG.warn("Could not read the duration of " + inputFile.getName() + ": " + e.getMessage());
+            return -1;
+        } finally {
+            encoderPermits.release();
+        }
+    }
+
+    @Override
+    public List<File> compressInChunks(File inputFile, long chunkMillis, CancellationToken cancellation) throws IOException {
+        long durationMillis = getDurationMillis(inputFile, cancellation);
+        if (durationMillis <= 0) {
+            throw new IOException("Could not read the duration of " + inputFile.getName());
+        }
+        List<Long> cuts = chooseCuts(detectSilences(inputFile, cancellation), durationMillis, chunkMillis);
+        LOG.info("Splitting " + durationMillis + "ms of audio into " + (cuts.size() - 1) + " chunks at " + cuts + "ms");
+
+        // Every chunk waits for an encoder slot of its own, so a long recording uses the free cores
+        String tool = CurrentTool.get();
+        List<CompletableFuture<File>> encodes = new ArrayList<>();
+        for (int i = 0; i + 1 < cuts.size(); i++) {
+            int index = i;
+            long startMillis = cuts.get(i);
+            long endMillis = cuts.get(i + 1);
+            encodes.add(CompletableFuture.supplyAsync(Context.current().wrapSupplier(() -> CurrentTool.callAs(tool, () -> {
+                try {
+                    return encodeChunk(inputFile, index, startMillis, endMillis, cancellation);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            })), workers));
+        }
+
+        // Every encode is waited for, so that no chunk outlives a failed split
+        List<File> chunks = new ArrayList<>();
+        Throwable failure = null;
+        for (CompletableFuture<File> encode : encodes) {
+            try {
+                chunks.add(encode.join());
+            } catch (CompletionException e) {
+                if (failure == null) {
+                    failure = e.getCause();
+                }
+            }
+        }
+        if (failure != null) {
+            chunks.forEach(File::delete);
+            cancellation.check("compression");
+            if (failure instanceof UncheckedIOException unchecked) {
+                throw unchecked.getCause();
+            }
+            if (failure instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IOException("Failed to split audio: " + failure.getMessage(), failure);
+        }
+        return chunks;
+    }
+
+    /**
+     * Finds the silences of an audio file with FFmpeg's silencedetect filter, in playback order.
+     */
+    private List<Silence> detectSilences(File inputFile, CancellationToken cancellation) throws IOException {
+        acquireEncoder(cancellation);
+        Process ffmpeg = null;
+        try (StageMetrics.Stage stage = stageMetrics.start(StageMetrics.SPLIT)) {
+            ffmpeg = new ProcessBuilder(ffmpegExecutable(), "-hide_banner", "-nostats", "-nostdin",
+                    "-i", inputFile.getAbsolutePath(),
+                    "-vn", "-af", "silencedetect=noise=" + silenceThresholdDb + ":d=" + silenceMinSeconds,
+                    "-f", "null", "-")
+                    .redirectErrorStream(true)
+                    .start();
+
+            Process process = ffmpeg;
+            List<Silence> silences = new ArrayList<>();
+            // A cancellation, including the deadline passing, kills the FFmpeg process, which ends its output
+            try (CancellationToken.Registration ignored = cancellation.onCancel(process::destroyForcibly);
+                 BufferedReader output = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+                long silenceStart = -1;
+                String line;
+                while ((line = output.readLine()) != null) {
+                    Matcher matcher = SILENCE_PATTERN.matcher(line);
+                    if (!matcher.find()) {
+                        continue;
+                    }
+                    long millis = Math.max(0, Math.round(Double.parseDouble(matcher.group(2)) * 1000));
+                    if ("start".equals(matcher.group(1))) {
+                        silenceStart = millis;
+                    } else if (silenceStart >= 0) {
+                        silences.add(new Silence(silenceStart, millis));
+                        silenceStart = -1;
+                    }
+                }
+                int exitCode = process.waitFor();
+                cancellation.check("compression");
+                if (exitCode != 0) {
+                    throw new IOException("FFmpeg exited with code " + exitCode + " while looking for silences");
+                }
+            }
+
+            stage.attribute("gptutils.split.silences", silences.size()).succeeded();
+            return silences;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for FFmpeg", e);
+        } catch (IOException e) {
+            cancellation.check("compression");
+            throw e;
+        } finally {
+            if (ffmpeg != null && ffmpeg.isAlive()) {
+                ffmpeg.destroyForcibly();
+            }
+            encoderPermits.release();
+        }
+    }
+
+    /**
+     * Chooses where the chunks start and end. Each boundary is moved back to the middle of the last silence
+     * within the search window before it, and stays where it is when there is none.
+     *
+     * @return The cuts in milliseconds, starting at 0 and ending at the duration
+     */
+    private List<Long> chooseCuts(List<Silence> silences, long durationMillis, long chunkMillis) {
+        // A window of at most half a chunk guarantees every chunk but the last is at least half a chunk long
+        long searchMillis = Math.min(silenceSearchMillis, chunkMillis / 2);
+        List<Long> cuts = new ArrayList<>();
+        cuts.add(0L);
+        long previous = 0;
+        while (durationMillis - previous > chunkMillis) {
+            long boundary = previous + chunkMillis;
+            long cut = boundary;
+            for (Silence silence : silences) {
+                long middle = (silence.startMillis() + silence.endMillis()) / 2;
+                if (middle > boundary) {
+                    break;
+                }
+                if (middle >= boundary - searchMillis) {
+                    cut = middle;
+                }
+            }
+            cuts.add(cut);
+            previous = cut;
+        }
+        cuts.add(durationMillis);
+        return cuts;
+    }
+
+    /**
+     * Encodes one chunk of an audio file to a temporary MP3 file.
+     */
+    private File encodeChunk(File inputFile, int index, long startMillis, long endMillis,
+                             CancellationToken cancellation) throws IOException {
+        acquireEncoder(cancellation);
+        File outputFile = new File(System.getProperty("java.io.tmpdir"), "chunk-" + UUID.randomUUID() + ".mp3");
+        Process ffmpeg = null;
+        boolean complete = false;
+        try (StageMetrics.Stage stage = stageMetrics.start(StageMetrics.COMPRESSION)) {
+            stage.attribute("gptutils.compression.bitrate", chunkBitrate)
+                    .attribute("gptutils.compression.mode", "chunk")
+                    .attribute("gptutils.audio.chunk", index);
+            ffmpeg = new ProcessBuilder(ffmpegExecutable(), "-hide_banner", "-loglevel", "error", "-nostdin",
+                    "-ss", seconds(startMillis), "-t", seconds(endMillis - startMillis),
+                    "-i", inputFile.getAbsolutePath(),
+                    "-vn", "-ac", "1", "-ar", "22050", "-b:a", String.valueOf(chunkBitrate),
+                    "-f", "mp3", "-y", outputFile.getAbsolutePath())
+                    .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                    .redirectError(ProcessBuilder.Redirect.DISCARD)
+                    .start();
+
+            Process process = ffmpeg;
+            int exitCode;
+            // A cancellation, including the deadline passing, kills the FFmpeg process
+            try (CancellationToken.Registration ignored = cancellation.onCancel(process::destroyForcibly)) {
+                exitCode = process.waitFor();
+            }
+            cancellation.check("compression");
+            if (exitCode != 0) {
+                throw new IOException("FFmpeg exited with code " + exitCode + " while encoding chunk " + index);
+            }
+
+            stage.bytes(outputFile.length()).succeeded();
+            complete = true;
+            return outputFile;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for FFmpeg", e);
+        } finally {
+            if (ffmpeg != null && ffmpeg.isAlive()) {
+                ffmpeg.destroyForcibly();
+            }
+            encoderPermits.release();
+            if (!complete) {
+                outputFile.delete();
+            }
+        }
+    }
+
+    /**
+     * Formats a time for FFmpeg's -ss and -t options.
+     */
+    private static String seconds(long millis) {
+        return String.format(Locale.ROOT, "%.3f", millis / 1000.0);
+    }
+
+    /**
+     * Copies a source to the stdin of FFmpeg, closing it at the end so that FFmpeg finishes the encode.
+     */
+    private void feed(InputStream source, Process ffmpeg, AtomicLong count) {
+        try (OutputStream stdin = ffmpeg.getOutputStream()) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int read;
+            while ((read = source.read(buffer)) != -1) {
+                stdin.write(buffer, 0, read);
+                count.addAndGet(read);
+            }
+        } catch (IOException e) {
+            // FFmpeg must not wait for the rest of a source that will never come
+            ffmpeg.destroyForcibly();
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Waits for an encoder slot, giving up when the request is cancelled.
+     */
+    private void acquireEncoder(CancellationToken cancellation) throws IOException {
+        cancellation.check("compression");
+        try {
+            while (!encoderPermits.tryAcquire(PERMIT_POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                cancellation.check("compression");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for an FFmpeg slot", e);
+        }
+    }
+
+    /**
+     * Locates the FFmpeg binary bundled with Jave2, extracting it on first use.
+     */
+    private String ffmpegExecutable() {
+        String executable = ffmpegExecutable;
+        if (executable == null) {
+            executable = new DefaultFFMPEGLocator().getExecutablePath();
+            ffmpegExecutable = executable;
+        }
+        return executable;
+    }
+
+    /**
+     * A stretch of silence found by silencedetect.
+     */
+    private record Silence(long startMillis, long endMillis) {
+    }
+
     /**
      * Extracts the file extension from a filename.
      *
@@ -1,5 +1,7 @@
 package com.joshua.dias.gptutils.transcription.service;
 
+import com.joshua.dias.gptutils.orchestration.model.JobCancelledException;
+import com.joshua.dias.gptutils.orchestration.service.StageMetrics;
 import com.joshua.dias.gptutils.transcription.model.TranscriptionRequest;
 import com.joshua.dias.gptutils.transcription.model.TranscriptionResponse;
 import dev.langchain4j.memory.chat.MessageWindowChatMemory;
@@ -8,6 +10,7 @@ import dev.langchain4j.service.AiServices;
 import dev.langchain4j.service.SystemMessage;
 import dev.langchain4j.service.UserMessage;
 import dev.langchain4j.service.V;
+import io.opentelemetry.api.trace.SpanKind;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import org.eclipse.microprofile.config.inject.ConfigProperty;
@@ -27,6 +30,7 @@ public class LangChainTranscriptionWorkflowService implements TranscriptionWorkf
     private final TranscriptionService transcriptionService;
     private final TranscriptionValidator validator;
     private final TranscriptionWorkflow workflow;
+    private final StageMetrics stageMetrics;
 
     /**
      * Constructor that initializes the workflow with dependencies.
@@ -34,12 +38,14 @@ public class LangChainTranscriptionWorkflowService implements TranscriptionWorkf
     @Inject
     public LangChainTranscriptionWorkflowService(
             TranscriptionService transcriptionService,
+            StageMetrics stageMetrics,
             @ConfigProperty(name = "openai.api-key") String apiKey,
             @ConfigProperty(name = "openai.chat-model") String chatModel,
             @ConfigProperty(name = "openai.timeout", defaultValue = "30") Integer timeout
     ) {
         this.transcriptionService = transcriptionService;
         this.validator = new TranscriptionValidator();
+        this.stageMetrics = stageMetrics;
 
         // Initialize the LangChain workflow
         OpenAiChatModel model = OpenAiChatModel.builder()
@@ -84,7 +90,10 @@ public class LangChainTranscriptionWorkflowService implements TranscriptionWorkf
             if (isProcessingEnabled) {
                 LOG.info("Processing transcription with LangChain workflow");
                 LOG.debug("Transcribed text to be processed: " + (transcribedText != null ? transcribedText.substring(0, Math.min(100, transcribedText.length())) + "..." : "null"));
-                processedText = workflow.processTranscription(transcribedText);
+                try (StageMetrics.Stage stage = stageMetrics.start(StageMetrics.LLM, SpanKind.CLIENT)) {
+                    processedText = workflow.processTranscription(transcribedText);
+                    stage.succeeded();
+                }
                 LOG.debug("Processed text result: " + (processedText != null ? processedText.substring(0, Math.min(100, processedText.length())) + "..." : "null"));
             }
             var textResponse = processedText != null ? processedText : transcribedText;
@@ -92,6 +101,9 @@ public class LangChainTranscriptionWorkflowService implements TranscriptionWorkf
             // Return the processed response
             return new TranscriptionResponse(request.getPhoneNumber(), textResponse, request.getMessageId());
 
+        } catch (JobCancelledException e) {
+            // Cancelled or expired work is dropped by the caller rather than reported to the user as an error
+            throw e;
         } catch (Exception e) {
             LOG.error("Error in transcription workflow: " + e.getMessage(), e);
             return new TranscriptionResponse(request.getPhoneNumber(),
@@ -1,11 +1,27 @@
 package com.joshua.dias.gptutils.transcription.service;
 
+import com.joshua.dias.gptutils.orchestration.model.CancellationToken;
+import com.joshua.dias.gptutils.orchestration.model.Deadline;
+import com.joshua.dias.gptutils.orchestration.model.JobCancelledException;
+import com.joshua.dias.gptutils.orchestration.model.JobState;
+import com.joshua.dias.gptutils.orchestration.service.CurrentTool;
+import com.joshua.dias.gptutils.orchestration.service.DownstreamGuard;
+import com.joshua.dias.gptutils.orchestration.service.DownstreamRegistry;
+import com.joshua.dias.gptutils.orchestration.service.DownstreamUnavailableException;
+import com.joshua.dias.gptutils.orchestration.service.JobStore;
+import com.joshua.dias.gptutils.orchestration.service.StageMetrics;
 import com.joshua.dias.gptutils.transcription.model.TranscriptionRequest;
 import com.joshua.dias.gptutils.transcription.model.TranscriptionResponse;
 import com.openai.client.OpenAIClient;
 import com.openai.client.okhttp.OpenAIOkHttpClient;
+import com.openai.core.MultipartField;
+import com.openai.core.RequestOptions;
 import com.openai.models.audio.transcriptions.Transcription;
 import com.openai.models.audio.transcriptions.TranscriptionCreateParams;
+import com.openai.models.audio.transcriptions.TranscriptionCreateResponse;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.context.Context;
+import jakarta.annotation.PreDestroy;
 import jakarta.annotation.Priority;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.enterprise.inject.Alternative;
@@ -13,6 +29,7 @@ import jakarta.inject.Inject;
 import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.jboss.logging.Logger;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
@@ -21,12 +38,51 @@ import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
 import java.net.URI;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Implementation of TranscriptionService that uses the official OpenAI Java library.
  * This implementation follows the example from:
  * https://github.com/openai/openai-java/blob/main/openai-java-example/src/main/java/com/openai/example/AudioTranscriptionsExample.java
+ * <p>
+ * Every stage checks the request's cancellation token before it starts, and the remaining time until the deadline
+ * becomes the download's socket timeouts and the OpenAI call timeout, so no stage outlives the request.
+ * A cancellation closes the download connection and stops waiting for OpenAI.
+ * <p>
+ * Audio whose download announces more than {@link AudioCompressionService#MAX_CONTENT_SIZE} bytes is piped from the
+ * connection into the encoder and uploaded from memory, so it is compressed while it downloads and never written
+ * to disk ({@code app.transcription.streaming.enabled}). With the long-audio mode on, only audio too small to last
+ * {@code min-duration-seconds} at {@code app.transcription.long-audio.min-source-bitrate} is streamed; larger audio
+ * may be long and goes to disk so it can be split.
+ * Audio of up to {@code app.transcription.in-memory.max-bytes} is read into a pooled buffer and uploaded from it;
+ * the buffer only goes back to the pool once the upload has finished.
+ * Anything else, including audio of unknown size, is downloaded to a temporary file and compressed from there if
+ * needed.
+ * <p>
+ * A downloaded file large enough to last {@code app.transcription.long-audio.min-duration-seconds} at the minimum
+ * source bitrate has its duration probed. A recording at least that long is split at silences into chunks of up to
+ * {@code chunk-seconds}, which are transcribed concurrently, at most {@code concurrency} at a time, and joined back
+ * in order. Each chunk fits Whisper's limit at a bitrate that keeps speech clear.
+ * <p>
+ * Every path hashes the audio as it downloads, with the model hashed in first, and looks the hash up in the
+ * {@link TranscriptCache} before anything is compressed or sent to OpenAI. A forwarded copy of a voice note that
+ * was already transcribed is answered from the cache.
  */
 @ApplicationScoped
 @Alternative
@@ -34,10 +90,31 @@ import java.util.UUID;
 public class OpenAIJavaTranscriptionService implements TranscriptionService {
 
     private static final Logger LOG = Logger.getLogger(OpenAIJavaTranscriptionService.class);
+    private static final String DOWNSTREAM = "openai";
 
     private final OpenAIClient openAIClient;
     private final String model;
     private final AudioCompressionService audioCompressionService;
+    private final AudioBufferPool audioBufferPool;
+    private final TranscriptCache transcriptCache;
+    private final JobStore jobStore;
+    private final StageMetrics stageMetrics;
+    private final int connectTimeoutMillis;
+    private final int readTimeoutMillis;
+    private final int maxCallMillis;
+    private final boolean streamingEnabled;
+    private final boolean longAudioEnabled;
+    private final long longAudioMinMillis;
+    // Smallest size a recording of longAudioMinMillis can have; anything smaller is never split
+    private final long longAudioMinBytes;
+    private final long chunkMillis;
+    private final int chunkConcurrency;
+    // Chunk calls spend their time waiting for OpenAI, so each gets a virtual thread; the guard bounds the calls
+    private final ExecutorService chunkCalls = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("whisper-chunk-", 0).factory());
+
+    // Caps the number of concurrent Whisper calls and fails fast while OpenAI is failing; downloads are not limited
+    private final DownstreamGuard openAiGuard;
 
     /**
      * Constructor that initializes the OpenAI client with the API key from configuration.
@@ -46,7 +123,21 @@ public class OpenAIJavaTranscriptionService implements TranscriptionService {
     public OpenAIJavaTranscriptionService(
             @ConfigProperty(name = "openai.api-key") String apiKey,
             @ConfigProperty(name = "openai.model") String model,
-            AudioCompressionService audioCompressionService
+            AudioCompressionService audioCompressionService,
+            AudioBufferPool audioBufferPool,
+            TranscriptCache transcriptCache,
+            JobStore jobStore,
+            StageMetrics stageMetrics,
+            DownstreamRegistry downstreamRegistry,
+            @ConfigProperty(name = "app.deadlines.connect-timeout-ms", defaultValue = "10000") int connectTimeoutMillis,
+            @ConfigProperty(name = "app.deadlines.read-timeout-ms", defaultValue = "60000") int readTimeoutMillis,
+            @ConfigProperty(name = "app.deadlines.max-call-ms", defaultValue = "600000") int maxCallMillis,
+            @ConfigProperty(name = "app.transcription.streaming.enabled", defaultValue = "true") boolean streamingEnabled,
+            @ConfigProperty(name = "app.transcription.long-audio.enabled", defaultValue = "true") boolean longAudioEnabled,
+            @ConfigProperty(name = "app.transcription.long-audio.min-duration-seconds", defaultValue = "900") long longAudioMinSeconds,
+            @ConfigProperty(name = "app.transcription.long-audio.min-source-bitrate", defaultValue = "32000") long minSourceBitrate,
+            @ConfigProperty(name = "app.transcription.long-audio.chunk-seconds", defaultValue = "600") long chunkSeconds,
+            @ConfigProperty(name = "app.transcription.long-audio.concurrency", defaultValue = "4") int chunkConcurrency
     ) {
         // Create the OpenAI client with the API key
         this.openAIClient = OpenAIOkHttpClient.builder()
@@ -54,13 +145,43 @@ public class OpenAIJavaTranscriptionService implements TranscriptionService {
                 .build();
         this.model = model;
         this.audioCompressionService = audioCompressionService;
+        this.audioBufferPool = audioBufferPool;
+        this.transcriptCache = transcriptCache;
+        this.jobStore = jobStore;
+        this.stageMetrics = stageMetrics;
+        this.connectTimeoutMillis = connectTimeoutMillis;
+        this.readTimeoutMillis = readTimeoutMillis;
+        this.maxCallMillis = maxCallMillis;
+        this.streamingEnabled = streamingEnabled;
+        this.longAudioEnabled = longAudioEnabled;
+        this.longAudioMinMillis = TimeUnit.SECONDS.toMillis(longAudioMinSeconds);
+        this.longAudioMinBytes = longAudioMinSeconds * minSourceBitrate / 8;
+        this.chunkMillis = TimeUnit.SECONDS.toMillis(Math.max(1, chunkSeconds));
+        this.chunkConcurrency = Math.max(1, chunkConcurrency);
+        this.openAiGuard = downstreamRegistry.get(DOWNSTREAM);
+        if (streamingEnabled && longAudioEnabled && longAudioMinBytes <= AudioCompressionService.MAX_CONTENT_SIZE) {
+            LOG.warn("Streaming is enabled but no audio will be streamed: long-audio needs every file over " +
+                    AudioCompressionService.MAX_CONTENT_SIZE + " bytes on disk");
+        }
         LOG.info("OpenAIJavaTranscriptionService initialized with model: " + model);
     }
 
+    /**
+     * Interrupts the chunk calls that are still running.
+     */
+    @PreDestroy
+    void shutdown() {
+        chunkCalls.shutdownNow();
+    }
+
     @Override
     public TranscriptionResponse transcribe(TranscriptionRequest request) {
+        CancellationToken cancellation = request.getCancellation();
+        Deadline deadline = cancellation.getDeadline();
         File tempFile = null;
         File compressedFile = null;
+        byte[] buffer = null;
+        boolean uploadAbandoned = false;
         try {
             // Get the audio URL from the request
             String audioUrl = request.getAudioUrl();
@@ -70,46 +191,120 @@ public class OpenAIJavaTranscriptionService implements TranscriptionService {
             String extension = getFileExtensionFromUrl(audioUrl);
 
             // Download the audio file from the URL
-            tempFile = downloadAudioFromUrl(audioUrl, extension);
-            
-            // Compress the audio file if needed
-            LOG.info("Checking if audio file needs compression. Size: " + tempFile.length() + " bytes");
-            compressedFile = audioCompressionService.compressIfNeeded(tempFile);
+            cancellation.check("download");
+            jobStore.transition(request.getRequestId(), JobState.DOWNLOADING);
+            HttpURLConnection connection = openConnection(audioUrl, deadline);
+            MessageDigest digest = newDigest();
+            byte[] streamedAudio = null;
+            int bufferedBytes = 0;
+            try (CancellationToken.Registration ignored = cancellation.onCancel(connection::disconnect)) {
+                long contentLength = connection.getContentLengthLong();
+                // Audio that may be long enough to split is needed on disk, so only audio too small for that is streamed
+                if (streamingEnabled && contentLength > AudioCompressionService.MAX_CONTENT_SIZE
+                        && (!longAudioEnabled || contentLength < longAudioMinBytes)) {
+                    // Too large to send as is: compress it while it downloads instead of after
+                    LOG.info("Audio exceeds size limit (" + contentLength + " bytes), compressing it while it downloads");
+                    jobStore.transition(request.getRequestId(), JobState.COMPRESSING);
+                    streamedAudio = downloadAndCompress(connection, digest, contentLength, cancellation);
+                } else if (contentLength >= 0 && contentLength <= audioBufferPool.getBufferSize()) {
+                    // The common case of a short voice note never touches the disk
+                    buffer = audioBufferPool.acquire();
+                    bufferedBytes = downloadToBuffer(connection, digest, buffer, cancellation);
+                } else {
+                    tempFile = downloadAudioFromUrl(connection, digest, extension, cancellation);
+                }
+            }
 
-            // If the compressed file is different from the original, log the compression ratio
-            if (compressedFile != tempFile) {
-                double compressionRatio = (double) compressedFile.length() / tempFile.length() * 100;
-                LOG.info(String.format("Audio compressed. Original: %d bytes, Compressed: %d bytes, Ratio: %.2f%%",
-                        tempFile.length(), compressedFile.length(), compressionRatio));
+            // A copy of audio that was transcribed before skips compression and the OpenAI call
+            String cacheKey = HexFormat.of().formatHex(digest.digest());
+            String cachedTranscript = transcriptCache.get(cacheKey);
+            if (cachedTranscript != null) {
+                LOG.info("Audio was transcribed before, answering from the transcript cache");
+                return new TranscriptionResponse(request.getPhoneNumber(), cachedTranscript, request.getMessageId());
+            }
+
+            // Only a file large enough to last min-duration-seconds pays for the probe
+            long durationMillis = tempFile != null && longAudioEnabled && tempFile.length() >= longAudioMinBytes
+                    ? audioCompressionService.getDurationMillis(tempFile, cancellation)
+                    : -1;
+            if (durationMillis >= longAudioMinMillis) {
+                String text = transcribeInChunks(request, tempFile, durationMillis, cancellation, deadline);
+                transcriptCache.put(cacheKey, text);
+                return new TranscriptionResponse(request.getPhoneNumber(), text, request.getMessageId());
+            }
+
+            TranscriptionCreateParams.Builder params = TranscriptionCreateParams.builder()
+                    .model(model); // Using the model from configuration
+            long audioBytes;
+            if (streamedAudio != null) {
+                params.file(inMemoryFile(new ByteArrayInputStream(streamedAudio), "mp3", "audio/mpeg"));
+                audioBytes = streamedAudio.length;
+            } else if (buffer != null) {
+                // Whisper tells the format from the file name, so the original extension is kept
+                params.file(inMemoryFile(new ByteArrayInputStream(buffer, 0, bufferedBytes), extension,
+                        connection.getContentType() != null ? connection.getContentType() : "application/octet-stream"));
+                audioBytes = bufferedBytes;
+            } else {
+                // Compress the audio file if needed
+                cancellation.check("compression");
+                jobStore.transition(request.getRequestId(), JobState.COMPRESSING);
+                LOG.info("Checking if audio file needs compression. Size: " + tempFile.length() + " bytes");
+                compressedFile = audioCompressionService.compressIfNeeded(tempFile, cancellation);
+
+                // If the compressed file is different from the original, log the compression ratio
+                if (compressedFile != tempFile) {
+                    double compressionRatio = (double) compressedFile.length() / tempFile.length() * 100;
+                    LOG.info(String.format("Audio compressed. Original: %d bytes, Compressed: %d bytes, Ratio: %.2f%%",
+                            tempFile.length(), compressedFile.length(), compressionRatio));
+                }
+                params.file(compressedFile.toPath());
+                audioBytes = compressedFile.length();
             }
 
             LOG.info("Transcribing audio file with whisper-1 model");
-            // Create the transcription parameters with the compressed file
-            TranscriptionCreateParams createParams = TranscriptionCreateParams.builder()
-                    .file(compressedFile.toPath())
-                    .model(model) // Using the model from configuration
-                    .build();
+            // Create the transcription parameters with the compressed audio
+            TranscriptionCreateParams createParams = params.build();
 
-            // Call the OpenAI API to transcribe the audio
-            Transcription transcription = openAIClient.audio().transcriptions().create(createParams).asTranscription();
+            // Call the OpenAI API to transcribe the audio once a call slot is free, giving up at the deadline
+            cancellation.check("transcription");
+            jobStore.transition(request.getRequestId(), JobState.TRANSCRIBING);
+            uploadAbandoned = true;
+            Transcription transcription = callWhisper(createParams, audioBytes, cancellation, deadline);
+            uploadAbandoned = false;
+
+            transcriptCache.put(cacheKey, transcription.text());
 
             // Return the successful response
             return new TranscriptionResponse(request.getPhoneNumber(), transcription.text(), request.getMessageId());
 
+        } catch (JobCancelledException e) {
+            // Cancelled or expired work is dropped by the caller rather than reported to the user as an error
+            throw e;
         } catch (MalformedURLException e) {
             LOG.error("Invalid URL: " + e.getMessage(), e);
             return new TranscriptionResponse(request.getPhoneNumber(), "Invalid URL: " + e.getMessage(), false, request.getMessageId());
+        } catch (DownstreamUnavailableException e) {
+            LOG.warn("Not transcribing audio: " + e.getMessage());
+            return new TranscriptionResponse(request.getPhoneNumber(),
+                    "Transcription service is temporarily unavailable, please try again later", false, request.getMessageId());
         } catch (IOException e) {
             LOG.error("Error downloading or processing audio file: " + e.getMessage(), e);
             return new TranscriptionResponse(request.getPhoneNumber(),
                     "Error downloading or processing audio file: " + e.getMessage(),
                     false, request.getMessageId());
         } catch (Exception e) {
+            // An OpenAI call that timed out because the deadline passed drops the request instead of failing it
+            cancellation.check("transcription");
             LOG.error("Unexpected error during transcription: " + e.getMessage(), e);
             return new TranscriptionResponse(request.getPhoneNumber(),
                     "Unexpected error during transcription: " + e.getMessage(),
                     false, request.getMessageId());
         } finally {
+            // A call that was cancelled, timed out or failed may still be streaming the buffer, so it is left to
+            // the garbage collector instead of going back to the pool
+            if (!uploadAbandoned) {
+                audioBufferPool.release(buffer);
+            }
             // Clean up the temporary files
             if (tempFile != null && tempFile.exists()) {
                 tempFile.delete();
@@ -122,24 +317,214 @@ public class OpenAIJavaTranscriptionService implements TranscriptionService {
     }
 
     /**
-     * Downloads audio from a URL and saves it to a temporary file.
+     * Opens a connection to download audio from, with socket timeouts derived from the deadline.
      */
-    private File downloadAudioFromUrl(String audioUrl, String extension) throws IOException {
+    private HttpURLConnection openConnection(String audioUrl, Deadline deadline) throws IOException {
+        URL url = URI.create(audioUrl).toURL();
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        connection.setConnectTimeout(deadline.timeoutMillis(connectTimeoutMillis));
+        connection.setReadTimeout(deadline.timeoutMillis(readTimeoutMillis));
+        return connection;
+    }
+
+    /**
+     * Calls Whisper once a call slot is free, giving up at the deadline.
+     */
+    private Transcription callWhisper(TranscriptionCreateParams createParams, long audioBytes,
+                                      CancellationToken cancellation, Deadline deadline) throws Exception {
+        return openAiGuard.call(() -> {
+            RequestOptions options = RequestOptions.builder()
+                    .timeout(Duration.ofMillis(deadline.timeoutMillis(maxCallMillis)))
+                    .build();
+            // The OpenAI client is not instrumented, so the stage's span stands for the HTTP call
+            try (StageMetrics.Stage stage = stageMetrics.start(StageMetrics.WHISPER, SpanKind.CLIENT)) {
+                stage.attribute("gen_ai.request.model", model).attribute("gptutils.audio.bytes", audioBytes);
+                CompletableFuture<TranscriptionCreateResponse> call =
+                        openAIClient.async().audio().transcriptions().create(createParams, options);
+                // Cancelling the future frees this thread at once; the HTTP call itself is bounded by the timeout
+                try (CancellationToken.Registration ignored = cancellation.onCancel(() -> call.cancel(true))) {
+                    Transcription result = call.join().asTranscription();
+                    stage.succeeded();
+                    return result;
+                } catch (CancellationException e) {
+                    cancellation.check("transcription");
+                    throw e;
+                } catch (CompletionException e) {
+                    cancellation.check("transcription");
+                    throw e.getCause() instanceof Exception cause ? cause : e;
+                }
+            }
+        });
+    }
+
+    /**
+     * Splits a long recording at silences and transcribes the chunks concurrently, joining their text in order.
+     * The first chunk that fails fails the whole transcription; chunks that have not started by then are skipped.
+     */
+    private String transcribeInChunks(TranscriptionRequest request, File audio, long durationMillis,
+                                      CancellationToken cancellation, Deadline deadline) throws Exception {
+        LOG.info("Audio is " + durationMillis + "ms long, transcribing it in chunks of up to " + chunkMillis + "ms");
+        cancellation.check("compression");
+        jobStore.transition(request.getRequestId(), JobState.COMPRESSING);
+        List<File> chunks = audioCompressionService.compressInChunks(audio, chunkMillis, cancellation);
+        try {
+            cancellation.check("transcription");
+            jobStore.transition(request.getRequestId(), JobState.TRANSCRIBING);
+
+            String tool = CurrentTool.get();
+            Semaphore slots = new Semaphore(chunkConcurrency);
+            AtomicReference<Exception> failure = new AtomicReference<>();
+            List<CompletableFuture<String>> calls = new ArrayList<>();
+            for (File chunk : chunks) {
+                calls.add(CompletableFuture.supplyAsync(Context.current().wrapSupplier(() -> CurrentTool.callAs(tool, () -> {
+                    try {
+                        slots.acquire();
+                        try {
+                            if (failure.get() != null) {
+                                return null;
+                            }
+                            cancellation.check("transcription");
+                            TranscriptionCreateParams createParams = TranscriptionCreateParams.builder()
+                                    .model(model)
+                                    .file(chunk.toPath())
+                                    .build();
+                            return callWhisper(createParams, chunk.length(), cancellation, deadline).text();
+                        } finally {
+                            slots.release();
+                        }
+                    } catch (Exception e) {
+                        failure.compareAndSet(null, e);
+                        return null;
+                    }
+                })), chunkCalls));
+            }
+            CompletableFuture.allOf(calls.toArray(CompletableFuture[]::new)).join();
+
+            if (failure.get() != null) {
+                cancellation.check("transcription");
+                throw failure.get();
+            }
+            StringBuilder text = new StringBuilder();
+            for (CompletableFuture<String> call : calls) {
+                String part = call.join().trim();
+                if (!part.isEmpty()) {
+                    text.append(text.length() > 0 ? " " : "").append(part);
+                }
+            }
+            LOG.info("Transcribed " + chunks.size() + " chunks");
+            return text.toString();
+        } finally {
+            chunks.forEach(File::delete);
+        }
+    }
+
+    /**
+     * Starts the hash of a download. The model goes in first, so a transcript is only reused for the same model.
+     */
+    private MessageDigest newDigest() {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(model.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            return digest;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * Downloads audio and compresses it on the fly, without writing it to disk. The download stage covers the
+     * whole transfer, during which the compression stage runs alongside it.
+     */
+    private byte[] downloadAndCompress(HttpURLConnection connection, MessageDigest digest, long contentLength,
+                                       CancellationToken cancellation) throws IOException {
+        try (StageMetrics.Stage stage = stageMetrics.start(StageMetrics.DOWNLOAD, SpanKind.CLIENT);
+             InputStream inputStream = new DigestInputStream(connection.getInputStream(), digest)) {
+            stage.attribute("server.address", connection.getURL().getHost())
+                    .attribute("gptutils.download.mode", "stream");
+            byte[] audio = audioCompressionService.compressStream(inputStream, cancellation);
+            stage.bytes(contentLength).succeeded();
+            return audio;
+        } catch (IOException e) {
+            // A transfer cut short by a cancellation or the deadline drops the request instead of failing it
+            cancellation.check("download");
+            throw e;
+        }
+    }
+
+    /**
+     * Downloads audio whose announced size fits a pooled buffer into it.
+     *
+     * @return The number of bytes downloaded
+     */
+    private int downloadToBuffer(HttpURLConnection connection, MessageDigest digest, byte[] buffer,
+                                 CancellationToken cancellation) throws IOException {
+        try (StageMetrics.Stage stage = stageMetrics.start(StageMetrics.DOWNLOAD, SpanKind.CLIENT);
+             InputStream inputStream = new DigestInputStream(connection.getInputStream(), digest)) {
+            stage.attribute("server.address", connection.getURL().getHost())
+                    .attribute("gptutils.download.mode", "memory");
+            int length = 0;
+            int bytesRead;
+            while (length < buffer.length && (bytesRead = inputStream.read(buffer, length, buffer.length - length)) != -1) {
+                length += bytesRead;
+                cancellation.check("download");
+            }
+            if (length == buffer.length && inputStream.read() != -1) {
+                throw new IOException("Audio is larger than its announced size");
+            }
+            stage.bytes(length).succeeded();
+            return length;
+        } catch (IOException e) {
+            // A transfer cut short by a cancellation or the deadline drops the request instead of failing it
+            cancellation.check("download");
+            throw e;
+        }
+    }
+
+    /**
+     * Wraps audio held in memory as the file part of a transcription upload.
+     */
+    private static MultipartField<InputStream> inMemoryFile(InputStream audio, String extension, String contentType) {
+        return MultipartField.<InputStream>builder()
+                .value(audio)
+                .filename("audio-" + UUID.randomUUID() + "." + extension)
+                .contentType(contentType)
+                .build();
+    }
+
+    /**
+     * Downloads audio and saves it to a temporary file.
+     * The token is checked between reads; the caller closes the connection on a cancellation.
+     * The partial file is removed if the download does not complete.
+     */
+    private File downloadAudioFromUrl(HttpURLConnection connection, MessageDigest digest, String extension,
+                                      CancellationToken cancellation) throws IOException {
         // Generate a unique file name
         String fileName = "audio-" + UUID.randomUUID() + "." + extension;
         File tempFile = new File(System.getProperty("java.io.tmpdir"), fileName);
 
-        // Create URL and open connection
-        URL url = URI.create(audioUrl).toURL();
-        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-
         // Download the file
-        try (InputStream inputStream = connection.getInputStream();
+        boolean complete = false;
+        try (StageMetrics.Stage stage = stageMetrics.start(StageMetrics.DOWNLOAD, SpanKind.CLIENT);
+             InputStream inputStream = new DigestInputStream(connection.getInputStream(), digest);
              FileOutputStream outputStream = new FileOutputStream(tempFile)) {
+            stage.attribute("server.address", connection.getURL().getHost())
+                    .attribute("gptutils.download.mode", "file");
             byte[] buffer = new byte[8192];
             int bytesRead;
             while ((bytesRead = inputStream.read(buffer)) != -1) {
                 outputStream.write(buffer, 0, bytesRead);
+                cancellation.check("download");
+            }
+            complete = true;
+            stage.bytes(tempFile.length()).succeeded();
+        } catch (IOException e) {
+            // A transfer cut short by a cancellation or the deadline drops the request instead of failing it
+            cancellation.check("download");
+            throw e;
+        } finally {
+            if (!complete) {
+                tempFile.delete();
             }
         }
 
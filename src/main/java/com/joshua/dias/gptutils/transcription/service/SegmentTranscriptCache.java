@@ -0,0 +1,465 @@
+package com.joshua.dias.gptutils.transcription.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Implementation of TranscriptCache backed by append-only segment files on local disk.
+ * <p>
+ * Records are appended to the active segment as a 4-byte length, a 4-byte CRC32 and a body holding the 32-byte
+ * key and the UTF-8 transcript. An in-memory index maps every key to the segment and offset of its record, in
+ * least recently used order; when the live records take more than {@code app.transcript-cache.max-bytes}, the
+ * least recently used ones are dropped from the index. A full segment whose live records fall below half of its
+ * size has them copied forward and is deleted, so the disk holds at most about twice the limit.
+ * <p>
+ * On start, the segments are read in the order they were written and the index is rebuilt from them, so the
+ * recency order is that of the writes. Reading a segment stops at the first record that is torn or fails its CRC,
+ * and new records always go to a fresh segment. Records are not forced to disk: a crash loses at most the
+ * transcripts written since the page cache was last flushed.
+ */
+@ApplicationScoped
+public class SegmentTranscriptCache implements TranscriptCache {
+
+    private static final Logger LOG = Logger.getLogger(SegmentTranscriptCache.class);
+    private static final String SEGMENT_PREFIX = "transcripts-";
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final int HEADER_SIZE = 2 * Integer.BYTES;
+    private static final int KEY_SIZE = 32;
+
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final Path directory;
+    private final int segmentSize;
+    private final long maxBytes;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    // Access-ordered, so iteration starts at the least recently used key
+    private final LinkedHashMap<String, Location> index = new LinkedHashMap<>(1024, 0.75f, true);
+    private final List<Segment> segments = new ArrayList<>();
+    private Segment active;
+    private long nextSegmentId;
+    private long liveBytes;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Constructor that injects dependencies and configuration.
+     */
+    @Inject
+    public SegmentTranscriptCache(
+            MeterRegistry meterRegistry,
+            @ConfigProperty(name = "app.transcript-cache.enabled", defaultValue = "true") boolean enabled,
+            @ConfigProperty(name = "app.transcript-cache.dir", defaultValue = "/tmp/gpt-utils/transcripts") String directory,
+            @ConfigProperty(name = "app.transcript-cache.segment-size", defaultValue = "4194304") int segmentSize,
+            @ConfigProperty(name = "app.transcript-cache.max-bytes", defaultValue = "67108864") long maxBytes
+    ) {
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.directory = Path.of(directory);
+        this.segmentSize = segmentSize;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Rebuilds the index from the segments on disk, opens a fresh segment and publishes the metrics.
+     */
+    @PostConstruct
+    void init() {
+        if (!enabled) {
+            LOG.info("SegmentTranscriptCache is disabled");
+            return;
+        }
+
+        lock.lock();
+        try {
+            Files.createDirectories(directory);
+            for (Path path : listSegments()) {
+                readSegment(path);
+            }
+            active = openSegment();
+            evictOverflow();
+            LOG.info("SegmentTranscriptCache initialized in " + directory + " with " + index.size() +
+                    " transcripts (" + liveBytes + " bytes) in " + segments.size() + " segments");
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open transcript cache in " + directory, e);
+        } finally {
+            lock.unlock();
+        }
+
+        FunctionCounter.builder("gptutils.transcript-cache.lookups", hits, LongAdder::sum)
+                .description("Transcript cache lookups")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        FunctionCounter.builder("gptutils.transcript-cache.lookups", misses, LongAdder::sum)
+                .description("Transcript cache lookups")
+                .tag("result", "miss")
+                .register(meterRegistry);
+        FunctionCounter.builder("gptutils.transcript-cache.evictions", evictions, LongAdder::sum)
+                .description("Transcripts dropped to stay within the size limit")
+                .register(meterRegistry);
+        Gauge.builder("gptutils.transcript-cache.entries", this, SegmentTranscriptCache::size)
+                .description("Transcripts in the cache")
+                .register(meterRegistry);
+        Gauge.builder("gptutils.transcript-cache.bytes", this, SegmentTranscriptCache::getLiveBytes)
+                .description("Bytes taken by the live records of the cache")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Closes the segment files.
+     */
+    @PreDestroy
+    void shutdown() {
+        if (!enabled) {
+            return;
+        }
+
+        lock.lock();
+        try {
+            LOG.info("Closing SegmentTranscriptCache with " + index.size() + " transcripts");
+            for (Segment segment : segments) {
+                segment.channel.force(false);
+                segment.channel.close();
+            }
+            segments.clear();
+            index.clear();
+            active = null;
+        } catch (IOException e) {
+            LOG.warn("Error closing transcript cache: " + e.getMessage());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public String get(String key) {
+        if (!enabled) {
+            return null;
+        }
+
+        Location location;
+        lock.lock();
+        try {
+            location = index.get(key);
+        } finally {
+            lock.unlock();
+        }
+        if (location == null) {
+            misses.increment();
+            return null;
+        }
+
+        // Positional reads are safe alongside writes, so the record is read without the lock
+        try {
+            byte[] body = location.segment().read(location.offset());
+            if (body != null && HexFormat.of().formatHex(body, 0, KEY_SIZE).equals(key)) {
+                hits.increment();
+                return new String(body, KEY_SIZE, body.length - KEY_SIZE, StandardCharsets.UTF_8);
+            }
+            LOG.warn("Dropping corrupt transcript cache record for " + key);
+            remove(key, location);
+        } catch (IOException e) {
+            // The segment was compacted away in the meantime; the record lives on in a newer one
+            LOG.debug("Could not read transcript cache record for " + key + ": " + e.getMessage());
+        }
+        misses.increment();
+        return null;
+    }
+
+    @Override
+    public void put(String key, String transcript) {
+        if (!enabled || key == null || key.length() != KEY_SIZE * 2 || transcript == null) {
+            return;
+        }
+
+        byte[] text = transcript.getBytes(StandardCharsets.UTF_8);
+        byte[] body = new byte[KEY_SIZE + text.length];
+        System.arraycopy(HexFormat.of().parseHex(key), 0, body, 0, KEY_SIZE);
+        System.arraycopy(text, 0, body, KEY_SIZE, text.length);
+        if (HEADER_SIZE + body.length > segmentSize) {
+            LOG.debug("Not caching a transcript of " + text.length + " bytes, it does not fit in a segment");
+            return;
+        }
+
+        lock.lock();
+        try {
+            if (active == null || index.containsKey(key)) {
+                return;
+            }
+            index.put(key, write(body));
+            evictOverflow();
+        } catch (IOException e) {
+            LOG.error("Error writing transcript cache record: " + e.getMessage(), e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gets the number of cached transcripts.
+     *
+     * @return The number of entries in the cache
+     */
+    public int size() {
+        lock.lock();
+        try {
+            return index.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gets the bytes taken by the records that are still in the index.
+     *
+     * @return The live bytes
+     */
+    public long getLiveBytes() {
+        lock.lock();
+        try {
+            return liveBytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Appends a record to the active segment, starting a new one when it is full. Must hold the lock.
+     */
+    private Location write(byte[] body) throws IOException {
+        int recordSize = HEADER_SIZE + body.length;
+        if (active.size + recordSize > segmentSize) {
+            active = openSegment();
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(body);
+        ByteBuffer record = ByteBuffer.allocate(recordSize);
+        record.putInt(body.length).putInt((int) crc.getValue()).put(body).flip();
+        long offset = active.size;
+        while (record.hasRemaining()) {
+            active.channel.write(record, offset + record.position());
+        }
+        active.size += recordSize;
+        active.liveBytes += recordSize;
+        liveBytes += recordSize;
+        return new Location(active, offset, recordSize);
+    }
+
+    /**
+     * Drops the least recently used records until the live ones fit the size limit. Must hold the lock.
+     */
+    private void evictOverflow() throws IOException {
+        Iterator<Map.Entry<String, Location>> eldest = index.entrySet().iterator();
+        while (liveBytes > maxBytes && eldest.hasNext()) {
+            Location location = eldest.next().getValue();
+            eldest.remove();
+            release(location);
+            evictions.increment();
+        }
+        collectGarbage();
+    }
+
+    /**
+     * Removes a record from the index unless it was already replaced.
+     */
+    private void remove(String key, Location location) {
+        lock.lock();
+        try {
+            if (index.get(key) == location) {
+                index.remove(key);
+                release(location);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Accounts for a record that left the index. Must hold the lock.
+     */
+    private void release(Location location) {
+        location.segment().liveBytes -= location.size();
+        liveBytes -= location.size();
+    }
+
+    /**
+     * Deletes the segments without live records and compacts the full ones that are mostly dead. Must hold the lock.
+     */
+    private void collectGarbage() throws IOException {
+        for (Segment segment : new ArrayList<>(segments)) {
+            if (segment == active) {
+                continue;
+            }
+            if (segment.liveBytes == 0) {
+                dropSegment(segment);
+            } else if (segment.liveBytes < segment.size / 2) {
+                compact(segment);
+            }
+        }
+    }
+
+    /**
+     * Copies the live records of a segment into the active one and deletes it. Must hold the lock.
+     */
+    private void compact(Segment segment) throws IOException {
+        int copied = 0;
+        // Replacing values does not change the access order, so the recency of the copied records is kept
+        for (Map.Entry<String, Location> entry : index.entrySet()) {
+            Location location = entry.getValue();
+            if (location.segment() != segment) {
+                continue;
+            }
+            byte[] body = segment.read(location.offset());
+            if (body == null) {
+                continue;
+            }
+            release(location);
+            entry.setValue(write(body));
+            copied++;
+        }
+        // Records that could not be read are dropped along with their segment
+        index.values().removeIf(location -> {
+            if (location.segment() == segment) {
+                release(location);
+                return true;
+            }
+            return false;
+        });
+        LOG.debug("Compacted transcript cache segment " + segment.path.getFileName() + ", " + copied + " records copied");
+        dropSegment(segment);
+    }
+
+    private void dropSegment(Segment segment) throws IOException {
+        segments.remove(segment);
+        segment.channel.close();
+        Files.deleteIfExists(segment.path);
+    }
+
+    /**
+     * Adds the valid records of a segment to the index, replacing older records of the same key. Must hold the lock.
+     */
+    private void readSegment(Path path) throws IOException {
+        Segment segment = new Segment(path, FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE));
+        segment.size = segment.channel.size();
+        segments.add(segment);
+        nextSegmentId = Math.max(nextSegmentId, segmentId(path) + 1);
+
+        long offset = 0;
+        byte[] body;
+        while (offset + HEADER_SIZE <= segment.size && (body = segment.read(offset)) != null) {
+            Location location = new Location(segment, offset, HEADER_SIZE + body.length);
+            Location previous = index.put(HexFormat.of().formatHex(body, 0, KEY_SIZE), location);
+            if (previous != null) {
+                release(previous);
+            }
+            segment.liveBytes += location.size();
+            liveBytes += location.size();
+            offset += location.size();
+        }
+        // Anything past the last valid record is torn; the segment is never appended to again
+        segment.size = offset;
+    }
+
+    private Segment openSegment() throws IOException {
+        Path path = directory.resolve(SEGMENT_PREFIX + String.format("%016d", nextSegmentId++) + SEGMENT_SUFFIX);
+        Segment segment = new Segment(path, FileChannel.open(path,
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE));
+        segments.add(segment);
+        return segment;
+    }
+
+    private List<Path> listSegments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files
+                    .filter(path -> {
+                        String name = path.getFileName().toString();
+                        return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+                    })
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private static long segmentId(Path path) {
+        String name = path.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    /**
+     * One segment file and the bytes of its records that are still in the index.
+     */
+    private final class Segment {
+
+        private final Path path;
+        private final FileChannel channel;
+        private long size;
+        private long liveBytes;
+
+        private Segment(Path path, FileChannel channel) {
+            this.path = path;
+            this.channel = channel;
+        }
+
+        /**
+         * Reads the body of the record at an offset.
+         *
+         * @return The body, or null if the record is torn or fails its CRC
+         */
+        private byte[] read(long offset) throws IOException {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            readFully(header, offset);
+            int length = header.getInt(0);
+            if (length < KEY_SIZE || offset + HEADER_SIZE + length > size || HEADER_SIZE + length > segmentSize) {
+                return null;
+            }
+            ByteBuffer body = ByteBuffer.allocate(length);
+            readFully(body, offset + HEADER_SIZE);
+            CRC32 crc = new CRC32();
+            crc.update(body.array());
+            return (int) crc.getValue() == header.getInt(Integer.BYTES) ? body.array() : null;
+        }
+
+        private void readFully(ByteBuffer buffer, long position) throws IOException {
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, position + buffer.position()) < 0) {
+                    throw new IOException("Unexpected end of transcript cache segment " + path.getFileName());
+                }
+            }
+        }
+    }
+
+    /**
+     * Where the record of a key is, and how many bytes it takes including its header.
+     */
+    private record Location(Segment segment, long offset, int size) {
+    }
+}
@@ -0,0 +1,57 @@
+package com.joshua.dias.gptutils.transcription.service;
+
+import com.joshua.dias.gptutils.orchestration.model.PipelineContext;
+import com.joshua.dias.gptutils.orchestration.model.PipelineStepDefinition;
+import com.joshua.dias.gptutils.orchestration.model.ToolExecutionRequest;
+import com.joshua.dias.gptutils.orchestration.service.PipelineAction;
+import com.joshua.dias.gptutils.transcription.model.TranscriptionParameters;
+import com.joshua.dias.gptutils.transcription.model.TranscriptionRequest;
+import com.joshua.dias.gptutils.transcription.model.TranscriptionResponse;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.jboss.logging.Logger;
+
+/**
+ * Pipeline action "transcribe": transcribes the audio of the message and outputs the text.
+ */
+@ApplicationScoped
+public class TranscribePipelineAction implements PipelineAction {
+
+    private static final Logger LOG = Logger.getLogger(TranscribePipelineAction.class);
+    private static final String ACTION_NAME = "transcribe";
+
+    private final TranscriptionService transcriptionService;
+
+    /**
+     * Constructor that injects dependencies.
+     */
+    @Inject
+    public TranscribePipelineAction(TranscriptionService transcriptionService) {
+        this.transcriptionService = transcriptionService;
+    }
+
+    @Override
+    public String getName() {
+        return ACTION_NAME;
+    }
+
+    @Override
+    public String apply(PipelineContext context, PipelineStepDefinition step, String input) {
+        ToolExecutionRequest request = context.getRequest();
+        TranscriptionParameters parameters = TranscriptionParameters.bind(request);
+        if (parameters.audioUrl().isEmpty()) {
+            throw new IllegalArgumentException("Step '" + step.getId() + "' needs an audio message");
+        }
+
+        TranscriptionRequest transcriptionRequest = parameters.toTranscriptionRequest();
+        transcriptionRequest.setRequestId(context.getRequestId());
+        transcriptionRequest.setCancellation(context.getCancellation());
+
+        LOG.info("Transcribing audio for pipeline step '" + step.getId() + "', requestId: " + context.getRequestId());
+        TranscriptionResponse response = transcriptionService.transcribe(transcriptionRequest);
+        if (!response.isSuccess()) {
+            throw new IllegalStateException(response.getErrorMessage());
+        }
+        return response.getTranscribedText();
+    }
+}
@@ -0,0 +1,25 @@
+package com.joshua.dias.gptutils.transcription.service;
+
+/**
+ * Interface for a cache of transcripts keyed on the content of the audio they were made from.
+ * The same voice note is often forwarded several times, and every copy after the first can then be answered
+ * without another download being compressed and transcribed.
+ */
+public interface TranscriptCache {
+
+    /**
+     * Looks up the transcript of an audio file.
+     *
+     * @param key The hex SHA-256 of the audio, as computed while it was downloaded
+     * @return The transcript, or null if it is not cached
+     */
+    String get(String key);
+
+    /**
+     * Stores the transcript of an audio file. Storing a key that is already cached does nothing.
+     *
+     * @param key The hex SHA-256 of the audio
+     * @param transcript The transcript
+     */
+    void put(String key, String transcript);
+}
@@ -1,8 +1,12 @@
 package com.joshua.dias.gptutils.transcription.service;
 
+import com.joshua.dias.gptutils.orchestration.model.ToolParameters;
 import com.joshua.dias.gptutils.orchestration.model.ToolExecutionRequest;
 import com.joshua.dias.gptutils.orchestration.model.ToolExecutionResponse;
+import com.joshua.dias.gptutils.orchestration.service.CancellationRegistry;
+import com.joshua.dias.gptutils.orchestration.service.ExecutorOverloadedException;
 import com.joshua.dias.gptutils.orchestration.service.Tool;
+import com.joshua.dias.gptutils.transcription.model.TranscriptionParameters;
 import com.joshua.dias.gptutils.transcription.model.TranscriptionRequest;
 import com.joshua.dias.gptutils.transcription.model.TranscriptionResponse;
 
@@ -26,13 +30,15 @@ public class TranscriptionTool implements Tool {
     private static final String TOOL_NAME = "transcription";
     
     private final TranscriptionToolService transcriptionToolService;
+    private final CancellationRegistry cancellationRegistry;
     
     /**
      * Constructor that injects dependencies.
      */
     @Inject
-    public TranscriptionTool(TranscriptionToolService transcriptionToolService) {
+    public TranscriptionTool(TranscriptionToolService transcriptionToolService, CancellationRegistry cancellationRegistry) {
         this.transcriptionToolService = transcriptionToolService;
+        this.cancellationRegistry = cancellationRegistry;
         LOG.info("TranscriptionTool initialized");
     }
     
@@ -48,7 +54,7 @@ public class TranscriptionTool implements Tool {
 
     @Override
     public ToolExecutionResponse execute(ToolExecutionRequest request) {
-        String requestId = UUID.randomUUID().toString();
+        String requestId = request.get(ToolParameters.REQUEST_ID, UUID.randomUUID().toString());
         LOG.info("Executing transcription tool synchronously, requestId: " + requestId);
 
         try {
@@ -71,7 +77,7 @@ public class TranscriptionTool implements Tool {
     
     @Override
     public CompletableFuture<ToolExecutionResponse> executeAsync(ToolExecutionRequest request) {
-        String requestId = UUID.randomUUID().toString();
+        String requestId = request.get(ToolParameters.REQUEST_ID, UUID.randomUUID().toString());
         LOG.info("Executing transcription tool asynchronously, requestId: " + requestId);
         
         CompletableFuture<ToolExecutionResponse> resultFuture = new CompletableFuture<>();
@@ -88,6 +94,9 @@ public class TranscriptionTool implements Tool {
             // "accepted" response immediately
             resultFuture.complete(ToolExecutionResponse.accepted(TOOL_NAME, requestId));
             
+        } catch (ExecutorOverloadedException e) {
+            LOG.warn("Refused transcription request, executor is full: " + e.getMessage());
+            resultFuture.complete(e.toResponse(TOOL_NAME, requestId));
         } catch (Exception e) {
             LOG.error("Error executing transcription tool asynchronously: " + e.getMessage(), e);
             resultFuture.complete(
@@ -103,32 +112,15 @@ public class TranscriptionTool implements Tool {
             return "Parameters are required";
         }
         
-        String phoneNumber = request.getParameterAs("phoneNumber", null);
-        if (phoneNumber == null || phoneNumber.trim().isEmpty()) {
-            return "Phone number is required";
-        }
-        
-        String audioUrl = request.getParameterAs("contentUrl", null);
-        if (audioUrl == null || audioUrl.trim().isEmpty()) {
-            return "Audio URL is required";
-        }
-        
-        // Basic URL validation
-        if (!audioUrl.startsWith("http://") && !audioUrl.startsWith("https://")) {
-            return "Audio URL must be a valid HTTP or HTTPS URL";
-        }
-        
-        return null; // Valid
+        return TranscriptionParameters.bind(request).validate();
     }
     
     /**
      * Creates a TranscriptionRequest from a ToolExecutionRequest.
      */
     private TranscriptionRequest createTranscriptionRequest(ToolExecutionRequest request) {
-        String phoneNumber = request.getParameterAs("phoneNumber", "");
-        String audioUrl = request.getParameterAs("contentUrl", "");
-        String messageId = request.getParameterAs("messageId", "");
-        
-        return new TranscriptionRequest(phoneNumber, audioUrl, messageId);
+        TranscriptionRequest transcriptionRequest = TranscriptionParameters.bind(request).toTranscriptionRequest();
+        transcriptionRequest.setCancellation(cancellationRegistry.get(transcriptionRequest.getRequestId()));
+        return transcriptionRequest;
     }
 }
\ No newline at end of file
@@ -1,170 +1,188 @@
 package com.joshua.dias.gptutils.transcription.service;
 
+import com.joshua.dias.gptutils.orchestration.model.CancellationToken;
+import com.joshua.dias.gptutils.orchestration.model.DeadlineExceededException;
+import com.joshua.dias.gptutils.orchestration.model.JobCancelledException;
+import com.joshua.dias.gptutils.orchestration.model.JobState;
+import com.joshua.dias.gptutils.orchestration.model.StageLedger;
+import com.joshua.dias.gptutils.orchestration.service.ChatOrderedExecutor;
+import com.joshua.dias.gptutils.orchestration.service.JobStore;
+import com.joshua.dias.gptutils.orchestration.service.RetryScheduler;
 import com.joshua.dias.gptutils.transcription.model.TranscriptionRequest;
 import com.joshua.dias.gptutils.transcription.model.TranscriptionResponse;
 import com.joshua.dias.gptutils.zapi.service.ZApiService;
-import jakarta.annotation.PostConstruct;
-import jakarta.annotation.PreDestroy;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
-import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.jboss.logging.Logger;
 
+import java.util.LinkedHashMap;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.ThreadPoolExecutor;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.CompletionException;
 
 /**
  * Service for asynchronous transcription processing.
  * This service processes transcription requests in the background and sends notifications when complete.
+ * Requests that are cancelled or whose deadline passes before they finish are dropped and their job is marked
+ * as cancelled or expired. Failed notifications are retried by the {@link RetryScheduler}, which gives the
+ * worker thread back while a retry waits; the chat's next message still waits for the notification.
  */
 @ApplicationScoped
 public class TranscriptionToolService {
 
     private static final Logger LOG = Logger.getLogger(TranscriptionToolService.class);
+    private static final String BULKHEAD = "transcription";
+    private static final String NOTIFICATION = "notification";
 
     private final TranscriptionWorkflowService workflowService;
     private final NotificationService notificationService;
     private final ZApiService zApiService;
-    private final int corePoolSize;
-    private final int maxPoolSize;
-    private final int queueSize;
-    private final int retryAttempts;
-    private final int retryDelay;
-    private ExecutorService executorService;
+    private final ChatOrderedExecutor chatOrderedExecutor;
+    private final JobStore jobStore;
+    private final RetryScheduler retryScheduler;
 
     /**
-     * Constructor that injects dependencies and configuration.
+     * Constructor that injects dependencies.
      */
     @Inject
     public TranscriptionToolService(
             TranscriptionWorkflowService workflowService,
             NotificationService notificationService,
             ZApiService zApiService,
-            @ConfigProperty(name = "app.async.core-pool-size", defaultValue = "5") int corePoolSize,
-            @ConfigProperty(name = "app.async.max-pool-size", defaultValue = "10") int maxPoolSize,
-            @ConfigProperty(name = "app.async.queue-size", defaultValue = "100") int queueSize,
-            @ConfigProperty(name = "app.notification.retry-attempts", defaultValue = "3") int retryAttempts,
-            @ConfigProperty(name = "app.notification.retry-delay", defaultValue = "1000") int retryDelay
+            ChatOrderedExecutor chatOrderedExecutor,
+            JobStore jobStore,
+            RetryScheduler retryScheduler
     ) {
         this.workflowService = workflowService;
         this.notificationService = notificationService;
-        this.corePoolSize = corePoolSize;
-        this.maxPoolSize = maxPoolSize;
-        this.queueSize = queueSize;
-        this.retryAttempts = retryAttempts;
-        this.retryDelay = retryDelay;
+        this.chatOrderedExecutor = chatOrderedExecutor;
+        this.jobStore = jobStore;
+        this.retryScheduler = retryScheduler;
         this.zApiService = zApiService;
     }
 
     /**
-     * Initializes the thread pool.
+     * Processes a transcription request asynchronously.
+     * Requests from the same chat are processed in the order they were submitted. The chat's next request waits for
+     * the transcription and the first notification attempt, but not for the retries of a failed notification.
+     *
+     * @param request The transcription request
+     * @return A CompletableFuture that will be completed with the transcription response
+     * @throws com.joshua.dias.gptutils.orchestration.service.ExecutorOverloadedException If the chat's queue, its shard or the bulkhead is full
      */
-    @PostConstruct
-    void init() {
-        LOG.info("Initializing AsyncTranscriptionService with core pool size: " + corePoolSize +
-                ", max pool size: " + maxPoolSize + ", queue size: " + queueSize);
-
-        // Create a thread pool with bounded queue
-        this.executorService = new ThreadPoolExecutor(
-                corePoolSize,
-                maxPoolSize,
-                60L, TimeUnit.SECONDS,
-                new LinkedBlockingQueue<>(queueSize),
-                Executors.defaultThreadFactory(),
-                new ThreadPoolExecutor.CallerRunsPolicy() // If queue is full, caller thread executes the task
-        );
+    public CompletableFuture<TranscriptionResponse> processAsync(TranscriptionRequest request) {
+        LOG.info("Submitting async transcription request for phone: " + request.getPhoneNumber());
+
+        // The task hands back the pending notification, so the shard is freed once the first attempt has been made
+        return chatOrderedExecutor.submit(request.getLane(), BULKHEAD, request.getPhoneNumber(), request.getContentSize(), () -> {
+            // The notification may complete on another thread, so the ledger is taken while it is current
+            StageLedger ledger = StageLedger.current();
+            return transcribeAndNotify(request).thenApply(response -> {
+                // Every stage of the request has run by now, including the wait for the chat's worker
+                response.setStages(ledger != null ? ledger.getStages() : new LinkedHashMap<>());
+                return response;
+            });
+        }).thenCompose(notified -> notified);
     }
 
     /**
-     * Shuts down the thread pool.
+     * Processes a transcription request on the calling thread, waiting for its notification.
+     *
+     * @param request The transcription request
+     * @return The transcription response
      */
-    @PreDestroy
-    void shutdown() {
-        LOG.info("Shutting down AsyncTranscriptionService");
-        if (executorService != null) {
-            executorService.shutdown();
-            try {
-                if (!executorService.awaitTermination(10, TimeUnit.SECONDS)) {
-                    executorService.shutdownNow();
-                }
-            } catch (InterruptedException e) {
-                executorService.shutdownNow();
-                Thread.currentThread().interrupt();
-            }
-        }
+    public TranscriptionResponse process(TranscriptionRequest request) {
+        return transcribeAndNotify(request).join();
     }
 
     /**
-     * Processes a transcription request asynchronously.
+     * Transcribes the audio on the calling thread and sends the result to the chat.
      *
-     * @param request The transcription request
+     * @return A future completed with the response once the notification was sent or given up; it never fails
      */
-    public void processAsync(TranscriptionRequest request) {
-        LOG.info("Submitting async transcription request for phone: " + request.getPhoneNumber());
+    private CompletableFuture<TranscriptionResponse> transcribeAndNotify(TranscriptionRequest request) {
+        CancellationToken cancellation = request.getCancellation();
+        TranscriptionResponse response;
+        try {
+            // Work that was cancelled or waited past its deadline is dropped before anything is done for it
+            cancellation.check("queue");
 
-        CompletableFuture.supplyAsync(() -> process(request), executorService);
-    }
+            // The read receipt is fire-and-forget, so it does not hold the chat's worker
+            zApiService.readMessageAsync(request.getPhoneNumber(), request.getMessageId()).subscribe().with(read -> { });
 
-    public TranscriptionResponse process(TranscriptionRequest request) {
-        zApiService.readMessage(request.getPhoneNumber(), request.getMessageId());
-
-        try {
             // Process the transcription
             LOG.info("Processing transcription for phone: " + request.getPhoneNumber());
-            TranscriptionResponse response = workflowService.processTranscription(request);
+            response = workflowService.processTranscription(request);
 
-            // Send notification with retry
-            sendNotificationWithRetry(response);
-
-            return response;
+            cancellation.check("notification");
+            jobStore.transition(request.getRequestId(), JobState.NOTIFYING);
         } catch (Exception e) {
-            LOG.error("Error in async transcription processing: " + e.getMessage(), e);
-            return new TranscriptionResponse(request.getPhoneNumber(),
-                    "Error in async transcription processing: " + e.getMessage(), false);
+            return CompletableFuture.completedFuture(handleError(request, e));
         }
-    }
-
-    /**
-     * Sends a notification with retry logic.
-     *
-     * @param response The transcription response
-     */
-    private void sendNotificationWithRetry(TranscriptionResponse response) {
-        int attempts = 0;
-        boolean success = false;
 
-        while (!success && attempts < retryAttempts) {
-            attempts++;
+        // Send notification with retry
+        return sendNotificationWithRetry(response, cancellation).handle((notified, error) -> {
             try {
-                LOG.info("Sending notification, attempt " + attempts + " for phone: " + response.getPhoneNumber());
-                success = notificationService.sendNotification(response);
-
-                if (success) {
-                    LOG.info("Notification sent successfully after " + attempts + " attempts");
-                } else if (attempts < retryAttempts) {
-                    LOG.warn("Notification failed, will retry in " + retryDelay + "ms");
-                    Thread.sleep(retryDelay);
+                if (error != null) {
+                    throw error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
                 }
-            } catch (Exception e) {
-                LOG.error("Error sending notification (attempt " + attempts + "): " + e.getMessage(), e);
-                if (attempts < retryAttempts) {
-                    try {
-                        Thread.sleep(retryDelay);
-                    } catch (InterruptedException ie) {
-                        Thread.currentThread().interrupt();
-                        break;
-                    }
+                if (!response.isSuccess()) {
+                    jobStore.fail(request.getRequestId(), response.getErrorMessage());
+                } else if (!notified) {
+                    // Retries that stopped because of a cancellation or the deadline drop the job instead of failing it
+                    cancellation.check("notification");
+                    jobStore.fail(request.getRequestId(), "Failed to send notification");
+                } else {
+                    jobStore.transition(request.getRequestId(), JobState.DONE);
                 }
+                return response;
+            } catch (Throwable e) {
+                return handleError(request, e);
             }
-        }
+        });
+    }
 
-        if (!success) {
-            LOG.error("Failed to send notification after " + attempts + " attempts for phone: " +
-                    response.getPhoneNumber());
+    /**
+     * Ends the job of a request that could not be processed and builds its failed response.
+     * Requests that were cancelled or ran past their deadline are dropped instead of failed.
+     */
+    private TranscriptionResponse handleError(TranscriptionRequest request, Throwable e) {
+        if (e instanceof DeadlineExceededException) {
+            LOG.warn("Dropping transcription for phone: " + request.getPhoneNumber() + ", " + e.getMessage());
+            jobStore.expire(request.getRequestId(), e.getMessage());
+            return new TranscriptionResponse(request.getPhoneNumber(), e.getMessage(), false);
+        }
+        if (e instanceof JobCancelledException) {
+            LOG.info("Dropping transcription for phone: " + request.getPhoneNumber() + ", " + e.getMessage());
+            jobStore.cancel(request.getRequestId(), e.getMessage());
+            return new TranscriptionResponse(request.getPhoneNumber(), e.getMessage(), false);
         }
+        LOG.error("Error in async transcription processing: " + e.getMessage(), e);
+        jobStore.fail(request.getRequestId(), "Error in async transcription processing: " + e.getMessage());
+        return new TranscriptionResponse(request.getPhoneNumber(),
+                "Error in async transcription processing: " + e.getMessage(), false);
+    }
+
+    /**
+     * Sends a notification with retry logic. Retries wait on the {@link RetryScheduler} without holding a thread,
+     * and are abandoned once the request is cancelled or its deadline has passed.
+     *
+     * @param response The transcription response
+     * @param cancellation The cancellation token of the request
+     * @return A future completed with true if the notification was sent, false otherwise
+     */
+    private CompletableFuture<Boolean> sendNotificationWithRetry(TranscriptionResponse response, CancellationToken cancellation) {
+        LOG.info("Sending notification for phone: " + response.getPhoneNumber());
+        return retryScheduler.execute(NOTIFICATION,
+                        () -> notificationService.sendNotification(response),
+                        // The Z-API circuit being open means further attempts would fail fast anyway
+                        sent -> !sent && zApiService.isAvailable(),
+                        cancellation)
+                .whenComplete((sent, error) -> {
+                    if (Boolean.TRUE.equals(sent)) {
+                        LOG.info("Notification sent for phone: " + response.getPhoneNumber());
+                    } else {
+                        LOG.error("Failed to send notification for phone: " + response.getPhoneNumber());
+                    }
+                });
     }
-}
\ No newline at end of file
+}
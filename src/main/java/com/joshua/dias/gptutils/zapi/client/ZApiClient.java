@@ -3,6 +3,7 @@ package com.joshua.dias.gptutils.zapi.client;
 import com.joshua.dias.gptutils.zapi.model.ForwardMessageRequestDTO;
 import com.joshua.dias.gptutils.zapi.model.ReadMessageRequestDTO;
 import com.joshua.dias.gptutils.zapi.model.SendMessageRequestDTO;
+import io.smallrye.mutiny.Uni;
 import jakarta.ws.rs.Consumes;
 import jakarta.ws.rs.POST;
 import jakarta.ws.rs.Path;
@@ -60,4 +61,16 @@ public interface ZApiClient {
     @Consumes(MediaType.APPLICATION_JSON)
     @Produces(MediaType.APPLICATION_JSON)
     Response readMessage(ReadMessageRequestDTO request);
+
+    /**
+     * Marks a WhatsApp message as read via Z-API without blocking the calling thread.
+     *
+     * @param request The read message request containing phone number and message ID to mark as read
+     * @return A Uni emitting the HTTP response from the Z-API endpoint
+     */
+    @POST
+    @Path("/read-message")
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    Uni<Response> readMessageAsync(ReadMessageRequestDTO request);
 }
\ No newline at end of file
@@ -1,10 +1,16 @@
 package com.joshua.dias.gptutils.zapi.service;
 
+import com.joshua.dias.gptutils.orchestration.service.DownstreamGuard;
+import com.joshua.dias.gptutils.orchestration.service.DownstreamRegistry;
+import com.joshua.dias.gptutils.orchestration.service.DownstreamUnavailableException;
+import com.joshua.dias.gptutils.orchestration.service.StageMetrics;
 import com.joshua.dias.gptutils.zapi.client.ZApiClient;
 import com.joshua.dias.gptutils.zapi.model.ForwardMessageRequestDTO;
 import com.joshua.dias.gptutils.zapi.model.ReadMessageRequestDTO;
 import com.joshua.dias.gptutils.zapi.model.SendMessageRequestDTO;
 
+import io.smallrye.mutiny.Uni;
+
 import org.eclipse.microprofile.rest.client.inject.RestClient;
 import org.jboss.logging.Logger;
 
@@ -16,23 +22,41 @@ import java.util.Map;
 /**
  * Service for sending messages via Z-API.
  * This service encapsulates the Z-API logic and provides a clean interface for other parts of the application.
+ * Every call goes through the "zapi" downstream guard, so while Z-API is failing calls are refused in
+ * milliseconds instead of each waiting for its timeout.
+ * Sent and forwarded messages are timed and traced as the "zapi-send" stage, with the REST call as its child span.
  */
 @ApplicationScoped
 public class ZApiService {
 
     private static final Logger LOG = Logger.getLogger(ZApiService.class);
+    private static final String DOWNSTREAM = "zapi";
     
     private final ZApiClient zApiClient;
+    private final DownstreamGuard guard;
+    private final StageMetrics stageMetrics;
     
     /**
      * Constructor that injects dependencies.
      */
     @Inject
-    public ZApiService(@RestClient ZApiClient zApiClient) {
+    public ZApiService(@RestClient ZApiClient zApiClient, DownstreamRegistry downstreamRegistry, StageMetrics stageMetrics) {
         this.zApiClient = zApiClient;
+        this.guard = downstreamRegistry.get(DOWNSTREAM);
+        this.stageMetrics = stageMetrics;
         LOG.info("ZApiService initialized with Z-API client");
     }
     
+    /**
+     * Checks whether Z-API calls are currently attempted, i.e. its circuit is not open.
+     * Callers use it to stop retrying while Z-API is known to be down.
+     * 
+     * @return true if Z-API calls are let through, false if they fail fast
+     */
+    public boolean isAvailable() {
+        return guard.isCallPermitted();
+    }
+    
     /**
      * Sends a WhatsApp message via Z-API.
      * 
@@ -95,10 +119,17 @@ public class ZApiService {
             }
             
             // Send message via Z-API
-            Response clientResponse = zApiClient.sendMessage(request);
-            
-            // Check if message was sent successfully
-            boolean success = clientResponse.getStatus() >= 200 && clientResponse.getStatus() < 300;
+            Response clientResponse;
+            boolean success;
+            try (StageMetrics.Stage stage = stageMetrics.start(StageMetrics.ZAPI_SEND)) {
+                clientResponse = guard.call(() -> zApiClient.sendMessage(request), ZApiService::isServerError);
+                
+                // Check if message was sent successfully
+                success = clientResponse.getStatus() >= 200 && clientResponse.getStatus() < 300;
+                if (success) {
+                    stage.succeeded();
+                }
+            }
             if (success) {
                 LOG.info("WhatsApp message sent successfully via Z-API");
             } else {
@@ -107,6 +138,9 @@ public class ZApiService {
             
             return success;
             
+        } catch (DownstreamUnavailableException e) {
+            LOG.warn("Not sending WhatsApp message: " + e.getMessage());
+            return false;
         } catch (Exception e) {
             LOG.error("Error sending WhatsApp message via Z-API: " + e.getMessage(), e);
             return false;
@@ -145,10 +179,17 @@ public class ZApiService {
             ForwardMessageRequestDTO request = new ForwardMessageRequestDTO(phoneNumber, messageId, messagePhone);
             
             // Forward message via Z-API
-            Response clientResponse = zApiClient.forwardMessage(request);
-            
-            // Check if message was forwarded successfully
-            boolean success = clientResponse.getStatus() >= 200 && clientResponse.getStatus() < 300;
+            Response clientResponse;
+            boolean success;
+            try (StageMetrics.Stage stage = stageMetrics.start(StageMetrics.ZAPI_SEND)) {
+                clientResponse = guard.call(() -> zApiClient.forwardMessage(request), ZApiService::isServerError);
+                
+                // Check if message was forwarded successfully
+                success = clientResponse.getStatus() >= 200 && clientResponse.getStatus() < 300;
+                if (success) {
+                    stage.succeeded();
+                }
+            }
             if (success) {
                 LOG.info("WhatsApp message forwarded successfully via Z-API");
                 
@@ -171,6 +212,9 @@ public class ZApiService {
             
             return null;
             
+        } catch (DownstreamUnavailableException e) {
+            LOG.warn("Not forwarding WhatsApp message: " + e.getMessage());
+            return null;
         } catch (Exception e) {
             LOG.error("Error forwarding WhatsApp message via Z-API: " + e.getMessage(), e);
             return null;
@@ -203,7 +247,7 @@ public class ZApiService {
             ReadMessageRequestDTO request = new ReadMessageRequestDTO(phoneNumber, messageId);
             
             // Mark message as read via Z-API
-            Response clientResponse = zApiClient.readMessage(request);
+            Response clientResponse = guard.call(() -> zApiClient.readMessage(request), ZApiService::isServerError);
             
             // Check if message was marked as read successfully
             boolean success = clientResponse.getStatus() >= 200 && clientResponse.getStatus() < 300;
@@ -215,9 +259,51 @@ public class ZApiService {
             
             return success;
             
+        } catch (DownstreamUnavailableException e) {
+            LOG.warn("Not marking WhatsApp message as read: " + e.getMessage());
+            return false;
         } catch (Exception e) {
             LOG.error("Error marking WhatsApp message as read via Z-API: " + e.getMessage(), e);
             return false;
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Marks a WhatsApp message as read via Z-API without blocking the calling thread.
+     * Failures are logged and reported as false, never as a failed Uni.
+     *
+     * @param phoneNumber The phone number of the message sender
+     * @param messageId The ID of the message to mark as read
+     * @return A Uni emitting true if the message was marked as read successfully, false otherwise
+     */
+    public Uni<Boolean> readMessageAsync(String phoneNumber, String messageId) {
+        if (phoneNumber == null || phoneNumber.trim().isEmpty() || messageId == null || messageId.trim().isEmpty()) {
+            LOG.warn("Cannot mark message as read: phone number or message ID is null or empty");
+            return Uni.createFrom().item(false);
+        }
+
+        LOG.info("Marking WhatsApp message as read from phone number: " + phoneNumber);
+        return guard.callAsync(() -> zApiClient.readMessageAsync(new ReadMessageRequestDTO(phoneNumber, messageId)),
+                        ZApiService::isServerError)
+                .map(clientResponse -> {
+                    boolean success = clientResponse.getStatus() >= 200 && clientResponse.getStatus() < 300;
+                    if (success) {
+                        LOG.info("WhatsApp message marked as read successfully via Z-API");
+                    } else {
+                        LOG.warn("Failed to mark WhatsApp message as read via Z-API. Status: " + clientResponse.getStatus());
+                    }
+                    return success;
+                })
+                .onFailure().recoverWithItem(e -> {
+                    LOG.error("Error marking WhatsApp message as read via Z-API: " + e.getMessage(), e);
+                    return false;
+                });
+    }
+
+    /**
+     * Tells whether a Z-API response means Z-API itself is failing; client errors do not count against its circuit.
+     */
+    private static boolean isServerError(Response response) {
+        return response.getStatus() >= 500;
+    }
+}
@@ -0,0 +1,144 @@
+package com.joshua.dias.gptutils.message.service;
+
+import com.joshua.dias.gptutils.orchestration.model.ToolExecutionResponse;
+import com.joshua.dias.gptutils.orchestration.model.ToolExecutionResponse.Status;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * Which deliveries of a message run its action and which reuse the first execution.
+ */
+class MessageDeduplicationServiceTest {
+
+    @Test
+    void duplicatesShareTheFirstExecution() {
+        MessageDeduplicationService service = new MessageDeduplicationService(600, 100);
+        AtomicInteger runs = new AtomicInteger();
+        CompletableFuture<ToolExecutionResponse> pending = new CompletableFuture<>();
+
+        CompletableFuture<ToolExecutionResponse> first =
+                service.executeOnce("instance", "m1", counting(runs, () -> pending));
+        CompletableFuture<ToolExecutionResponse> second =
+                service.executeOnce("instance", "m1", counting(runs, () -> pending));
+        pending.complete(ToolExecutionResponse.accepted("tool", "r1"));
+
+        assertEquals(1, runs.get());
+        assertSame(first, second);
+        assertSame(first, service.executeOnce("instance", "m1", counting(runs, () -> pending)));
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    void keysIncludeTheInstance() {
+        MessageDeduplicationService service = new MessageDeduplicationService(600, 100);
+        AtomicInteger runs = new AtomicInteger();
+
+        service.executeOnce("instance-a", "m1", counting(runs, () -> completed(Status.ACCEPTED)));
+        service.executeOnce("instance-b", "m1", counting(runs, () -> completed(Status.ACCEPTED)));
+
+        assertEquals(2, runs.get());
+    }
+
+    @Test
+    void expiredExecutionsRunAgain() {
+        // With a TTL of zero every entry has expired by the next delivery
+        MessageDeduplicationService service = new MessageDeduplicationService(0, 100);
+        AtomicInteger runs = new AtomicInteger();
+
+        service.executeOnce("instance", "m1", counting(runs, () -> completed(Status.COMPLETED)));
+        service.executeOnce("instance", "m1", counting(runs, () -> completed(Status.COMPLETED)));
+
+        assertEquals(2, runs.get());
+        assertEquals(1, service.size());
+    }
+
+    @Test
+    void keepsAcceptedAndCompletedExecutions() {
+        MessageDeduplicationService service = new MessageDeduplicationService(600, 100);
+
+        for (Status status : List.of(Status.ACCEPTED, Status.COMPLETED)) {
+            AtomicInteger runs = new AtomicInteger();
+            service.executeOnce("instance", status.name(), counting(runs, () -> completed(status)));
+            service.executeOnce("instance", status.name(), counting(runs, () -> completed(status)));
+
+            assertEquals(1, runs.get(), status + " was run again");
+        }
+        assertEquals(2, service.size());
+    }
+
+    @Test
+    void forgetsFailedRejectedAndRefusedExecutions() {
+        MessageDeduplicationService service = new MessageDeduplicationService(600, 100);
+
+        for (Status status : List.of(Status.FAILED, Status.REJECTED, Status.THROTTLED, Status.OVERLOADED)) {
+            AtomicInteger runs = new AtomicInteger();
+            service.executeOnce("instance", status.name(), counting(runs, () -> completed(status)));
+            service.executeOnce("instance", status.name(), counting(runs, () -> completed(status)));
+
+            assertEquals(2, runs.get(), status + " was not run again");
+        }
+        assertEquals(0, service.size());
+    }
+
+    @Test
+    void forgetsExecutionsThatThrowOrFail() {
+        MessageDeduplicationService service = new MessageDeduplicationService(600, 100);
+        AtomicInteger runs = new AtomicInteger();
+
+        service.executeOnce("instance", "m1", counting(runs, () -> {
+            throw new IllegalStateException("queue is down");
+        }));
+        service.executeOnce("instance", "m1", counting(runs, () ->
+                CompletableFuture.failedFuture(new IllegalStateException("tool failed"))));
+        service.executeOnce("instance", "m1", counting(runs, () -> completed(Status.ACCEPTED)));
+
+        assertEquals(3, runs.get());
+        assertEquals(1, service.size());
+    }
+
+    @Test
+    void dropsTheOldestMessagesOverTheLimit() {
+        MessageDeduplicationService service = new MessageDeduplicationService(600, 2);
+        AtomicInteger runs = new AtomicInteger();
+
+        for (String messageId : List.of("m1", "m2", "m3", "m1")) {
+            service.executeOnce("instance", messageId, counting(runs, () -> completed(Status.ACCEPTED)));
+        }
+
+        // m1 was dropped when m3 arrived, so its second delivery ran again
+        assertEquals(4, runs.get());
+        assertEquals(2, service.size());
+    }
+
+    @Test
+    void messagesWithoutAnIdAreNotDeduplicated() {
+        MessageDeduplicationService service = new MessageDeduplicationService(600, 100);
+        AtomicInteger runs = new AtomicInteger();
+
+        service.executeOnce("instance", null, counting(runs, () -> completed(Status.ACCEPTED)));
+        service.executeOnce("instance", " ", counting(runs, () -> completed(Status.ACCEPTED)));
+
+        assertEquals(2, runs.get());
+        assertEquals(0, service.size());
+    }
+
+    private static Supplier<CompletableFuture<ToolExecutionResponse>> counting(
+            AtomicInteger runs, Supplier<CompletableFuture<ToolExecutionResponse>> action) {
+        return () -> {
+            runs.incrementAndGet();
+            return action.get();
+        };
+    }
+
+    private static CompletableFuture<ToolExecutionResponse> completed(Status status) {
+        ToolExecutionResponse response = new ToolExecutionResponse("tool", "error", status, "r1");
+        return CompletableFuture.completedFuture(response);
+    }
+}
@@ -0,0 +1,196 @@
+package com.joshua.dias.gptutils.orchestration.service;
+
+import com.joshua.dias.gptutils.orchestration.model.AdmissionDecision;
+import com.joshua.dias.gptutils.orchestration.model.Lane;
+import com.joshua.dias.gptutils.orchestration.model.ToolExecutionRequest;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.api.trace.Tracer;
+import io.smallrye.config.SmallRyeConfigBuilder;
+import org.eclipse.microprofile.config.Config;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Shedding of requests by the load of their lane. Only the forwarding tool is shed; the executor has a single
+ * shard per lane, which the tests keep busy so that tasks pile up in its queue.
+ */
+class AdmissionControllerTest {
+
+    private static final String SHED_TOOL = "forwarding";
+
+    private final CountDownLatch release = new CountDownLatch(1);
+    private CancellationRegistry cancellationRegistry;
+    private ChatOrderedExecutor executor;
+
+    @AfterEach
+    void shutdown() {
+        release.countDown();
+        if (executor != null) {
+            executor.shutdown();
+            cancellationRegistry.shutdown();
+        }
+    }
+
+    @Test
+    void admitsEverythingWhileTheLaneHasRoom() {
+        AdmissionController admission = open(true, Map.of());
+
+        assertTrue(admission.check(request(SHED_TOOL, 0)).isAdmitted());
+        assertTrue(admission.check(request("transcription", 0)).isAdmitted());
+    }
+
+    @Test
+    void shedsWith503WhenTheQueueIsTooDeep() throws Exception {
+        AdmissionController admission = open(true, Map.of("app.admission.max-queue-depth", "2"));
+        occupyShard(Lane.FAST);
+        queue(Lane.FAST, 2, 0);
+
+        AdmissionDecision decision = admission.check(request(SHED_TOOL, 0));
+
+        assertFalse(decision.isAdmitted());
+        assertEquals(503, decision.getHttpStatus());
+        assertTrue(decision.getRetryAfterSeconds() >= 1);
+    }
+
+    @Test
+    void shedsWith503WhenTheMediaInFlightWouldExceedTheLimit() throws Exception {
+        AdmissionController admission = open(true, Map.of("app.admission.max-in-flight-bytes", "1000"));
+        occupyShard(Lane.FAST);
+        queue(Lane.FAST, 1, 800);
+
+        assertTrue(admission.check(request(SHED_TOOL, 200)).isAdmitted());
+        AdmissionDecision decision = admission.check(request(SHED_TOOL, 300));
+
+        assertFalse(decision.isAdmitted());
+        assertEquals(503, decision.getHttpStatus());
+    }
+
+    @Test
+    void defersWith429WhenTheEstimatedWaitIsTooLong() throws Exception {
+        AdmissionController admission = open(true, Map.of("app.admission.max-wait-ms", "50"));
+        // A finished task gives the lane an average task duration to estimate the wait with
+        executor.submit(Lane.FAST, SHED_TOOL, "warmup", () -> sleepQuietly(100)).get(5, TimeUnit.SECONDS);
+        occupyShard(Lane.FAST);
+        queue(Lane.FAST, 1, 0);
+
+        AdmissionDecision decision = admission.check(request(SHED_TOOL, 0));
+
+        assertFalse(decision.isAdmitted());
+        assertEquals(429, decision.getHttpStatus());
+    }
+
+    @Test
+    void perToolLimitsOverrideTheGlobalOnes() throws Exception {
+        AdmissionController admission = open(true, Map.of(
+                "app.admission.max-queue-depth", "1",
+                "app.admission.tools." + SHED_TOOL + ".max-queue-depth", "5"));
+        occupyShard(Lane.FAST);
+        queue(Lane.FAST, 2, 0);
+
+        assertTrue(admission.check(request(SHED_TOOL, 0)).isAdmitted());
+    }
+
+    @Test
+    void neverShedsToolsThatAreNotConfiguredForIt() throws Exception {
+        AdmissionController admission = open(true, Map.of("app.admission.max-queue-depth", "1"));
+        occupyShard(Lane.HEAVY);
+        queue(Lane.HEAVY, 2, 0);
+
+        assertTrue(admission.check(request("transcription", 0)).isAdmitted());
+    }
+
+    @Test
+    void aBusyHeavyLaneDoesNotShedFastRequests() throws Exception {
+        AdmissionController admission = open(true, Map.of("app.admission.max-queue-depth", "1"));
+        occupyShard(Lane.HEAVY);
+        queue(Lane.HEAVY, 2, 0);
+
+        assertTrue(admission.check(request(SHED_TOOL, 0)).isAdmitted());
+    }
+
+    @Test
+    void admitsEverythingWhenDisabled() throws Exception {
+        AdmissionController admission = open(false, Map.of("app.admission.max-queue-depth", "1"));
+        occupyShard(Lane.FAST);
+        queue(Lane.FAST, 2, 0);
+
+        assertTrue(admission.check(request(SHED_TOOL, 0)).isAdmitted());
+    }
+
+    private AdmissionController open(boolean enabled, Map<String, String> properties) {
+        Config config = new SmallRyeConfigBuilder()
+                .withDefaultValues(Map.of(
+                        "app.executors.concurrency", "4",
+                        "app.admission.tools." + SHED_TOOL + ".shed", "true"))
+                .withDefaultValues(properties)
+                .build();
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        Tracer tracer = OpenTelemetry.noop().getTracer("test");
+        StageMetrics stageMetrics = new StageMetrics(meterRegistry, tracer);
+        cancellationRegistry = new CancellationRegistry(new InMemoryJobStore(3600, 100));
+        ExecutorRegistry executorRegistry = new ExecutorRegistry(config, cancellationRegistry, meterRegistry, false, 1);
+        executor = new ChatOrderedExecutor(executorRegistry, stageMetrics, meterRegistry, tracer, config,
+                1, 1, 50, 50, 1000, 1, 1);
+        executor.init();
+        LaneSelector laneSelector = new LaneSelector(List.of(SHED_TOOL), 262144);
+        return new AdmissionController(executor, laneSelector, stageMetrics, config, enabled);
+    }
+
+    private static ToolExecutionRequest request(String toolName, long contentSize) {
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("contentSize", contentSize);
+        return new ToolExecutionRequest(toolName, parameters, null);
+    }
+
+    /**
+     * Keeps the only shard of a lane busy until the test ends.
+     */
+    private void occupyShard(Lane lane) throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        executor.submit(lane, SHED_TOOL, "gate", () -> {
+            started.countDown();
+            return awaitQuietly(release);
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+    }
+
+    /**
+     * Queues tasks of the given weight behind the busy shard, each for its own chat.
+     */
+    private void queue(Lane lane, int count, long weight) {
+        for (int i = 0; i < count; i++) {
+            executor.submit(lane, SHED_TOOL, "chat" + i, weight, () -> true);
+        }
+    }
+
+    private static boolean awaitQuietly(CountDownLatch latch) {
+        try {
+            return latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static boolean sleepQuietly(long millis) {
+        try {
+            Thread.sleep(millis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package com.joshua.dias.gptutils.orchestration.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.joshua.dias.gptutils.orchestration.model.CallbackDeadLetter;
+import com.joshua.dias.gptutils.orchestration.model.JobState;
+import com.joshua.dias.gptutils.orchestration.model.ToolExecutionResponse;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.opentelemetry.api.OpenTelemetry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Batching, retries and dead-lettering of callbacks, delivered to a local HTTP server.
+ * The server answers with the statuses queued in {@link #statuses}, then with 200.
+ */
+class CallbackDispatcherTest {
+
+    private static final String TOOL = "transcription";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final BlockingQueue<JsonNode> received = new LinkedBlockingQueue<>();
+    private final ConcurrentLinkedQueue<Integer> statuses = new ConcurrentLinkedQueue<>();
+    private final InMemoryJobStore jobStore = new InMemoryJobStore(3600, 100);
+    private HttpServer server;
+    private String callbackUrl;
+    private CallbackDispatcher dispatcher;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/callback", exchange -> {
+            JsonNode batch = objectMapper.readTree(exchange.getRequestBody());
+            Integer status = statuses.poll();
+            exchange.sendResponseHeaders(status != null ? status : 200, -1);
+            exchange.close();
+            // Only once answered, so a test that ends right after receiving does not stop the server mid-response
+            received.add(batch);
+        });
+        server.start();
+        callbackUrl = "http://localhost:" + server.getAddress().getPort() + "/callback";
+    }
+
+    @AfterEach
+    void shutdown() {
+        if (dispatcher != null) {
+            dispatcher.shutdown();
+        }
+        server.stop(0);
+    }
+
+    @Test
+    void batchesResponsesToTheSameUrl() throws Exception {
+        dispatcher = open(2, 60000, 3);
+
+        deliver("r1", ToolExecutionResponse.completed(TOOL, new HashMap<>(), "r1"));
+        deliver("r2", ToolExecutionResponse.failed(TOOL, "Audio is empty", "r2"));
+
+        JsonNode batch = receive();
+        assertEquals(2, batch.size());
+        assertEquals("r1", batch.get(0).get("requestId").asText());
+        assertEquals("FAILED", batch.get(1).get("status").asText());
+    }
+
+    @Test
+    void sendsAPartialBatchOnceItHasLingered() throws Exception {
+        dispatcher = open(20, 50, 3);
+
+        deliver("r1", ToolExecutionResponse.completed(TOOL, new HashMap<>(), "r1"));
+
+        assertEquals(1, receive().size());
+    }
+
+    @Test
+    void deliversAcceptedRequestsWhenTheirJobFinishes() throws Exception {
+        dispatcher = open(1, 50, 3);
+        jobStore.create("r1", TOOL, "5511999990001", "m1");
+
+        deliver("r1", ToolExecutionResponse.accepted(TOOL, "r1"));
+        assertNull(received.poll(200, TimeUnit.MILLISECONDS));
+        jobStore.transition("r1", JobState.DONE);
+
+        JsonNode response = receive().get(0);
+        assertEquals("COMPLETED", response.get("status").asText());
+        assertEquals("DONE", response.get("result").get("state").asText());
+    }
+
+    @Test
+    void deliversAFailureForToolsThatThrow() throws Exception {
+        dispatcher = open(1, 50, 3);
+        dispatcher.register("r1", TOOL, callbackUrl);
+
+        dispatcher.onToolResult("r1", null, new IllegalStateException("queue is down"));
+
+        JsonNode response = receive().get(0);
+        assertEquals("FAILED", response.get("status").asText());
+        assertEquals("Error executing tool: queue is down", response.get("errorMessage").asText());
+    }
+
+    @Test
+    void doesNotDeliverRequestsRefusedBecauseOfLoad() throws Exception {
+        dispatcher = open(1, 50, 3);
+
+        deliver("r1", ToolExecutionResponse.throttled(TOOL, "Too many pending requests", 1, "r1"));
+        deliver("r2", ToolExecutionResponse.overloaded(TOOL, "Server is overloaded", 1, "r2"));
+
+        assertNull(received.poll(200, TimeUnit.MILLISECONDS));
+        assertEquals(0, dispatcher.getStats().getAwaiting());
+    }
+
+    @Test
+    void retriesServerErrorsUntilTheBatchIsDelivered() throws Exception {
+        dispatcher = open(1, 50, 3);
+        statuses.add(503);
+        statuses.add(429);
+
+        deliver("r1", ToolExecutionResponse.completed(TOOL, new HashMap<>(), "r1"));
+
+        for (int attempt = 1; attempt <= 3; attempt++) {
+            assertEquals("r1", receive().get(0).get("requestId").asText());
+        }
+        awaitDelivered(1);
+        assertEquals(2, dispatcher.getStats().getRetries());
+        assertTrue(dispatcher.getDeadLetters().isEmpty());
+    }
+
+    @Test
+    void deadLettersBatchesThatKeepFailing() throws Exception {
+        dispatcher = open(1, 50, 2);
+        statuses.add(500);
+        statuses.add(500);
+
+        deliver("r1", ToolExecutionResponse.completed(TOOL, new HashMap<>(), "r1"));
+        receive();
+        receive();
+
+        assertEquals(2, awaitDeadLetters().get(0).getAttempts());
+    }
+
+    @Test
+    void deadLettersRefusedBatchesWithoutRetryingAndRedeliversThem() throws Exception {
+        dispatcher = open(1, 50, 3);
+        statuses.add(400);
+
+        deliver("r1", ToolExecutionResponse.completed(TOOL, new HashMap<>(), "r1"));
+        receive();
+        assertEquals("HTTP 400", awaitDeadLetters().get(0).getLastError());
+        assertEquals(0, dispatcher.getStats().getRetries());
+
+        assertEquals(1, dispatcher.redeliverDeadLetters());
+        assertEquals("r1", receive().get(0).get("requestId").asText());
+        awaitDelivered(1);
+        assertTrue(dispatcher.getDeadLetters().isEmpty());
+    }
+
+    @Test
+    void resolvesOnlyUrlsOnAllowedHosts() {
+        dispatcher = open(1, 50, 3);
+
+        assertEquals(callbackUrl, dispatcher.resolve(callbackUrl));
+        assertNull(dispatcher.resolve(null));
+        assertThrows(IllegalArgumentException.class, () -> dispatcher.resolve("http://169.254.169.254/latest"));
+        assertThrows(IllegalArgumentException.class, () -> dispatcher.resolve("file:///etc/passwd"));
+    }
+
+    private CallbackDispatcher open(int maxBatchSize, long lingerMillis, int maxAttempts) {
+        StageMetrics stageMetrics = new StageMetrics(new SimpleMeterRegistry(), OpenTelemetry.noop().getTracer("test"));
+        return new CallbackDispatcher(jobStore, objectMapper, stageMetrics, Optional.empty(),
+                Optional.of(List.of("localhost")), maxBatchSize, lingerMillis, maxAttempts, 10, 20, 5000, 10);
+    }
+
+    /**
+     * Registers a request for the test server and reports the response of its tool.
+     */
+    private void deliver(String requestId, ToolExecutionResponse response) {
+        dispatcher.register(requestId, TOOL, callbackUrl);
+        dispatcher.onToolResult(requestId, response, null);
+    }
+
+    private JsonNode receive() throws InterruptedException {
+        JsonNode batch = received.poll(5, TimeUnit.SECONDS);
+        assertNotNull(batch);
+        return batch;
+    }
+
+    /**
+     * Waits for the dispatcher to handle the answer of the last delivery, which arrives after the server has
+     * seen the request.
+     */
+    private void awaitDelivered(long expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (dispatcher.getStats().getDelivered() < expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(expected, dispatcher.getStats().getDelivered());
+    }
+
+    private List<CallbackDeadLetter> awaitDeadLetters() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (dispatcher.getDeadLetters().isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, dispatcher.getDeadLetters().size());
+        return dispatcher.getDeadLetters();
+    }
+}
@@ -0,0 +1,235 @@
+package com.joshua.dias.gptutils.orchestration.service;
+
+import com.joshua.dias.gptutils.orchestration.model.Lane;
+import com.joshua.dias.gptutils.orchestration.model.ToolExecutionResponse;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.api.trace.Tracer;
+import io.smallrye.config.SmallRyeConfigBuilder;
+import org.eclipse.microprofile.config.Config;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Ordering and admission of tasks in the shards of the chat-ordered executor.
+ * Tests that need tasks to pile up first occupy the shard with a task that waits for a latch.
+ */
+class ChatOrderedExecutorTest {
+
+    private static final String TOOL = "tool";
+    private static final long QUANTUM = 1000;
+
+    private final List<String> order = Collections.synchronizedList(new ArrayList<>());
+    private CancellationRegistry cancellationRegistry;
+    private ChatOrderedExecutor executor;
+
+    @AfterEach
+    void shutdown() {
+        if (executor != null) {
+            executor.shutdown();
+            cancellationRegistry.shutdown();
+        }
+    }
+
+    @Test
+    void tasksOfAChatRunInSubmissionOrder() throws Exception {
+        executor = open(64, 50, 50, Map.of());
+        List<CompletableFuture<Boolean>> futures = new ArrayList<>();
+
+        for (int i = 0; i < 20; i++) {
+            futures.add(record("5511999990001", 0, "a" + i));
+            futures.add(record("5511999990002", 0, "b" + i));
+        }
+        await(futures);
+
+        List<String> chatA = new ArrayList<>();
+        List<String> chatB = new ArrayList<>();
+        for (String task : order) {
+            (task.startsWith("a") ? chatA : chatB).add(task);
+        }
+        for (int i = 0; i < 20; i++) {
+            assertEquals("a" + i, chatA.get(i));
+            assertEquals("b" + i, chatB.get(i));
+        }
+    }
+
+    @Test
+    void throttlesAChatOverItsLimitAndRefusesAFullShard() throws Exception {
+        executor = open(1, 3, 2, Map.of());
+        CountDownLatch release = occupyShard();
+
+        record("a", 0, "a1");
+        record("a", 0, "a2");
+        ExecutorOverloadedException chatFull = assertThrows(ExecutorOverloadedException.class,
+                () -> record("a", 0, "a3"));
+        record("b", 0, "b1");
+        ExecutorOverloadedException shardFull = assertThrows(ExecutorOverloadedException.class,
+                () -> record("c", 0, "c1"));
+        release.countDown();
+
+        assertTrue(chatFull.isChatLimit());
+        assertEquals(ToolExecutionResponse.Status.THROTTLED, chatFull.toResponse(TOOL, "r1").getStatus());
+        assertFalse(shardFull.isChatLimit());
+        assertEquals(ToolExecutionResponse.Status.OVERLOADED, shardFull.toResponse(TOOL, "r1").getStatus());
+        assertTrue(shardFull.toResponse(TOOL, "r1").getRetryAfterSeconds() >= 1);
+    }
+
+    @Test
+    void chatsSharingAShardTakeTurns() throws Exception {
+        executor = open(1, 50, 50, Map.of("app.executors.concurrency", "1"));
+        CountDownLatch release = occupyShard();
+        List<CompletableFuture<Boolean>> futures = new ArrayList<>();
+
+        for (int i = 1; i <= 5; i++) {
+            futures.add(record("noisy", QUANTUM, "n" + i));
+        }
+        futures.add(record("quiet", QUANTUM, "q1"));
+        futures.add(record("quiet", QUANTUM, "q2"));
+        release.countDown();
+        await(futures);
+
+        assertEquals(List.of("n1", "q1", "n2", "q2", "n3", "n4", "n5"), order);
+    }
+
+    @Test
+    void weightedChatsGetALargerShare() throws Exception {
+        executor = open(1, 50, 50, Map.of("app.executors.concurrency", "1", "app.fairness.weights.vip", "2"));
+        CountDownLatch release = occupyShard();
+        List<CompletableFuture<Boolean>> futures = new ArrayList<>();
+
+        for (int i = 1; i <= 4; i++) {
+            futures.add(record("vip", QUANTUM, "v" + i));
+        }
+        for (int i = 1; i <= 3; i++) {
+            futures.add(record("other", QUANTUM, "o" + i));
+        }
+        release.countDown();
+        await(futures);
+
+        assertEquals(List.of("v1", "v2", "o1", "v3", "v4", "o2", "o3"), order);
+    }
+
+    @Test
+    void largeTasksWaitUntilTheirChatHasSavedUpForThem() throws Exception {
+        executor = open(1, 50, 50, Map.of("app.executors.concurrency", "1"));
+        CountDownLatch release = occupyShard();
+        List<CompletableFuture<Boolean>> futures = new ArrayList<>();
+
+        // A task three quanta large runs on the third turn of its chat
+        futures.add(record("media", 3 * QUANTUM, "m1"));
+        for (int i = 1; i <= 4; i++) {
+            futures.add(record("text", QUANTUM, "t" + i));
+        }
+        release.countDown();
+        await(futures);
+
+        assertEquals(List.of("t1", "t2", "m1", "t3", "t4"), order);
+    }
+
+    @Test
+    void asyncTasksKeepTheShardUntilTheirFutureCompletes() throws Exception {
+        executor = open(1, 50, 50, Map.of());
+        CompletableFuture<String> pipeline = new CompletableFuture<>();
+
+        CompletableFuture<String> first = executor.submitAsync(Lane.HEAVY, TOOL, "a", 0, () -> pipeline);
+        CompletableFuture<Boolean> second = record("a", 0, "a2");
+
+        assertThrows(TimeoutException.class, () -> second.get(200, TimeUnit.MILLISECONDS));
+        pipeline.complete("a1");
+        assertEquals("a1", first.get(5, TimeUnit.SECONDS));
+        assertTrue(second.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void pendingResultsOfSyncTasksDoNotHoldTheShard() throws Exception {
+        executor = open(1, 50, 50, Map.of());
+        CompletableFuture<String> notification = new CompletableFuture<>();
+
+        // The way the tools hand back a notification that is waiting for its retry
+        CompletableFuture<String> first = executor.submit(Lane.HEAVY, TOOL, "a", 0, () -> notification)
+                .thenCompose(notified -> notified);
+
+        assertTrue(record("a", 0, "a2").get(5, TimeUnit.SECONDS));
+        assertFalse(first.isDone());
+        notification.complete("sent");
+        assertEquals("sent", first.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void refusesTasksWhileShuttingDown() {
+        executor = open(1, 50, 50, Map.of());
+        executor.shutdown();
+
+        ExecutorOverloadedException e = assertThrows(ExecutorOverloadedException.class,
+                () -> record("a", 0, "a1"));
+
+        assertFalse(e.isChatLimit());
+    }
+
+    private ChatOrderedExecutor open(int shards, int shardQueueSize, int maxQueuedPerChat,
+                                     Map<String, String> properties) {
+        Config config = new SmallRyeConfigBuilder()
+                .withDefaultValues(Map.of("app.executors.concurrency", "4"))
+                .withDefaultValues(properties)
+                .build();
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        Tracer tracer = OpenTelemetry.noop().getTracer("test");
+        cancellationRegistry = new CancellationRegistry(new InMemoryJobStore(3600, 100));
+        ExecutorRegistry executorRegistry = new ExecutorRegistry(config, cancellationRegistry, meterRegistry, false, 1);
+        ChatOrderedExecutor chatOrderedExecutor = new ChatOrderedExecutor(executorRegistry,
+                new StageMetrics(meterRegistry, tracer), meterRegistry, tracer, config,
+                shards, 1, shardQueueSize, maxQueuedPerChat, QUANTUM, 1, 1);
+        chatOrderedExecutor.init();
+        return chatOrderedExecutor;
+    }
+
+    /**
+     * Submits a task that records its name when it runs.
+     */
+    private CompletableFuture<Boolean> record(String chatKey, long weight, String name) {
+        return executor.submit(Lane.HEAVY, TOOL, chatKey, weight, () -> order.add(name));
+    }
+
+    /**
+     * Keeps the shard of the "gate" chat busy until the returned latch is released.
+     * With a single shard, every task submitted meanwhile waits in its chat's queue.
+     */
+    private CountDownLatch occupyShard() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        executor.submit(Lane.HEAVY, TOOL, "gate", () -> {
+            started.countDown();
+            return awaitQuietly(release);
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        return release;
+    }
+
+    private static boolean awaitQuietly(CountDownLatch latch) {
+        try {
+            return latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static void await(List<? extends CompletableFuture<?>> futures) throws Exception {
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).get(5, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,148 @@
+package com.joshua.dias.gptutils.orchestration.service;
+
+import com.joshua.dias.gptutils.orchestration.model.CircuitState;
+import com.joshua.dias.gptutils.orchestration.model.JobCancelledException;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Transitions of the circuit of a downstream guard. The window holds four calls and the circuit opens
+ * at half of them failing; it stays open for {@link #OPEN_MILLIS} and closes after one healthy trial call.
+ */
+class DownstreamGuardTest {
+
+    private static final long OPEN_MILLIS = 100;
+
+    @Test
+    void staysClosedBelowTheMinimumNumberOfCalls() throws Exception {
+        DownstreamGuard guard = guard(10_000);
+
+        fail(guard);
+        fail(guard);
+        fail(guard);
+
+        assertEquals(CircuitState.CLOSED, guard.getState());
+    }
+
+    @Test
+    void opensOnceTheFailureRateReachesTheThreshold() throws Exception {
+        DownstreamGuard guard = guard(10_000);
+        AtomicInteger calls = new AtomicInteger();
+
+        succeed(guard);
+        fail(guard);
+        succeed(guard);
+        fail(guard);
+
+        assertEquals(CircuitState.OPEN, guard.getState());
+        assertFalse(guard.isCallPermitted());
+        assertThrows(DownstreamUnavailableException.class, () -> guard.call(calls::incrementAndGet));
+        assertEquals(0, calls.get());
+        assertEquals(1, guard.snapshot().getRejectedOpen());
+    }
+
+    @Test
+    void failureResultsAndSlowCallsCountAsFailures() throws Exception {
+        DownstreamGuard guard = guard(20);
+
+        guard.call(() -> 503, status -> status >= 500);
+        guard.call(() -> 503, status -> status >= 500);
+        guard.call(() -> {
+            Thread.sleep(40);
+            return 200;
+        }, status -> status >= 500);
+        assertEquals(CircuitState.CLOSED, guard.getState());
+        succeed(guard);
+
+        assertEquals(CircuitState.OPEN, guard.getState());
+        assertEquals(1, guard.snapshot().getSlowCalls());
+    }
+
+    @Test
+    void aHealthyTrialCallClosesTheCircuit() throws Exception {
+        DownstreamGuard guard = open();
+
+        Thread.sleep(OPEN_MILLIS + 50);
+        assertTrue(guard.isCallPermitted());
+        succeed(guard);
+
+        assertEquals(CircuitState.CLOSED, guard.getState());
+        // The window starts over, so a single failure does not open the circuit again
+        fail(guard);
+        assertEquals(CircuitState.CLOSED, guard.getState());
+    }
+
+    @Test
+    void aFailedTrialCallOpensTheCircuitAgain() throws Exception {
+        DownstreamGuard guard = open();
+
+        Thread.sleep(OPEN_MILLIS + 50);
+        fail(guard);
+
+        assertEquals(CircuitState.OPEN, guard.getState());
+        assertThrows(DownstreamUnavailableException.class, () -> succeed(guard));
+    }
+
+    @Test
+    void refusesOtherCallsWhileTheTrialIsInFlight() throws Exception {
+        DownstreamGuard guard = open();
+        Thread.sleep(OPEN_MILLIS + 50);
+
+        Integer result = guard.call(() -> {
+            assertEquals(CircuitState.HALF_OPEN, guard.getState());
+            assertThrows(DownstreamUnavailableException.class, () -> succeed(guard));
+            return 200;
+        });
+
+        assertEquals(200, (int) result);
+        assertEquals(CircuitState.CLOSED, guard.getState());
+    }
+
+    @Test
+    void cancelledCallsAreNotCountedAsFailures() throws Exception {
+        DownstreamGuard guard = guard(10_000);
+
+        for (int i = 0; i < 4; i++) {
+            assertThrows(JobCancelledException.class, () -> guard.call(() -> {
+                throw new JobCancelledException("transcription", "Cancelled by the user");
+            }));
+        }
+
+        assertEquals(CircuitState.CLOSED, guard.getState());
+        assertEquals(0, guard.snapshot().getFailures());
+    }
+
+    private static DownstreamGuard guard(long slowCallMillis) {
+        return new DownstreamGuard("test", new DownstreamGuard.Settings(
+                2, 0, 4, 4, 50, slowCallMillis, OPEN_MILLIS, 1, false));
+    }
+
+    /**
+     * Creates a guard whose circuit has just opened.
+     */
+    private static DownstreamGuard open() throws Exception {
+        DownstreamGuard guard = guard(10_000);
+        for (int i = 0; i < 4; i++) {
+            fail(guard);
+        }
+        assertEquals(CircuitState.OPEN, guard.getState());
+        return guard;
+    }
+
+    private static void succeed(DownstreamGuard guard) throws Exception {
+        guard.call(() -> "ok");
+    }
+
+    private static void fail(DownstreamGuard guard) {
+        assertThrows(IOException.class, () -> guard.call(() -> {
+            throw new IOException("connection reset");
+        }));
+    }
+}
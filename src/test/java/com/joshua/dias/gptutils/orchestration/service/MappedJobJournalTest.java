@@ -0,0 +1,159 @@
+package com.joshua.dias.gptutils.orchestration.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.joshua.dias.gptutils.orchestration.model.JobState;
+import com.joshua.dias.gptutils.orchestration.model.ToolExecutionRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Round trips of the job journal through its segment files.
+ * Request IDs are one character long, so every accepted record has the same size.
+ */
+class MappedJobJournalTest {
+
+    private static final int HEADER_SIZE = 2 * Integer.BYTES;
+    private static final int COMPLETED_SIZE = HEADER_SIZE + 1 + Short.BYTES + 1;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @TempDir
+    Path directory;
+
+    private MappedJobJournal journal;
+
+    @AfterEach
+    void closeJournal() {
+        if (journal != null) {
+            journal.shutdown();
+        }
+    }
+
+    @Test
+    void replaysUnfinishedRequestsAfterReopen() throws IOException {
+        journal = open(new InMemoryJobStore(3600, 100), 4096, 4);
+        journal.recordAccepted("a", request("a"));
+        journal.recordAccepted("b", request("b"));
+        journal.recordCompleted("a");
+
+        journal.shutdown();
+        journal = open(new InMemoryJobStore(3600, 100), 4096, 4);
+
+        assertEquals(List.of("b"), requestIds(journal.takeUnfinished()));
+        assertEquals(1, journal.liveCount());
+        assertEquals(List.of(), journal.takeUnfinished());
+    }
+
+    @Test
+    void finishedJobsAreMarkedCompleted() throws IOException {
+        InMemoryJobStore jobStore = new InMemoryJobStore(3600, 100);
+        journal = open(jobStore, 4096, 4);
+        jobStore.create("a", "tool", "5511999999999", "message");
+        journal.recordAccepted("a", request("a"));
+
+        jobStore.transition("a", JobState.DONE);
+
+        assertEquals(0, journal.liveCount());
+        journal.shutdown();
+        journal = open(new InMemoryJobStore(3600, 100), 4096, 4);
+        assertEquals(List.of(), journal.takeUnfinished());
+    }
+
+    @Test
+    void keepsCompletionMarkersOfRequestsInOlderSegments() throws IOException {
+        // Two accepted records fill a segment, and the second segment also fits the two completion markers
+        int acceptedSize = acceptedSize("x");
+        int segmentSize = 2 * acceptedSize + 2 * COMPLETED_SIZE + 4;
+        journal = open(new InMemoryJobStore(3600, 100), segmentSize, 4);
+
+        journal.recordAccepted("a", request("a"));
+        journal.recordAccepted("x", request("x"));
+        // The second segment finishes "x" from the first one and then has no live requests of its own
+        journal.recordAccepted("b", request("b"));
+        journal.recordCompleted("x");
+        journal.recordCompleted("b");
+        journal.recordAccepted("c", request("c"));
+        journal.recordAccepted("d", request("d"));
+        journal.recordCompleted("c");
+
+        journal.shutdown();
+        journal = open(new InMemoryJobStore(3600, 100), segmentSize, 4);
+
+        assertEquals(List.of("a", "d"), requestIds(journal.takeUnfinished()));
+    }
+
+    @Test
+    void compactsTheOldestSegmentBeyondTheLimit() throws IOException {
+        int segmentSize = 2 * acceptedSize("x");
+        journal = open(new InMemoryJobStore(3600, 100), segmentSize, 2);
+
+        journal.recordAccepted("a", request("a"));
+        for (char id = 'b'; id <= 'k'; id++) {
+            journal.recordAccepted(String.valueOf(id), request(String.valueOf(id)));
+            journal.recordCompleted(String.valueOf(id));
+        }
+
+        assertTrue(segmentFiles() <= 3, segmentFiles() + " segment files");
+        journal.shutdown();
+        journal = open(new InMemoryJobStore(3600, 100), segmentSize, 2);
+
+        assertEquals(List.of("a"), requestIds(journal.takeUnfinished()));
+    }
+
+    @Test
+    void evictedJobsAreMarkedCompleted() throws IOException {
+        InMemoryJobStore jobStore = new InMemoryJobStore(3600, 1);
+        journal = open(jobStore, 4096, 4);
+        jobStore.create("a", "tool", "5511999999999", "message");
+        journal.recordAccepted("a", request("a"));
+
+        jobStore.create("b", "tool", "5511999999999", "message");
+        journal.recordAccepted("b", request("b"));
+
+        assertNull(jobStore.get("a"));
+        assertEquals(1, journal.liveCount());
+        journal.shutdown();
+        journal = open(new InMemoryJobStore(3600, 100), 4096, 4);
+        assertEquals(List.of("b"), requestIds(journal.takeUnfinished()));
+    }
+
+    private MappedJobJournal open(JobStore jobStore, int segmentSize, int maxSegments) {
+        MappedJobJournal opened = new MappedJobJournal(
+                objectMapper, jobStore, true, directory.toString(), segmentSize, maxSegments, 1, false);
+        opened.init();
+        return opened;
+    }
+
+    private int acceptedSize(String requestId) throws IOException {
+        return HEADER_SIZE + 1 + Short.BYTES + requestId.length()
+                + objectMapper.writeValueAsBytes(request(requestId)).length;
+    }
+
+    private long segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.count();
+        }
+    }
+
+    private static ToolExecutionRequest request(String requestId) {
+        return new ToolExecutionRequest("tool", Map.of("requestId", requestId, "text", "x".repeat(200)), null);
+    }
+
+    private static List<String> requestIds(List<ToolExecutionRequest> requests) {
+        return requests.stream()
+                .map(request -> (String) request.getParameters().get("requestId"))
+                .toList();
+    }
+}
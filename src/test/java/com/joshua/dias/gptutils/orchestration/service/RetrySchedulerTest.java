@@ -0,0 +1,189 @@
+package com.joshua.dias.gptutils.orchestration.service;
+
+import com.joshua.dias.gptutils.orchestration.model.CancellationToken;
+import com.joshua.dias.gptutils.orchestration.model.Deadline;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.api.trace.Tracer;
+import io.smallrye.config.SmallRyeConfigBuilder;
+import org.eclipse.microprofile.config.Config;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Backoff and abandonment of retries. The "fast" operation backs off for tens of milliseconds,
+ * the "slow" one for longer than any test waits, so only a cancellation can end its retries early.
+ */
+class RetrySchedulerTest {
+
+    private CancellationRegistry cancellationRegistry;
+    private ExecutorRegistry executorRegistry;
+    private RetryScheduler retryScheduler;
+
+    @BeforeEach
+    void open() {
+        Config config = new SmallRyeConfigBuilder()
+                .withDefaultValues(Map.of(
+                        "app.retries.max-attempts", "3",
+                        "app.retries.initial-backoff-ms", "20",
+                        "app.retries.max-backoff-ms", "40",
+                        "app.retries.operations.slow.initial-backoff-ms", "60000",
+                        "app.retries.operations.slow.max-backoff-ms", "60000"))
+                .build();
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        Tracer tracer = OpenTelemetry.noop().getTracer("test");
+        cancellationRegistry = new CancellationRegistry(new InMemoryJobStore(3600, 100));
+        executorRegistry = new ExecutorRegistry(config, cancellationRegistry, meterRegistry, false, 1);
+        retryScheduler = new RetryScheduler(config, executorRegistry, new StageMetrics(meterRegistry, tracer));
+    }
+
+    @AfterEach
+    void shutdown() {
+        retryScheduler.shutdown();
+        executorRegistry.drain();
+        cancellationRegistry.shutdown();
+    }
+
+    @Test
+    void retriesFailedCallsWithGrowingBackoff() throws Exception {
+        List<Long> attempts = new CopyOnWriteArrayList<>();
+
+        CompletableFuture<String> result = retryScheduler.execute("fast", () -> {
+            attempts.add(System.nanoTime());
+            if (attempts.size() < 3) {
+                throw new IOException("connection reset");
+            }
+            return "sent";
+        }, response -> false, CancellationToken.none());
+
+        assertEquals("sent", result.get(5, TimeUnit.SECONDS));
+        assertEquals(3, attempts.size());
+        // Each delay is at least half of its ceiling: 20ms, then 40ms
+        assertTrue(millisBetween(attempts.get(0), attempts.get(1)) >= 10);
+        assertTrue(millisBetween(attempts.get(1), attempts.get(2)) >= 20);
+    }
+
+    @Test
+    void retriesResultsThatAskForIt() throws Exception {
+        AtomicInteger attempts = new AtomicInteger();
+
+        CompletableFuture<Integer> result = retryScheduler.execute("fast",
+                () -> attempts.incrementAndGet() == 1 ? 503 : 200,
+                status -> status >= 500,
+                CancellationToken.none());
+
+        int status = result.get(5, TimeUnit.SECONDS);
+        assertEquals(200, status);
+        assertEquals(2, attempts.get());
+    }
+
+    @Test
+    void givesUpWithTheLastFailureAfterMaxAttempts() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        CompletableFuture<String> result = retryScheduler.execute("fast", () -> {
+            throw new IOException("attempt " + attempts.incrementAndGet());
+        }, response -> false, CancellationToken.none());
+
+        ExecutionException e = assertThrows(ExecutionException.class, () -> result.get(5, TimeUnit.SECONDS));
+        assertEquals("attempt 3", e.getCause().getMessage());
+        assertEquals(3, attempts.get());
+    }
+
+    @Test
+    void doesNotRetryCallsRefusedByAnOpenCircuit() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        CompletableFuture<String> result = retryScheduler.execute("fast", () -> {
+            attempts.incrementAndGet();
+            throw new DownstreamUnavailableException("zapi", "circuit open", 1000);
+        }, response -> false, CancellationToken.none());
+
+        ExecutionException e = assertThrows(ExecutionException.class, () -> result.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(DownstreamUnavailableException.class, e.getCause());
+        assertEquals(1, attempts.get());
+    }
+
+    @Test
+    void retriesOnlyTheFailuresItIsToldTo() throws Exception {
+        AtomicInteger attempts = new AtomicInteger();
+
+        // The way a non-idempotent call is retried: only when the request never left
+        CompletableFuture<String> result = retryScheduler.executeAsync("fast", () -> {
+            int attempt = attempts.incrementAndGet();
+            return CompletableFuture.failedFuture(attempt == 1
+                    ? new ConnectException("connection refused")
+                    : new IOException("read timed out"));
+        }, response -> false, failure -> failure instanceof ConnectException, CancellationToken.none());
+
+        ExecutionException e = assertThrows(ExecutionException.class, () -> result.get(5, TimeUnit.SECONDS));
+        assertEquals("read timed out", e.getCause().getMessage());
+        assertEquals(2, attempts.get());
+    }
+
+    @Test
+    void cancellingTheRequestAbandonsItsPendingRetry() throws Exception {
+        CancellationToken cancellation = cancellationRegistry.register("r1", "chat", Deadline.none());
+        AtomicInteger attempts = new AtomicInteger();
+
+        CompletableFuture<Integer> result = retryScheduler.execute("slow",
+                attempts::incrementAndGet, attempt -> true, cancellation);
+        assertEquals(1, retryScheduler.getPending());
+        cancellation.cancel("Cancelled by the user");
+
+        // The outcome of the last attempt, without waiting for the backoff
+        int lastAttempt = result.get(5, TimeUnit.SECONDS);
+        assertEquals(1, lastAttempt);
+        assertEquals(1, attempts.get());
+        assertEquals(0, retryScheduler.getPending());
+    }
+
+    @Test
+    void aPassingDeadlineAbandonsThePendingRetry() throws Exception {
+        CancellationToken cancellation = cancellationRegistry.register("r1", "chat",
+                Deadline.at(System.currentTimeMillis() + 200));
+        AtomicInteger attempts = new AtomicInteger();
+
+        CompletableFuture<Integer> result = retryScheduler.execute("slow",
+                attempts::incrementAndGet, attempt -> true, cancellation);
+
+        int lastAttempt = result.get(5, TimeUnit.SECONDS);
+        assertEquals(1, lastAttempt);
+        assertEquals(1, attempts.get());
+        assertEquals(0, retryScheduler.getPending());
+    }
+
+    @Test
+    void doesNotScheduleRetriesPastTheDeadline() throws Exception {
+        CancellationToken cancellation = new CancellationToken("r1", "chat", Deadline.at(System.currentTimeMillis() - 1));
+        AtomicInteger attempts = new AtomicInteger();
+
+        CompletableFuture<Integer> result = retryScheduler.execute("fast",
+                attempts::incrementAndGet, attempt -> true, cancellation);
+
+        int lastAttempt = result.get(5, TimeUnit.SECONDS);
+        assertEquals(1, lastAttempt);
+        assertEquals(0, retryScheduler.getPending());
+    }
+
+    private static long millisBetween(long startNanos, long endNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(endNanos - startNanos);
+    }
+}
@@ -0,0 +1,149 @@
+package com.joshua.dias.gptutils.transcription.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Round trips of the transcript cache through its segment files.
+ * Every transcript is 60 bytes, so every record takes 100 bytes with its header and key.
+ */
+class SegmentTranscriptCacheTest {
+
+    private static final int RECORD_SIZE = 100;
+
+    @TempDir
+    Path directory;
+
+    private SegmentTranscriptCache cache;
+
+    @AfterEach
+    void closeCache() {
+        if (cache != null) {
+            cache.shutdown();
+        }
+    }
+
+    @Test
+    void transcriptsSurviveReopen() {
+        cache = open(10 * RECORD_SIZE, 100 * RECORD_SIZE);
+        cache.put(key(1), transcript(1));
+        cache.put(key(2), transcript(2));
+
+        assertEquals(transcript(1), cache.get(key(1)));
+        assertNull(cache.get(key(3)));
+
+        cache.shutdown();
+        cache = open(10 * RECORD_SIZE, 100 * RECORD_SIZE);
+
+        assertEquals(2, cache.size());
+        assertEquals(transcript(1), cache.get(key(1)));
+        assertEquals(transcript(2), cache.get(key(2)));
+    }
+
+    @Test
+    void putKeepsTheFirstTranscriptOfAKey() {
+        cache = open(10 * RECORD_SIZE, 100 * RECORD_SIZE);
+        cache.put(key(1), transcript(1));
+        cache.put(key(1), transcript(2));
+
+        assertEquals(transcript(1), cache.get(key(1)));
+        assertEquals(RECORD_SIZE, cache.getLiveBytes());
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedOverLimit() {
+        cache = open(10 * RECORD_SIZE, 3 * RECORD_SIZE);
+        cache.put(key(1), transcript(1));
+        cache.put(key(2), transcript(2));
+        cache.put(key(3), transcript(3));
+        cache.get(key(1));
+        cache.put(key(4), transcript(4));
+
+        assertNull(cache.get(key(2)));
+        assertEquals(transcript(1), cache.get(key(1)));
+        assertEquals(transcript(3), cache.get(key(3)));
+        assertEquals(transcript(4), cache.get(key(4)));
+        assertEquals(3 * RECORD_SIZE, cache.getLiveBytes());
+    }
+
+    @Test
+    void compactsMostlyDeadSegments() throws IOException {
+        int segmentSize = 4 * RECORD_SIZE;
+        int maxBytes = 2 * RECORD_SIZE;
+        cache = open(segmentSize, maxBytes);
+        for (int i = 1; i <= 12; i++) {
+            cache.put(key(i), transcript(i));
+        }
+
+        assertEquals(2, cache.size());
+        assertEquals(transcript(11), cache.get(key(11)));
+        assertEquals(transcript(12), cache.get(key(12)));
+        assertTrue(diskBytes() <= 2L * maxBytes + segmentSize, "segments take " + diskBytes() + " bytes");
+
+        cache.shutdown();
+        cache = open(segmentSize, maxBytes);
+
+        assertTrue(cache.getLiveBytes() <= maxBytes);
+        assertEquals(transcript(12), cache.get(key(12)));
+        assertNull(cache.get(key(1)));
+    }
+
+    @Test
+    void reopenStopsAtATornRecord() throws IOException {
+        cache = open(10 * RECORD_SIZE, 100 * RECORD_SIZE);
+        cache.put(key(1), transcript(1));
+        cache.shutdown();
+
+        // A crash in the middle of a write leaves a header without its body behind the last complete record
+        Path segment = segmentFiles().get(0);
+        Files.write(segment, new byte[]{0, 0, 0, 60, 1, 2, 3, 4}, StandardOpenOption.APPEND);
+
+        cache = open(10 * RECORD_SIZE, 100 * RECORD_SIZE);
+        cache.put(key(2), transcript(2));
+
+        assertEquals(transcript(1), cache.get(key(1)));
+        assertEquals(transcript(2), cache.get(key(2)));
+    }
+
+    private SegmentTranscriptCache open(int segmentSize, long maxBytes) {
+        SegmentTranscriptCache opened = new SegmentTranscriptCache(
+                new SimpleMeterRegistry(), true, directory.toString(), segmentSize, maxBytes);
+        opened.init();
+        return opened;
+    }
+
+    private List<Path> segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.sorted().toList();
+        }
+    }
+
+    private long diskBytes() throws IOException {
+        long total = 0;
+        for (Path path : segmentFiles()) {
+            total += Files.size(path);
+        }
+        return total;
+    }
+
+    private static String key(int i) {
+        return String.format("%064x", i);
+    }
+
+    private static String transcript(int i) {
+        return String.format("transcript %049d", i);
+    }
+}